@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.repositories.ArticleRepository;
+
+public class ArticlesControllerBenchmark extends CrudControllerBenchmark<Article> {
+
+  private static final LocalDateTime DATE = LocalDateTime.parse("2023-10-10T12:00:00");
+
+  @Override
+  protected String baseUrl() {
+    return "/api/articles";
+  }
+
+  @Override
+  protected String keyParam() {
+    return "id";
+  }
+
+  @Override
+  protected Class<? extends CrudRepository<Article, ?>> repositoryType() {
+    return ArticleRepository.class;
+  }
+
+  @Override
+  protected Article newRow(int i) {
+    return Article.builder()
+        .title("Article " + i)
+        .url("https://example.org/articles/" + i)
+        .explanation("Explanation of article " + i)
+        .email("cgaucho@ucsb.edu")
+        .dateAdded(DATE)
+        .build();
+  }
+
+  @Override
+  protected String keyOf(Article row) {
+    return Long.toString(row.getId());
+  }
+
+  @Override
+  protected MockHttpServletRequestBuilder postRequest(int i) {
+    return post(baseUrl() + "/post")
+        .param("title", "Article " + i)
+        .param("url", "https://example.org/articles/" + i)
+        .param("explanation", "Explanation of article " + i)
+        .param("email", "cgaucho@ucsb.edu")
+        .param("dateAdded", DATE.toString());
+  }
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+
+/**
+ * ExampleApplication as it runs in production, minus the test
+ * configuration that shares the benchmark classpath.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EntityScan(basePackageClasses = ExampleApplication.class)
+@EnableJpaRepositories(basePackageClasses = ExampleApplication.class)
+@ComponentScan(basePackageClasses = ExampleApplication.class, excludeFilters = {
+    @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ExampleApplication.class),
+    @ComponentScan.Filter(type = FilterType.REGEX, pattern = "edu\\.ucsb\\.cs156\\.example\\.(testconfig|benchmarks)\\..*")
+})
+public class BenchmarkApplication {
+}
@@ -0,0 +1,50 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Boots the whole application (see BenchmarkApplication) against a
+ * private in-memory H2 database, so benchmarks go through the same
+ * security filters, controllers, repositories and Jackson serialization
+ * as a real request.
+ */
+public final class BenchmarkContext {
+
+  private BenchmarkContext() {
+  }
+
+  private static final List<String> PROPERTIES = List.of(
+      "spring.main.banner-mode=off",
+      "server.port=0",
+      "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+      "spring.jpa.hibernate.ddl-auto=create-drop",
+      "logging.level.root=WARN",
+      "logging.level.sql=WARN",
+      "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN");
+
+  public static ConfigurableApplicationContext start(String... extraProperties) {
+    System.setProperty("spring.devtools.restart.enabled", "false");
+    // Passed as command line arguments so they win over the profile's
+    // properties files (e.g. the SQL logging in application-development)
+    String[] args = Stream.concat(PROPERTIES.stream(), Arrays.stream(extraProperties))
+        .map(property -> "--" + property)
+        .toArray(String[]::new);
+    return new SpringApplicationBuilder(BenchmarkApplication.class).run(args);
+  }
+
+  public static MockMvc mockMvc(ConfigurableApplicationContext context) {
+    return MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+        .apply(springSecurity())
+        .build();
+  }
+}
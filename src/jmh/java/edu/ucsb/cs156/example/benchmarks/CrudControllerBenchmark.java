@@ -0,0 +1,177 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The list/get/post/put/delete paths of one CRUD controller, measured
+ * against a table seeded with {@code rows} rows.
+ *
+ * Subclasses say how to build rows, which repository holds them and how
+ * the controller names its key; the benchmark methods are shared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public abstract class CrudControllerBenchmark<T> {
+
+  private static final int SEED_CHUNK = 10_000;
+
+  // The state of the benchmark running in this fork, for RowToDelete
+  private static CrudControllerBenchmark<?> current;
+
+  @Param({ "1000", "100000", "1000000" })
+  public int rows;
+
+  protected ConfigurableApplicationContext context;
+  protected MockMvc mockMvc;
+  protected ObjectMapper mapper;
+  private CrudRepository<T, ?> repository;
+  private List<String> keys;
+  private int nextRow;
+
+  private final RequestPostProcessor admin = user("admin").roles("ADMIN", "USER");
+
+  /** e.g. /api/articles */
+  protected abstract String baseUrl();
+
+  /** The request parameter that names a row, e.g. id */
+  protected abstract String keyParam();
+
+  protected abstract Class<? extends CrudRepository<T, ?>> repositoryType();
+
+  /** A new, unsaved row; i is unique within the run */
+  protected abstract T newRow(int i);
+
+  protected abstract String keyOf(T row);
+
+  /** The /post request that creates row i */
+  protected abstract MockHttpServletRequestBuilder postRequest(int i);
+
+  /** The PUT body that overwrites the row named key */
+  protected T updatedRow(String key, int i) {
+    return newRow(i);
+  }
+
+  @Setup(Level.Trial)
+  public void startAndSeed() {
+    context = BenchmarkContext.start();
+    mockMvc = BenchmarkContext.mockMvc(context);
+    mapper = context.getBean(ObjectMapper.class);
+    repository = context.getBean(repositoryType());
+
+    keys = new ArrayList<>(rows);
+    List<T> chunk = new ArrayList<>(SEED_CHUNK);
+    for (nextRow = 0; nextRow < rows; nextRow++) {
+      chunk.add(newRow(nextRow));
+      if (chunk.size() == SEED_CHUNK) {
+        seed(chunk);
+      }
+    }
+    seed(chunk);
+    current = this;
+  }
+
+  private void seed(List<T> chunk) {
+    repository.saveAll(chunk).forEach(saved -> keys.add(keyOf(saved)));
+    chunk.clear();
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    current = null;
+    context.close();
+  }
+
+  private String randomKey() {
+    return keys.get(ThreadLocalRandom.current().nextInt(keys.size()));
+  }
+
+  private synchronized int claimRow() {
+    return nextRow++;
+  }
+
+  String insertRow() {
+    return keyOf(repository.save(newRow(claimRow())));
+  }
+
+  @Benchmark
+  public MvcResult list() throws Exception {
+    return mockMvc.perform(get(baseUrl() + "/all").with(admin)).andReturn();
+  }
+
+  @Benchmark
+  public MvcResult page() throws Exception {
+    return mockMvc.perform(get(baseUrl() + "/page").param("limit", "100").with(admin)).andReturn();
+  }
+
+  @Benchmark
+  public MvcResult getById() throws Exception {
+    return mockMvc.perform(get(baseUrl()).param(keyParam(), randomKey()).with(admin)).andReturn();
+  }
+
+  @Benchmark
+  public MvcResult create() throws Exception {
+    return mockMvc.perform(postRequest(claimRow()).with(admin).with(csrf())).andReturn();
+  }
+
+  @Benchmark
+  public MvcResult update() throws Exception {
+    String key = randomKey();
+    String body = mapper.writeValueAsString(updatedRow(key, claimRow()));
+    return mockMvc.perform(put(baseUrl()).param(keyParam(), key)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(body)
+        .with(admin).with(csrf())).andReturn();
+  }
+
+  @Benchmark
+  public MvcResult deleteById(RowToDelete row) throws Exception {
+    return mockMvc.perform(delete(baseUrl()).param(keyParam(), row.key).with(admin).with(csrf())).andReturn();
+  }
+
+  /** A freshly inserted row for each delete, so every delete finds something */
+  @State(Scope.Thread)
+  public static class RowToDelete {
+    String key;
+
+    @Setup(Level.Invocation)
+    public void insert() {
+      key = current.insertRow();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+
+public class HelpRequestControllerBenchmark extends CrudControllerBenchmark<HelpRequest> {
+
+  private static final LocalDateTime DATE = LocalDateTime.parse("2023-10-10T12:00:00");
+
+  @Override
+  protected String baseUrl() {
+    return "/api/helprequest";
+  }
+
+  @Override
+  protected String keyParam() {
+    return "id";
+  }
+
+  @Override
+  protected Class<? extends CrudRepository<HelpRequest, ?>> repositoryType() {
+    return HelpRequestRepository.class;
+  }
+
+  @Override
+  protected HelpRequest newRow(int i) {
+    return HelpRequest.builder()
+        .requesterEmail("student" + i + "@ucsb.edu")
+        .teamId("f23-6pm-" + (i % 8))
+        .tableOrBreakoutRoom(Integer.toString(i % 12))
+        .requestTime(DATE)
+        .explanation("Help request " + i)
+        .solved(i % 2 == 0)
+        .build();
+  }
+
+  @Override
+  protected String keyOf(HelpRequest row) {
+    return Long.toString(row.getId());
+  }
+
+  @Override
+  protected MockHttpServletRequestBuilder postRequest(int i) {
+    return post(baseUrl() + "/post")
+        .param("requesterEmail", "student" + i + "@ucsb.edu")
+        .param("teamId", "f23-6pm-" + (i % 8))
+        .param("tableOrBreakoutRoom", Integer.toString(i % 12))
+        .param("requestTime", DATE.toString())
+        .param("explanation", "Help request " + i)
+        .param("solved", Boolean.toString(i % 2 == 0));
+  }
+}
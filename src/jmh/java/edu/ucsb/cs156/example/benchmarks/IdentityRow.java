@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** UCSBDate as it was mapped before ids came from sequences: one INSERT per row. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "benchmark_identity_rows")
+public class IdentityRow {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private long id;
+
+  private String quarterYYYYQ;
+  private String name;
+  private LocalDateTime localDateTime;
+}
@@ -0,0 +1,89 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * saveAll of {@code rows} new rows, with the same columns as UCSBDate,
+ * mapped with IDENTITY ids (before) and with pooled sequence ids (after).
+ * Each operation is one saveAll, so rows inserted per second is the
+ * score times {@code rows}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InsertBenchmark {
+
+  private static final LocalDateTime DATE = LocalDateTime.parse("2023-10-10T12:00:00");
+
+  @Param({ "100", "1000" })
+  public int rows;
+
+  private ConfigurableApplicationContext context;
+  private IdentityRowRepository identityRowRepository;
+  private SequenceRowRepository sequenceRowRepository;
+
+  @Setup
+  public void setUp() {
+    context = BenchmarkContext.start();
+    identityRowRepository = context.getBean(IdentityRowRepository.class);
+    sequenceRowRepository = context.getBean(SequenceRowRepository.class);
+  }
+
+  @TearDown(Level.Iteration)
+  public void emptyTables() {
+    identityRowRepository.deleteAllInBatch();
+    sequenceRowRepository.deleteAllInBatch();
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<IdentityRow> identity() {
+    List<IdentityRow> batch = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      batch.add(IdentityRow.builder()
+          .quarterYYYYQ(Integer.toString(20001 + i % 100))
+          .name("Date " + i)
+          .localDateTime(DATE)
+          .build());
+    }
+    return identityRowRepository.saveAll(batch);
+  }
+
+  @Benchmark
+  public List<SequenceRow> sequence() {
+    List<SequenceRow> batch = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      batch.add(SequenceRow.builder()
+          .quarterYYYYQ(Integer.toString(20001 + i % 100))
+          .name("Date " + i)
+          .localDateTime(DATE)
+          .build());
+    }
+    return sequenceRowRepository.saveAll(batch);
+  }
+}
@@ -0,0 +1,222 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.aspectj.lang.reflect.SourceLocation;
+import org.aspectj.runtime.internal.AroundClosure;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.mvc.ProxyExchange;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import edu.ucsb.cs156.example.aop.HandlerMetricsRegistry;
+import edu.ucsb.cs156.example.aop.LoggingAspect;
+import edu.ucsb.cs156.example.controllers.ArticlesController;
+import edu.ucsb.cs156.example.controllers.FrontendProxyController;
+
+/**
+ * The cost of LoggingAspect.logControllers itself, with INFO logging
+ * turned off as in production, for a handler that is measured and one on
+ * the stoplist.
+ *
+ * The join point is reused, so everything allocated is allocated by the
+ * advice. Run with the GC profiler and check gc.alloc.rate.norm, which
+ * should be ~0 B/op for both:
+ *
+ * mvn -Pbenchmark -DskipTests verify -Djmh.args="LoggingAspectBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingAspectBenchmark {
+
+  private static final Object RESULT = new Object();
+
+  private LoggingAspect aspect;
+  private ProceedingJoinPoint handler;
+  private ProceedingJoinPoint stoplistedHandler;
+
+  @Setup
+  public void setUp() throws Exception {
+    ((Logger) LoggerFactory.getLogger(LoggingAspect.class)).setLevel(Level.WARN);
+
+    aspect = new LoggingAspect();
+    ReflectionTestUtils.setField(aspect, "handlerMetricsRegistry", new HandlerMetricsRegistry());
+
+    handler = new FixedJoinPoint(ArticlesController.class.getMethod("allArticles", ServletWebRequest.class));
+    stoplistedHandler = new FixedJoinPoint(
+        FrontendProxyController.class.getMethod("proxy", ProxyExchange.class));
+
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest("GET", "/api/articles/all")));
+  }
+
+  @TearDown
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Benchmark
+  public Object handler() throws Throwable {
+    return aspect.logControllers(handler);
+  }
+
+  @Benchmark
+  public Object stoplistedHandler() throws Throwable {
+    return aspect.logControllers(stoplistedHandler);
+  }
+
+  /** A join point for one method whose proceed() returns straight away */
+  private static final class FixedJoinPoint implements ProceedingJoinPoint {
+    private final MethodSignature signature;
+
+    FixedJoinPoint(Method method) {
+      this.signature = new FixedSignature(method);
+    }
+
+    @Override
+    public Object proceed() {
+      return RESULT;
+    }
+
+    @Override
+    public Object proceed(Object[] args) {
+      return RESULT;
+    }
+
+    @Override
+    public Signature getSignature() {
+      return signature;
+    }
+
+    @Override
+    public void set$AroundClosure(AroundClosure arc) {
+    }
+
+    @Override
+    public String toShortString() {
+      return signature.toShortString();
+    }
+
+    @Override
+    public String toLongString() {
+      return signature.toLongString();
+    }
+
+    @Override
+    public Object getThis() {
+      return null;
+    }
+
+    @Override
+    public Object getTarget() {
+      return null;
+    }
+
+    @Override
+    public Object[] getArgs() {
+      return new Object[0];
+    }
+
+    @Override
+    public SourceLocation getSourceLocation() {
+      return null;
+    }
+
+    @Override
+    public String getKind() {
+      return METHOD_EXECUTION;
+    }
+
+    @Override
+    public StaticPart getStaticPart() {
+      return null;
+    }
+  }
+
+  private static final class FixedSignature implements MethodSignature {
+    private final Method method;
+
+    FixedSignature(Method method) {
+      this.method = method;
+    }
+
+    @Override
+    public Method getMethod() {
+      return method;
+    }
+
+    @Override
+    public Class getReturnType() {
+      return method.getReturnType();
+    }
+
+    @Override
+    public Class[] getParameterTypes() {
+      return method.getParameterTypes();
+    }
+
+    @Override
+    public String[] getParameterNames() {
+      return new String[0];
+    }
+
+    @Override
+    public Class[] getExceptionTypes() {
+      return method.getExceptionTypes();
+    }
+
+    @Override
+    public String toShortString() {
+      return method.getName();
+    }
+
+    @Override
+    public String toLongString() {
+      return method.toString();
+    }
+
+    @Override
+    public String getName() {
+      return method.getName();
+    }
+
+    @Override
+    public int getModifiers() {
+      return method.getModifiers();
+    }
+
+    @Override
+    public Class getDeclaringType() {
+      return method.getDeclaringClass();
+    }
+
+    @Override
+    public String getDeclaringTypeName() {
+      return method.getDeclaringClass().getName();
+    }
+  }
+}
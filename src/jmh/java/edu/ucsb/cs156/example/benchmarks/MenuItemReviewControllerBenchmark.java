@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+
+public class MenuItemReviewControllerBenchmark extends CrudControllerBenchmark<MenuItemReview> {
+
+  private static final LocalDateTime DATE = LocalDateTime.parse("2023-10-10T12:00:00");
+
+  @Override
+  protected String baseUrl() {
+    return "/api/menuitemreview";
+  }
+
+  @Override
+  protected String keyParam() {
+    return "id";
+  }
+
+  @Override
+  protected Class<? extends CrudRepository<MenuItemReview, ?>> repositoryType() {
+    return MenuItemReviewRepository.class;
+  }
+
+  @Override
+  protected MenuItemReview newRow(int i) {
+    return MenuItemReview.builder()
+        .itemId(i % 500)
+        .reviewerEmail("student" + i + "@ucsb.edu")
+        .stars(i % 6)
+        .dateReviewed(DATE)
+        .comments("Review " + i)
+        .build();
+  }
+
+  @Override
+  protected String keyOf(MenuItemReview row) {
+    return Long.toString(row.getId());
+  }
+
+  @Override
+  protected MockHttpServletRequestBuilder postRequest(int i) {
+    return post(baseUrl() + "/post")
+        .param("itemId", Integer.toString(i % 500))
+        .param("reviewerEmail", "student" + i + "@ucsb.edu")
+        .param("stars", Integer.toString(i % 6))
+        .param("dateReviewed", DATE.toString())
+        .param("comments", "Review " + i);
+  }
+}
@@ -0,0 +1,59 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+
+public class RecommendationRequestControllerBenchmark extends CrudControllerBenchmark<RecommendationRequest> {
+
+  private static final LocalDateTime DATE = LocalDateTime.parse("2023-10-10T12:00:00");
+
+  @Override
+  protected String baseUrl() {
+    return "/api/recommendationrequests";
+  }
+
+  @Override
+  protected String keyParam() {
+    return "id";
+  }
+
+  @Override
+  protected Class<? extends CrudRepository<RecommendationRequest, ?>> repositoryType() {
+    return RecommendationRequestRepository.class;
+  }
+
+  @Override
+  protected RecommendationRequest newRow(int i) {
+    return RecommendationRequest.builder()
+        .requesterEmail("student" + i + "@ucsb.edu")
+        .professorEmail("phtcon@ucsb.edu")
+        .explanation("Recommendation request " + i)
+        .dateRequested(DATE)
+        .dateNeeded(DATE.plusMonths(1))
+        .done(i % 2 == 0)
+        .build();
+  }
+
+  @Override
+  protected String keyOf(RecommendationRequest row) {
+    return Long.toString(row.getId());
+  }
+
+  @Override
+  protected MockHttpServletRequestBuilder postRequest(int i) {
+    return post(baseUrl() + "/post")
+        .param("requestorEmail", "student" + i + "@ucsb.edu")
+        .param("professorEmail", "phtcon@ucsb.edu")
+        .param("explanation", "Recommendation request " + i)
+        .param("dateRequested", DATE.toString())
+        .param("dateNeeded", DATE.plusMonths(1).toString())
+        .param("done", Boolean.toString(i % 2 == 0));
+  }
+}
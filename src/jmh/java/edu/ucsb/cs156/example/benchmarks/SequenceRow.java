@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** UCSBDate as it is mapped now: pooled sequence ids, so inserts can be batched. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "benchmark_sequence_rows")
+public class SequenceRow {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "benchmark_sequence_rows_seq")
+  @SequenceGenerator(name = "benchmark_sequence_rows_seq", sequenceName = "benchmark_sequence_rows_seq", allocationSize = 50)
+  private long id;
+
+  private String quarterYYYYQ;
+  private String name;
+  private LocalDateTime localDateTime;
+}
@@ -0,0 +1,6 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SequenceRowRepository extends JpaRepository<SequenceRow, Long> {
+}
@@ -0,0 +1,53 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+public class UCSBDatesControllerBenchmark extends CrudControllerBenchmark<UCSBDate> {
+
+  private static final LocalDateTime DATE = LocalDateTime.parse("2023-10-10T12:00:00");
+
+  @Override
+  protected String baseUrl() {
+    return "/api/ucsbdates";
+  }
+
+  @Override
+  protected String keyParam() {
+    return "id";
+  }
+
+  @Override
+  protected Class<? extends CrudRepository<UCSBDate, ?>> repositoryType() {
+    return UCSBDateRepository.class;
+  }
+
+  @Override
+  protected UCSBDate newRow(int i) {
+    return UCSBDate.builder()
+        .quarterYYYYQ(Integer.toString(20001 + i % 100))
+        .name("Date " + i)
+        .localDateTime(DATE)
+        .build();
+  }
+
+  @Override
+  protected String keyOf(UCSBDate row) {
+    return Long.toString(row.getId());
+  }
+
+  @Override
+  protected MockHttpServletRequestBuilder postRequest(int i) {
+    return post(baseUrl() + "/post")
+        .param("quarterYYYYQ", Integer.toString(20001 + i % 100))
+        .param("name", "Date " + i)
+        .param("localDateTime", DATE.toString());
+  }
+}
@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+public class UCSBDiningCommonsControllerBenchmark extends CrudControllerBenchmark<UCSBDiningCommons> {
+
+  @Override
+  protected String baseUrl() {
+    return "/api/ucsbdiningcommons";
+  }
+
+  @Override
+  protected String keyParam() {
+    return "code";
+  }
+
+  @Override
+  protected Class<? extends CrudRepository<UCSBDiningCommons, ?>> repositoryType() {
+    return UCSBDiningCommonsRepository.class;
+  }
+
+  @Override
+  protected UCSBDiningCommons newRow(int i) {
+    return UCSBDiningCommons.builder()
+        .code("commons-" + i)
+        .name("Commons " + i)
+        .hasSackMeal(i % 2 == 0)
+        .hasTakeOutMeal(i % 3 == 0)
+        .hasDiningCam(i % 5 == 0)
+        .latitude(34.41 + i * 1e-7)
+        .longitude(-119.85 - i * 1e-7)
+        .build();
+  }
+
+  @Override
+  protected String keyOf(UCSBDiningCommons row) {
+    return row.getCode();
+  }
+
+  @Override
+  protected MockHttpServletRequestBuilder postRequest(int i) {
+    return post(baseUrl() + "/post")
+        .param("code", "commons-" + i)
+        .param("name", "Commons " + i)
+        .param("hasSackMeal", Boolean.toString(i % 2 == 0))
+        .param("hasTakeOutMeal", Boolean.toString(i % 3 == 0))
+        .param("hasDiningCam", Boolean.toString(i % 5 == 0))
+        .param("latitude", Double.toString(34.41 + i * 1e-7))
+        .param("longitude", Double.toString(-119.85 - i * 1e-7));
+  }
+}
@@ -0,0 +1,49 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+
+public class UCSBDiningCommonsMenuItemControllerBenchmark extends CrudControllerBenchmark<UCSBDiningCommonsMenuItem> {
+
+  @Override
+  protected String baseUrl() {
+    return "/api/ucsbdiningcommonsmenuitem";
+  }
+
+  @Override
+  protected String keyParam() {
+    return "id";
+  }
+
+  @Override
+  protected Class<? extends CrudRepository<UCSBDiningCommonsMenuItem, ?>> repositoryType() {
+    return UCSBDiningCommonsMenuItemRepository.class;
+  }
+
+  @Override
+  protected UCSBDiningCommonsMenuItem newRow(int i) {
+    return UCSBDiningCommonsMenuItem.builder()
+        .diningCommonsCode("commons-" + (i % 5))
+        .name("Menu item " + i)
+        .station("Station " + (i % 10))
+        .build();
+  }
+
+  @Override
+  protected String keyOf(UCSBDiningCommonsMenuItem row) {
+    return Long.toString(row.getId());
+  }
+
+  @Override
+  protected MockHttpServletRequestBuilder postRequest(int i) {
+    return post(baseUrl() + "/post")
+        .param("diningCommonsCode", "commons-" + (i % 5))
+        .param("name", "Menu item " + i)
+        .param("station", "Station " + (i % 10));
+  }
+}
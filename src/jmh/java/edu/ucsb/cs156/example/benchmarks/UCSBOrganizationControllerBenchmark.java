@@ -0,0 +1,58 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+
+public class UCSBOrganizationControllerBenchmark extends CrudControllerBenchmark<UCSBOrganization> {
+
+  @Override
+  protected String baseUrl() {
+    return "/api/ucsborganization";
+  }
+
+  @Override
+  protected String keyParam() {
+    return "orgCode";
+  }
+
+  @Override
+  protected Class<? extends CrudRepository<UCSBOrganization, ?>> repositoryType() {
+    return UCSBOrganizationRepository.class;
+  }
+
+  @Override
+  protected UCSBOrganization newRow(int i) {
+    return UCSBOrganization.builder()
+        .orgCode("ORG" + i)
+        .orgTranslationShort("Organization " + i)
+        .orgTranslation("Organization number " + i)
+        .inactive(i % 2 == 0)
+        .build();
+  }
+
+  @Override
+  protected String keyOf(UCSBOrganization row) {
+    return row.getOrgCode();
+  }
+
+  @Override
+  protected MockHttpServletRequestBuilder postRequest(int i) {
+    return post(baseUrl() + "/post")
+        .param("orgCode", "ORG" + i)
+        .param("orgTranslationShort", "Organization " + i)
+        .param("orgTranslation", "Organization number " + i)
+        .param("inactive", Boolean.toString(i % 2 == 0));
+  }
+
+  @Override
+  protected UCSBOrganization updatedRow(String key, int i) {
+    UCSBOrganization row = newRow(i);
+    row.setOrgCode(key);
+    return row;
+  }
+}
@@ -0,0 +1,90 @@
+package edu.ucsb.cs156.example.aop;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import edu.ucsb.cs156.example.models.HandlerStats;
+
+/**
+ * Latency histogram, in-flight count and error count for one controller
+ * method. Everything is a striped LongAdder so concurrent requests never
+ * contend on a lock or a single CAS slot.
+ */
+public class HandlerMetrics {
+  // bucket i counts latencies in [2^i, 2^(i+1)) microseconds; the last one is open-ended
+  static final int BUCKETS = 32;
+
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder inFlight = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+  private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+  public HandlerMetrics() {
+    for (int i = 0; i < BUCKETS; i++) {
+      histogram[i] = new LongAdder();
+    }
+  }
+
+  public void started() {
+    inFlight.increment();
+  }
+
+  public void finished(long nanos, boolean failed) {
+    inFlight.decrement();
+    calls.increment();
+    if (failed) {
+      errors.increment();
+    }
+    totalNanos.add(nanos);
+    maxNanos.accumulate(nanos);
+    histogram[bucket(nanos)].increment();
+  }
+
+  static int bucket(long nanos) {
+    long micros = nanos / 1000;
+    if (micros <= 0) {
+      return 0;
+    }
+    return Math.min(63 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+  }
+
+  static long upperBoundMicros(int bucket) {
+    return 1L << (bucket + 1);
+  }
+
+  static long percentileMicros(long[] counts, long total, double quantile) {
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    int i = 0;
+    long seen = counts[0];
+    while (seen < rank) {
+      i++;
+      seen += counts[i];
+    }
+    return upperBoundMicros(i);
+  }
+
+  public HandlerStats snapshot() {
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = histogram[i].sum();
+      total += counts[i];
+    }
+    double mean = total == 0 ? 0 : totalNanos.sum() / 1000.0 / total;
+    return HandlerStats.builder()
+        .calls(calls.sum())
+        .errors(errors.sum())
+        .inFlight(inFlight.sum())
+        .meanMicros(mean)
+        .p50Micros(percentileMicros(counts, total, 0.50))
+        .p90Micros(percentileMicros(counts, total, 0.90))
+        .p99Micros(percentileMicros(counts, total, 0.99))
+        .maxMicros(maxNanos.get() / 1000)
+        .build();
+  }
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.aop;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import edu.ucsb.cs156.example.models.HandlerStats;
+
+// Served at /actuator/handlermetrics; see management.endpoints.web.exposure.include
+
+@Component
+@Endpoint(id = "handlermetrics")
+public class HandlerMetricsEndpoint {
+
+  @Autowired
+  HandlerMetricsRegistry handlerMetricsRegistry;
+
+  @ReadOperation
+  public Map<String, HandlerStats> handlerMetrics() {
+    return handlerMetricsRegistry.snapshot();
+  }
+}
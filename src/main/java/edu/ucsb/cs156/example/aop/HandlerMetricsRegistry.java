@@ -0,0 +1,43 @@
+package edu.ucsb.cs156.example.aop;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+import edu.ucsb.cs156.example.models.HandlerStats;
+
+/**
+ * The HandlerMetrics of every controller method that has been called,
+ * keyed by e.g. "edu.ucsb.cs156.example.controllers.ArticlesController
+ * .allArticles(org.springframework.web.context.request.ServletWebRequest)",
+ * so overloads and same-named classes in other packages are counted apart.
+ */
+@Component
+public class HandlerMetricsRegistry {
+  private final ConcurrentHashMap<String, HandlerMetrics> handlers = new ConcurrentHashMap<>();
+
+  public HandlerMetrics forHandler(Method method) {
+    return forHandler(key(method));
+  }
+
+  public HandlerMetrics forHandler(String handler) {
+    return handlers.computeIfAbsent(handler, h -> new HandlerMetrics());
+  }
+
+  public Map<String, HandlerStats> snapshot() {
+    Map<String, HandlerStats> stats = new TreeMap<>();
+    handlers.forEach((handler, metrics) -> stats.put(handler, metrics.snapshot()));
+    return stats;
+  }
+
+  static String key(Method method) {
+    return Arrays.stream(method.getParameterTypes())
+        .map(Class::getName)
+        .collect(Collectors.joining(",", method.getDeclaringClass().getName() + "." + method.getName() + "(", ")"));
+  }
+}
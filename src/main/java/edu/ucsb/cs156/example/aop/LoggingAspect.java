@@ -1,18 +1,21 @@
 package edu.ucsb.cs156.example.aop;
 
 import lombok.extern.slf4j.Slf4j;
-import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import javax.servlet.http.HttpServletRequest;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Optional;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Aspect
@@ -28,25 +31,78 @@ public class LoggingAspect {
       @annotation(org.springframework.web.bind.annotation.PatchMapping)
       """;
 
-  private ArrayList<String> stoplist = new ArrayList<String>(Arrays.asList(
-      "edu.ucsb.cs156.example.controllers.FrontendProxyController"));
-
-  @Before(pointcut)
-  public void logControllers(JoinPoint joinPoint) {
-    getCurrentHttpRequest().ifPresent(
-        request -> {
-          String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
-          if (!stoplist.contains(declaringTypeName)) {
-            log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
-                joinPoint.getSignature().getName(), declaringTypeName));
-          }
-        });
+  private static final Set<String> stoplist = Set.of(
+      "edu.ucsb.cs156.example.controllers.FrontendProxyController");
+
+  /**
+   * Everything the advice needs to know about one controller method,
+   * worked out the first time it is called.
+   */
+  static final class Handler {
+    final boolean stoplisted;
+    final String methodName;
+    final String declaringTypeName;
+    final HandlerMetrics metrics;
+
+    Handler(boolean stoplisted, String methodName, String declaringTypeName, HandlerMetrics metrics) {
+      this.stoplisted = stoplisted;
+      this.methodName = methodName;
+      this.declaringTypeName = declaringTypeName;
+      this.metrics = metrics;
+    }
+  }
+
+  private final ConcurrentHashMap<Method, Handler> handlers = new ConcurrentHashMap<>();
+
+  @Autowired
+  HandlerMetricsRegistry handlerMetricsRegistry;
+
+  @Around(pointcut)
+  public Object logControllers(ProceedingJoinPoint joinPoint) throws Throwable {
+    Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+    // get first: computeIfAbsent would capture a new lambda on every call
+    Handler handler = handlers.get(method);
+    if (handler == null) {
+      handler = handlers.computeIfAbsent(method, this::describe);
+    }
+    if (handler.stoplisted) {
+      return joinPoint.proceed();
+    }
+
+    if (log.isInfoEnabled()) {
+      HttpServletRequest request = getCurrentHttpRequest();
+      if (request != null) {
+        log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
+            handler.methodName, handler.declaringTypeName));
+      }
+    }
+
+    HandlerMetrics metrics = handler.metrics;
+    boolean failed = false;
+    metrics.started();
+    long start = System.nanoTime();
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable t) {
+      failed = true;
+      throw t;
+    } finally {
+      metrics.finished(System.nanoTime() - start, failed);
+    }
+  }
+
+  private Handler describe(Method method) {
+    Class<?> declaringType = method.getDeclaringClass();
+    boolean stoplisted = stoplist.contains(declaringType.getName());
+    HandlerMetrics metrics = stoplisted ? null : handlerMetricsRegistry.forHandler(method);
+    return new Handler(stoplisted, method.getName(), declaringType.getName(), metrics);
   }
 
-  private static Optional<HttpServletRequest> getCurrentHttpRequest() {
-    return Optional.ofNullable(RequestContextHolder.getRequestAttributes())
-        .filter(ServletRequestAttributes.class::isInstance)
-        .map(ServletRequestAttributes.class::cast)
-        .map(ServletRequestAttributes::getRequest);
+  private static HttpServletRequest getCurrentHttpRequest() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes instanceof ServletRequestAttributes servletRequestAttributes) {
+      return servletRequestAttributes.getRequest();
+    }
+    return null;
   }
 }
@@ -4,18 +4,13 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.regex.Pattern;
 
 import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -33,8 +28,7 @@ import org.springframework.security.web.util.matcher.RequestMatcher;
 
 
 
-import edu.ucsb.cs156.example.entities.User;
-import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminStatusService;
 import lombok.extern.slf4j.Slf4j;
 
 @Configuration
@@ -43,11 +37,11 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<String>();
+  private static final GrantedAuthority ROLE_ADMIN = new SimpleGrantedAuthority("ROLE_ADMIN");
+  private static final GrantedAuthority ROLE_MEMBER = new SimpleGrantedAuthority("ROLE_MEMBER");
 
   @Autowired
-  UserRepository userRepository;
+  AdminStatusService adminStatusService;
 
   @Override
   protected void configure(HttpSecurity http) throws Exception {
@@ -69,41 +63,30 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     web.ignoring().antMatchers("/h2-console/**");
   }
 
+  // runs on every login, so it only does in-memory lookups and logs nothing at INFO
   private GrantedAuthoritiesMapper userAuthoritiesMapper() {
     return (authorities) -> {
-      Set<GrantedAuthority> mappedAuthorities = new HashSet<>();
-      log.info("********** authorities={}", authorities);
+      Set<GrantedAuthority> mappedAuthorities = new HashSet<>(authorities.size() + 2);
 
-      authorities.forEach(authority -> {
-        log.info("********** authority={}", authority);
+      for (GrantedAuthority authority : authorities) {
         mappedAuthorities.add(authority);
-        if (OAuth2UserAuthority.class.isInstance(authority)) {
-          OAuth2UserAuthority oauth2UserAuthority = (OAuth2UserAuthority) authority;
-
-          Map<String, Object> userAttributes = oauth2UserAuthority.getAttributes();
-          log.info("********** userAttributes={}", userAttributes);
-
-          String email = (String) userAttributes.get("email");
-          if (getAdmin(email)) {
-            mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+        if (authority instanceof OAuth2UserAuthority oauth2UserAuthority) {
+          String email = (String) oauth2UserAuthority.getAttributes().get("email");
+          if (adminStatusService.isAdmin(email)) {
+            mappedAuthorities.add(ROLE_ADMIN);
           }
 
-          if (email.endsWith("@ucsb.edu")) {
-            mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_MEMBER"));
+          if (email != null && email.endsWith("@ucsb.edu")) {
+            mappedAuthorities.add(ROLE_MEMBER);
           }
         }
-
-      });
-      log.info("********** mappedAuthorities={}", mappedAuthorities);
+      }
+      log.debug("mappedAuthorities={}", mappedAuthorities);
       return mappedAuthorities;
     };
   }
 
   public boolean getAdmin(String email) {
-    if (adminEmails.contains(email)) {
-      return true;
-    }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
+    return adminStatusService.isAdmin(email);
   }
 }
\ No newline at end of file
@@ -1,19 +1,50 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.entities.Versioned;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.errors.EntityAlreadyExistsException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.PreconditionFailedException;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.servlet.http.HttpServletResponse;
 
 @Slf4j
 public abstract class ApiController {
+  public static final int MAX_PAGE_SIZE = 1000;
+  public static final long NO_VERSION = -1;
+
+  private static final Pattern ROW_TAG = Pattern.compile("\"(\\d{1,18})(-[0-9a-f]{1,8})?\"");
+
   @Autowired
   private CurrentUserService currentUserService;
 
@@ -25,6 +56,186 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * The requested page size, clamped to [1, MAX_PAGE_SIZE]
+   */
+  protected static int pageSize(int limit) {
+    return Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+  }
+
+  /**
+   * How many rows to fetch for one keyset page: one more than the page
+   * holds, so keysetPage can tell whether another page follows.
+   */
+  protected static int keysetFetchSize(int limit) {
+    return pageSize(limit) + 1;
+  }
+
+  /**
+   * First keysetFetchSize rows ordered by the keyset column; the caller
+   * filters on key &gt; after so the database does the slicing.
+   */
+  protected static Pageable keysetPageable(int limit, String key) {
+    return PageRequest.of(0, keysetFetchSize(limit), Sort.by(key));
+  }
+
+  /**
+   * The page of items, fetched keysetFetchSize at a time. nextAfter is
+   * set only when the extra row came back, and that row is left for the
+   * next page, so a last page that is exactly full is not followed by an
+   * empty one.
+   */
+  protected static <T, K> KeysetPage<T, K> keysetPage(List<T> items, int limit, Function<T, K> keyOf) {
+    int size = pageSize(limit);
+    K nextAfter = null;
+    if (items.size() > size) {
+      items = new ArrayList<>(items.subList(0, size));
+      nextAfter = keyOf.apply(items.get(size - 1));
+    }
+    return KeysetPage.<T, K>builder()
+        .items(items)
+        .nextAfter(nextAfter)
+        .build();
+  }
+
+  /**
+   * The rows with the given keys, in the same order, fetched with one
+   * findAllById; throws EntityNotFoundException for the first key that
+   * has no row. A key given twice is a BadRequestException, since the batch
+   * would otherwise update or delete the same row twice.
+   */
+  protected static <T, K> List<T> findAllOrThrow(CrudRepository<T, K> repository, List<K> keys,
+      Function<T, K> keyOf, Class<T> entityType) {
+    Set<K> seen = new HashSet<>();
+    for (K key : keys) {
+      if (!seen.add(key)) {
+        throw new BadRequestException("%s with id %s appears more than once"
+            .formatted(entityType.getSimpleName(), key));
+      }
+    }
+    Map<K, T> byKey = new HashMap<>();
+    repository.findAllById(keys).forEach(row -> byKey.put(keyOf.apply(row), row));
+    List<T> rows = new ArrayList<>(keys.size());
+    for (K key : keys) {
+      T row = byKey.get(key);
+      if (row == null) {
+        throw new EntityNotFoundException(entityType, key);
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  /**
+   * Throws EntityAlreadyExistsException for the first key that appears
+   * twice in keys or already has a row, so creating rows with
+   * client-chosen keys never overwrites one.
+   */
+  protected static <T, K> void requireNew(CrudRepository<T, K> repository, List<K> keys,
+      Function<T, K> keyOf, Class<T> entityType) {
+    Set<K> seen = new HashSet<>();
+    for (K key : keys) {
+      if (!seen.add(key)) {
+        throw new EntityAlreadyExistsException(entityType, key);
+      }
+    }
+    Iterator<T> existing = repository.findAllById(keys).iterator();
+    if (existing.hasNext()) {
+      throw new EntityAlreadyExistsException(entityType, keyOf.apply(existing.next()));
+    }
+  }
+
+  /**
+   * True, with the response already set to 304, when the request's
+   * If-None-Match matches etag; otherwise the response is tagged with etag.
+   * Either way clients may keep the response but must revalidate it, which
+   * also stops Spring Security from marking it no-store.
+   */
+  protected static boolean notModified(ServletWebRequest request, String etag) {
+    request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+    return request.checkNotModified(etag);
+  }
+
+  /**
+   * The strong entity tag for a row as it stands, quotes included: its
+   * version and a hash of its contents, so a row deleted and created
+   * again under the same key does not get back the tag it had before.
+   */
+  protected static String versionTag(Versioned row) {
+    return "\"%d-%s\"".formatted(row.getVersion(), Integer.toHexString(row.hashCode()));
+  }
+
+  /**
+   * Sets the response's ETag to row's, so a client can send it back as
+   * If-Match without reading the row again, and returns row.
+   */
+  protected static <T extends Versioned> T tagged(HttpServletResponse response, T row) {
+    response.setHeader(HttpHeaders.ETAG, versionTag(row));
+    return row;
+  }
+
+  /**
+   * The version an If-Match header pins: null when there is no header or
+   * it is *, and NO_VERSION, which no row has, when it is anything other
+   * than one strong row tag. A bare version tag, "3", is still accepted.
+   */
+  protected static Long ifMatchVersion(String ifMatch) {
+    if (ifMatch == null || ifMatch.trim().equals("*")) {
+      return null;
+    }
+    Matcher tag = ROW_TAG.matcher(ifMatch.trim());
+    if (tag.matches()) {
+      return Long.valueOf(tag.group(1));
+    }
+    return NO_VERSION;
+  }
+
+  /**
+   * Writes incoming over the row with the given key using one UPDATE
+   * statement, and returns the row as it now stands. update gets the
+   * version If-Match pins (see ifMatchVersion) and returns the number of
+   * rows it changed. When a version was pinned the result is incoming at
+   * the next version, so the row is not read back. When the pinned tag
+   * also carries a content hash, the row is read first and must still
+   * have that tag, so a row created again since the client read it, at
+   * the same version, is not overwritten.
+   *
+   * When nothing changed, throws EntityNotFoundException if the row is
+   * gone and PreconditionFailedException if it has moved on from the
+   * pinned version.
+   */
+  protected static <T extends Versioned, K> T updateOrThrow(CrudRepository<T, K> repository, Class<T> entityType,
+      K key, String ifMatch, T incoming, ToIntFunction<Long> update) {
+    Long version = ifMatchVersion(ifMatch);
+    Supplier<EntityNotFoundException> notFound = () -> new EntityNotFoundException(entityType, key);
+    if (version != null && ifMatch.contains("-")) {
+      T current = repository.findById(key).orElseThrow(notFound);
+      if (!versionTag(current).equals(ifMatch.trim())) {
+        throw new PreconditionFailedException(entityType, key, versionTag(current));
+      }
+    }
+    if (update.applyAsInt(version) == 0) {
+      T current = repository.findById(key).orElseThrow(notFound);
+      throw new PreconditionFailedException(entityType, key, versionTag(current));
+    }
+    if (version == null) {
+      return repository.findById(key).orElseThrow(notFound);
+    }
+    incoming.setVersion(version + 1);
+    return incoming;
+  }
+
+  /**
+   * Throws ObjectOptimisticLockingFailureException, answered with 409,
+   * unless current is still at the version the client read it at. The
+   * batch PUTs check every row this way before changing any of them.
+   */
+  protected static <T extends Versioned> void requireVersion(T current, long version, Class<T> entityType, Object key) {
+    if (current.getVersion() != version) {
+      throw new ObjectOptimisticLockingFailureException(entityType, key);
+    }
+  }
+
   @ExceptionHandler({ EntityNotFoundException.class })
   @ResponseStatus(HttpStatus.NOT_FOUND)
   public Object handleGenericException(Throwable e) {
@@ -33,4 +244,37 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  /**
+   * A request parameter is out of range, e.g. a latitude past the poles.
+   * Only BadRequestException maps here, so an IllegalArgumentException
+   * thrown by a bug is still a 500.
+   */
+  @ExceptionHandler({ BadRequestException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleBadRequest(Throwable e) {
+    return handleGenericException(e);
+  }
+
+  @ExceptionHandler({ PreconditionFailedException.class })
+  @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+  public Object handlePreconditionFailed(Throwable e) {
+    return handleGenericException(e);
+  }
+
+  @ExceptionHandler({ EntityAlreadyExistsException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleAlreadyExists(Throwable e) {
+    return handleGenericException(e);
+  }
+
+  /**
+   * Another request updated or deleted the row between this request
+   * reading it and writing it back.
+   */
+  @ExceptionHandler({ OptimisticLockingFailureException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleConflict(Throwable e) {
+    return handleGenericException(e);
+  }
 }
@@ -3,8 +3,14 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.Article;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.ArticleSummary;
 import edu.ucsb.cs156.example.repositories.ArticleRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersions;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import edu.ucsb.cs156.example.services.SearchIndex;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,20 +20,31 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.util.Streamable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "Articles")
 @RequestMapping("/api/articles")
@@ -38,17 +55,61 @@ public class ArticlesController extends ApiController {
     @Autowired
     ArticleRepository articleRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersions tableVersions;
+
+    @Autowired
+    ChangeLog changeLog;
+
+    @Autowired
+    SearchIndex searchIndex;
+
     @Operation(summary= "List all articles")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Article> allArticles() {
+    public Iterable<Article> allArticles(ServletWebRequest request) {
+        if (notModified(request, tableVersions.etag(Article.class))) {
+            return null;
+        }
         Iterable<Article> articles = articleRepository.findAll();
         return articles;
     }
 
+    @Operation(summary= "List all articles without their explanation, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/summary")
+    public List<ArticleSummary> summaryOfArticles(ServletWebRequest request) {
+        if (notModified(request, tableVersions.etag(Article.class))) {
+            return null;
+        }
+        return articleRepository.findSummariesBy(Sort.by("id"));
+    }
+
+    @Operation(summary= "List articles one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<Article, Long> pageOfArticles(
+            @Parameter(name="limit", description="Maximum number of articles to return (at most 1000)", example="100") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(name="after", description="Only return articles whose id is greater than this; pass the nextAfter of the previous page") @RequestParam(defaultValue = "0") long after) {
+        List<Article> page = articleRepository.findByIdGreaterThan(after, keysetPageable(limit, "id"));
+        return keysetPage(page, limit, Article::getId);
+    }
+
+    @Operation(summary= "Export all articles as newline-delimited JSON, one per line")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportArticles() {
+        StreamingResponseBody body = out -> ndjsonExportService.export(articleRepository::streamAll, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @Operation(summary= "Create an article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public Article postArticle(
             @Parameter(name="title", description="The article name", example="New Movies in 2023") @RequestParam String title,
             @Parameter(name="url", description="URL of the article", example="https://editorial.rottentomatoes.com/article/most-anticipated-movies-of-2023/") @RequestParam String url,
@@ -70,6 +131,8 @@ public class ArticlesController extends ApiController {
         article.setDateAdded(dateAdded);
 
         Article savedArticle = articleRepository.save(article);
+        changeLog.saved(Article.class, List.of(savedArticle.getId()));
+        searchIndex.saved(Article.class, List.of(savedArticle));
 
         return savedArticle;
     }
@@ -78,9 +141,13 @@ public class ArticlesController extends ApiController {
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public Article getById(
-            @Parameter(name="id", description="The autogenerated integer that identifies an article", example="42") @RequestParam Long id) {
+            @Parameter(name="id", description="The autogenerated integer that identifies an article", example="42") @RequestParam Long id,
+            ServletWebRequest request) {
         Article article = articleRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Article.class, id));
+        if (notModified(request, versionTag(article))) {
+            return null;
+        }
 
         return article;
     }
@@ -88,12 +155,15 @@ public class ArticlesController extends ApiController {
     @Operation(summary= "Delete an article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteArticle(
             @Parameter(name="id", description="The autogenereated integer that identifies an article") @RequestParam Long id) {
-        Article article = articleRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Article.class, id));
-
-        articleRepository.delete(article);
+        if (articleRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(Article.class, id);
+        }
+        tableVersions.changed(Article.class);
+        changeLog.deleted(Article.class, List.of(id));
+        searchIndex.deleted(Article.class, List.of(id));
         return genericMessage("Article with id %s deleted".formatted(id));
     }
 
@@ -101,22 +171,72 @@ public class ArticlesController extends ApiController {
     @Operation(summary= "Update a single article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public Article updateArticle(
             @Parameter(name="id", description="The autogenerated integer that identifies an article", example="42") @RequestParam Long id,
-            @RequestBody @Valid Article incoming) {
-
-        Article article = articleRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Article.class, id));
+            @Parameter(name="If-Match", description="Only update if the row still has this ETag, as sent by GET") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid Article incoming,
+            HttpServletResponse response) {
+        incoming.setId(id);
+        Article article = updateOrThrow(articleRepository, Article.class, id, ifMatch, incoming,
+                version -> articleRepository.updateRowById(id, version, incoming));
+        tableVersions.changed(Article.class);
+        changeLog.saved(Article.class, List.of(id));
+        searchIndex.saved(Article.class, List.of(article));
+
+        return tagged(response, article);
+    }
 
-        article.setTitle(incoming.getTitle());
-        article.setUrl(incoming.getUrl());
-        article.setExplanation(incoming.getExplanation());
-        article.setEmail(incoming.getEmail());
-        article.setDateAdded(incoming.getDateAdded());
+    @Operation(summary= "Create many articles at once; any ids in the request are ignored")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/post/batch")
+    @Transactional
+    public Iterable<Article> postArticlesBatch(
+            @RequestBody @Valid List<Article> incoming) {
+        incoming.forEach(row -> row.setId(0));
+        Iterable<Article> saved = articleRepository.saveAll(incoming);
+        changeLog.saved(Article.class, Streamable.of(saved).map(Article::getId).toList());
+        searchIndex.saved(Article.class, saved);
+        return saved;
+    }
 
-        
-        articleRepository.save(article);
+    @Operation(summary= "Update many articles at once, matched by id; 409 if any row has moved on from the version sent")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<Article> updateArticlesBatch(
+            @RequestBody @Valid List<Article> incoming) {
+        List<Long> ids = incoming.stream().map(Article::getId).toList();
+        List<Article> rows = findAllOrThrow(articleRepository, ids, Article::getId, Article.class);
+
+        for (int i = 0; i < rows.size(); i++) {
+            Article existing = rows.get(i);
+            Article row = incoming.get(i);
+            requireVersion(existing, row.getVersion(), Article.class, existing.getId());
+            existing.setTitle(row.getTitle());
+            existing.setUrl(row.getUrl());
+            existing.setExplanation(row.getExplanation());
+            existing.setEmail(row.getEmail());
+            existing.setDateAdded(row.getDateAdded());
+        }
+
+        articleRepository.saveAll(rows);
+        changeLog.saved(Article.class, ids);
+        searchIndex.saved(Article.class, rows);
+        return rows;
+    }
 
-        return article;
+    @Operation(summary= "Delete many articles at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public Object deleteArticlesBatch(
+            @Parameter(name="ids", description="JSON array of the ids to delete") @RequestBody List<Long> ids) {
+        List<Article> rows = findAllOrThrow(articleRepository, ids, Article::getId, Article.class);
+
+        articleRepository.deleteAll(rows);
+        changeLog.deleted(Article.class, ids);
+        searchIndex.deleted(Article.class, ids);
+        return genericMessage("Articles with ids %s deleted".formatted(ids));
     }
 }
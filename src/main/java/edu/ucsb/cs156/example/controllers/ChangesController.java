@@ -0,0 +1,36 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.entities.ChangeLogEntry;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Tag(name = "Changes")
+@RequestMapping("/api/changes")
+@RestController
+public class ChangesController extends ApiController {
+
+    @Autowired
+    ChangeLog changeLog;
+
+    @Operation(summary= "List the creates, updates and deletes of every entity after a sequence number, oldest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("")
+    public KeysetPage<ChangeLogEntry, Long> changesSince(
+            @Parameter(name="since", description="Only return changes whose seq is greater than this; pass the seq of the last change already seen, or the nextAfter of the previous page") @RequestParam(defaultValue = "0") long since,
+            @Parameter(name="limit", description="Maximum number of changes to return (at most 1000)", example="100") @RequestParam(defaultValue = "100") int limit) {
+        List<ChangeLogEntry> changes = changeLog.changesSince(since, keysetPageable(limit, "seq"));
+        return keysetPage(changes, limit, ChangeLogEntry::getSeq);
+    }
+}
@@ -1,8 +1,16 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.HelpRequestFilter;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.HelpRequestStream;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersions;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import edu.ucsb.cs156.example.services.SearchIndex;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,20 +20,32 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.util.Streamable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 
 @Tag(name = "HelpRequest")
 @RequestMapping("/api/helprequest")
@@ -36,17 +56,91 @@ public class HelpRequestController extends ApiController {
     @Autowired
     HelpRequestRepository helpRequestRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersions tableVersions;
+
+    @Autowired
+    ChangeLog changeLog;
+
+    @Autowired
+    SearchIndex searchIndex;
+
+    @Autowired
+    HelpRequestStream helpRequestStream;
+
     @Operation(summary= "List all help requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<HelpRequest> allHelpRequests() {
+    public Iterable<HelpRequest> allHelpRequests(ServletWebRequest request) {
+        if (notModified(request, tableVersions.etag(HelpRequest.class))) {
+            return null;
+        }
         Iterable<HelpRequest> requests = helpRequestRepository.findAll();
         return requests;
     }
 
+    @Operation(summary= "List help requests one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<HelpRequest, Long> pageOfHelpRequests(
+            @Parameter(name="limit", description="Maximum number of help requests to return (at most 1000)", example="100") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(name="after", description="Only return help requests whose id is greater than this; pass the nextAfter of the previous page") @RequestParam(defaultValue = "0") long after) {
+        List<HelpRequest> page = helpRequestRepository.findByIdGreaterThan(after, keysetPageable(limit, "id"));
+        return keysetPage(page, limit, HelpRequest::getId);
+    }
+
+    @Operation(summary= "List help requests by solved flag, team and request time window, ordered by request time; requests without a request time are left out")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/filter")
+    public KeysetPage<HelpRequest, String> filterHelpRequests(
+            @Parameter(name="solved", description="Only return solved (true) or unsolved (false) help requests; omit for both", example="false") @RequestParam(required = false) Boolean solved,
+            @Parameter(name="teamId", description="Only return help requests from this team", example="s22-5pm-3") @RequestParam(required = false) String teamId,
+            @Parameter(name="since", description="Only return help requests made at or after this time, in iso format", example="2022-01-03T00:00:00") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @Parameter(name="until", description="Only return help requests made before this time, in iso format", example="2022-01-04T00:00:00") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime until,
+            @Parameter(name="newestFirst", description="Order by request time descending instead of ascending", example="false") @RequestParam(defaultValue = "false") boolean newestFirst,
+            @Parameter(name="limit", description="Maximum number of help requests to return (at most 1000)", example="100") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(name="after", description="Only return help requests after this requestTime,id in the chosen order; pass the nextAfter of the previous page", example="2022-01-03T00:00,3") @RequestParam(required = false) String after) {
+        HelpRequestFilter.HelpRequestFilterBuilder filter = HelpRequestFilter.builder()
+                .solved(solved)
+                .teamId(teamId)
+                .since(since)
+                .until(until)
+                .newestFirst(newestFirst);
+        if (after != null) {
+            int comma = after.lastIndexOf(',');
+            try {
+                filter.afterRequestTime(LocalDateTime.parse(after.substring(0, Math.max(comma, 0))))
+                        .afterId(Long.parseLong(after.substring(comma + 1)));
+            } catch (DateTimeParseException e) {
+                throw new BadRequestException("after must be requestTime,id but was %s".formatted(after));
+            }
+        }
+        List<HelpRequest> page = helpRequestRepository.findFiltered(filter.build(), keysetFetchSize(limit));
+        return keysetPage(page, limit, request -> request.getRequestTime() + "," + request.getId());
+    }
+
+    @Operation(summary= "Stream every help request, then each change to them, as server-sent events")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamHelpRequests() {
+        return helpRequestStream.subscribe();
+    }
+
+    @Operation(summary= "Export all help requests as newline-delimited JSON, one per line")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportHelpRequests() {
+        StreamingResponseBody body = out -> ndjsonExportService.export(helpRequestRepository::streamAll, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @Operation(summary= "Create a new help request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public HelpRequest postHelpRequest(
             @Parameter(name="requesterEmail", description="Email of the requester", example="user@ucsb.edu") @RequestParam String requesterEmail,
             @Parameter(name="teamId", description="ID of the team", example="s22-5pm-3") @RequestParam String teamId,
@@ -67,7 +161,10 @@ public class HelpRequestController extends ApiController {
         helpRequest.setSolved(solved);
 
         HelpRequest savedHelpRequest = helpRequestRepository.save(helpRequest);
+        changeLog.saved(HelpRequest.class, List.of(savedHelpRequest.getId()));
+        searchIndex.saved(HelpRequest.class, List.of(savedHelpRequest));
         log.info("Help request saved with ID: {}", savedHelpRequest.getId());
+        helpRequestStream.saved(List.of(savedHelpRequest));
         return savedHelpRequest;
     }
 
@@ -76,9 +173,13 @@ public class HelpRequestController extends ApiController {
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public HelpRequest getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            ServletWebRequest request) {
         HelpRequest helpRequest = helpRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        if (notModified(request, versionTag(helpRequest))) {
+            return null;
+        }
 
         return helpRequest;
     }
@@ -87,35 +188,94 @@ public class HelpRequestController extends ApiController {
     @Operation(summary= "Update a single help request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public HelpRequest updateHelpRequest(
             @Parameter(name="id") @RequestParam Long id,
-            @RequestBody @Valid HelpRequest incoming) {
-
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-        helpRequest.setRequesterEmail(incoming.getRequesterEmail());
-        helpRequest.setTeamId(incoming.getTeamId());
-        helpRequest.setTableOrBreakoutRoom(incoming.getTableOrBreakoutRoom());
-        helpRequest.setRequestTime(incoming.getRequestTime());
-        helpRequest.setExplanation(incoming.getExplanation());
-        helpRequest.setSolved(incoming.getSolved());
-
-        helpRequestRepository.save(helpRequest);
+            @Parameter(name="If-Match", description="Only update if the row still has this ETag, as sent by GET") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid HelpRequest incoming,
+            HttpServletResponse response) {
+        incoming.setId(id);
+        HelpRequest helpRequest = updateOrThrow(helpRequestRepository, HelpRequest.class, id, ifMatch, incoming,
+                version -> helpRequestRepository.updateRowById(id, version, incoming));
+        tableVersions.changed(HelpRequest.class);
+        changeLog.saved(HelpRequest.class, List.of(id));
+        searchIndex.saved(HelpRequest.class, List.of(helpRequest));
+        helpRequestStream.saved(List.of(helpRequest));
 
-        return helpRequest;
+        return tagged(response, helpRequest);
     }
 
     // Delete Feature
     @Operation(summary= "Delete a HelpRequest")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteHelpRequest(
             @Parameter(name="id") @RequestParam Long id) {
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-        helpRequestRepository.delete(helpRequest);
+        if (helpRequestRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(HelpRequest.class, id);
+        }
+        tableVersions.changed(HelpRequest.class);
+        changeLog.deleted(HelpRequest.class, List.of(id));
+        searchIndex.deleted(HelpRequest.class, List.of(id));
+        helpRequestStream.deleted(List.of(id));
         return genericMessage("HelpRequest with id %s deleted".formatted(id));
     }
-}
\ No newline at end of file
+
+    @Operation(summary= "Create many help requests at once; any ids in the request are ignored")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/post/batch")
+    @Transactional
+    public Iterable<HelpRequest> postHelpRequestsBatch(
+            @RequestBody @Valid List<HelpRequest> incoming) {
+        incoming.forEach(row -> row.setId(0));
+        List<HelpRequest> saved = Streamable.of(helpRequestRepository.saveAll(incoming)).toList();
+        helpRequestStream.saved(saved);
+        changeLog.saved(HelpRequest.class, saved.stream().map(HelpRequest::getId).toList());
+        searchIndex.saved(HelpRequest.class, saved);
+        return saved;
+    }
+
+    @Operation(summary= "Update many help requests at once, matched by id; 409 if any row has moved on from the version sent")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<HelpRequest> updateHelpRequestsBatch(
+            @RequestBody @Valid List<HelpRequest> incoming) {
+        List<Long> ids = incoming.stream().map(HelpRequest::getId).toList();
+        List<HelpRequest> rows = findAllOrThrow(helpRequestRepository, ids, HelpRequest::getId, HelpRequest.class);
+
+        for (int i = 0; i < rows.size(); i++) {
+            HelpRequest existing = rows.get(i);
+            HelpRequest row = incoming.get(i);
+            requireVersion(existing, row.getVersion(), HelpRequest.class, existing.getId());
+            existing.setRequesterEmail(row.getRequesterEmail());
+            existing.setTeamId(row.getTeamId());
+            existing.setTableOrBreakoutRoom(row.getTableOrBreakoutRoom());
+            existing.setRequestTime(row.getRequestTime());
+            existing.setExplanation(row.getExplanation());
+            existing.setSolved(row.getSolved());
+        }
+
+        helpRequestRepository.saveAll(rows);
+        changeLog.saved(HelpRequest.class, ids);
+        searchIndex.saved(HelpRequest.class, rows);
+        helpRequestStream.saved(rows);
+        return rows;
+    }
+
+    @Operation(summary= "Delete many help requests at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public Object deleteHelpRequestsBatch(
+            @Parameter(name="ids", description="JSON array of the ids to delete") @RequestBody List<Long> ids) {
+        List<HelpRequest> rows = findAllOrThrow(helpRequestRepository, ids, HelpRequest::getId, HelpRequest.class);
+
+        helpRequestRepository.deleteAll(rows);
+        changeLog.deleted(HelpRequest.class, ids);
+        searchIndex.deleted(HelpRequest.class, ids);
+        helpRequestStream.deleted(ids);
+        return genericMessage("HelpRequests with ids %s deleted".formatted(ids));
+    }
+}
@@ -1,27 +1,46 @@
 package edu.ucsb.cs156.example.controllers;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.util.Streamable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import edu.ucsb.cs156.example.entities.MenuItemRating;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.MenuItemReviewSummary;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersions;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import edu.ucsb.cs156.example.services.SearchIndex;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -36,17 +55,72 @@ public class MenuItemReviewController extends ApiController {
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersions tableVersions;
+
+    @Autowired
+    ChangeLog changeLog;
+
+    @Autowired
+    SearchIndex searchIndex;
+
+    @Autowired
+    MenuItemRatingService menuItemRatingService;
+
     @Operation(summary= "List all reviews for menu items")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<MenuItemReview> allMenuItemReviews() {
+    public Iterable<MenuItemReview> allMenuItemReviews(ServletWebRequest request) {
+        if (notModified(request, tableVersions.etag(MenuItemReview.class))) {
+            return null;
+        }
         Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAll();
         return reviews;
     }
 
+    @Operation(summary= "List all menu item reviews without their comments, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/summary")
+    public List<MenuItemReviewSummary> summaryOfMenuItemReviews(ServletWebRequest request) {
+        if (notModified(request, tableVersions.etag(MenuItemReview.class))) {
+            return null;
+        }
+        return menuItemReviewRepository.findSummariesBy(Sort.by("id"));
+    }
+
+    @Operation(summary= "List menu item reviews one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<MenuItemReview, Long> pageOfMenuItemReviews(
+            @Parameter(name="limit", description="Maximum number of menu item reviews to return (at most 1000)", example="100") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(name="after", description="Only return menu item reviews whose id is greater than this; pass the nextAfter of the previous page") @RequestParam(defaultValue = "0") long after) {
+        List<MenuItemReview> page = menuItemReviewRepository.findByIdGreaterThan(after, keysetPageable(limit, "id"));
+        return keysetPage(page, limit, MenuItemReview::getId);
+    }
+
+    @Operation(summary= "Average stars, number of reviews and star histogram of one menu item")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/rating")
+    public MenuItemRating ratingOfMenuItem(
+            @Parameter(name="itemId", description="Menu item id:", example="7") @RequestParam long itemId) {
+        return menuItemRatingService.ratingFor(itemId);
+    }
+
+    @Operation(summary= "Export all menu item reviews as newline-delimited JSON, one per line")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportMenuItemReviews() {
+        StreamingResponseBody body = out -> ndjsonExportService.export(menuItemReviewRepository::streamAll, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @Operation(summary= "Create a new menu item review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public MenuItemReview postMenuItemReview(
             @Parameter(name="itemId", description="Menu item id:", example="7") @RequestParam Long itemId,
             @Parameter(name="reviewerEmail", description="Reviewer email:", example="cgaucho@ucsb.edu") @RequestParam String reviewerEmail,
@@ -68,6 +142,9 @@ public class MenuItemReviewController extends ApiController {
         menuItemReview.setComments(comments);
 
         MenuItemReview savedMenuItemReview = menuItemReviewRepository.save(menuItemReview);
+        changeLog.saved(MenuItemReview.class, List.of(savedMenuItemReview.getId()));
+        searchIndex.saved(MenuItemReview.class, List.of(savedMenuItemReview));
+        menuItemRatingService.reviewAdded(savedMenuItemReview);
 
         return savedMenuItemReview;
     }
@@ -77,9 +154,13 @@ public class MenuItemReviewController extends ApiController {
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public MenuItemReview getById(
-            @Parameter(name="id", description="Menu item review id:", example="1") @RequestParam Long id) {
+            @Parameter(name="id", description="Menu item review id:", example="1") @RequestParam Long id,
+            ServletWebRequest request) {
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
+        if (notModified(request, versionTag(menuItemReview))) {
+            return null;
+        }
 
         return menuItemReview;
     }
@@ -88,12 +169,16 @@ public class MenuItemReviewController extends ApiController {
     @Operation(summary= "Delete a MenuItemReview")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteMenuItemReview(
             @Parameter(name="id", description="Menu item review id:", example="1") @RequestParam Long id) {
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
+        MenuItemReview menuItemReview = menuItemReviewRepository.findForUpdateById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
-
-        menuItemReviewRepository.delete(menuItemReview);
+        menuItemReviewRepository.deleteRowById(id);
+        menuItemRatingService.reviewRemoved(menuItemReview);
+        tableVersions.changed(MenuItemReview.class);
+        changeLog.deleted(MenuItemReview.class, List.of(id));
+        searchIndex.deleted(MenuItemReview.class, List.of(id));
         return genericMessage("MenuItemReview with id %s deleted".formatted(id));
     }
 
@@ -101,22 +186,80 @@ public class MenuItemReviewController extends ApiController {
     @Operation(summary= "Update a single item review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public MenuItemReview updateMenuItermReview(
             @Parameter(name="id", description="Menu item review id:", example="1") @RequestParam Long id,
-            @RequestBody @Valid MenuItemReview incoming) {
-
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
+            @Parameter(name="If-Match", description="Only update if the row still has this ETag, as sent by GET") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid MenuItemReview incoming,
+            HttpServletResponse response) {
+        MenuItemReview before = menuItemReviewRepository.findForUpdateById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
-        
-        menuItemReview.setItemId(incoming.getItemId());
-        menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
-        menuItemReview.setStars(incoming.getStars());
-        menuItemReview.setDateReviewed(incoming.getDateReviewed());
-        menuItemReview.setComments(incoming.getComments());
+        incoming.setId(id);
+        MenuItemReview menuItemReview = updateOrThrow(menuItemReviewRepository, MenuItemReview.class, id, ifMatch, incoming,
+                version -> menuItemReviewRepository.updateRowById(id, version, incoming));
+        menuItemRatingService.reviewRemoved(before);
+        menuItemRatingService.reviewAdded(menuItemReview);
+        tableVersions.changed(MenuItemReview.class);
+        changeLog.saved(MenuItemReview.class, List.of(id));
+        searchIndex.saved(MenuItemReview.class, List.of(menuItemReview));
 
-        menuItemReviewRepository.save(menuItemReview);
+        return tagged(response, menuItemReview);
+    }
 
-        return menuItemReview;
+    @Operation(summary= "Create many menu item reviews at once; any ids in the request are ignored")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/post/batch")
+    @Transactional
+    public Iterable<MenuItemReview> postMenuItemReviewsBatch(
+            @RequestBody @Valid List<MenuItemReview> incoming) {
+        incoming.forEach(row -> row.setId(0));
+        Iterable<MenuItemReview> saved = menuItemReviewRepository.saveAll(incoming);
+        changeLog.saved(MenuItemReview.class, Streamable.of(saved).map(MenuItemReview::getId).toList());
+        searchIndex.saved(MenuItemReview.class, saved);
+        saved.forEach(menuItemRatingService::reviewAdded);
+        return saved;
     }
 
-}
\ No newline at end of file
+    @Operation(summary= "Update many menu item reviews at once, matched by id; 409 if any row has moved on from the version sent")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<MenuItemReview> updateMenuItemReviewsBatch(
+            @RequestBody @Valid List<MenuItemReview> incoming) {
+        List<Long> ids = incoming.stream().map(MenuItemReview::getId).toList();
+        List<MenuItemReview> rows = findAllOrThrow(menuItemReviewRepository, ids, MenuItemReview::getId, MenuItemReview.class);
+
+        for (int i = 0; i < rows.size(); i++) {
+            MenuItemReview existing = rows.get(i);
+            MenuItemReview row = incoming.get(i);
+            requireVersion(existing, row.getVersion(), MenuItemReview.class, existing.getId());
+            menuItemRatingService.reviewRemoved(existing);
+            existing.setItemId(row.getItemId());
+            existing.setReviewerEmail(row.getReviewerEmail());
+            existing.setStars(row.getStars());
+            existing.setDateReviewed(row.getDateReviewed());
+            existing.setComments(row.getComments());
+            menuItemRatingService.reviewAdded(existing);
+        }
+
+        menuItemReviewRepository.saveAll(rows);
+        changeLog.saved(MenuItemReview.class, ids);
+        searchIndex.saved(MenuItemReview.class, rows);
+        return rows;
+    }
+
+    @Operation(summary= "Delete many menu item reviews at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public Object deleteMenuItemReviewsBatch(
+            @Parameter(name="ids", description="JSON array of the ids to delete") @RequestBody List<Long> ids) {
+        List<MenuItemReview> rows = findAllOrThrow(menuItemReviewRepository, ids, MenuItemReview::getId, MenuItemReview.class);
+
+        rows.forEach(menuItemRatingService::reviewRemoved);
+        menuItemReviewRepository.deleteAll(rows);
+        changeLog.deleted(MenuItemReview.class, ids);
+        searchIndex.deleted(MenuItemReview.class, ids);
+        return genericMessage("MenuItemReviews with ids %s deleted".formatted(ids));
+    }
+}
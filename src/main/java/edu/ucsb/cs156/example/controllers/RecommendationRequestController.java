@@ -2,7 +2,13 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.RecommendationRequestSummary;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersions;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import edu.ucsb.cs156.example.services.SearchIndex;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,20 +18,31 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.util.Streamable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "RecommendationRequests")
 @RequestMapping("/api/recommendationrequests")
@@ -36,17 +53,61 @@ public class RecommendationRequestController extends ApiController {
     @Autowired
     RecommendationRequestRepository recRequestRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersions tableVersions;
+
+    @Autowired
+    ChangeLog changeLog;
+
+    @Autowired
+    SearchIndex searchIndex;
+
     @Operation(summary= "List all recommendation requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<RecommendationRequest> allRecommendationRequests() {
+    public Iterable<RecommendationRequest> allRecommendationRequests(ServletWebRequest request) {
+        if (notModified(request, tableVersions.etag(RecommendationRequest.class))) {
+            return null;
+        }
         Iterable<RecommendationRequest> requests = recRequestRepository.findAll();
         return requests;
     }
 
+    @Operation(summary= "List all recommendation requests without their explanation, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/summary")
+    public List<RecommendationRequestSummary> summaryOfRecommendationRequests(ServletWebRequest request) {
+        if (notModified(request, tableVersions.etag(RecommendationRequest.class))) {
+            return null;
+        }
+        return recRequestRepository.findSummariesBy(Sort.by("id"));
+    }
+
+    @Operation(summary= "List recommendation requests one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<RecommendationRequest, Long> pageOfRecommendationRequests(
+            @Parameter(name="limit", description="Maximum number of recommendation requests to return (at most 1000)", example="100") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(name="after", description="Only return recommendation requests whose id is greater than this; pass the nextAfter of the previous page") @RequestParam(defaultValue = "0") long after) {
+        List<RecommendationRequest> page = recRequestRepository.findByIdGreaterThan(after, keysetPageable(limit, "id"));
+        return keysetPage(page, limit, RecommendationRequest::getId);
+    }
+
+    @Operation(summary= "Export all recommendation requests as newline-delimited JSON, one per line")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportRecommendationRequests() {
+        StreamingResponseBody body = out -> ndjsonExportService.export(recRequestRepository::streamAll, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @Operation(summary= "Create a new recommendation request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public RecommendationRequest postRecommendationRequest(
             @Parameter(name="requestorEmail", description="Email of requestor requestor", example="abc@ucsb.edu") @RequestParam String requestorEmail,
             @Parameter(name="professorEmail", description="Email of the professor", example="xyz@ucsb.edu") @RequestParam String professorEmail,
@@ -67,6 +128,8 @@ public class RecommendationRequestController extends ApiController {
         recRequest.setDone(done);
 
         RecommendationRequest savedRecRequest = recRequestRepository.save(recRequest);
+        changeLog.saved(RecommendationRequest.class, List.of(savedRecRequest.getId()));
+        searchIndex.saved(RecommendationRequest.class, List.of(savedRecRequest));
 
         return savedRecRequest;
     }
@@ -74,12 +137,15 @@ public class RecommendationRequestController extends ApiController {
     @Operation(summary= "Delete a recommendation request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteRecommendationRequest(
             @Parameter(name="id", description="Id of recommendation request to delete", example="1") @RequestParam Long id) {
-        RecommendationRequest recRequest = recRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
-
-        recRequestRepository.delete(recRequest);
+        if (recRequestRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(RecommendationRequest.class, id);
+        }
+        tableVersions.changed(RecommendationRequest.class);
+        changeLog.deleted(RecommendationRequest.class, List.of(id));
+        searchIndex.deleted(RecommendationRequest.class, List.of(id));
         return genericMessage("RecommendationRequest with id %s deleted".formatted(id));
     }
 
@@ -87,9 +153,13 @@ public class RecommendationRequestController extends ApiController {
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public RecommendationRequest getRecommendationRequest(
-            @Parameter(name="id", description="Id of recommendation request to return", example="1") @RequestParam Long id) {
+            @Parameter(name="id", description="Id of recommendation request to return", example="1") @RequestParam Long id,
+            ServletWebRequest request) {
         RecommendationRequest recommendationRequest = recRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
+        if (notModified(request, versionTag(recommendationRequest))) {
+            return null;
+        }
 
         return recommendationRequest;
     }
@@ -97,23 +167,73 @@ public class RecommendationRequestController extends ApiController {
     @Operation(summary= "Update a recommendation request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public RecommendationRequest updateRecommendationRequest(
         @Parameter(name="id", description="Id of recommendation request to update", example="1") @RequestParam Long id,
-        @RequestBody @Valid RecommendationRequest incoming) {
-
-        RecommendationRequest recRequest = recRequestRepository.findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
+        @Parameter(name="If-Match", description="Only update if the row still has this ETag, as sent by GET") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+        @RequestBody @Valid RecommendationRequest incoming,
+        HttpServletResponse response) {
+        incoming.setId(id);
+        RecommendationRequest recRequest = updateOrThrow(recRequestRepository, RecommendationRequest.class, id, ifMatch, incoming,
+                version -> recRequestRepository.updateRowById(id, version, incoming));
+        tableVersions.changed(RecommendationRequest.class);
+        changeLog.saved(RecommendationRequest.class, List.of(id));
+        searchIndex.saved(RecommendationRequest.class, List.of(recRequest));
+
+        return tagged(response, recRequest);
+    }
 
-        recRequest.setRequesterEmail(incoming.getRequesterEmail());
-        recRequest.setProfessorEmail(incoming.getProfessorEmail());
-        recRequest.setExplanation(incoming.getExplanation());
-        recRequest.setDateRequested(incoming.getDateRequested());
-        recRequest.setDateNeeded(incoming.getDateNeeded());
-        recRequest.setDone(incoming.getDone());
+    @Operation(summary= "Create many recommendation requests at once; any ids in the request are ignored")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/post/batch")
+    @Transactional
+    public Iterable<RecommendationRequest> postRecommendationRequestsBatch(
+            @RequestBody @Valid List<RecommendationRequest> incoming) {
+        incoming.forEach(row -> row.setId(0));
+        Iterable<RecommendationRequest> saved = recRequestRepository.saveAll(incoming);
+        changeLog.saved(RecommendationRequest.class, Streamable.of(saved).map(RecommendationRequest::getId).toList());
+        searchIndex.saved(RecommendationRequest.class, saved);
+        return saved;
+    }
 
-        recRequestRepository.save(recRequest);
+    @Operation(summary= "Update many recommendation requests at once, matched by id; 409 if any row has moved on from the version sent")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<RecommendationRequest> updateRecommendationRequestsBatch(
+            @RequestBody @Valid List<RecommendationRequest> incoming) {
+        List<Long> ids = incoming.stream().map(RecommendationRequest::getId).toList();
+        List<RecommendationRequest> rows = findAllOrThrow(recRequestRepository, ids, RecommendationRequest::getId, RecommendationRequest.class);
+
+        for (int i = 0; i < rows.size(); i++) {
+            RecommendationRequest existing = rows.get(i);
+            RecommendationRequest row = incoming.get(i);
+            requireVersion(existing, row.getVersion(), RecommendationRequest.class, existing.getId());
+            existing.setRequesterEmail(row.getRequesterEmail());
+            existing.setProfessorEmail(row.getProfessorEmail());
+            existing.setExplanation(row.getExplanation());
+            existing.setDateRequested(row.getDateRequested());
+            existing.setDateNeeded(row.getDateNeeded());
+            existing.setDone(row.getDone());
+        }
+
+        recRequestRepository.saveAll(rows);
+        changeLog.saved(RecommendationRequest.class, ids);
+        searchIndex.saved(RecommendationRequest.class, rows);
+        return rows;
+    }
 
-        return recRequest;
+    @Operation(summary= "Delete many recommendation requests at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public Object deleteRecommendationRequestsBatch(
+            @Parameter(name="ids", description="JSON array of the ids to delete") @RequestBody List<Long> ids) {
+        List<RecommendationRequest> rows = findAllOrThrow(recRequestRepository, ids, RecommendationRequest::getId, RecommendationRequest.class);
+
+        recRequestRepository.deleteAll(rows);
+        changeLog.deleted(RecommendationRequest.class, ids);
+        searchIndex.deleted(RecommendationRequest.class, ids);
+        return genericMessage("RecommendationRequests with ids %s deleted".formatted(ids));
     }
 }
-
@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.SearchHit;
+import edu.ucsb.cs156.example.services.SearchIndex;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Tag(name = "Search")
+@RequestMapping("/api/search")
+@RestController
+public class SearchController extends ApiController {
+
+    @Autowired
+    SearchIndex searchIndex;
+
+    @Operation(summary= "Search the text of articles, menu item reviews, help requests and recommendation requests, best match first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("")
+    public KeysetPage<SearchHit, Integer> search(
+            @Parameter(name="q", description="Words to search for; rows matching any of them are returned", example="midterm review") @RequestParam String q,
+            @Parameter(name="limit", description="Maximum number of matches to return (at most 1000)", example="20") @RequestParam(defaultValue = "20") int limit,
+            @Parameter(name="after", description="Only return matches ranked after this; pass the nextAfter of the previous page") @RequestParam(defaultValue = "0") int after) {
+        List<SearchHit> hits = searchIndex.search(q, keysetFetchSize(limit), after);
+        return keysetPage(hits, limit, SearchHit::getRank);
+    }
+}
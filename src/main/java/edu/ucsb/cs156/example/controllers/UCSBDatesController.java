@@ -1,8 +1,18 @@
 package edu.ucsb.cs156.example.controllers;
 
+import static edu.ucsb.cs156.example.services.BulkImportService.requireText;
+import static edu.ucsb.cs156.example.services.BulkImportService.requireValue;
+
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkImportReport;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.ReferenceDataCache;
+import edu.ucsb.cs156.example.services.TableVersions;
+import edu.ucsb.cs156.example.services.ChangeLog;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,20 +22,32 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.util.Streamable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "UCSBDates")
 @RequestMapping("/api/ucsbdates")
@@ -36,17 +58,77 @@ public class UCSBDatesController extends ApiController {
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersions tableVersions;
+
+    @Autowired
+    ChangeLog changeLog;
+
+    @Autowired
+    ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    BulkImportService bulkImportService;
+
     @Operation(summary= "List all ucsb dates")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDate> allUCSBDates() {
-        Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
+    public Iterable<UCSBDate> allUCSBDates(ServletWebRequest request) {
+        if (notModified(request, tableVersions.etag(UCSBDate.class))) {
+            return null;
+        }
+        Iterable<UCSBDate> dates = referenceDataCache.findAll(UCSBDate.class, ucsbDateRepository::findAll);
         return dates;
     }
 
+    @Operation(summary= "List ucsb dates one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDate, Long> pageOfUCSBDates(
+            @Parameter(name="limit", description="Maximum number of ucsb dates to return (at most 1000)", example="100") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(name="after", description="Only return ucsb dates whose id is greater than this; pass the nextAfter of the previous page") @RequestParam(defaultValue = "0") long after) {
+        List<UCSBDate> page = ucsbDateRepository.findByIdGreaterThan(after, keysetPageable(limit, "id"));
+        return keysetPage(page, limit, UCSBDate::getId);
+    }
+
+    @Operation(summary= "Export all ucsb dates as newline-delimited JSON, one per line")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportUCSBDates() {
+        StreamingResponseBody body = out -> ndjsonExportService.export(ucsbDateRepository::streamAll, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @Operation(summary= "Import ucsb dates from a CSV (with a header row) or NDJSON request body, saving them chunkSize at a time")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { BulkImportService.TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkImportReport importUCSBDates(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @Parameter(name="chunkSize", description="Rows saved per transaction (at most 5000)") @RequestParam(defaultValue = "${app.import.chunkSize}") int chunkSize,
+            InputStream body) throws IOException {
+        BulkImportReport report = bulkImportService.importRows(body, contentType, UCSBDate.class, chunkSize,
+                date -> {
+                    requireText(date.getQuarterYYYYQ(), "quarterYYYYQ");
+                    requireText(date.getName(), "name");
+                    requireValue(date.getLocalDateTime(), "localDateTime");
+                    date.setId(0);
+                },
+                rows -> {
+                    Iterable<UCSBDate> saved = ucsbDateRepository.saveAll(rows);
+                    changeLog.saved(UCSBDate.class, Streamable.of(saved).map(UCSBDate::getId).toList());
+                    return saved;
+                });
+        referenceDataCache.evict(UCSBDate.class);
+        return report;
+    }
+
     @Operation(summary= "Create a new date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public UCSBDate postUCSBDate(
             @Parameter(name="quarterYYYYQ") @RequestParam String quarterYYYYQ,
             @Parameter(name="name") @RequestParam String name,
@@ -64,6 +146,8 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setLocalDateTime(localDateTime);
 
         UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+        changeLog.saved(UCSBDate.class, List.of(savedUcsbDate.getId()));
+        referenceDataCache.evict(UCSBDate.class);
 
         return savedUcsbDate;
     }
@@ -72,9 +156,13 @@ public class UCSBDatesController extends ApiController {
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBDate getById(
-            @Parameter(name="id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
+            @Parameter(name="id") @RequestParam Long id,
+            ServletWebRequest request) {
+        UCSBDate ucsbDate = referenceDataCache.findById(UCSBDate.class, id, ucsbDateRepository::findById)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+        if (notModified(request, versionTag(ucsbDate))) {
+            return null;
+        }
 
         return ucsbDate;
     }
@@ -82,31 +170,85 @@ public class UCSBDatesController extends ApiController {
     @Operation(summary= "Delete a UCSBDate")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-        ucsbDateRepository.delete(ucsbDate);
+        if (ucsbDateRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(UCSBDate.class, id);
+        }
+        tableVersions.changed(UCSBDate.class);
+        changeLog.deleted(UCSBDate.class, List.of(id));
+        referenceDataCache.evict(UCSBDate.class);
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
     @Operation(summary= "Update a single date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public UCSBDate updateUCSBDate(
             @Parameter(name="id") @RequestParam Long id,
-            @RequestBody @Valid UCSBDate incoming) {
-
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+            @Parameter(name="If-Match", description="Only update if the row still has this ETag, as sent by GET") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid UCSBDate incoming,
+            HttpServletResponse response) {
+        incoming.setId(id);
+        UCSBDate ucsbDate = updateOrThrow(ucsbDateRepository, UCSBDate.class, id, ifMatch, incoming,
+                version -> ucsbDateRepository.updateRowById(id, version, incoming));
+        tableVersions.changed(UCSBDate.class);
+        changeLog.saved(UCSBDate.class, List.of(id));
+        referenceDataCache.evict(UCSBDate.class);
+
+        return tagged(response, ucsbDate);
+    }
 
-        ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
-        ucsbDate.setName(incoming.getName());
-        ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
+    @Operation(summary= "Create many dates at once; any ids in the request are ignored")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/post/batch")
+    @Transactional
+    public Iterable<UCSBDate> postUCSBDatesBatch(
+            @RequestBody @Valid List<UCSBDate> incoming) {
+        incoming.forEach(row -> row.setId(0));
+        Iterable<UCSBDate> saved = ucsbDateRepository.saveAll(incoming);
+        changeLog.saved(UCSBDate.class, Streamable.of(saved).map(UCSBDate::getId).toList());
+        referenceDataCache.evict(UCSBDate.class);
+        return saved;
+    }
 
-        ucsbDateRepository.save(ucsbDate);
+    @Operation(summary= "Update many dates at once, matched by id; 409 if any row has moved on from the version sent")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<UCSBDate> updateUCSBDatesBatch(
+            @RequestBody @Valid List<UCSBDate> incoming) {
+        List<Long> ids = incoming.stream().map(UCSBDate::getId).toList();
+        List<UCSBDate> rows = findAllOrThrow(ucsbDateRepository, ids, UCSBDate::getId, UCSBDate.class);
+
+        for (int i = 0; i < rows.size(); i++) {
+            UCSBDate existing = rows.get(i);
+            UCSBDate row = incoming.get(i);
+            requireVersion(existing, row.getVersion(), UCSBDate.class, existing.getId());
+            existing.setQuarterYYYYQ(row.getQuarterYYYYQ());
+            existing.setName(row.getName());
+            existing.setLocalDateTime(row.getLocalDateTime());
+        }
+
+        ucsbDateRepository.saveAll(rows);
+        changeLog.saved(UCSBDate.class, ids);
+        referenceDataCache.evict(UCSBDate.class);
+        return rows;
+    }
 
-        return ucsbDate;
+    @Operation(summary= "Delete many dates at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public Object deleteUCSBDatesBatch(
+            @Parameter(name="ids", description="JSON array of the ids to delete") @RequestBody List<Long> ids) {
+        List<UCSBDate> rows = findAllOrThrow(ucsbDateRepository, ids, UCSBDate::getId, UCSBDate.class);
+
+        ucsbDateRepository.deleteAll(rows);
+        changeLog.deleted(UCSBDate.class, ids);
+        referenceDataCache.evict(UCSBDate.class);
+        return genericMessage("UCSBDates with ids %s deleted".formatted(ids));
     }
 }
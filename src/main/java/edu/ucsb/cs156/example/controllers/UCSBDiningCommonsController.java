@@ -2,7 +2,14 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.DiningCommonsLocator;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.ReferenceDataCache;
+import edu.ucsb.cs156.example.services.TableVersions;
+import edu.ucsb.cs156.example.services.ChangeLog;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,18 +17,29 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.util.Streamable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
+import java.util.List;
+
 @Tag(name = "UCSBDiningCommons")
 @RequestMapping("/api/ucsbdiningcommons")
 @RestController
@@ -31,17 +49,64 @@ public class UCSBDiningCommonsController extends ApiController {
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersions tableVersions;
+
+    @Autowired
+    ChangeLog changeLog;
+
+    @Autowired
+    ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    DiningCommonsLocator diningCommonsLocator;
+
     @Operation(summary= "List all ucsb dining commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommons> allCommonss() {
-        Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
+    public Iterable<UCSBDiningCommons> allCommonss(ServletWebRequest request) {
+        if (notModified(request, tableVersions.etag(UCSBDiningCommons.class))) {
+            return null;
+        }
+        Iterable<UCSBDiningCommons> commons = referenceDataCache.findAll(UCSBDiningCommons.class, ucsbDiningCommonsRepository::findAll);
         return commons;
     }
 
+    @Operation(summary= "List ucsb dining commons one page at a time, ordered by code")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDiningCommons, String> pageOfCommonss(
+            @Parameter(name="limit", description="Maximum number of ucsb dining commons to return (at most 1000)", example="100") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(name="after", description="Only return ucsb dining commons whose code sorts after this; pass the nextAfter of the previous page") @RequestParam(defaultValue = "") String after) {
+        List<UCSBDiningCommons> page = ucsbDiningCommonsRepository.findByCodeGreaterThan(after, keysetPageable(limit, "code"));
+        return keysetPage(page, limit, UCSBDiningCommons::getCode);
+    }
+
+    @Operation(summary= "List the dining commons nearest a location, nearest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/nearest")
+    public List<NearbyDiningCommons> nearestCommons(
+            @Parameter(name="lat", description="Latitude in degrees, from -90 to 90", example="34.4108") @RequestParam double lat,
+            @Parameter(name="lon", description="Longitude in degrees, from -180 to 180", example="-119.8472") @RequestParam double lon,
+            @Parameter(name="k", description="Number of dining commons to return (at most 100)", example="3") @RequestParam(defaultValue = "3") int k) {
+        return diningCommonsLocator.nearest(lat, lon, k);
+    }
+
+    @Operation(summary= "Export all commons as newline-delimited JSON, one per line")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportCommons() {
+        StreamingResponseBody body = out -> ndjsonExportService.export(ucsbDiningCommonsRepository::streamAll, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @Operation(summary= "Create a new commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public UCSBDiningCommons postCommons(
         @Parameter(name="code") @RequestParam String code,
         @Parameter(name="name") @RequestParam String name,
@@ -63,6 +128,8 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLongitude(longitude);
 
         UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+        changeLog.saved(UCSBDiningCommons.class, List.of(savedCommons.getCode()));
+        referenceDataCache.evict(UCSBDiningCommons.class);
 
         return savedCommons;
     }
@@ -71,9 +138,13 @@ public class UCSBDiningCommonsController extends ApiController {
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBDiningCommons getById(
-            @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
+            @Parameter(name="code") @RequestParam String code,
+            ServletWebRequest request) {
+        UCSBDiningCommons commons = referenceDataCache.findById(UCSBDiningCommons.class, code, ucsbDiningCommonsRepository::findById)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+        if (notModified(request, versionTag(commons))) {
+            return null;
+        }
 
         return commons;
     }
@@ -81,35 +152,88 @@ public class UCSBDiningCommonsController extends ApiController {
     @Operation(summary= "Delete a UCSBDiningCommons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteCommons(
             @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-        ucsbDiningCommonsRepository.delete(commons);
+        if (ucsbDiningCommonsRepository.deleteRowById(code) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommons.class, code);
+        }
+        tableVersions.changed(UCSBDiningCommons.class);
+        changeLog.deleted(UCSBDiningCommons.class, List.of(code));
+        referenceDataCache.evict(UCSBDiningCommons.class);
         return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
     }
 
     @Operation(summary= "Update a single commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public UCSBDiningCommons updateCommons(
             @Parameter(name="code") @RequestParam String code,
-            @RequestBody @Valid UCSBDiningCommons incoming) {
-
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
+            @Parameter(name="If-Match", description="Only update if the row still has this ETag, as sent by GET") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid UCSBDiningCommons incoming,
+            HttpServletResponse response) {
+        incoming.setCode(code);
+        UCSBDiningCommons commons = updateOrThrow(ucsbDiningCommonsRepository, UCSBDiningCommons.class, code, ifMatch, incoming,
+                version -> ucsbDiningCommonsRepository.updateRowById(code, version, incoming));
+        tableVersions.changed(UCSBDiningCommons.class);
+        changeLog.saved(UCSBDiningCommons.class, List.of(code));
+        referenceDataCache.evict(UCSBDiningCommons.class);
+
+        return tagged(response, commons);
+    }
 
-        commons.setName(incoming.getName());  
-        commons.setHasSackMeal(incoming.getHasSackMeal());
-        commons.setHasTakeOutMeal(incoming.getHasTakeOutMeal());
-        commons.setHasDiningCam(incoming.getHasDiningCam());
-        commons.setLatitude(incoming.getLatitude());
-        commons.setLongitude(incoming.getLongitude());
+    @Operation(summary= "Create many commons at once; 409 if any code is already taken")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/post/batch")
+    @Transactional
+    public Iterable<UCSBDiningCommons> postCommonsBatch(
+            @RequestBody @Valid List<UCSBDiningCommons> incoming) {
+        requireNew(ucsbDiningCommonsRepository, incoming.stream().map(UCSBDiningCommons::getCode).toList(), UCSBDiningCommons::getCode, UCSBDiningCommons.class);
+        Iterable<UCSBDiningCommons> saved = ucsbDiningCommonsRepository.saveAll(incoming);
+        changeLog.saved(UCSBDiningCommons.class, Streamable.of(saved).map(UCSBDiningCommons::getCode).toList());
+        referenceDataCache.evict(UCSBDiningCommons.class);
+        return saved;
+    }
 
-        ucsbDiningCommonsRepository.save(commons);
+    @Operation(summary= "Update many commons at once, matched by code; 409 if any row has moved on from the version sent")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<UCSBDiningCommons> updateCommonsBatch(
+            @RequestBody @Valid List<UCSBDiningCommons> incoming) {
+        List<String> codes = incoming.stream().map(UCSBDiningCommons::getCode).toList();
+        List<UCSBDiningCommons> rows = findAllOrThrow(ucsbDiningCommonsRepository, codes, UCSBDiningCommons::getCode, UCSBDiningCommons.class);
+
+        for (int i = 0; i < rows.size(); i++) {
+            UCSBDiningCommons existing = rows.get(i);
+            UCSBDiningCommons row = incoming.get(i);
+            requireVersion(existing, row.getVersion(), UCSBDiningCommons.class, existing.getCode());
+            existing.setName(row.getName());
+            existing.setHasSackMeal(row.getHasSackMeal());
+            existing.setHasTakeOutMeal(row.getHasTakeOutMeal());
+            existing.setHasDiningCam(row.getHasDiningCam());
+            existing.setLatitude(row.getLatitude());
+            existing.setLongitude(row.getLongitude());
+        }
+
+        ucsbDiningCommonsRepository.saveAll(rows);
+        changeLog.saved(UCSBDiningCommons.class, codes);
+        referenceDataCache.evict(UCSBDiningCommons.class);
+        return rows;
+    }
 
-        return commons;
+    @Operation(summary= "Delete many commons at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public Object deleteCommonsBatch(
+            @Parameter(name="codes", description="JSON array of the codes to delete") @RequestBody List<String> codes) {
+        List<UCSBDiningCommons> rows = findAllOrThrow(ucsbDiningCommonsRepository, codes, UCSBDiningCommons::getCode, UCSBDiningCommons.class);
+
+        ucsbDiningCommonsRepository.deleteAll(rows);
+        changeLog.deleted(UCSBDiningCommons.class, codes);
+        referenceDataCache.evict(UCSBDiningCommons.class);
+        return genericMessage("UCSBDiningCommons with codes %s deleted".formatted(codes));
     }
 }
@@ -1,10 +1,21 @@
 package edu.ucsb.cs156.example.controllers;
 
+import static edu.ucsb.cs156.example.services.BulkImportService.requireText;
+
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkImportReport;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.RankedMenuItem;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.AutocompleteIndex;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.MenuItemLeaderboard;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.TableVersions;
+import edu.ucsb.cs156.example.services.ChangeLog;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,19 +25,32 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.util.Streamable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
 @Tag(name = "UCSBDiningCommonsMenu")
@@ -38,17 +62,105 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @Autowired
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersions tableVersions;
+
+    @Autowired
+    ChangeLog changeLog;
+
+    @Autowired
+    BulkImportService bulkImportService;
+
+    @Autowired
+    MenuItemLeaderboard menuItemLeaderboard;
+
+    @Autowired
+    AutocompleteIndex autocompleteIndex;
+
     @Operation(summary= "List all menu items served by UCSB Dining Commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommonsMenuItem> allUCSBDiningCommonsMenuItems() {
+    public Iterable<UCSBDiningCommonsMenuItem> allUCSBDiningCommonsMenuItems(ServletWebRequest request) {
+        if (notModified(request, tableVersions.etag(UCSBDiningCommonsMenuItem.class))) {
+            return null;
+        }
         Iterable<UCSBDiningCommonsMenuItem> items = ucsbDiningCommonsMenuItemRepository.findAll();
         return items;
     }
 
+    @Operation(summary= "The best rated menu items of each dining commons, best first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/leaderboard")
+    public Map<String, List<RankedMenuItem>> leaderboard(
+            @Parameter(name="n", description="Menu items to list per dining commons (at most 100)", example="10") @RequestParam(defaultValue = "10") int n,
+            @Parameter(name="diningCommonsCode", description="Only list this dining commons", example="ortega") @RequestParam(required = false) String diningCommonsCode,
+            ServletWebRequest request) {
+        MenuItemLeaderboard.Snapshot leaderboard = menuItemLeaderboard.snapshot();
+        if (notModified(request, leaderboard.etag())) {
+            return null;
+        }
+        Map<String, List<RankedMenuItem>> top = leaderboard.top(n);
+        if (diningCommonsCode == null) {
+            return top;
+        }
+        return Map.of(diningCommonsCode, top.getOrDefault(diningCommonsCode, List.of()));
+    }
+
+    @Operation(summary= "List menu items one page at a time, ordered by id")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDiningCommonsMenuItem, Long> pageOfUCSBDiningCommonsMenuItems(
+            @Parameter(name="limit", description="Maximum number of menu items to return (at most 1000)", example="100") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(name="after", description="Only return menu items whose id is greater than this; pass the nextAfter of the previous page") @RequestParam(defaultValue = "0") long after) {
+        List<UCSBDiningCommonsMenuItem> page = ucsbDiningCommonsMenuItemRepository.findByIdGreaterThan(after, keysetPageable(limit, "id"));
+        return keysetPage(page, limit, UCSBDiningCommonsMenuItem::getId);
+    }
+
+    @Operation(summary= "List the menu items whose name has a word starting with a prefix, for type-ahead")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/autocomplete")
+    public List<UCSBDiningCommonsMenuItem> autocompleteMenuItems(
+            @Parameter(name="prefix", description="Start of a word of the name, in any case", example="taco") @RequestParam String prefix,
+            @Parameter(name="limit", description="Maximum number of menu items to return (at most 100)", example="10") @RequestParam(defaultValue = "10") int limit) {
+        return autocompleteIndex.menuItems(prefix, limit);
+    }
+
+    @Operation(summary= "Export all menu items as newline-delimited JSON, one per line")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportUCSBDiningCommonsMenuItems() {
+        StreamingResponseBody body = out -> ndjsonExportService.export(ucsbDiningCommonsMenuItemRepository::streamAll, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @Operation(summary= "Import menu items from a CSV (with a header row) or NDJSON request body, saving them chunkSize at a time")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { BulkImportService.TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkImportReport importUCSBDiningCommonsMenuItems(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @Parameter(name="chunkSize", description="Rows saved per transaction (at most 5000)") @RequestParam(defaultValue = "${app.import.chunkSize}") int chunkSize,
+            InputStream body) throws IOException {
+        return bulkImportService.importRows(body, contentType, UCSBDiningCommonsMenuItem.class, chunkSize,
+                menuItem -> {
+                    requireText(menuItem.getDiningCommonsCode(), "diningCommonsCode");
+                    requireText(menuItem.getName(), "name");
+                    requireText(menuItem.getStation(), "station");
+                    menuItem.setId(0);
+                },
+                rows -> {
+                    Iterable<UCSBDiningCommonsMenuItem> saved = ucsbDiningCommonsMenuItemRepository.saveAll(rows);
+                    changeLog.saved(UCSBDiningCommonsMenuItem.class, Streamable.of(saved).map(UCSBDiningCommonsMenuItem::getId).toList());
+                    return saved;
+                });
+    }
+
     @Operation(summary= "Create a new menu item")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public UCSBDiningCommonsMenuItem postUCSBDiningCommonsMenuItem(
             @Parameter(name="diningCommonsCode", description="dining common that serves the item", example="ortega") @RequestParam String diningCommonsCode,
             @Parameter(name="name", description="name of the item", example="Chicken Caesar Salad") @RequestParam String name,
@@ -64,6 +176,7 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
         menuItem.setStation(station);
 
         UCSBDiningCommonsMenuItem savedMenuItem = ucsbDiningCommonsMenuItemRepository.save(menuItem);
+        changeLog.saved(UCSBDiningCommonsMenuItem.class, List.of(savedMenuItem.getId()));
 
         return savedMenuItem;
     }
@@ -72,9 +185,13 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBDiningCommonsMenuItem getById(
-            @Parameter(name="id", description = "id of the menu item") @RequestParam Long id) {
+            @Parameter(name="id", description = "id of the menu item") @RequestParam Long id,
+            ServletWebRequest request) {
         UCSBDiningCommonsMenuItem menuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
+        if (notModified(request, versionTag(menuItem))) {
+            return null;
+        }
 
         return menuItem;
     }
@@ -82,12 +199,14 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @Operation(summary= "Delete a menu item")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteUCSBDiningCommonsMenuItem(
             @Parameter(name="id", description = "id of the menu item") @RequestParam Long id) {
-        UCSBDiningCommonsMenuItem menuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-        ucsbDiningCommonsMenuItemRepository.delete(menuItem);
+        if (ucsbDiningCommonsMenuItemRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id);
+        }
+        tableVersions.changed(UCSBDiningCommonsMenuItem.class);
+        changeLog.deleted(UCSBDiningCommonsMenuItem.class, List.of(id));
         return genericMessage("menu item with id %s deleted".formatted(id));
     }
 
@@ -95,19 +214,66 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @Operation(summary= "Update a menu item")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public UCSBDiningCommonsMenuItem updateUCSBDiningCommonsMenuItem(
             @Parameter(name="id", description = "id of the menu item") @RequestParam Long id,
-            @RequestBody @Valid UCSBDiningCommonsMenuItem incoming) {
+            @Parameter(name="If-Match", description="Only update if the row still has this ETag, as sent by GET") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid UCSBDiningCommonsMenuItem incoming,
+            HttpServletResponse response) {
+        incoming.setId(id);
+        UCSBDiningCommonsMenuItem menuItem = updateOrThrow(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, id, ifMatch, incoming,
+                version -> ucsbDiningCommonsMenuItemRepository.updateRowById(id, version, incoming));
+        tableVersions.changed(UCSBDiningCommonsMenuItem.class);
+        changeLog.saved(UCSBDiningCommonsMenuItem.class, List.of(id));
 
-        UCSBDiningCommonsMenuItem menuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
+        return tagged(response, menuItem);
+    }
 
-        menuItem.setDiningCommonsCode(incoming.getDiningCommonsCode());
-        menuItem.setName(incoming.getName());
-        menuItem.setStation(incoming.getStation());
+    @Operation(summary= "Create many menu items at once; any ids in the request are ignored")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/post/batch")
+    @Transactional
+    public Iterable<UCSBDiningCommonsMenuItem> postUCSBDiningCommonsMenuItemsBatch(
+            @RequestBody @Valid List<UCSBDiningCommonsMenuItem> incoming) {
+        incoming.forEach(row -> row.setId(0));
+        Iterable<UCSBDiningCommonsMenuItem> saved = ucsbDiningCommonsMenuItemRepository.saveAll(incoming);
+        changeLog.saved(UCSBDiningCommonsMenuItem.class, Streamable.of(saved).map(UCSBDiningCommonsMenuItem::getId).toList());
+        return saved;
+    }
 
-        ucsbDiningCommonsMenuItemRepository.save(menuItem);
+    @Operation(summary= "Update many menu items at once, matched by id; 409 if any row has moved on from the version sent")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<UCSBDiningCommonsMenuItem> updateUCSBDiningCommonsMenuItemsBatch(
+            @RequestBody @Valid List<UCSBDiningCommonsMenuItem> incoming) {
+        List<Long> ids = incoming.stream().map(UCSBDiningCommonsMenuItem::getId).toList();
+        List<UCSBDiningCommonsMenuItem> rows = findAllOrThrow(ucsbDiningCommonsMenuItemRepository, ids, UCSBDiningCommonsMenuItem::getId, UCSBDiningCommonsMenuItem.class);
 
-        return menuItem;
+        for (int i = 0; i < rows.size(); i++) {
+            UCSBDiningCommonsMenuItem existing = rows.get(i);
+            UCSBDiningCommonsMenuItem row = incoming.get(i);
+            requireVersion(existing, row.getVersion(), UCSBDiningCommonsMenuItem.class, existing.getId());
+            existing.setDiningCommonsCode(row.getDiningCommonsCode());
+            existing.setName(row.getName());
+            existing.setStation(row.getStation());
+        }
+
+        ucsbDiningCommonsMenuItemRepository.saveAll(rows);
+        changeLog.saved(UCSBDiningCommonsMenuItem.class, ids);
+        return rows;
+    }
+
+    @Operation(summary= "Delete many menu items at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public Object deleteUCSBDiningCommonsMenuItemsBatch(
+            @Parameter(name="ids", description="JSON array of the ids to delete") @RequestBody List<Long> ids) {
+        List<UCSBDiningCommonsMenuItem> rows = findAllOrThrow(ucsbDiningCommonsMenuItemRepository, ids, UCSBDiningCommonsMenuItem::getId, UCSBDiningCommonsMenuItem.class);
+
+        ucsbDiningCommonsMenuItemRepository.deleteAll(rows);
+        changeLog.deleted(UCSBDiningCommonsMenuItem.class, ids);
+        return genericMessage("UCSBDiningCommonsMenuItems with ids %s deleted".formatted(ids));
     }
 }
@@ -2,10 +2,20 @@
 
 package edu.ucsb.cs156.example.controllers;
 
+import static edu.ucsb.cs156.example.services.BulkImportService.requireText;
+
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkImportReport;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.AutocompleteIndex;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.ReferenceDataCache;
+import edu.ucsb.cs156.example.services.TableVersions;
 
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -15,19 +25,32 @@ import lombok.extern.slf4j.Slf4j;
 
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.util.Streamable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
 
 @Tag(name = "UCSBOrganization")
 @RequestMapping("/api/ucsborganization")
@@ -39,18 +62,89 @@ public class UCSBOrganizationController extends ApiController {
     @Autowired
     UCSBOrganizationRepository ucsbOrganizationRepository;
 
+    @Autowired
+    NdjsonExportService ndjsonExportService;
+
+    @Autowired
+    TableVersions tableVersions;
+
+    @Autowired
+    ChangeLog changeLog;
+
+    @Autowired
+    ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    BulkImportService bulkImportService;
+
+    @Autowired
+    AutocompleteIndex autocompleteIndex;
+
 
     @Operation(summary= "List all ucsb organizations")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBOrganization> allOrganizations() {
-        Iterable<UCSBOrganization> organization = ucsbOrganizationRepository.findAll();
+    public Iterable<UCSBOrganization> allOrganizations(ServletWebRequest request) {
+        if (notModified(request, tableVersions.etag(UCSBOrganization.class))) {
+            return null;
+        }
+        Iterable<UCSBOrganization> organization = referenceDataCache.findAll(UCSBOrganization.class, ucsbOrganizationRepository::findAll);
         return organization;
     }
 
+    @Operation(summary= "List ucsb organizations one page at a time, ordered by orgCode")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBOrganization, String> pageOfOrganizations(
+            @Parameter(name="limit", description="Maximum number of ucsb organizations to return (at most 1000)", example="100") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(name="after", description="Only return ucsb organizations whose orgCode sorts after this; pass the nextAfter of the previous page") @RequestParam(defaultValue = "") String after) {
+        List<UCSBOrganization> page = ucsbOrganizationRepository.findByOrgCodeGreaterThan(after, keysetPageable(limit, "orgCode"));
+        return keysetPage(page, limit, UCSBOrganization::getOrgCode);
+    }
+
+    @Operation(summary= "List the ucsb organizations whose orgCode or short name (orgTranslationShort) has a word starting with a prefix, for type-ahead")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/autocomplete")
+    public List<UCSBOrganization> autocompleteOrganizations(
+            @Parameter(name="prefix", description="Start of a word of the orgCode or short name (orgTranslationShort), in any case", example="KRC") @RequestParam String prefix,
+            @Parameter(name="limit", description="Maximum number of ucsb organizations to return (at most 100)", example="10") @RequestParam(defaultValue = "10") int limit) {
+        return autocompleteIndex.organizations(prefix, limit);
+    }
+
+    @Operation(summary= "Export all organizations as newline-delimited JSON, one per line")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export.ndjson")
+    public ResponseEntity<StreamingResponseBody> exportOrganizations() {
+        StreamingResponseBody body = out -> ndjsonExportService.export(ucsbOrganizationRepository::streamAll, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @Operation(summary= "Import new organizations from a CSV (with a header row) or NDJSON request body, saving them chunkSize at a time; rows whose orgCode is taken are reported, not saved")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { BulkImportService.TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkImportReport importOrganizations(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @Parameter(name="chunkSize", description="Rows saved per transaction (at most 5000)") @RequestParam(defaultValue = "${app.import.chunkSize}") int chunkSize,
+            InputStream body) throws IOException {
+        BulkImportReport report = bulkImportService.importNewRows(body, contentType, UCSBOrganization.class, chunkSize,
+                organization -> {
+                    requireText(organization.getOrgCode(), "orgCode");
+                    requireText(organization.getOrgTranslationShort(), "orgTranslationShort");
+                },
+                UCSBOrganization::getOrgCode, ucsbOrganizationRepository,
+                rows -> {
+                    Iterable<UCSBOrganization> saved = ucsbOrganizationRepository.saveAll(rows);
+                    changeLog.saved(UCSBOrganization.class, Streamable.of(saved).map(UCSBOrganization::getOrgCode).toList());
+                    return saved;
+                });
+        referenceDataCache.evict(UCSBOrganization.class);
+        return report;
+    }
+
     @Operation(summary= "Create a new organization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public UCSBOrganization postOrganization(
         @Parameter(name="orgCode",description="The organization code", example="ZPR") @RequestParam String orgCode,
         @Parameter(name="orgTranslationShort",description="The organization short translation", example="ZETA PHI RHO") @RequestParam String orgTranslationShort,
@@ -68,7 +162,8 @@ public class UCSBOrganizationController extends ApiController {
 
 
         UCSBOrganization savedOrganization = ucsbOrganizationRepository.save(organization);
-
+        changeLog.saved(UCSBOrganization.class, List.of(savedOrganization.getOrgCode()));
+        referenceDataCache.evict(UCSBOrganization.class);
 
         return savedOrganization;
     }
@@ -77,9 +172,13 @@ public class UCSBOrganizationController extends ApiController {
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBOrganization getById(
-            @Parameter(name="orgCode",description="The organization code", example="ZPR") @RequestParam String orgCode) {
-        UCSBOrganization organization = ucsbOrganizationRepository.findById(orgCode)
+            @Parameter(name="orgCode",description="The organization code", example="ZPR") @RequestParam String orgCode,
+            ServletWebRequest request) {
+        UCSBOrganization organization = referenceDataCache.findById(UCSBOrganization.class, orgCode, ucsbOrganizationRepository::findById)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
+        if (notModified(request, versionTag(organization))) {
+            return null;
+        }
 
         return organization;
     }
@@ -87,33 +186,86 @@ public class UCSBOrganizationController extends ApiController {
     @Operation(summary= "Delete a UCSBOrganization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteOrganization(
             @Parameter(name="orgCode",description="The organization code", example="ZPR") @RequestParam String orgCode) {
-        UCSBOrganization organization = ucsbOrganizationRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-
-        ucsbOrganizationRepository.delete(organization);
+        if (ucsbOrganizationRepository.deleteRowById(orgCode) == 0) {
+            throw new EntityNotFoundException(UCSBOrganization.class, orgCode);
+        }
+        tableVersions.changed(UCSBOrganization.class);
+        changeLog.deleted(UCSBOrganization.class, List.of(orgCode));
+        referenceDataCache.evict(UCSBOrganization.class);
         return genericMessage("UCSOrganization with id %s deleted".formatted(orgCode));
     }
 
     @Operation(summary= "Update a  organization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public UCSBOrganization updateOrganization(
             @Parameter(name="orgCode",description="The organization code", example="ZPR") @RequestParam String orgCode,
-            @RequestBody @Valid UCSBOrganization incoming) {
-
-        UCSBOrganization orgs = ucsbOrganizationRepository.findById(orgCode)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-        
-        orgs.setOrgCode(incoming.getOrgCode());
-        orgs.setOrgTranslationShort(incoming.getOrgTranslationShort());
-        orgs.setOrgTranslation(incoming.getOrgTranslation());
-        orgs.setInactive(incoming.getInactive());
+            @Parameter(name="If-Match", description="Only update if the row still has this ETag, as sent by GET") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid UCSBOrganization incoming,
+            HttpServletResponse response) {
+        incoming.setOrgCode(orgCode);
+        UCSBOrganization orgs = updateOrThrow(ucsbOrganizationRepository, UCSBOrganization.class, orgCode, ifMatch, incoming,
+                version -> ucsbOrganizationRepository.updateRowById(orgCode, version, incoming));
+        tableVersions.changed(UCSBOrganization.class);
+        changeLog.saved(UCSBOrganization.class, List.of(orgCode));
+        referenceDataCache.evict(UCSBOrganization.class);
+
+        return tagged(response, orgs);
+    }
 
-        ucsbOrganizationRepository.save(orgs);
+    @Operation(summary= "Create many organizations at once; 409 if any orgCode is already taken")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/post/batch")
+    @Transactional
+    public Iterable<UCSBOrganization> postOrganizationsBatch(
+            @RequestBody @Valid List<UCSBOrganization> incoming) {
+        requireNew(ucsbOrganizationRepository, incoming.stream().map(UCSBOrganization::getOrgCode).toList(), UCSBOrganization::getOrgCode, UCSBOrganization.class);
+        Iterable<UCSBOrganization> saved = ucsbOrganizationRepository.saveAll(incoming);
+        changeLog.saved(UCSBOrganization.class, Streamable.of(saved).map(UCSBOrganization::getOrgCode).toList());
+        referenceDataCache.evict(UCSBOrganization.class);
+        return saved;
+    }
 
-        return orgs;
+    @Operation(summary= "Update many organizations at once, matched by orgCode; 409 if any row has moved on from the version sent")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<UCSBOrganization> updateOrganizationsBatch(
+            @RequestBody @Valid List<UCSBOrganization> incoming) {
+        List<String> orgCodes = incoming.stream().map(UCSBOrganization::getOrgCode).toList();
+        List<UCSBOrganization> rows = findAllOrThrow(ucsbOrganizationRepository, orgCodes, UCSBOrganization::getOrgCode, UCSBOrganization.class);
+
+        for (int i = 0; i < rows.size(); i++) {
+            UCSBOrganization existing = rows.get(i);
+            UCSBOrganization row = incoming.get(i);
+            requireVersion(existing, row.getVersion(), UCSBOrganization.class, existing.getOrgCode());
+            existing.setOrgCode(row.getOrgCode());
+            existing.setOrgTranslationShort(row.getOrgTranslationShort());
+            existing.setOrgTranslation(row.getOrgTranslation());
+            existing.setInactive(row.getInactive());
+        }
+
+        ucsbOrganizationRepository.saveAll(rows);
+        changeLog.saved(UCSBOrganization.class, orgCodes);
+        referenceDataCache.evict(UCSBOrganization.class);
+        return rows;
     }
 
-}
\ No newline at end of file
+    @Operation(summary= "Delete many organizations at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public Object deleteOrganizationsBatch(
+            @Parameter(name="orgCodes", description="JSON array of the orgCodes to delete") @RequestBody List<String> orgCodes) {
+        List<UCSBOrganization> rows = findAllOrThrow(ucsbOrganizationRepository, orgCodes, UCSBOrganization::getOrgCode, UCSBOrganization.class);
+
+        ucsbOrganizationRepository.deleteAll(rows);
+        changeLog.deleted(UCSBOrganization.class, orgCodes);
+        referenceDataCache.evict(UCSBOrganization.class);
+        return genericMessage("UCSBOrganizations with orgCodes %s deleted".formatted(orgCodes));
+    }
+}
@@ -3,23 +3,30 @@ package edu.ucsb.cs156.example.entities;
 import java.time.LocalDateTime;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.GeneratedValue;
+import javax.persistence.Version;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 
+import edu.ucsb.cs156.example.services.TableVersionListener;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity(name = "articles")
-public class Article {
+@EntityListeners(TableVersionListener.class)
+public class Article implements Versioned {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "articles_seq")
+    @SequenceGenerator(name = "articles_seq", sequenceName = "articles_seq", allocationSize = 50)
     private long id;
 
     private String title;
@@ -27,4 +34,7 @@ public class Article {
     private String explanation;
     private String email;
     private LocalDateTime dateAdded;
+
+    @Version
+    private long version;
 }
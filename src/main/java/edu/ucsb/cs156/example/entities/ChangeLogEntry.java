@@ -0,0 +1,36 @@
+package edu.ucsb.cs156.example.entities;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * One row written by a create, update or delete, in the same transaction,
+ * recorded by ChangeLog. seq increases with every change across all
+ * entities, so "what changed since seq N" is a range scan of the primary key.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "changelog")
+public class ChangeLogEntry {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "changelog_seq")
+  @SequenceGenerator(name = "changelog_seq", sequenceName = "changelog_seq", allocationSize = 50)
+  private long seq;
+
+  private String entityType;
+  private String entityId;
+  private String operation;
+  private LocalDateTime changedAt;
+}
@@ -4,23 +4,36 @@ package edu.ucsb.cs156.example.entities;
 import java.time.LocalDateTime;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Index;
 import javax.persistence.GeneratedValue;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 
+import edu.ucsb.cs156.example.services.TableVersionListener;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity(name = "helprequest")
-public class HelpRequest {
+@EntityListeners(TableVersionListener.class)
+@Table(indexes = {
+    @Index(name = "helprequest_requester_email_idx", columnList = "requesterEmail"),
+    @Index(name = "helprequest_solved_request_time_idx", columnList = "solved, requestTime"),
+    @Index(name = "helprequest_team_id_solved_request_time_idx", columnList = "teamId, solved, requestTime") })
+public class HelpRequest implements Versioned {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "helprequest_seq")
+  @SequenceGenerator(name = "helprequest_seq", sequenceName = "helprequest_seq", allocationSize = 50)
   private long id;
 
   private String requesterEmail;
@@ -29,4 +42,7 @@ public class HelpRequest {
   private LocalDateTime requestTime;
   private String explanation;
   private boolean solved;
+
+  @Version
+  private long version;
 }
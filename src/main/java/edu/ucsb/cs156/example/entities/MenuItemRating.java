@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.entities;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * Running totals of the MenuItemReviews of one menu item, kept up to date
+ * by MenuItemRatingService in the same transaction as each review write.
+ * The histogram counts reviews by their stars, 0 to 5.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "menuitemrating")
+public class MenuItemRating {
+  @Id
+  private long itemId;
+
+  private long reviews;
+  private long totalStars;
+  private long zeroStars;
+  private long oneStar;
+  private long twoStars;
+  private long threeStars;
+  private long fourStars;
+  private long fiveStars;
+
+  public double getAverageStars() {
+    return reviews == 0 ? 0 : (double) totalStars / reviews;
+  }
+}
@@ -3,23 +3,33 @@ package edu.ucsb.cs156.example.entities;
 import java.time.LocalDateTime;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Index;
 import javax.persistence.GeneratedValue;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 
+import edu.ucsb.cs156.example.services.TableVersionListener;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity(name = "menuitemreview")
-public class MenuItemReview {
+@EntityListeners(TableVersionListener.class)
+@Table(indexes = @Index(name = "menuitemreview_item_id_idx", columnList = "itemId"))
+public class MenuItemReview implements Versioned {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "menuitemreview_seq")
+  @SequenceGenerator(name = "menuitemreview_seq", sequenceName = "menuitemreview_seq", allocationSize = 50)
   private long id;
   
   private long itemId;
@@ -27,5 +37,7 @@ public class MenuItemReview {
   private int stars;
   private LocalDateTime dateReviewed; 
   private String comments;
-  
-}
\ No newline at end of file
+
+  @Version
+  private long version;
+}
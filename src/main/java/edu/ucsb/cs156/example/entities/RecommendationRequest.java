@@ -3,23 +3,33 @@ package edu.ucsb.cs156.example.entities;
 import java.time.LocalDateTime;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Index;
 import javax.persistence.GeneratedValue;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 
+import edu.ucsb.cs156.example.services.TableVersionListener;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity(name = "recommendationrequests")
-public class RecommendationRequest {
+@EntityListeners(TableVersionListener.class)
+@Table(indexes = @Index(name = "recommendationrequests_requester_email_idx", columnList = "requesterEmail"))
+public class RecommendationRequest implements Versioned {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)           
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recommendationrequests_seq")
+  @SequenceGenerator(name = "recommendationrequests_seq", sequenceName = "recommendationrequests_seq", allocationSize = 50)
   private long id;
 
   private String requesterEmail;
@@ -28,4 +38,7 @@ public class RecommendationRequest {
   private LocalDateTime dateRequested;
   private LocalDateTime dateNeeded;
   private boolean done;
+
+  @Version
+  private long version;
 }
@@ -1,19 +1,30 @@
 package edu.ucsb.cs156.example.entities;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 
+import edu.ucsb.cs156.example.services.TableVersionListener;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity(name = "ucsbdiningcommons")
-public class UCSBDiningCommons {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners(TableVersionListener.class)
+public class UCSBDiningCommons implements Versioned {
   @Id
   private String code;
   private String name;
@@ -22,4 +33,7 @@ public class UCSBDiningCommons {
   private boolean hasDiningCam;
   private Double latitude;
   private Double longitude;
-}
\ No newline at end of file
+
+  @Version
+  private long version;
+}
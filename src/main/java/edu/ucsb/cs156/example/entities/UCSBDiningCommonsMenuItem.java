@@ -2,27 +2,46 @@ package edu.ucsb.cs156.example.entities;
 
 import java.time.LocalDateTime;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Index;
 import javax.persistence.GeneratedValue;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 
+import edu.ucsb.cs156.example.services.TableVersionListener;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity(name = "ucsbdiningcommonsmenuitem")
-public class UCSBDiningCommonsMenuItem {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners(TableVersionListener.class)
+@Table(indexes = @Index(name = "ucsbdiningcommonsmenuitem_dining_commons_code_idx", columnList = "diningCommonsCode"))
+public class UCSBDiningCommonsMenuItem implements Versioned {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ucsbdiningcommonsmenuitem_seq")
+  @SequenceGenerator(name = "ucsbdiningcommonsmenuitem_seq", sequenceName = "ucsbdiningcommonsmenuitem_seq", allocationSize = 50)
   private long id;
 
   private String diningCommonsCode;
   private String name;  
   private String station;
-}
\ No newline at end of file
+
+  @Version
+  private long version;
+}
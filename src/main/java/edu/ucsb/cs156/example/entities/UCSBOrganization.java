@@ -1,22 +1,36 @@
 package edu.ucsb.cs156.example.entities;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 
+import edu.ucsb.cs156.example.services.TableVersionListener;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity(name = "ucsborganization")
-public class UCSBOrganization{
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@EntityListeners(TableVersionListener.class)
+public class UCSBOrganization implements Versioned {
   @Id
   private String orgCode;
   private String orgTranslationShort;
   private String orgTranslation;
   private boolean inactive;
-}
\ No newline at end of file
+
+  @Version
+  private long version;
+}
@@ -0,0 +1,11 @@
+package edu.ucsb.cs156.example.entities;
+
+/**
+ * An entity with an @Version column, which Hibernate and the single
+ * statement updates in the repositories bump on every write.
+ */
+public interface Versioned {
+  long getVersion();
+
+  void setVersion(long version);
+}
@@ -0,0 +1,8 @@
+package edu.ucsb.cs156.example.errors;
+
+public class PreconditionFailedException extends RuntimeException {
+  public PreconditionFailedException(Class<?> entityType, Object id, String etag) {
+    super("%s with id %s has changed; its current ETag is %s"
+      .formatted(entityType.getSimpleName(), id.toString(), etag));
+  }
+}
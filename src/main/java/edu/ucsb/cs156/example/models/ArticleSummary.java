@@ -0,0 +1,20 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns of an article that list views show, leaving out its
+ * explanation. Used as a Spring Data projection, so only these columns
+ * are selected.
+ */
+public interface ArticleSummary {
+  long getId();
+
+  String getTitle();
+
+  String getUrl();
+
+  String getEmail();
+
+  LocalDateTime getDateAdded();
+}
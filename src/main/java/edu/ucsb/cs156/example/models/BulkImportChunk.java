@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * The outcome of one chunk of a bulk import: rows firstRow..lastRow
+ * (1-based, not counting a CSV header) were read, and imported of them
+ * were saved in one transaction. errors has one entry per rejected row.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BulkImportChunk {
+  private int chunk;
+  private long firstRow;
+  private long lastRow;
+  private int imported;
+  private List<String> errors;
+}
@@ -0,0 +1,20 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BulkImportReport {
+  private long rows;
+  private long imported;
+  private long rejected;
+  private List<BulkImportChunk> chunks;
+}
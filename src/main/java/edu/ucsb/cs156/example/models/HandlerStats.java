@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * Point-in-time request statistics for one controller method.
+ * Percentiles are upper bounds of power-of-two microsecond buckets.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class HandlerStats {
+  private long calls;
+  private long errors;
+  private long inFlight;
+  private double meanMicros;
+  private long p50Micros;
+  private long p90Micros;
+  private long p99Micros;
+  private long maxMicros;
+}
@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * Which help requests to list, and in what order. Fields left null do not
+ * filter; the time window includes since and excludes until.
+ *
+ * afterRequestTime and afterId, set together, are the keyset cursor: only
+ * requests that come after that (requestTime, id) in the chosen order match.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class HelpRequestFilter {
+  private Boolean solved;
+  private String teamId;
+  private LocalDateTime since;
+  private LocalDateTime until;
+  private boolean newestFirst;
+  private LocalDateTime afterRequestTime;
+  private Long afterId;
+}
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * One page of a keyset (cursor) paginated listing.
+ *
+ * To fetch the next page, pass nextAfter back as the after parameter.
+ * nextAfter is null when there are no more rows.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class KeysetPage<T, K> {
+  private List<T> items;
+  private K nextAfter;
+}
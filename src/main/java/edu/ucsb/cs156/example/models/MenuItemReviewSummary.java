@@ -0,0 +1,20 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a menu item review that list views show, leaving out its
+ * comments. Used as a Spring Data projection, so only these columns are
+ * selected.
+ */
+public interface MenuItemReviewSummary {
+  long getId();
+
+  long getItemId();
+
+  String getReviewerEmail();
+
+  int getStars();
+
+  LocalDateTime getDateReviewed();
+}
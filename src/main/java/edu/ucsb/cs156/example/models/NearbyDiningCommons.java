@@ -0,0 +1,21 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * A dining commons and how far it is, along the earth's surface, from the
+ * location a client asked about.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class NearbyDiningCommons {
+  private UCSBDiningCommons diningCommons;
+  private double distanceMeters;
+}
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * A menu item with the rating its reviews give it, as listed on the
+ * leaderboard of its dining commons.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class RankedMenuItem {
+  private String diningCommonsCode;
+  private long itemId;
+  private String name;
+  private String station;
+  private long reviews;
+  private double averageStars;
+}
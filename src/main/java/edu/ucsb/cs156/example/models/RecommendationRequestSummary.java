@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a recommendation request that list views show, leaving
+ * out its explanation. Used as a Spring Data projection, so only these
+ * columns are selected.
+ */
+public interface RecommendationRequestSummary {
+  long getId();
+
+  String getRequesterEmail();
+
+  String getProfessorEmail();
+
+  LocalDateTime getDateRequested();
+
+  LocalDateTime getDateNeeded();
+
+  boolean getDone();
+}
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * Point-in-time statistics for the cached rows of one reference table.
+ * Evictions count entries dropped to stay within the size bound, not
+ * those invalidated by writes.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ReferenceCacheStats {
+  private long hits;
+  private long misses;
+  private double hitRate;
+  private long evictions;
+  private long size;
+}
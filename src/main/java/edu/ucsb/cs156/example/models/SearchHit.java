@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * One row matching a search, with the text it was found in. type is the
+ * entity's simple name, as in the ChangeLog, and rank counts from 1 for
+ * the best match.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class SearchHit {
+  private int rank;
+  private String type;
+  private long id;
+  private double score;
+  private String text;
+}
@@ -1,11 +1,48 @@
 package edu.ucsb.cs156.example.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.models.ArticleSummary;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 @Repository
-public interface ArticleRepository extends CrudRepository<Article, Long> {
-    
+public interface ArticleRepository extends PagingAndSortingRepository<Article, Long> {
+  List<Article> findByIdGreaterThan(long after, Pageable pageable);
+
+  @Query("select x.id as id, x.title as title, x.url as url, x.email as email, x.dateAdded as dateAdded "
+      + "from articles x")
+  List<ArticleSummary> findSummariesBy(Sort sort);
+
+  @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true") })
+  @Query("select x from articles x order by x.id")
+  Stream<Article> streamAll();
+
+  @Transactional
+  @Modifying
+  @Query("update articles x set x.title = :#{#row.title}, x.url = :#{#row.url}, "
+      + "x.explanation = :#{#row.explanation}, x.email = :#{#row.email}, "
+      + "x.dateAdded = :#{#row.dateAdded}, x.version = x.version + 1 "
+      + "where x.id = :id and (:version is null or x.version = :version)")
+  int updateRowById(@Param("id") long id, @Param("version") Long version, @Param("row") Article row);
+
+  @Transactional
+  @Modifying
+  @Query("delete from articles x where x.id = :id")
+  int deleteRowById(@Param("id") long id);
 }
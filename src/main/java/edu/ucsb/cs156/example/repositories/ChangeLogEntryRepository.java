@@ -0,0 +1,18 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.ChangeLogEntry;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ChangeLogEntryRepository extends CrudRepository<ChangeLogEntry, Long> {
+  List<ChangeLogEntry> findBySeqGreaterThanAndSeqLessThan(long since, long before, Pageable pageable);
+
+  @Query("select coalesce(max(e.seq), 0) from changelog e")
+  long findMaxSeq();
+}
@@ -0,0 +1,18 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.util.List;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestFilter;
+
+public interface HelpRequestFilterRepository {
+  /**
+   * At most limit help requests matching filter, ordered by requestTime then
+   * id, starting after the filter's cursor when it has one. Requests without
+   * a requestTime have no place in that order, so they are never listed.
+   * Only the filters that are set become predicates, so each combination
+   * can be answered by a range scan of helprequest_solved_request_time_idx or
+   * helprequest_team_id_solved_request_time_idx.
+   */
+  List<HelpRequest> findFiltered(HelpRequestFilter filter, int limit);
+}
@@ -0,0 +1,69 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestFilter;
+
+public class HelpRequestFilterRepositoryImpl implements HelpRequestFilterRepository {
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Override
+  public List<HelpRequest> findFiltered(HelpRequestFilter filter, int limit) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<HelpRequest> query = cb.createQuery(HelpRequest.class);
+    Root<HelpRequest> row = query.from(HelpRequest.class);
+
+    List<Predicate> where = new ArrayList<>();
+    where.add(cb.isNotNull(row.get("requestTime")));
+    if (filter.getSolved() != null) {
+      where.add(cb.equal(row.get("solved"), filter.getSolved()));
+    }
+    if (filter.getTeamId() != null) {
+      where.add(cb.equal(row.get("teamId"), filter.getTeamId()));
+    }
+    if (filter.getSince() != null) {
+      where.add(cb.greaterThanOrEqualTo(row.get("requestTime"), filter.getSince()));
+    }
+    if (filter.getUntil() != null) {
+      where.add(cb.lessThan(row.get("requestTime"), filter.getUntil()));
+    }
+    if (filter.getAfterRequestTime() != null) {
+      where.add(after(cb, row.get("requestTime"), row.get("id"), filter));
+    }
+    query.where(where.toArray(Predicate[]::new));
+    if (filter.getNewestFirst()) {
+      query.orderBy(cb.desc(row.get("requestTime")), cb.desc(row.get("id")));
+    } else {
+      query.orderBy(cb.asc(row.get("requestTime")), cb.asc(row.get("id")));
+    }
+
+    return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+  }
+
+  /** Rows past the cursor in the query's order, so the next page resumes where the last one stopped. */
+  private static Predicate after(CriteriaBuilder cb, Path<LocalDateTime> requestTime, Path<Long> id,
+      HelpRequestFilter filter) {
+    LocalDateTime afterRequestTime = filter.getAfterRequestTime();
+    Long afterId = filter.getAfterId();
+    if (filter.getNewestFirst()) {
+      return cb.or(cb.lessThan(requestTime, afterRequestTime),
+          cb.and(cb.equal(requestTime, afterRequestTime), cb.lessThan(id, afterId)));
+    }
+    return cb.or(cb.greaterThan(requestTime, afterRequestTime),
+        cb.and(cb.equal(requestTime, afterRequestTime), cb.greaterThan(id, afterId)));
+  }
+}
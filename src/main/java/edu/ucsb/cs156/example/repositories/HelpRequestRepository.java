@@ -1,10 +1,46 @@
 package edu.ucsb.cs156.example.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import edu.ucsb.cs156.example.entities.HelpRequest;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 @Repository
-public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {
+public interface HelpRequestRepository extends PagingAndSortingRepository<HelpRequest, Long>, HelpRequestFilterRepository {
+  Iterable<HelpRequest> findAllByRequesterEmail(String requesterEmail);
+  List<HelpRequest> findByIdGreaterThan(long after, Pageable pageable);
+
+  @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true") })
+  @Query("select x from helprequest x order by x.id")
+  Stream<HelpRequest> streamAll();
+
+  @Transactional
+  @Modifying
+  @Query("update helprequest x set x.requesterEmail = :#{#row.requesterEmail}, "
+      + "x.teamId = :#{#row.teamId}, "
+      + "x.tableOrBreakoutRoom = :#{#row.tableOrBreakoutRoom}, "
+      + "x.requestTime = :#{#row.requestTime}, "
+      + "x.explanation = :#{#row.explanation}, x.solved = :#{#row.solved}, "
+      + "x.version = x.version + 1 "
+      + "where x.id = :id and (:version is null or x.version = :version)")
+  int updateRowById(@Param("id") long id, @Param("version") Long version, @Param("row") HelpRequest row);
+
+  @Transactional
+  @Modifying
+  @Query("delete from helprequest x where x.id = :id")
+  int deleteRowById(@Param("id") long id);
 }
@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.models.RankedMenuItem;
+
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+
+@Repository
+public interface MenuItemRatingRepository extends CrudRepository<MenuItemRating, Long> {
+  // SELECT ... FOR UPDATE, so concurrent reviews of one item add up instead of overwriting each other
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  Optional<MenuItemRating> findForUpdateByItemId(long itemId);
+
+  // every menu item of a dining commons with at least one review, in no particular order
+  @Query("select new edu.ucsb.cs156.example.models.RankedMenuItem(i.diningCommonsCode, i.id, i.name, i.station, "
+      + "r.reviews, r.totalStars * 1.0 / r.reviews) "
+      + "from ucsbdiningcommonsmenuitem i join menuitemrating r on r.itemId = i.id where r.reviews > 0 and i.diningCommonsCode is not null")
+  List<RankedMenuItem> findAllRanked();
+}
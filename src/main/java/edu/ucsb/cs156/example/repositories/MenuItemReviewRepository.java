@@ -1,12 +1,58 @@
 package edu.ucsb.cs156.example.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.models.MenuItemReviewSummary;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 
 
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
-  
-}
\ No newline at end of file
+public interface MenuItemReviewRepository extends PagingAndSortingRepository<MenuItemReview, Long> {
+  Iterable<MenuItemReview> findAllByItemId(long itemId);
+  List<MenuItemReview> findByIdGreaterThan(long after, Pageable pageable);
+
+  @Query("select x.id as id, x.itemId as itemId, x.reviewerEmail as reviewerEmail, x.stars as stars, "
+      + "x.dateReviewed as dateReviewed from menuitemreview x")
+  List<MenuItemReviewSummary> findSummariesBy(Sort sort);
+
+  @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true") })
+  @Query("select x from menuitemreview x order by x.id")
+  Stream<MenuItemReview> streamAll();
+
+  // the review as it is before a write, held until the write commits, so its rating can be taken back out
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  Optional<MenuItemReview> findForUpdateById(long id);
+
+  // cleared so that a review read earlier in the same transaction is read again afterwards
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("update menuitemreview x set x.itemId = :#{#row.itemId}, x.reviewerEmail = :#{#row.reviewerEmail}, "
+      + "x.stars = :#{#row.stars}, x.dateReviewed = :#{#row.dateReviewed}, "
+      + "x.comments = :#{#row.comments}, x.version = x.version + 1 "
+      + "where x.id = :id and (:version is null or x.version = :version)")
+  int updateRowById(@Param("id") long id, @Param("version") Long version, @Param("row") MenuItemReview row);
+
+  @Transactional
+  @Modifying
+  @Query("delete from menuitemreview x where x.id = :id")
+  int deleteRowById(@Param("id") long id);
+}
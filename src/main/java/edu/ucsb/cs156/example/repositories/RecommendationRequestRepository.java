@@ -1,12 +1,53 @@
 package edu.ucsb.cs156.example.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.models.RecommendationRequestSummary;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 
 @Repository
-public interface RecommendationRequestRepository extends CrudRepository<RecommendationRequest, Long> {
+public interface RecommendationRequestRepository extends PagingAndSortingRepository<RecommendationRequest, Long> {
+  Iterable<RecommendationRequest> findAllByRequesterEmail(String requesterEmail);
+  List<RecommendationRequest> findByIdGreaterThan(long after, Pageable pageable);
+
+  @Query("select x.id as id, x.requesterEmail as requesterEmail, x.professorEmail as professorEmail, "
+      + "x.dateRequested as dateRequested, x.dateNeeded as dateNeeded, x.done as done from recommendationrequests x")
+  List<RecommendationRequestSummary> findSummariesBy(Sort sort);
+
+  @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true") })
+  @Query("select x from recommendationrequests x order by x.id")
+  Stream<RecommendationRequest> streamAll();
+
+  @Transactional
+  @Modifying
+  @Query("update recommendationrequests x set x.requesterEmail = :#{#row.requesterEmail}, "
+      + "x.professorEmail = :#{#row.professorEmail}, "
+      + "x.explanation = :#{#row.explanation}, "
+      + "x.dateRequested = :#{#row.dateRequested}, "
+      + "x.dateNeeded = :#{#row.dateNeeded}, x.done = :#{#row.done}, "
+      + "x.version = x.version + 1 "
+      + "where x.id = :id and (:version is null or x.version = :version)")
+  int updateRowById(@Param("id") long id, @Param("version") Long version, @Param("row") RecommendationRequest row);
 
-}
\ No newline at end of file
+  @Transactional
+  @Modifying
+  @Query("delete from recommendationrequests x where x.id = :id")
+  int deleteRowById(@Param("id") long id);
+}
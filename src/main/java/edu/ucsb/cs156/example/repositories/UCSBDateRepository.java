@@ -1,12 +1,46 @@
 package edu.ucsb.cs156.example.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import edu.ucsb.cs156.example.entities.UCSBDate;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+public interface UCSBDateRepository extends PagingAndSortingRepository<UCSBDate, Long> {
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
-}
\ No newline at end of file
+
+  List<UCSBDate> findByIdGreaterThan(long after, Pageable pageable);
+
+  @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true") })
+  @Query("select x from ucsbdates x order by x.id")
+  Stream<UCSBDate> streamAll();
+
+  @Transactional
+  @Modifying
+  @Query("update ucsbdates x set x.quarterYYYYQ = :#{#row.quarterYYYYQ}, x.name = :#{#row.name}, "
+      + "x.localDateTime = :#{#row.localDateTime}, x.version = x.version + 1 "
+      + "where x.id = :id and (:version is null or x.version = :version)")
+  int updateRowById(@Param("id") long id, @Param("version") Long version, @Param("row") UCSBDate row);
+
+  @Transactional
+  @Modifying
+  @Query("delete from ucsbdates x where x.id = :id")
+  int deleteRowById(@Param("id") long id);
+}
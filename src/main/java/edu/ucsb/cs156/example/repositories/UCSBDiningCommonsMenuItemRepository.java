@@ -1,12 +1,47 @@
 package edu.ucsb.cs156.example.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 
 @Repository
-public interface UCSBDiningCommonsMenuItemRepository extends CrudRepository<UCSBDiningCommonsMenuItem, Long> {
+public interface UCSBDiningCommonsMenuItemRepository extends PagingAndSortingRepository<UCSBDiningCommonsMenuItem, Long> {
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
   Iterable<UCSBDiningCommonsMenuItem> findAllByDiningCommonsCode(String diningCommonsCode);
+
+  List<UCSBDiningCommonsMenuItem> findByIdGreaterThan(long after, Pageable pageable);
+
+  @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true") })
+  @Query("select x from ucsbdiningcommonsmenuitem x order by x.id")
+  Stream<UCSBDiningCommonsMenuItem> streamAll();
+
+  @Transactional
+  @Modifying
+  @Query("update ucsbdiningcommonsmenuitem x set x.diningCommonsCode = :#{#row.diningCommonsCode}, "
+      + "x.name = :#{#row.name}, x.station = :#{#row.station}, "
+      + "x.version = x.version + 1 "
+      + "where x.id = :id and (:version is null or x.version = :version)")
+  int updateRowById(@Param("id") long id, @Param("version") Long version, @Param("row") UCSBDiningCommonsMenuItem row);
+
+  @Transactional
+  @Modifying
+  @Query("delete from ucsbdiningcommonsmenuitem x where x.id = :id")
+  int deleteRowById(@Param("id") long id);
 }
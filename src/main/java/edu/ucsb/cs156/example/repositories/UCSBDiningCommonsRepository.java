@@ -1,13 +1,45 @@
 package edu.ucsb.cs156.example.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 
-import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {
- 
-}
\ No newline at end of file
+public interface UCSBDiningCommonsRepository extends PagingAndSortingRepository<UCSBDiningCommons, String> {
+  List<UCSBDiningCommons> findByCodeGreaterThan(String after, Pageable pageable);
+
+  @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true") })
+  @Query("select x from ucsbdiningcommons x order by x.code")
+  Stream<UCSBDiningCommons> streamAll();
+
+  @Transactional
+  @Modifying
+  @Query("update ucsbdiningcommons x set x.name = :#{#row.name}, x.hasSackMeal = :#{#row.hasSackMeal}, "
+      + "x.hasTakeOutMeal = :#{#row.hasTakeOutMeal}, "
+      + "x.hasDiningCam = :#{#row.hasDiningCam}, "
+      + "x.latitude = :#{#row.latitude}, x.longitude = :#{#row.longitude}, "
+      + "x.version = x.version + 1 "
+      + "where x.code = :code and (:version is null or x.version = :version)")
+  int updateRowById(@Param("code") String code, @Param("version") Long version, @Param("row") UCSBDiningCommons row);
+
+  @Transactional
+  @Modifying
+  @Query("delete from ucsbdiningcommons x where x.code = :code")
+  int deleteRowById(@Param("code") String code);
+}
@@ -1,13 +1,43 @@
 package edu.ucsb.cs156.example.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 
-import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 
 @Repository
-public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {
-  
-}
\ No newline at end of file
+public interface UCSBOrganizationRepository extends PagingAndSortingRepository<UCSBOrganization, String> {
+  List<UCSBOrganization> findByOrgCodeGreaterThan(String after, Pageable pageable);
+
+  @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true") })
+  @Query("select x from ucsborganization x order by x.orgCode")
+  Stream<UCSBOrganization> streamAll();
+
+  @Transactional
+  @Modifying
+  @Query("update ucsborganization x set x.orgTranslationShort = :#{#row.orgTranslationShort}, "
+      + "x.orgTranslation = :#{#row.orgTranslation}, "
+      + "x.inactive = :#{#row.inactive}, x.version = x.version + 1 "
+      + "where x.orgCode = :orgCode and (:version is null or x.version = :version)")
+  int updateRowById(@Param("orgCode") String orgCode, @Param("version") Long version, @Param("row") UCSBOrganization row);
+
+  @Transactional
+  @Modifying
+  @Query("delete from ucsborganization x where x.orgCode = :orgCode")
+  int deleteRowById(@Param("orgCode") String orgCode);
+}
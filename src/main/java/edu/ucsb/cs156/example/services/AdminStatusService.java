@@ -0,0 +1,75 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+/**
+ * Answers "is this email an admin?" for every OAuth login and authority
+ * mapping without a database round trip each time.
+ *
+ * Emails listed in app.admin.emails are held in an immutable hash set, so
+ * checking them is a lookup that any number of threads can share. Other
+ * emails fall back to the admin flag of their User row, which is cached
+ * (true or false) for ttlSeconds. Call evict after changing a user's admin
+ * flag so the next login sees it at once.
+ */
+@Service
+public class AdminStatusService {
+  @Autowired
+  UserRepository userRepository;
+
+  @Value("${app.admin.emails}")
+  private List<String> configuredAdminEmails = new ArrayList<>();
+
+  @Value("${app.admin.cache.maximumSize:10000}")
+  private long cacheMaximumSize;
+
+  @Value("${app.admin.cache.ttlSeconds:300}")
+  private long cacheTtlSeconds;
+
+  private Set<String> adminEmails;
+
+  // the admin flag of each User row looked up so far, keyed by email
+  private Cache<String, Boolean> adminStatus;
+
+  @PostConstruct
+  void build() {
+    adminEmails = Set.copyOf(configuredAdminEmails);
+    adminStatus = Caffeine.newBuilder()
+        .maximumSize(cacheMaximumSize)
+        .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+        .build();
+  }
+
+  public boolean isConfiguredAdmin(String email) {
+    return email != null && adminEmails.contains(email);
+  }
+
+  public boolean isAdmin(String email) {
+    if (email == null) {
+      return false;
+    }
+    if (adminEmails.contains(email)) {
+      return true;
+    }
+    return adminStatus.get(email, key -> userRepository.findByEmail(key).map(User::getAdmin).orElse(false));
+  }
+
+  public void evict(String email) {
+    adminStatus.invalidate(email);
+  }
+}
@@ -0,0 +1,166 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+
+/**
+ * Answers type-ahead lookups for organizations (by orgCode or
+ * orgTranslationShort) and menu items (by name) from memory.
+ *
+ * Each table is kept as a sorted array of lower case keys, one for every
+ * word a name starts with ("carne asada tacos", "asada tacos", "tacos"),
+ * so a lookup is a binary search for the first key at or after the prefix
+ * followed by a scan of the keys that start with it. Rows come back in key
+ * order, each once.
+ *
+ * A table's array is rebuilt the first time it is asked for after a write
+ * has moved the table's TableVersions count.
+ */
+@Service
+public class AutocompleteIndex {
+  public static final int MAX_RESULTS = 100;
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  TableVersions tableVersions;
+
+  @Autowired
+  ReferenceDataCache referenceDataCache;
+
+  private final Prefixes<UCSBOrganization> organizations = new Prefixes<>(UCSBOrganization.class,
+      organization -> Stream.of(organization.getOrgCode(), organization.getOrgTranslationShort()),
+      () -> referenceDataCache.findAll(UCSBOrganization.class, ucsbOrganizationRepository::findAll));
+
+  private final Prefixes<UCSBDiningCommonsMenuItem> menuItems = new Prefixes<>(UCSBDiningCommonsMenuItem.class,
+      item -> Stream.of(item.getName()),
+      () -> ucsbDiningCommonsMenuItemRepository.findAll());
+
+  private record Keyed<T>(String key, T row) {
+  }
+
+  private record Sorted<T>(long version, List<Keyed<T>> keys) {
+  }
+
+  /**
+   * Up to limit organizations with an orgCode or orgTranslationShort
+   * containing a word that starts with prefix, ignoring case; limit is
+   * clamped to [1, MAX_RESULTS]
+   */
+  public List<UCSBOrganization> organizations(String prefix, int limit) {
+    return organizations.find(prefix, limit);
+  }
+
+  /**
+   * Up to limit menu items with a name containing a word that starts with
+   * prefix, ignoring case; limit is clamped to [1, MAX_RESULTS]
+   */
+  public List<UCSBDiningCommonsMenuItem> menuItems(String prefix, int limit) {
+    return menuItems.find(prefix, limit);
+  }
+
+  private static String normalize(String text) {
+    return text.toLowerCase(Locale.ROOT);
+  }
+
+  /** text from each position where a word starts, e.g. after a space or hyphen */
+  private static Stream<String> wordSuffixes(String text) {
+    List<String> suffixes = new ArrayList<>();
+    for (int i = 0; i < text.length(); i++) {
+      if (Character.isLetterOrDigit(text.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)))) {
+        suffixes.add(text.substring(i));
+      }
+    }
+    return suffixes.stream();
+  }
+
+  private class Prefixes<T> {
+    private final Class<T> entityType;
+    private final Function<T, Stream<String>> names;
+    private final Supplier<Iterable<T>> load;
+    private volatile Sorted<T> sorted;
+
+    Prefixes(Class<T> entityType, Function<T, Stream<String>> names, Supplier<Iterable<T>> load) {
+      this.entityType = entityType;
+      this.names = names;
+      this.load = load;
+    }
+
+    List<T> find(String prefix, int limit) {
+      int max = Math.min(Math.max(limit, 1), MAX_RESULTS);
+      String wanted = normalize(prefix.stripLeading());
+      List<Keyed<T>> keys = current().keys();
+
+      int low = 0;
+      int high = keys.size();
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (keys.get(mid).key().compareTo(wanted) < 0) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+
+      Set<T> found = new LinkedHashSet<>();
+      for (int i = low; i < keys.size() && found.size() < max && keys.get(i).key().startsWith(wanted); i++) {
+        found.add(keys.get(i).row());
+      }
+      return List.copyOf(found);
+    }
+
+    private Sorted<T> current() {
+      Sorted<T> current = sorted;
+      if (current == null || current.version() != tableVersions.version(entityType)) {
+        current = rebuild(current);
+      }
+      return current;
+    }
+
+    /**
+     * Rebuilds the keys unless another caller already replaced seen while
+     * this one waited for the lock
+     */
+    private synchronized Sorted<T> rebuild(Sorted<T> seen) {
+      if (sorted == seen) {
+        sorted = build();
+      }
+      return sorted;
+    }
+
+    private Sorted<T> build() {
+      // taken before reading, so a write that lands during the read triggers another rebuild
+      long version = tableVersions.version(entityType);
+      List<Keyed<T>> keys = new ArrayList<>();
+      for (T row : load.get()) {
+        names.apply(row)
+            .filter(name -> name != null)
+            .map(AutocompleteIndex::normalize)
+            .flatMap(AutocompleteIndex::wordSuffixes)
+            .distinct()
+            .forEach(key -> keys.add(new Keyed<>(key, row)));
+      }
+      keys.sort(Comparator.comparing(Keyed::key));
+      return new Sorted<>(version, keys);
+    }
+  }
+}
@@ -0,0 +1,226 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.exc.StreamReadException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import edu.ucsb.cs156.example.models.BulkImportChunk;
+import edu.ucsb.cs156.example.models.BulkImportReport;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads rows one at a time from a CSV (with a header row) or NDJSON
+ * stream and saves them chunkSize at a time, so only one chunk is ever in
+ * memory and each chunk commits on its own transaction.
+ *
+ * A row that cannot be mapped, or that the caller's prepare step rejects,
+ * is reported and skipped. Malformed input (e.g. broken JSON) stops the
+ * import after saving the rows read so far. A chunk the database refuses
+ * is reported as a whole and the import carries on with the next one.
+ * importNewRows also reports, rather than saves, rows whose key already
+ * has a row or appears earlier in the same chunk.
+ */
+@Slf4j
+@Service
+public class BulkImportService {
+  public static final String TEXT_CSV_VALUE = "text/csv";
+  public static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE);
+  public static final int MAX_CHUNK_SIZE = 5000;
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  private final CsvMapper csvMapper = CsvMapper.builder()
+      .findAndAddModules()
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+      .build();
+
+  public static void requireText(String value, String field) {
+    if (value == null || value.isBlank()) {
+      throw new IllegalArgumentException("%s is required".formatted(field));
+    }
+  }
+
+  public static void requireValue(Object value, String field) {
+    if (value == null) {
+      throw new IllegalArgumentException("%s is required".formatted(field));
+    }
+  }
+
+  /**
+   * @param contentType text/csv or application/x-ndjson
+   * @param prepare     checks a parsed row, throwing IllegalArgumentException
+   *                    to reject it, and readies it for saving
+   * @param save        saves one chunk, e.g. repository::saveAll; it runs in
+   *                    the chunk's transaction, so anything else it writes
+   *                    (e.g. the ChangeLog) commits or rolls back with it
+   */
+  public <T> BulkImportReport importRows(InputStream in, String contentType, Class<T> type, int chunkSize,
+      Consumer<T> prepare, Function<List<T>, Iterable<T>> save) throws IOException {
+    return importRows(in, contentType, type, chunkSize, prepare, rows -> Map.of(), save);
+  }
+
+  /**
+   * importRows for rows with client-chosen keys (e.g. orgCode), which must
+   * only create rows: saving one whose key is taken would overwrite it.
+   *
+   * @param keyOf      the row's key
+   * @param repository where the chunk's keys are looked up, in the chunk's
+   *                   transaction, just before it is saved
+   */
+  public <T, K> BulkImportReport importNewRows(InputStream in, String contentType, Class<T> type, int chunkSize,
+      Consumer<T> prepare, Function<T, K> keyOf, CrudRepository<T, K> repository,
+      Function<List<T>, Iterable<T>> save) throws IOException {
+    return importRows(in, contentType, type, chunkSize, prepare,
+        rows -> clashes(rows, keyOf, repository, type), save);
+  }
+
+  /** The index of each row whose key is taken or repeated, with the reason. */
+  private static <T, K> Map<Integer, String> clashes(List<T> rows, Function<T, K> keyOf,
+      CrudRepository<T, K> repository, Class<T> type) {
+    Set<K> existing = new HashSet<>();
+    repository.findAllById(rows.stream().map(keyOf).toList()).forEach(row -> existing.add(keyOf.apply(row)));
+    Set<K> seen = new HashSet<>();
+    Map<Integer, String> clashes = new HashMap<>();
+    for (int i = 0; i < rows.size(); i++) {
+      K key = keyOf.apply(rows.get(i));
+      if (existing.contains(key)) {
+        clashes.put(i, "%s with id %s already exists".formatted(type.getSimpleName(), key));
+      } else if (!seen.add(key)) {
+        clashes.put(i, "%s with id %s appears more than once".formatted(type.getSimpleName(), key));
+      }
+    }
+    return clashes;
+  }
+
+  private <T> BulkImportReport importRows(InputStream in, String contentType, Class<T> type, int chunkSize,
+      Consumer<T> prepare, Function<List<T>, Map<Integer, String>> screen, Function<List<T>, Iterable<T>> save)
+      throws IOException {
+    int size = Math.min(Math.max(chunkSize, 1), MAX_CHUNK_SIZE);
+    List<BulkImportChunk> chunks = new ArrayList<>();
+    List<T> pending = new ArrayList<>(size);
+    List<Long> pendingRows = new ArrayList<>(size);
+    List<String> errors = new ArrayList<>();
+    long row = 0;
+    long imported = 0;
+
+    try (MappingIterator<T> iterator = reader(contentType, type).readValues(in)) {
+      boolean more = true;
+      while (more) {
+        try {
+          if (!iterator.hasNextValue()) {
+            break;
+          }
+          T value = iterator.nextValue();
+          prepare.accept(value);
+          pending.add(value);
+          pendingRows.add(row + 1);
+        } catch (StreamReadException e) {
+          errors.add("row %d: unreadable input, import stopped: %s".formatted(row + 1, e.getOriginalMessage()));
+          more = false;
+        } catch (JsonProcessingException e) {
+          errors.add("row %d: %s".formatted(row + 1, e.getOriginalMessage()));
+        } catch (IllegalArgumentException e) {
+          errors.add("row %d: %s".formatted(row + 1, e.getMessage()));
+        }
+        row++;
+
+        if (row % size == 0) {
+          imported += commit(chunks, size, row, pending, pendingRows, errors, screen, save);
+          pending = new ArrayList<>(size);
+          pendingRows = new ArrayList<>(size);
+        }
+      }
+    }
+    if (row % size != 0) {
+      imported += commit(chunks, size, row, pending, pendingRows, errors, screen, save);
+    }
+
+    return BulkImportReport.builder()
+        .rows(row)
+        .imported(imported)
+        .rejected(row - imported)
+        .chunks(chunks)
+        .build();
+  }
+
+  private ObjectReader reader(String contentType, Class<?> type) {
+    if (MediaType.parseMediaType(contentType).isCompatibleWith(TEXT_CSV)) {
+      return csvMapper.readerFor(type).with(CsvSchema.emptySchema().withHeader());
+    }
+    return objectMapper.readerFor(type);
+  }
+
+  /**
+   * Saves the pending rows as the next chunk, which ends at lastRow, and
+   * appends its outcome to chunks; returns how many rows were saved.
+   * pendingRows holds the row number of each pending row. Rows screen
+   * rejects are reported and the rest are handed to save, in the same
+   * transaction, so callers start new lists.
+   */
+  private <T> int commit(List<BulkImportChunk> chunks, int size, long lastRow, List<T> pending,
+      List<Long> pendingRows, List<String> errors, Function<List<T>, Map<Integer, String>> screen,
+      Function<List<T>, Iterable<T>> save) {
+    int number = chunks.size() + 1;
+    long firstRow = (long) chunks.size() * size + 1;
+    int imported = 0;
+    if (!pending.isEmpty()) {
+      List<T> accepted = new ArrayList<>(pending.size());
+      try {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+          Map<Integer, String> rejected = screen.apply(pending);
+          for (int i = 0; i < pending.size(); i++) {
+            String reason = rejected.get(i);
+            if (reason == null) {
+              accepted.add(pending.get(i));
+            } else {
+              errors.add("row %d: %s".formatted(pendingRows.get(i), reason));
+            }
+          }
+          save.apply(accepted);
+        });
+        imported = accepted.size();
+      } catch (DataAccessException e) {
+        errors.add("rows %d-%d: not saved: %s".formatted(firstRow, lastRow, e.getMostSpecificCause().getMessage()));
+      }
+    }
+    log.info("bulk import chunk {}: rows {}-{}, {} imported, {} errors", number, firstRow, lastRow, imported,
+        errors.size());
+    chunks.add(BulkImportChunk.builder()
+        .chunk(number)
+        .firstRow(firstRow)
+        .lastRow(lastRow)
+        .imported(imported)
+        .errors(List.copyOf(errors))
+        .build());
+    errors.clear();
+    return imported;
+  }
+}
@@ -0,0 +1,106 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.ChangeLogEntry;
+import edu.ucsb.cs156.example.repositories.ChangeLogEntryRepository;
+
+/**
+ * Records every create, update and delete made through the controllers as
+ * a ChangeLogEntry, in the caller's transaction, so clients and caches can
+ * ask for the changes after the last seq they saw instead of re-reading
+ * /all.
+ *
+ * seq comes from a pooled sequence, so a change can commit after one with
+ * a higher seq. A reader that skipped past it would never see it, so
+ * changesSince stops below the lowest seq whose transaction is still open
+ * (or, when none is, below the next seq to be handed out). Open seqs are
+ * tracked in memory, so with two instances changesSince only waits for
+ * this instance's transactions and can pass a seq the other instance has
+ * yet to commit, which readers then never see.
+ */
+@Service
+public class ChangeLog {
+  public static final String SAVED = "saved";
+  public static final String DELETED = "deleted";
+
+  @Autowired
+  ChangeLogEntryRepository changeLogEntryRepository;
+
+  private final NavigableSet<Long> inFlight = new ConcurrentSkipListSet<>();
+  private long nextSeq;
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void saved(Class<?> entityType, List<?> ids) {
+    record(entityType, SAVED, ids);
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void deleted(Class<?> entityType, List<?> ids) {
+    record(entityType, DELETED, ids);
+  }
+
+  /**
+   * Up to the first pageable.getPageSize() committed changes with a seq
+   * greater than since, oldest first
+   */
+  public List<ChangeLogEntry> changesSince(long since, Pageable pageable) {
+    return changeLogEntryRepository.findBySeqGreaterThanAndSeqLessThan(since, horizon(), pageable);
+  }
+
+  private synchronized long horizon() {
+    startFromDatabase();
+    return inFlight.isEmpty() ? nextSeq : inFlight.first();
+  }
+
+  private void startFromDatabase() {
+    if (nextSeq == 0) {
+      nextSeq = changeLogEntryRepository.findMaxSeq() + 1;
+    }
+  }
+
+  private void record(Class<?> entityType, String operation, List<?> ids) {
+    LocalDateTime now = LocalDateTime.now();
+    List<ChangeLogEntry> entries = ids.stream()
+        .map(id -> ChangeLogEntry.builder()
+            .entityType(entityType.getSimpleName())
+            .entityId(String.valueOf(id))
+            .operation(operation)
+            .changedAt(now)
+            .build())
+        .toList();
+
+    List<Long> seqs = allocate(entries);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        inFlight.removeAll(seqs);
+      }
+    });
+  }
+
+  /**
+   * Persisting takes each entry's seq from the sequence without inserting
+   * it yet; doing that under the same lock as horizon means no reader can
+   * see a later seq before this one is marked in flight.
+   */
+  private synchronized List<Long> allocate(List<ChangeLogEntry> entries) {
+    startFromDatabase();
+    changeLogEntryRepository.saveAll(entries);
+    List<Long> seqs = entries.stream().map(ChangeLogEntry::getSeq).toList();
+    inFlight.addAll(seqs);
+    seqs.forEach(seq -> nextSeq = Math.max(nextSeq, seq + 1));
+    return seqs;
+  }
+}
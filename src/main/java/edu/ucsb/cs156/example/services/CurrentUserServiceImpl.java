@@ -5,11 +5,15 @@ import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
 import java.util.Collection;
-import java.util.List;
 import java.util.Optional;
 
+import javax.annotation.PostConstruct;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
@@ -30,8 +34,36 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   @Autowired
   GrantedAuthoritiesService grantedAuthoritiesService;
 
-  @Value("${app.admin.emails}")
-  final private List<String> adminEmails = new ArrayList<String>();
+  @Autowired
+  AdminStatusService adminStatusService;
+
+  @Value("${app.currentUser.cache.maximumSize:1000}")
+  private long cacheMaximumSize;
+
+  @Value("${app.currentUser.cache.ttlSeconds:300}")
+  private long cacheTtlSeconds;
+
+  // Users already resolved from the database, keyed by email
+  private Cache<String, User> userCache;
+
+  @PostConstruct
+  void buildUserCache() {
+    userCache = Caffeine.newBuilder()
+        .maximumSize(cacheMaximumSize)
+        .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+        .build();
+  }
+
+  /**
+   * Drop the cached copy of a user, so the next request reloads it from the
+   * database. Called when a login promotes a configured admin; anything else
+   * that changes a user's admin flag must call it too, or the old flag is
+   * served until the entry expires.
+   */
+  public void evictUser(String email) {
+    userCache.invalidate(email);
+    adminStatusService.evict(email);
+  }
 
   public CurrentUser getCurrentUser() {
     CurrentUser cu = CurrentUser.builder()
@@ -46,6 +78,21 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   public User getOAuth2AuthenticatedUser(SecurityContext securityContext, Authentication authentication) {
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
     String email = oAuthUser.getAttribute("email");
+    if (email == null) {
+      // the cache is keyed by email, and Caffeine rejects null keys
+      return loadOrCreateUser(oAuthUser, email);
+    }
+    User cached = userCache.getIfPresent(email);
+    if (cached != null) {
+      return cached;
+    }
+
+    User u = loadOrCreateUser(oAuthUser, email);
+    userCache.put(email, u);
+    return u;
+  }
+
+  private User loadOrCreateUser(OAuth2User oAuthUser, String email) {
     String googleSub = oAuthUser.getAttribute("sub");
     String pictureUrl = oAuthUser.getAttribute("picture");
     String fullName = oAuthUser.getAttribute("name");
@@ -55,15 +102,13 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     String locale = oAuthUser.getAttribute("locale");
     String hostedDomain = oAuthUser.getAttribute("hd");
 
-    java.util.Map<java.lang.String,java.lang.Object> attrs = oAuthUser.getAttributes();
-    log.info("attrs={}",attrs);
-
     Optional<User> ou = userRepository.findByEmail(email);
     if (ou.isPresent()) {
       User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
+      if (adminStatusService.isConfiguredAdmin(email) && !u.getAdmin()) {
         u.setAdmin(true);
         userRepository.save(u);
+        evictUser(email);
       }
       return u;
     }
@@ -78,7 +123,7 @@ public class CurrentUserServiceImpl extends CurrentUserService {
         .emailVerified(emailVerified)
         .locale(locale)
         .hostedDomain(hostedDomain)
-        .admin(adminEmails.contains(email))
+        .admin(adminStatusService.isConfiguredAdmin(email))
         .build();
     userRepository.save(u);
     return u;
@@ -0,0 +1,176 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+/**
+ * Finds the dining commons nearest a location from memory, so mobile
+ * clients asking as they walk around campus never cost a query.
+ *
+ * Commons are kept in a k-d tree of points on the unit sphere. Straight
+ * line distance between those points orders commons just as distance
+ * along the earth's surface does, so the tree prunes on plain coordinate
+ * differences and still finds the true nearest commons, poles and date
+ * line included. Commons without a location are left out.
+ *
+ * The tree is rebuilt, balanced, from the ReferenceDataCache copy of the
+ * table the first time it is asked for after a write has moved the
+ * table's TableVersions count.
+ */
+@Service
+public class DiningCommonsLocator {
+  public static final int MAX_RESULTS = 100;
+  public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+  private static final Comparator<Candidate> NEAREST_FIRST = Comparator
+      .comparingDouble(Candidate::squaredChord)
+      .thenComparing(candidate -> candidate.commons().getCode());
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  TableVersions tableVersions;
+
+  @Autowired
+  ReferenceDataCache referenceDataCache;
+
+  private volatile Index index;
+
+  private record Index(long version, Node root) {
+  }
+
+  private record Located(UCSBDiningCommons commons, double[] point) {
+  }
+
+  private record Node(Located at, int axis, Node below, Node above) {
+  }
+
+  private record Candidate(UCSBDiningCommons commons, double squaredChord) {
+  }
+
+  /**
+   * The k dining commons nearest the given location, nearest first; k is
+   * clamped to [1, MAX_RESULTS]
+   *
+   * @throws BadRequestException if latitude is outside [-90, 90] or
+   *                             longitude outside [-180, 180]
+   */
+  public List<NearbyDiningCommons> nearest(double latitude, double longitude, int k) {
+    if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+      throw new BadRequestException(
+          "latitude must be in [-90, 90] and longitude in [-180, 180], not %s, %s".formatted(latitude, longitude));
+    }
+    int limit = Math.min(Math.max(k, 1), MAX_RESULTS);
+    PriorityQueue<Candidate> found = new PriorityQueue<>(limit + 1, NEAREST_FIRST.reversed());
+    search(current().root(), point(latitude, longitude), limit, found);
+
+    List<Candidate> nearest = new ArrayList<>(found);
+    nearest.sort(NEAREST_FIRST);
+    return nearest.stream()
+        .map(candidate -> NearbyDiningCommons.builder()
+            .diningCommons(candidate.commons())
+            .distanceMeters(meters(candidate.squaredChord()))
+            .build())
+        .toList();
+  }
+
+  private Index current() {
+    Index current = index;
+    if (current == null || current.version() != tableVersions.version(UCSBDiningCommons.class)) {
+      current = rebuild(current);
+    }
+    return current;
+  }
+
+  /**
+   * Rebuilds the tree unless another caller already replaced seen while
+   * this one waited for the lock
+   */
+  private synchronized Index rebuild(Index seen) {
+    if (index == seen) {
+      index = build();
+    }
+    return index;
+  }
+
+  private Index build() {
+    // taken before reading, so a write that lands during the read triggers another rebuild
+    long version = tableVersions.version(UCSBDiningCommons.class);
+    List<Located> located = referenceDataCache
+        .findAll(UCSBDiningCommons.class, ucsbDiningCommonsRepository::findAll).stream()
+        .filter(commons -> commons.getLatitude() != null && commons.getLongitude() != null)
+        .map(commons -> new Located(commons, point(commons.getLatitude(), commons.getLongitude())))
+        .toList();
+    return new Index(version, node(located, 0));
+  }
+
+  /** A balanced subtree of located, split on the median of axis depth % 3 */
+  private static Node node(List<Located> located, int depth) {
+    if (located.isEmpty()) {
+      return null;
+    }
+    int axis = depth % 3;
+    List<Located> sorted = new ArrayList<>(located);
+    sorted.sort(Comparator.comparingDouble(at -> at.point()[axis]));
+    int median = sorted.size() / 2;
+    return new Node(sorted.get(median), axis,
+        node(sorted.subList(0, median), depth + 1),
+        node(sorted.subList(median + 1, sorted.size()), depth + 1));
+  }
+
+  /**
+   * Adds the commons under node that are among the limit nearest target to
+   * found, which is ordered farthest first
+   */
+  private static void search(Node node, double[] target, int limit, PriorityQueue<Candidate> found) {
+    if (node == null) {
+      return;
+    }
+    Candidate candidate = new Candidate(node.at().commons(), squaredDistance(node.at().point(), target));
+    if (found.size() < limit) {
+      found.add(candidate);
+    } else if (NEAREST_FIRST.compare(candidate, found.peek()) < 0) {
+      found.poll();
+      found.add(candidate);
+    }
+
+    double offset = target[node.axis()] - node.at().point()[node.axis()];
+    search(offset < 0 ? node.below() : node.above(), target, limit, found);
+    // the other side can only help if the splitting plane is nearer than the farthest commons kept
+    if (found.size() < limit || offset * offset <= found.peek().squaredChord()) {
+      search(offset < 0 ? node.above() : node.below(), target, limit, found);
+    }
+  }
+
+  private static double[] point(double latitude, double longitude) {
+    double phi = Math.toRadians(latitude);
+    double lambda = Math.toRadians(longitude);
+    return new double[] {
+        Math.cos(phi) * Math.cos(lambda),
+        Math.cos(phi) * Math.sin(lambda),
+        Math.sin(phi) };
+  }
+
+  private static double squaredDistance(double[] a, double[] b) {
+    double dx = a[0] - b[0];
+    double dy = a[1] - b[1];
+    double dz = a[2] - b[2];
+    return dx * dx + dy * dy + dz * dz;
+  }
+
+  /** The distance along the earth's surface spanned by a chord of the unit sphere */
+  private static double meters(double squaredChord) {
+    return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(squaredChord) / 2));
+  }
+}
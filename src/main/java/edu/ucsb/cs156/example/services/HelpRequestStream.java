@@ -0,0 +1,217 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pushes help request changes to every open /api/helprequest/stream as
+ * server-sent events, so the queue view does not have to poll /all.
+ *
+ * A subscriber first gets a snapshot event holding every help request, then
+ * a saved event (rows to add or replace, by id) or a deleted event (ids to
+ * drop) for each write. Subscribers are async requests, so none of them
+ * holds a thread between events. Each subscriber has its own queue of
+ * events, written out by this service's own pool of threads, so the thread
+ * that made a change only queues it after its transaction commits and a
+ * slow client holds up no one else.
+ *
+ * A queue holds at most maxPendingEvents events. A client that falls that
+ * far behind is disconnected with an error rather than buffered for until
+ * it times out; an EventSource reconnects and starts again from a fresh
+ * snapshot. A subscriber is also dropped when its request completes, times
+ * out or fails, or the first time an event fails to reach it.
+ */
+@Slf4j
+@Service
+public class HelpRequestStream {
+  public static final String SNAPSHOT = "snapshot";
+  public static final String SAVED = "saved";
+  public static final String DELETED = "deleted";
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Value("${app.helpRequests.stream.timeoutMillis:1800000}")
+  private long timeoutMillis;
+
+  @Value("${app.helpRequests.stream.maxPendingEvents:256}")
+  private int maxPendingEvents;
+
+  @Value("${app.helpRequests.stream.threads:4}")
+  private int threads;
+
+  // sends block while a client's socket buffer is full, so they get their
+  // own threads rather than the shared application task executor
+  private ThreadPoolTaskExecutor pool;
+
+  TaskExecutor taskExecutor;
+
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Registers the new subscriber before reading the snapshot, so a change
+   * that commits while the snapshot is read is queued rather than lost. The
+   * snapshot goes out first; a change it already includes is sent again,
+   * which is harmless since saved and deleted events are idempotent.
+   */
+  @PostConstruct
+  void startPool() {
+    pool = new ThreadPoolTaskExecutor();
+    pool.setThreadNamePrefix("help-request-stream-");
+    pool.setCorePoolSize(threads);
+    pool.setMaxPoolSize(threads);
+    pool.initialize();
+    taskExecutor = pool;
+  }
+
+  @PreDestroy
+  void stopPool() {
+    pool.shutdown();
+  }
+
+  public SseEmitter subscribe() {
+    SseEmitter emitter = new SseEmitter(timeoutMillis);
+    Subscriber subscriber = new Subscriber(emitter);
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> {
+      subscribers.remove(subscriber);
+      emitter.complete();
+    });
+    emitter.onError(e -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+    subscriber.start(new Event(SNAPSHOT, helpRequestRepository.findAll()));
+    return emitter;
+  }
+
+  public int subscriberCount() {
+    return subscribers.size();
+  }
+
+  public void saved(List<HelpRequest> helpRequests) {
+    afterCommit(SAVED, helpRequests);
+  }
+
+  public void deleted(List<Long> ids) {
+    afterCommit(DELETED, ids);
+  }
+
+  private void afterCommit(String event, Object data) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      publish(new Event(event, data));
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        publish(new Event(event, data));
+      }
+    });
+  }
+
+  private void publish(Event event) {
+    subscribers.forEach(subscriber -> subscriber.enqueue(event));
+  }
+
+  private record Event(String name, Object data) {
+  }
+
+  /**
+   * One open stream and the events waiting for it. At most one task drains
+   * the queue at a time, which keeps its events in order; the lock only
+   * guards the queue and is never held while sending.
+   */
+  private final class Subscriber {
+    private final SseEmitter emitter;
+    private final Deque<Event> pending = new ArrayDeque<>();
+    private boolean started;
+    private boolean draining;
+
+    Subscriber(SseEmitter emitter) {
+      this.emitter = emitter;
+    }
+
+    void start(Event snapshot) {
+      synchronized (this) {
+        pending.addFirst(snapshot);
+        started = true;
+        draining = true;
+      }
+      taskExecutor.execute(this::drain);
+    }
+
+    void enqueue(Event event) {
+      boolean full;
+      synchronized (this) {
+        full = pending.size() >= maxPendingEvents;
+        if (full) {
+          pending.clear();
+        } else {
+          pending.addLast(event);
+          if (!started || draining) {
+            return;
+          }
+          draining = true;
+        }
+      }
+      if (full) {
+        disconnect();
+      } else {
+        taskExecutor.execute(this::drain);
+      }
+    }
+
+    private void disconnect() {
+      subscribers.remove(this);
+      log.debug("dropping help request subscriber with {} events waiting", maxPendingEvents);
+      emitter.completeWithError(new IllegalStateException(
+          "more than %d help request events waiting to be sent".formatted(maxPendingEvents)));
+    }
+
+    private synchronized Event next() {
+      Event event = pending.pollFirst();
+      draining = event != null;
+      return event;
+    }
+
+    private void drain() {
+      for (Event event = next(); event != null; event = next()) {
+        if (!send(emitter, event)) {
+          subscribers.remove(this);
+          return;
+        }
+      }
+    }
+  }
+
+  private static boolean send(SseEmitter emitter, Event event) {
+    try {
+      emitter.send(SseEmitter.event().name(event.name()).data(event.data(), MediaType.APPLICATION_JSON));
+      return true;
+    } catch (IOException | IllegalStateException e) {
+      // the connection is gone or the emitter has completed; the container reports the error itself
+      log.debug("dropping help request subscriber: {}", e.toString());
+      return false;
+    }
+  }
+}
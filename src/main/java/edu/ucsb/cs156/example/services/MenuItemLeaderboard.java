@@ -0,0 +1,114 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.RankedMenuItem;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+
+/**
+ * The best rated menu items of each dining commons, kept in memory so the
+ * dining hall screens that poll it never cost a query.
+ *
+ * The ranking is rebuilt with one join of menu items to their
+ * MenuItemRating rows, and only once reviews or menu items have changed
+ * (per TableVersions) and the current ranking is at least
+ * refreshSeconds old, so a burst of reviews costs one rebuild.
+ */
+@Service
+public class MenuItemLeaderboard {
+  public static final int MAX_ITEMS = 100;
+
+  private static final Comparator<RankedMenuItem> BEST_FIRST = Comparator
+      .comparingDouble(RankedMenuItem::getAverageStars).reversed()
+      .thenComparing(Comparator.comparingLong(RankedMenuItem::getReviews).reversed())
+      .thenComparingLong(RankedMenuItem::getItemId);
+
+  @Autowired
+  MenuItemRatingRepository menuItemRatingRepository;
+
+  @Autowired
+  TableVersions tableVersions;
+
+  @Value("${app.leaderboard.refreshSeconds:30}")
+  private long refreshSeconds;
+
+  private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+  private final AtomicLong generation = new AtomicLong();
+  private volatile Ranking ranking;
+
+  private record Ranking(String versions, long builtAtMillis, Snapshot snapshot) {
+  }
+
+  /**
+   * One build of the ranking. It never changes, so a response that takes
+   * both its ETag and its rows from one snapshot cannot mix two builds.
+   *
+   * @param etag a strong entity tag, quotes included, that changes whenever
+   *             the ranking is rebuilt
+   */
+  public record Snapshot(String etag, Map<String, List<RankedMenuItem>> byCommons) {
+    /**
+     * The top n items of each dining commons, best first; n is clamped to
+     * [1, MAX_ITEMS]
+     */
+    public Map<String, List<RankedMenuItem>> top(int n) {
+      int limit = Math.min(Math.max(n, 1), MAX_ITEMS);
+      Map<String, List<RankedMenuItem>> top = new TreeMap<>();
+      byCommons().forEach((code, items) -> top.put(code, items.subList(0, Math.min(limit, items.size()))));
+      return top;
+    }
+  }
+
+  public Snapshot snapshot() {
+    return current().snapshot();
+  }
+
+  private Ranking current() {
+    Ranking current = ranking;
+    if (current == null || isStale(current)) {
+      current = rebuild(current);
+    }
+    return current;
+  }
+
+  /**
+   * Rebuilds the ranking unless another caller already replaced seen while
+   * this one waited for the lock
+   */
+  private synchronized Ranking rebuild(Ranking seen) {
+    if (ranking == seen) {
+      ranking = build();
+    }
+    return ranking;
+  }
+
+  private boolean isStale(Ranking current) {
+    return !current.versions().equals(versions())
+        && System.currentTimeMillis() - current.builtAtMillis() >= refreshSeconds * 1000;
+  }
+
+  private String versions() {
+    return tableVersions.etag(MenuItemReview.class) + tableVersions.etag(UCSBDiningCommonsMenuItem.class);
+  }
+
+  private Ranking build() {
+    // taken before reading, so a write that lands during the read triggers another rebuild
+    String versions = versions();
+    Map<String, List<RankedMenuItem>> byCommons = menuItemRatingRepository.findAllRanked().stream()
+        .collect(Collectors.groupingBy(RankedMenuItem::getDiningCommonsCode, Collectors.collectingAndThen(
+            Collectors.toList(), items -> items.stream().sorted(BEST_FIRST).limit(MAX_ITEMS).toList())));
+    String etag = "\"MenuItemLeaderboard-%s-%d\"".formatted(epoch, generation.incrementAndGet());
+    return new Ranking(versions, System.currentTimeMillis(), new Snapshot(etag, byCommons));
+  }
+}
@@ -0,0 +1,97 @@
+package edu.ucsb.cs156.example.services;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps one MenuItemRating row per reviewed menu item, so an item's average
+ * and star histogram are read from a single row rather than by scanning its
+ * reviews.
+ *
+ * Every code path that writes a MenuItemReview reports the review as it was
+ * before (reviewRemoved) and after (reviewAdded) the write, inside the same
+ * transaction, so the totals commit or roll back with the review itself.
+ * Reviews with stars outside 0 to 5 count towards the average only.
+ *
+ * Each adjustment locks the item's row with SELECT ... FOR UPDATE. An item's
+ * first review has no row to lock, so it first commits an all-zero row in a
+ * transaction of its own; when two first reviews race, one insert fails on
+ * the primary key and both go on to lock the row that won.
+ */
+@Slf4j
+@Service
+public class MenuItemRatingService {
+
+  @Autowired
+  MenuItemRatingRepository menuItemRatingRepository;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void reviewAdded(MenuItemReview review) {
+    adjust(review.getItemId(), review.getStars(), 1);
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void reviewRemoved(MenuItemReview review) {
+    adjust(review.getItemId(), review.getStars(), -1);
+  }
+
+  /** The totals for itemId; all zero if it has no reviews */
+  public MenuItemRating ratingFor(long itemId) {
+    return menuItemRatingRepository.findById(itemId)
+        .orElseGet(() -> MenuItemRating.builder().itemId(itemId).build());
+  }
+
+  private void adjust(long itemId, int stars, int delta) {
+    MenuItemRating rating = menuItemRatingRepository.findForUpdateByItemId(itemId)
+        .orElseGet(() -> {
+          insertEmptyRating(itemId);
+          return menuItemRatingRepository.findForUpdateByItemId(itemId).orElseThrow();
+        });
+    rating.setReviews(rating.getReviews() + delta);
+    rating.setTotalStars(rating.getTotalStars() + (long) stars * delta);
+    switch (stars) {
+      case 0 -> rating.setZeroStars(rating.getZeroStars() + delta);
+      case 1 -> rating.setOneStar(rating.getOneStar() + delta);
+      case 2 -> rating.setTwoStars(rating.getTwoStars() + delta);
+      case 3 -> rating.setThreeStars(rating.getThreeStars() + delta);
+      case 4 -> rating.setFourStars(rating.getFourStars() + delta);
+      case 5 -> rating.setFiveStars(rating.getFiveStars() + delta);
+      default -> log.warn("review of item {} has {} stars, which no histogram bucket counts", itemId, stars);
+    }
+    menuItemRatingRepository.save(rating);
+  }
+
+  /**
+   * An all-zero row reads the same as no row, so it is harmless if the
+   * review that needed it rolls back.
+   */
+  private void insertEmptyRating(long itemId) {
+    TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+    requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    try {
+      // persist rather than save: save would merge, reading the row first
+      requiresNew.executeWithoutResult(status -> entityManager.persist(MenuItemRating.builder().itemId(itemId).build()));
+    } catch (DataIntegrityViolationException e) {
+      log.debug("rating row for item {} was inserted by a concurrent review", itemId);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes a whole table as newline-delimited JSON, one row per line, in
+ * constant memory: rows come from a forward-only repository stream, are
+ * detached from the persistence context once written, and the output is
+ * flushed every FLUSH_EVERY rows.
+ */
+@Service
+public class NdjsonExportService {
+  public static final int FLUSH_EVERY = 1000;
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  @Autowired
+  EntityManager entityManager;
+
+  /**
+   * @param rows opens the stream to export, e.g. articleRepository::streamAll;
+   *             it is called inside this method's read-only transaction
+   */
+  @Transactional(readOnly = true)
+  public <T> long export(Supplier<Stream<T>> rows, OutputStream out) throws IOException {
+    ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    long count = 0;
+    try (Stream<T> stream = rows.get();
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+      // rows are separated by the newline written below, not Jackson's default space
+      generator.setRootValueSeparator(null);
+      Iterator<T> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        T row = iterator.next();
+        writer.writeValue(generator, row);
+        generator.writeRaw('\n');
+        entityManager.detach(row);
+        count++;
+        if (count % FLUSH_EVERY == 0) {
+          generator.flush();
+        }
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.util.Streamable;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import edu.ucsb.cs156.example.models.ReferenceCacheStats;
+
+/**
+ * Read-through cache for small, read-mostly tables such as dining commons,
+ * organizations and dates. Each table gets its own Caffeine cache holding
+ * the whole table plus single rows by key, bounded by maximumSize entries.
+ *
+ * Controllers call evict after every write. Entries are also stored under
+ * the table's TableVersions count as it was before the rows were read, so
+ * a reader that reloads a row while a write is still uncommitted caches it
+ * under a version nobody asks for once that write commits, and writes that
+ * skip the controllers (e.g. other services) are never served stale.
+ */
+@Component
+public class ReferenceDataCache {
+  private static final Object ALL = new Object();
+
+  @Autowired
+  TableVersions tableVersions;
+
+  @Value("${app.referenceData.cache.maximumSize:1000}")
+  private long maximumSize;
+
+  private final ConcurrentHashMap<Class<?>, Cache<List<Object>, Object>> caches = new ConcurrentHashMap<>();
+
+  private static List<Object> key(long version, Object id) {
+    return List.of(version, id);
+  }
+
+  /**
+   * @param load reads the whole table on a miss, e.g. repository::findAll
+   */
+  @SuppressWarnings("unchecked")
+  public <T> List<T> findAll(Class<T> entityType, Supplier<Iterable<T>> load) {
+    List<Object> key = key(tableVersions.version(entityType), ALL);
+    return (List<T>) cache(entityType).get(key, k -> Streamable.of(load.get()).toList());
+  }
+
+  /**
+   * @param load reads one row on a miss, e.g. repository::findById; rows
+   *             that do not exist are not cached
+   */
+  @SuppressWarnings("unchecked")
+  public <T, K> Optional<T> findById(Class<T> entityType, K id, Function<K, Optional<T>> load) {
+    List<Object> key = key(tableVersions.version(entityType), id);
+    return Optional.ofNullable((T) cache(entityType).get(key, k -> load.apply(id).orElse(null)));
+  }
+
+  /** Drops every cached row of entityType, so the next read goes to the database */
+  public void evict(Class<?> entityType) {
+    cache(entityType).invalidateAll();
+  }
+
+  public Map<String, ReferenceCacheStats> snapshot() {
+    Map<String, ReferenceCacheStats> stats = new TreeMap<>();
+    caches.forEach((entityType, cache) -> {
+      CacheStats cacheStats = cache.stats();
+      stats.put(entityType.getSimpleName(), ReferenceCacheStats.builder()
+          .hits(cacheStats.hitCount())
+          .misses(cacheStats.missCount())
+          .hitRate(cacheStats.hitRate())
+          .evictions(cacheStats.evictionCount())
+          .size(cache.estimatedSize())
+          .build());
+    });
+    return stats;
+  }
+
+  private Cache<List<Object>, Object> cache(Class<?> entityType) {
+    return caches.computeIfAbsent(entityType, type -> Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .recordStats()
+        .build());
+  }
+}
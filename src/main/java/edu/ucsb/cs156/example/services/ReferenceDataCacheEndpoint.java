@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import edu.ucsb.cs156.example.models.ReferenceCacheStats;
+
+// Served at /actuator/referencedata; see management.endpoints.web.exposure.include
+
+@Component
+@Endpoint(id = "referencedata")
+public class ReferenceDataCacheEndpoint {
+
+  @Autowired
+  ReferenceDataCache referenceDataCache;
+
+  @ReadOperation
+  public Map<String, ReferenceCacheStats> referenceData() {
+    return referenceDataCache.snapshot();
+  }
+}
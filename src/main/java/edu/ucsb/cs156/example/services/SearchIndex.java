@@ -0,0 +1,260 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.models.SearchHit;
+import edu.ucsb.cs156.example.repositories.ArticleRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+
+/**
+ * In-memory inverted index over the free text of articles (title and
+ * explanation), menu item review comments, and help and recommendation
+ * request explanations, so they can be searched without downloading them.
+ *
+ * Text is split into lower case runs of letters and digits, and matches
+ * are ranked by BM25, so rows that use a query word more often, and rows
+ * matching the rarer words of the query, come first.
+ *
+ * The index is read from the tables the first time it is searched. After
+ * that the controllers hand it every row they write, and it applies the
+ * change once the transaction commits. Each instance keeps its own index,
+ * so if two run, each instance's index misses writes made by the other.
+ */
+@Service
+public class SearchIndex {
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+
+  private static final Comparator<Scored> BEST_FIRST = Comparator
+      .comparingDouble(Scored::score).reversed()
+      .thenComparing(scored -> scored.key().type())
+      .thenComparingLong(scored -> scored.key().id());
+
+  private static final Map<Class<?>, Source<?>> SOURCES = Stream.of(
+      new Source<>(Article.class, Article::getId,
+          article -> Stream.of(article.getTitle(), article.getExplanation())),
+      new Source<>(MenuItemReview.class, MenuItemReview::getId, review -> Stream.of(review.getComments())),
+      new Source<>(HelpRequest.class, HelpRequest::getId, request -> Stream.of(request.getExplanation())),
+      new Source<>(RecommendationRequest.class, RecommendationRequest::getId,
+          request -> Stream.of(request.getExplanation())))
+      .collect(Collectors.toMap(Source::entityType, Function.identity()));
+
+  @Autowired
+  ArticleRepository articleRepository;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Key, Document> documents = new HashMap<>();
+  private final Map<String, Map<Key, Integer>> postings = new HashMap<>();
+  private long totalLength;
+  private volatile boolean built;
+
+  /**
+   * How one entity type is indexed: its id, and the fields searched, in
+   * the order they are shown
+   */
+  private record Source<T>(Class<T> entityType, ToLongFunction<T> id, Function<T, Stream<String>> fields) {
+    Key key(T row) {
+      return new Key(entityType().getSimpleName(), id().applyAsLong(row));
+    }
+
+    String text(T row) {
+      return fields().apply(row).filter(field -> field != null && !field.isBlank()).collect(Collectors.joining("\n"));
+    }
+  }
+
+  private record Key(String type, long id) {
+  }
+
+  private record Document(String text, Map<String, Integer> termCounts, int length) {
+  }
+
+  private record Scored(Key key, double score) {
+  }
+
+  /** Indexes rows of entityType, replacing what they held before, once the caller's transaction commits */
+  public <T> void saved(Class<T> entityType, Iterable<T> rows) {
+    Source<T> source = source(entityType);
+    List<T> copy = new ArrayList<>();
+    rows.forEach(copy::add);
+    afterCommit(() -> copy.forEach(row -> put(source.key(row), source.text(row))));
+  }
+
+  /** Drops the rows of entityType with the given ids once the caller's transaction commits */
+  public void deleted(Class<?> entityType, List<Long> ids) {
+    String type = source(entityType).entityType().getSimpleName();
+    afterCommit(() -> ids.forEach(id -> remove(new Key(type, id))));
+  }
+
+  /**
+   * The matches ranked after to after + limit, best first; an empty list
+   * when nothing matches or q holds no words. Ranks shift as rows are
+   * written, so a later page may repeat or skip a row.
+   */
+  public List<SearchHit> search(String q, int limit, int after) {
+    List<String> terms = terms(q).distinct().toList();
+    if (!built) {
+      build();
+    }
+    lock.readLock().lock();
+    try {
+      int skip = Math.max(after, 0);
+      long wanted = (long) skip + limit;
+      PriorityQueue<Scored> best = new PriorityQueue<>(BEST_FIRST.reversed());
+      scores(terms).forEach((key, score) -> {
+        best.add(new Scored(key, score));
+        if (best.size() > wanted) {
+          best.poll();
+        }
+      });
+
+      List<Scored> ranked = new ArrayList<>(best);
+      ranked.sort(BEST_FIRST);
+      List<SearchHit> hits = new ArrayList<>();
+      for (int rank = skip; rank < ranked.size(); rank++) {
+        Scored scored = ranked.get(rank);
+        hits.add(SearchHit.builder()
+            .rank(rank + 1)
+            .type(scored.key().type())
+            .id(scored.key().id())
+            .score(scored.score())
+            .text(documents.get(scored.key()).text())
+            .build());
+      }
+      return hits;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private Map<Key, Double> scores(List<String> terms) {
+    double averageLength = (double) totalLength / Math.max(documents.size(), 1);
+    Map<Key, Double> scores = new HashMap<>();
+    for (String term : terms) {
+      Map<Key, Integer> matches = postings.getOrDefault(term, Map.of());
+      double idf = Math.log(1 + (documents.size() - matches.size() + 0.5) / (matches.size() + 0.5));
+      matches.forEach((key, count) -> {
+        double norm = K1 * (1 - B + B * documents.get(key).length() / averageLength);
+        scores.merge(key, idf * count * (K1 + 1) / (count + norm), Double::sum);
+      });
+    }
+    return scores;
+  }
+
+  private void build() {
+    lock.writeLock().lock();
+    try {
+      if (!built) {
+        load(Article.class, articleRepository.findAll());
+        load(MenuItemReview.class, menuItemReviewRepository.findAll());
+        load(HelpRequest.class, helpRequestRepository.findAll());
+        load(RecommendationRequest.class, recommendationRequestRepository.findAll());
+        built = true;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private <T> void load(Class<T> entityType, Iterable<T> rows) {
+    Source<T> source = source(entityType);
+    rows.forEach(row -> put(source.key(row), source.text(row)));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Source<T> source(Class<T> entityType) {
+    Source<T> source = (Source<T>) SOURCES.get(entityType);
+    if (source == null) {
+      throw new IllegalArgumentException("%s is not searchable".formatted(entityType.getSimpleName()));
+    }
+    return source;
+  }
+
+  /**
+   * Runs change under the write lock after the caller's transaction
+   * commits, or now when there is none. Until the index is built there is
+   * nothing to change: building reads the committed rows.
+   */
+  private void afterCommit(Runnable change) {
+    Runnable apply = () -> {
+      lock.writeLock().lock();
+      try {
+        if (built) {
+          change.run();
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    };
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      apply.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        apply.run();
+      }
+    });
+  }
+
+  private void put(Key key, String text) {
+    remove(key);
+    Map<String, Integer> termCounts = terms(text).collect(Collectors.toMap(term -> term, term -> 1, Integer::sum));
+    int length = termCounts.values().stream().mapToInt(Integer::intValue).sum();
+    termCounts.forEach((term, count) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(key, count));
+    documents.put(key, new Document(text, termCounts, length));
+    totalLength += length;
+  }
+
+  private void remove(Key key) {
+    Document document = documents.remove(key);
+    if (document == null) {
+      return;
+    }
+    totalLength -= document.length();
+    for (String term : document.termCounts().keySet()) {
+      Map<Key, Integer> matches = postings.get(term);
+      matches.remove(key);
+      if (matches.isEmpty()) {
+        postings.remove(term);
+      }
+    }
+  }
+
+  private static Stream<String> terms(String text) {
+    return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")).filter(term -> !term.isEmpty());
+  }
+}
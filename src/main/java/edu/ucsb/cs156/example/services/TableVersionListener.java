@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.services;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Reports every write to an entity to TableVersions. Hibernate creates
+ * its own instance of each entity listener, so the counts live in the
+ * TableVersions bean rather than here; contexts without that bean, such
+ * as repository test slices, simply have nothing to report to.
+ */
+public class TableVersionListener {
+  private final ObjectProvider<TableVersions> tableVersions;
+
+  public TableVersionListener(ObjectProvider<TableVersions> tableVersions) {
+    this.tableVersions = tableVersions;
+  }
+
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  public void entityChanged(Object entity) {
+    tableVersions.ifAvailable(versions -> versions.changed(Hibernate.getClass(entity)));
+  }
+}
@@ -0,0 +1,74 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Counts writes to each table, so list and single-row GETs can answer
+ * If-None-Match with a 304 without reading the table.
+ *
+ * Entities opt in with {@code @EntityListeners(TableVersionListener.class)},
+ * which calls changed for every insert, update and delete, including those
+ * made by saveAll and deleteAll. Bulk JPQL statements skip entity
+ * callbacks, so code that runs one calls changed itself.
+ *
+ * Inside a transaction the count goes up only after it commits. Callers
+ * take the tag before they read the rows, so a tag is never sent with rows
+ * older than it. Counts are kept in memory, so every tag also carries the
+ * time this instance started.
+ *
+ * This assumes a single instance writes to the database. An instance only
+ * counts its own writes, so if two run, a client can get a 304 for a table
+ * the other instance has since changed.
+ */
+@Component
+public class TableVersions {
+  private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+  private final ConcurrentHashMap<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+
+  public void changed(Class<?> entityType) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      versionCounter(entityType).incrementAndGet();
+      return;
+    }
+    @SuppressWarnings("unchecked")
+    Set<Class<?>> pending = (Set<Class<?>>) TransactionSynchronizationManager.getResource(this);
+    if (pending == null) {
+      Set<Class<?>> changedTypes = new HashSet<>();
+      TransactionSynchronizationManager.bindResource(this, changedTypes);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(TableVersions.this);
+          if (status == STATUS_COMMITTED) {
+            changedTypes.forEach(type -> versionCounter(type).incrementAndGet());
+          }
+        }
+      });
+      pending = changedTypes;
+    }
+    pending.add(entityType);
+  }
+
+  public long version(Class<?> entityType) {
+    return versionCounter(entityType).get();
+  }
+
+  /**
+   * A strong entity tag, quotes included, that changes whenever a row of
+   * entityType is written
+   */
+  public String etag(Class<?> entityType) {
+    return "\"%s-%s-%d\"".formatted(entityType.getSimpleName(), epoch, version(entityType));
+  }
+
+  private AtomicLong versionCounter(Class<?> entityType) {
+    return versions.computeIfAbsent(entityType, type -> new AtomicLong());
+  }
+}
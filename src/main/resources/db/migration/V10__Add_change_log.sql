@@ -0,0 +1,11 @@
+-- One row per create, update or delete made through the controllers, written by ChangeLog
+-- in the same transaction; /api/changes?since=N reads it by primary key range. seq comes
+-- from a pooled sequence like the entity ids (see V6).
+CREATE SEQUENCE IF NOT EXISTS changelog_seq INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS changelog (
+  seq BIGINT PRIMARY KEY,
+  entity_type VARCHAR(255),
+  entity_id VARCHAR(255),
+  operation VARCHAR(255),
+  changed_at TIMESTAMP
+);
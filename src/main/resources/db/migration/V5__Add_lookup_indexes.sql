@@ -0,0 +1,6 @@
+CREATE INDEX IF NOT EXISTS users_email_idx ON users (email);
+CREATE INDEX IF NOT EXISTS ucsbdates_quarteryyyyq_idx ON ucsbdates (quarteryyyyq);
+CREATE INDEX IF NOT EXISTS ucsbdiningcommonsmenuitem_dining_commons_code_idx ON ucsbdiningcommonsmenuitem (dining_commons_code);
+CREATE INDEX IF NOT EXISTS menuitemreview_item_id_idx ON menuitemreview (item_id);
+CREATE INDEX IF NOT EXISTS helprequest_requester_email_idx ON helprequest (requester_email);
+CREATE INDEX IF NOT EXISTS recommendationrequests_requester_email_idx ON recommendationrequests (requester_email);
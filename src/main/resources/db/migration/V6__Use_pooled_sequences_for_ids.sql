@@ -0,0 +1,16 @@
+-- Ids come from one sequence per table, handed out 50 at a time by Hibernate's pooled
+-- optimizer, so that saveAll can batch its inserts. Run before deploying: each sequence
+-- has to start past the ids the old IDENTITY columns already used, and the first nextval
+-- of a pooled sequence is the top of its first block of 50.
+CREATE SEQUENCE IF NOT EXISTS articles_seq INCREMENT BY 50;
+SELECT setval('articles_seq', COALESCE((SELECT MAX(id) FROM articles), 0) + 50, false);
+CREATE SEQUENCE IF NOT EXISTS helprequest_seq INCREMENT BY 50;
+SELECT setval('helprequest_seq', COALESCE((SELECT MAX(id) FROM helprequest), 0) + 50, false);
+CREATE SEQUENCE IF NOT EXISTS menuitemreview_seq INCREMENT BY 50;
+SELECT setval('menuitemreview_seq', COALESCE((SELECT MAX(id) FROM menuitemreview), 0) + 50, false);
+CREATE SEQUENCE IF NOT EXISTS recommendationrequests_seq INCREMENT BY 50;
+SELECT setval('recommendationrequests_seq', COALESCE((SELECT MAX(id) FROM recommendationrequests), 0) + 50, false);
+CREATE SEQUENCE IF NOT EXISTS ucsbdates_seq INCREMENT BY 50;
+SELECT setval('ucsbdates_seq', COALESCE((SELECT MAX(id) FROM ucsbdates), 0) + 50, false);
+CREATE SEQUENCE IF NOT EXISTS ucsbdiningcommonsmenuitem_seq INCREMENT BY 50;
+SELECT setval('ucsbdiningcommonsmenuitem_seq', COALESCE((SELECT MAX(id) FROM ucsbdiningcommonsmenuitem), 0) + 50, false);
@@ -0,0 +1,11 @@
+-- Optimistic locking: Hibernate bumps version on every update and refuses to overwrite a
+-- row whose version moved since it was read. Run before deploying, since Hibernate would
+-- add these as NOT NULL columns without a default, which fails on tables that have rows.
+ALTER TABLE articles ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE helprequest ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE menuitemreview ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE recommendationrequests ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE ucsbdates ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE ucsbdiningcommons ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE ucsbdiningcommonsmenuitem ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE ucsborganization ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
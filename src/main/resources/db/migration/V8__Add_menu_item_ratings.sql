@@ -0,0 +1,21 @@
+-- One row of running totals per reviewed menu item, maintained by MenuItemRatingService
+-- in the same transaction as each review write. Run before deploying: the totals are
+-- only ever adjusted, so they have to start from the reviews that already exist.
+CREATE TABLE IF NOT EXISTS menuitemrating (
+  item_id BIGINT PRIMARY KEY,
+  reviews BIGINT NOT NULL DEFAULT 0,
+  total_stars BIGINT NOT NULL DEFAULT 0,
+  zero_stars BIGINT NOT NULL DEFAULT 0,
+  one_star BIGINT NOT NULL DEFAULT 0,
+  two_stars BIGINT NOT NULL DEFAULT 0,
+  three_stars BIGINT NOT NULL DEFAULT 0,
+  four_stars BIGINT NOT NULL DEFAULT 0,
+  five_stars BIGINT NOT NULL DEFAULT 0
+);
+INSERT INTO menuitemrating (item_id, reviews, total_stars, zero_stars, one_star, two_stars, three_stars, four_stars, five_stars)
+SELECT item_id, COUNT(*), SUM(stars),
+       COUNT(*) FILTER (WHERE stars = 0), COUNT(*) FILTER (WHERE stars = 1), COUNT(*) FILTER (WHERE stars = 2),
+       COUNT(*) FILTER (WHERE stars = 3), COUNT(*) FILTER (WHERE stars = 4), COUNT(*) FILTER (WHERE stars = 5)
+FROM menuitemreview
+GROUP BY item_id
+ON CONFLICT (item_id) DO NOTHING;
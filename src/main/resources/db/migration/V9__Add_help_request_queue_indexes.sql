@@ -0,0 +1,3 @@
+-- The TA queue (unsolved requests, oldest first) and the per-team views of /api/helprequest/filter
+CREATE INDEX IF NOT EXISTS helprequest_solved_request_time_idx ON helprequest (solved, request_time);
+CREATE INDEX IF NOT EXISTS helprequest_team_id_solved_request_time_idx ON helprequest (team_id, solved, request_time);
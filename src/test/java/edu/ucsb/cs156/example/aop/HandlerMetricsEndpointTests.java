@@ -0,0 +1,66 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.models.HandlerStats;
+
+@ExtendWith(SpringExtension.class)
+@Import({ HandlerMetricsEndpoint.class, HandlerMetricsRegistry.class })
+class HandlerMetricsEndpointTests {
+
+  @Autowired
+  HandlerMetricsEndpoint handlerMetricsEndpoint;
+
+  @Autowired
+  HandlerMetricsRegistry handlerMetricsRegistry;
+
+  @Test
+  void endpoint_returns_registry_snapshot() {
+    assertEquals(Map.of(), handlerMetricsEndpoint.handlerMetrics());
+
+    HandlerMetrics metrics = handlerMetricsRegistry.forHandler("UCSBDatesController.allUCSBDates");
+    metrics.started();
+    metrics.finished(3_000, false);
+
+    Map<String, HandlerStats> result = handlerMetricsEndpoint.handlerMetrics();
+    assertEquals(1, result.size());
+    assertEquals(1, result.get("UCSBDatesController.allUCSBDates").getCalls());
+    assertEquals(4, result.get("UCSBDatesController.allUCSBDates").getP99Micros());
+  }
+
+
+  static class Overloaded {
+    public String handle() {
+      return "";
+    }
+
+    public String handle(String name) {
+      return name;
+    }
+  }
+
+  @Test
+  void overloaded_handlers_are_counted_apart() throws Exception {
+    // a registry of its own, so the other test still starts from an empty one
+    HandlerMetricsRegistry registry = new HandlerMetricsRegistry();
+    HandlerMetrics none = registry.forHandler(Overloaded.class.getMethod("handle"));
+    HandlerMetrics named = registry.forHandler(Overloaded.class.getMethod("handle", String.class));
+    none.started();
+    none.finished(3_000, false);
+
+    Map<String, HandlerStats> result = registry.snapshot();
+    String prefix = "edu.ucsb.cs156.example.aop.HandlerMetricsEndpointTests$Overloaded.handle";
+    assertEquals(1, result.get(prefix + "()").getCalls());
+    assertEquals(0, result.get(prefix + "(java.lang.String)").getCalls());
+    assertSame(named, registry.forHandler(prefix + "(java.lang.String)"));
+  }
+}
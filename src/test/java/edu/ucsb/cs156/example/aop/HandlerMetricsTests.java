@@ -0,0 +1,62 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.models.HandlerStats;
+
+class HandlerMetricsTests {
+
+  @Test
+  void bucket_is_log2_of_microseconds_and_capped() {
+    assertEquals(0, HandlerMetrics.bucket(0));
+    assertEquals(0, HandlerMetrics.bucket(1_999));
+    assertEquals(1, HandlerMetrics.bucket(2_000));
+    assertEquals(10, HandlerMetrics.bucket(1_024_000));
+    assertEquals(HandlerMetrics.BUCKETS - 1, HandlerMetrics.bucket(Long.MAX_VALUE));
+  }
+
+  @Test
+  void snapshot_with_no_calls_is_all_zero() {
+    HandlerStats expected = HandlerStats.builder().build();
+    assertEquals(expected, new HandlerMetrics().snapshot());
+  }
+
+  @Test
+  void snapshot_reports_calls_errors_and_percentiles() {
+    HandlerMetrics metrics = new HandlerMetrics();
+    for (int i = 0; i < 98; i++) {
+      metrics.started();
+      metrics.finished(100_000, false); // 100us, bucket [64, 128)
+    }
+    metrics.started();
+    metrics.finished(5_000_000, true); // 5ms, bucket [4096, 8192)
+    metrics.started();
+    metrics.finished(5_000_000, false);
+    metrics.started();
+
+    HandlerStats stats = metrics.snapshot();
+
+    assertEquals(100, stats.getCalls());
+    assertEquals(1, stats.getErrors());
+    assertEquals(1, stats.getInFlight());
+    assertEquals(198.0, stats.getMeanMicros(), 0.001);
+    assertEquals(128, stats.getP50Micros());
+    assertEquals(128, stats.getP90Micros());
+    assertEquals(8192, stats.getP99Micros());
+    assertEquals(5000, stats.getMaxMicros());
+  }
+
+  @Test
+  void registry_reuses_metrics_per_handler() {
+    HandlerMetricsRegistry registry = new HandlerMetricsRegistry();
+    HandlerMetrics metrics = registry.forHandler("ArticlesController.allArticles");
+    assertEquals(metrics, registry.forHandler("ArticlesController.allArticles"));
+
+    metrics.started();
+    metrics.finished(1_000, false);
+
+    assertEquals(1, registry.snapshot().get("ArticlesController.allArticles").getCalls());
+  }
+}
@@ -26,6 +26,24 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import java.util.List;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import edu.ucsb.cs156.example.services.SearchIndex;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import edu.ucsb.cs156.example.services.TableVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import edu.ucsb.cs156.example.models.ArticleSummary;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -33,6 +51,8 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
+import static org.mockito.ArgumentMatchers.isNull;
 
 @WebMvcTest(controllers = ArticlesController.class)
 @Import(TestConfig.class)
@@ -44,6 +64,18 @@ public class ArticlesControllerTests extends ControllerTestCase {
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    NdjsonExportService ndjsonExportService;
+
+    @MockBean
+    ChangeLog changeLog;
+
+    @MockBean
+    SearchIndex searchIndex;
+
+    @Autowired
+    TableVersions tableVersions;
+
     // Tests for GET /api/articles/all
         
     @Test
@@ -147,6 +179,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
             // assert
             verify(articleRepository, times(1)).save(article1);
+            verify(changeLog, times(1)).saved(eq(Article.class), eq(List.of(article1.getId())));
+            verify(searchIndex, times(1)).saved(eq(Article.class), eq(List.of(article1)));
             String expectedJson = mapper.writeValueAsString(article1);
             String responseString = response.getResponse().getContentAsString();
             assertEquals(expectedJson, responseString);
@@ -227,17 +261,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
     public void admin_can_delete_an_article() throws Exception {
             // arrange
 
-            LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-            Article article1 = Article.builder()
-                            .title("New movies")
-                            .url("https://collider.com/the-crown-season-6-trailer/").
-                            explanation("a new movie trailer")
-                            .email("garretthu@ucsb.edu")
-                            .dateAdded(ldt1)
-                            .build();
-
-            when(articleRepository.findById(eq(15L))).thenReturn(Optional.of(article1));
+            when(articleRepository.deleteRowById(eq(15L))).thenReturn(1);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -246,8 +270,9 @@ public class ArticlesControllerTests extends ControllerTestCase {
                             .andExpect(status().isOk()).andReturn();
 
             // assert
-            verify(articleRepository, times(1)).findById(15L);
-            verify(articleRepository, times(1)).delete(any());
+            verify(articleRepository, times(1)).deleteRowById(15L);
+            verify(changeLog, times(1)).deleted(eq(Article.class), eq(List.of(15L)));
+            verify(searchIndex, times(1)).deleted(eq(Article.class), eq(List.of(15L)));
 
             Map<String, Object> json = responseToJson(response);
             assertEquals("Article with id 15 deleted", json.get("message"));
@@ -259,7 +284,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                     throws Exception {
             // arrange
 
-            when(articleRepository.findById(eq(15L))).thenReturn(Optional.empty());
+            when(articleRepository.deleteRowById(eq(15L))).thenReturn(0);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -268,7 +293,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
                             .andExpect(status().isNotFound()).andReturn();
 
             // assert
-            verify(articleRepository, times(1)).findById(15L);
+            verify(articleRepository, times(1)).deleteRowById(15L);
             Map<String, Object> json = responseToJson(response);
             assertEquals("Article with id 15 not found", json.get("message"));
     }
@@ -289,15 +314,6 @@ public class ArticlesControllerTests extends ControllerTestCase {
             LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
             LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-            Article articleOrig = Article.builder()
-                            .title("New movies")
-                            .url("https://collider.com/the-crown-season-6-trailer/").
-                            explanation("a new movie trailer")
-                            .email("garretthu@ucsb.edu")
-                            .dateAdded(ldt1)
-                            .build();
-
-
             Article articleEdited = Article.builder()
                             .title("Apex Legends")
                             .url("https://www.gamespot.com/articles/apex-legends-season-19-trailer-reveals-conduits-abilities-and-a-massive-map-makeover/1100-6518708/").
@@ -307,8 +323,10 @@ public class ArticlesControllerTests extends ControllerTestCase {
                             .build();
 
             String requestBody = mapper.writeValueAsString(articleEdited);
+            articleEdited.setId(67L);
 
-            when(articleRepository.findById(eq(67L))).thenReturn(Optional.of(articleOrig));
+            when(articleRepository.updateRowById(eq(67L), isNull(), eq(articleEdited))).thenReturn(1);
+            when(articleRepository.findById(eq(67L))).thenReturn(Optional.of(articleEdited));
 
             // act
             MvcResult response = mockMvc.perform(
@@ -321,9 +339,9 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
             // assert
             verify(articleRepository, times(1)).findById(67L);
-            verify(articleRepository, times(1)).save(articleEdited); // should be saved with correct user
+            verify(articleRepository, times(1)).updateRowById(eq(67L), isNull(), eq(articleEdited));
             String responseString = response.getResponse().getContentAsString();
-            assertEquals(requestBody, responseString);
+            assertEquals(mapper.writeValueAsString(articleEdited), responseString);
     }
 
     
@@ -362,5 +380,725 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
     }
 
+    // Tests for GET /api/articles/page
+
+    @Test
+    public void logged_out_users_cannot_get_page() throws Exception {
+            mockMvc.perform(get("/api/articles/page"))
+                    .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_full_page_with_a_cursor_to_the_next_one() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            Article second = Article.builder()
+                    .id(4L)
+                    .title("Article 4")
+                    .url("https://example.org/4")
+                    .explanation("explanation 4")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            List<Article> expected = Arrays.asList(first, second);
+            when(articleRepository.findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))))).thenReturn(expected);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/articles/page?limit=1&after=2"))
+                    .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(articleRepository, times(1)).findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+            String expectedJson = mapper.writeValueAsString(KeysetPage.<Article, Long>builder().items(expected.subList(0, 1)).nextAfter(3L).build());
+            String responseString = response.getResponse().getContentAsString();
+            assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_the_last_page_without_a_cursor() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            List<Article> expected = Arrays.asList(first);
+            when(articleRepository.findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 101, Sort.by("id"))))).thenReturn(expected);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/articles/page"))
+                    .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(articleRepository, times(1)).findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 101, Sort.by("id"))));
+            String expectedJson = mapper.writeValueAsString(KeysetPage.<Article, Long>builder().items(expected).build());
+            String responseString = response.getResponse().getContentAsString();
+            assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_an_exactly_full_last_page_without_a_cursor() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            List<Article> expected = Arrays.asList(first);
+            when(articleRepository.findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))))).thenReturn(expected);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/articles/page?limit=1&after=2"))
+                    .andExpect(status().isOk()).andReturn();
+
+            // assert
+            String expectedJson = mapper.writeValueAsString(KeysetPage.<Article, Long>builder().items(expected).build());
+            String responseString = response.getResponse().getContentAsString();
+            assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void page_size_is_clamped_to_between_1_and_1000() throws Exception {
+            // act
+            mockMvc.perform(get("/api/articles/page?limit=5000"))
+                    .andExpect(status().isOk());
+            mockMvc.perform(get("/api/articles/page?limit=0"))
+                    .andExpect(status().isOk());
+
+            // assert
+            verify(articleRepository, times(1)).findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 1001, Sort.by("id"))));
+            verify(articleRepository, times(1)).findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+    }
+
+    // Tests for the /api/articles/.../batch endpoints
+
+    @Test
+    public void logged_out_users_cannot_use_batch_endpoints() throws Exception {
+            mockMvc.perform(post("/api/articles/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                    .andExpect(status().is(403));
+            mockMvc.perform(put("/api/articles/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                    .andExpect(status().is(403));
+            mockMvc.perform(delete("/api/articles/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                    .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_use_batch_endpoints() throws Exception {
+            mockMvc.perform(post("/api/articles/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                    .andExpect(status().is(403));
+            mockMvc.perform(put("/api/articles/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                    .andExpect(status().is(403));
+            mockMvc.perform(delete("/api/articles/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                    .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_post_a_batch() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            Article second = Article.builder()
+                    .id(4L)
+                    .title("Article 4")
+                    .url("https://example.org/4")
+                    .explanation("explanation 4")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            String requestBody = mapper.writeValueAsString(List.of(first, second));
+            first.setId(0);
+            second.setId(0);
+            when(articleRepository.saveAll(eq(List.of(first, second)))).thenReturn(List.of(first, second));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                    post("/api/articles/post/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .characterEncoding("utf-8")
+                            .content(requestBody)
+                            .with(csrf()))
+                    .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(articleRepository, times(1)).saveAll(eq(List.of(first, second)));
+            String expectedJson = mapper.writeValueAsString(List.of(first, second));
+            String responseString = response.getResponse().getContentAsString();
+            assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_update_a_batch() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            Article second = Article.builder()
+                    .id(4L)
+                    .title("Article 4")
+                    .url("https://example.org/4")
+                    .explanation("explanation 4")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            Article editedFirst = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+            editedFirst.setTitle("edited 3");
+
+            Article editedSecond = Article.builder()
+                    .id(4L)
+                    .title("Article 4")
+                    .url("https://example.org/4")
+                    .explanation("explanation 4")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+            editedSecond.setTitle("edited 4");
+
+            // the database may return the rows in any order
+            when(articleRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(second, first));
+
+            String requestBody = mapper.writeValueAsString(List.of(editedFirst, editedSecond));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                    put("/api/articles/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .characterEncoding("utf-8")
+                            .content(requestBody)
+                            .with(csrf()))
+                    .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(articleRepository, times(1)).findAllById(List.of(3L, 4L));
+            verify(articleRepository, times(1)).saveAll(eq(List.of(editedFirst, editedSecond)));
+            String responseString = response.getResponse().getContentAsString();
+            assertEquals(requestBody, responseString);
+    }
 
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_update_a_batch_with_a_missing_row() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            Article second = Article.builder()
+                    .id(4L)
+                    .title("Article 4")
+                    .url("https://example.org/4")
+                    .explanation("explanation 4")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            when(articleRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first));
+
+            String requestBody = mapper.writeValueAsString(List.of(first, second));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                    put("/api/articles/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .characterEncoding("utf-8")
+                            .content(requestBody)
+                            .with(csrf()))
+                    .andExpect(status().isNotFound()).andReturn();
+
+            // assert
+            verify(articleRepository, times(1)).findAllById(List.of(3L, 4L));
+            verify(articleRepository, never()).saveAll(any());
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("Article with id 4 not found", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_delete_a_batch() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            Article second = Article.builder()
+                    .id(4L)
+                    .title("Article 4")
+                    .url("https://example.org/4")
+                    .explanation("explanation 4")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            when(articleRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first, second));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                    delete("/api/articles/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[3,4]")
+                            .with(csrf()))
+                    .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(articleRepository, times(1)).findAllById(List.of(3L, 4L));
+            verify(articleRepository, times(1)).deleteAll(eq(List.of(first, second)));
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("Articles with ids [3, 4] deleted", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_delete_a_batch_with_a_missing_row() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            when(articleRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                    delete("/api/articles/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[3,4]")
+                            .with(csrf()))
+                    .andExpect(status().isNotFound()).andReturn();
+
+            // assert
+            verify(articleRepository, never()).deleteAll(any());
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("Article with id 4 not found", json.get("message"));
+    }
+
+    // Tests for GET /api/articles/export.ndjson
+
+    @Test
+    public void logged_out_users_cannot_export() throws Exception {
+            mockMvc.perform(get("/api/articles/export.ndjson"))
+                    .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_export() throws Exception {
+            mockMvc.perform(get("/api/articles/export.ndjson"))
+                    .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_export_every_row_as_ndjson() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            Article second = Article.builder()
+                    .id(4L)
+                    .title("Article 4")
+                    .url("https://example.org/4")
+                    .explanation("explanation 4")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+
+            when(articleRepository.streamAll()).thenReturn(Stream.of(first, second));
+            when(ndjsonExportService.export(any(), any())).thenAnswer(invocation -> {
+                Supplier<Stream<Article>> rows = invocation.getArgument(0);
+                OutputStream out = invocation.getArgument(1);
+                for (Article row : rows.get().toList()) {
+                    out.write((mapper.writeValueAsString(row) + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+                return 2L;
+            });
+
+            // act
+            MvcResult started = mockMvc.perform(get("/api/articles/export.ndjson"))
+                    .andExpect(request().asyncStarted()).andReturn();
+            MvcResult response = mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_NDJSON)).andReturn();
+
+            // assert
+            verify(articleRepository, times(1)).streamAll();
+            String expected = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+            assertEquals(expected, response.getResponse().getContentAsString());
+    }
+
+    // Tests for conditional GETs with If-None-Match
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_all_with_an_etag_and_a_304_while_it_still_matches() throws Exception {
+            // arrange
+            String etag = tableVersions.etag(Article.class);
+
+            // act
+            mockMvc.perform(get("/api/articles/all"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, etag))
+                    .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+            MvcResult response = mockMvc.perform(get("/api/articles/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified()).andReturn();
+
+            // assert
+            verify(articleRepository, times(1)).findAll();
+            assertEquals("", response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_all_again_once_the_table_has_changed() throws Exception {
+            // arrange
+            String etag = tableVersions.etag(Article.class);
+            tableVersions.changed(Article.class);
+
+            // act
+            mockMvc.perform(get("/api/articles/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, tableVersions.etag(Article.class)));
+
+            // assert
+            verify(articleRepository, times(1)).findAll();
+    }
+
+    // Tests for row versions as ETags and If-Match on PUT /api/articles
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_304_by_id_while_the_version_still_matches() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+            first.setVersion(2);
+
+            when(articleRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+            // act
+            mockMvc.perform(get("/api/articles?id=3"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"2-3cc9750c\""));
+            MvcResult response = mockMvc.perform(get("/api/articles?id=3").header(HttpHeaders.IF_NONE_MATCH, "\"2-3cc9750c\""))
+                    .andExpect(status().isNotModified()).andReturn();
+
+            // assert
+            verify(articleRepository, times(2)).findById(3L);
+            assertEquals("", response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_gets_412_when_if_match_names_an_old_version() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+            first.setVersion(2);
+
+            when(articleRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                    put("/api/articles?id=3")
+                            .header(HttpHeaders.IF_MATCH, "\"1\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .characterEncoding("utf-8")
+                            .content(mapper.writeValueAsString(first))
+                            .with(csrf()))
+                    .andExpect(status().isPreconditionFailed()).andReturn();
+
+            // assert
+            verify(articleRepository, times(1)).updateRowById(eq(3L), eq(1L), any());
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("PreconditionFailedException", json.get("type"));
+            assertEquals("Article with id 3 has changed; its current ETag is \"2-3cc9750c\"", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_gets_412_when_if_match_is_not_a_version_tag() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+            first.setVersion(2);
+
+            when(articleRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+            // act
+            mockMvc.perform(
+                    put("/api/articles?id=3")
+                            .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .characterEncoding("utf-8")
+                            .content(mapper.writeValueAsString(first))
+                            .with(csrf()))
+                    .andExpect(status().isPreconditionFailed());
+
+            // assert
+            verify(articleRepository, times(1)).updateRowById(eq(3L), eq(ApiController.NO_VERSION), any());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_update_the_version_if_match_names_without_reading_it_back() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+            first.setVersion(2);
+
+            when(articleRepository.updateRowById(eq(3L), eq(2L), eq(first))).thenReturn(1);
+
+            // act
+            MvcResult response = mockMvc.perform(
+                    put("/api/articles?id=3")
+                            .header(HttpHeaders.IF_MATCH, "\"2\"")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .characterEncoding("utf-8")
+                            .content(mapper.writeValueAsString(first))
+                            .with(csrf()))
+                    .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(articleRepository, never()).findById(any());
+            first.setVersion(3);
+            assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_update_any_version_with_if_match_star() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+            first.setVersion(2);
+
+            when(articleRepository.updateRowById(eq(3L), isNull(), eq(first))).thenReturn(1);
+            when(articleRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                    put("/api/articles?id=3")
+                            .header(HttpHeaders.IF_MATCH, "*")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .characterEncoding("utf-8")
+                            .content(mapper.writeValueAsString(first))
+                            .with(csrf()))
+                    .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(articleRepository, times(1)).findById(3L);
+            assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_gets_409_when_a_batch_row_changes_before_the_update_commits() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+            first.setVersion(2);
+
+            when(articleRepository.findAllById(eq(List.of(3L)))).thenReturn(List.of(first));
+            when(articleRepository.saveAll(any())).thenThrow(new ObjectOptimisticLockingFailureException(Article.class, 3L));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                    put("/api/articles/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .characterEncoding("utf-8")
+                            .content(mapper.writeValueAsString(List.of(first)))
+                            .with(csrf()))
+                    .andExpect(status().isConflict()).andReturn();
+
+            // assert
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_gets_409_when_a_batch_row_was_read_at_an_older_version() throws Exception {
+            // arrange
+            Article first = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+            String staleRequestBody = mapper.writeValueAsString(List.of(first));
+            first.setVersion(2);
+
+            when(articleRepository.findAllById(eq(List.of(3L)))).thenReturn(List.of(first));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                    put("/api/articles/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .characterEncoding("utf-8")
+                            .content(staleRequestBody)
+                            .with(csrf()))
+                    .andExpect(status().isConflict()).andReturn();
+
+            // assert
+            verify(articleRepository, never()).saveAll(any());
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+    }
+
+    // Tests for GET /api/articles/summary
+
+    @Test
+    public void logged_out_users_cannot_get_the_summary() throws Exception {
+            mockMvc.perform(get("/api/articles/summary"))
+                    .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_the_summary_without_the_explanation() throws Exception {
+            // arrange
+            Article article = Article.builder()
+                    .id(3L)
+                    .title("Article 3")
+                    .url("https://example.org/3")
+                    .explanation("explanation 3")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                    .build();
+            ArticleSummary summary = new SpelAwareProxyProjectionFactory().createProjection(ArticleSummary.class, article);
+            when(articleRepository.findSummariesBy(eq(Sort.by("id")))).thenReturn(List.of(summary));
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/articles/summary"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, tableVersions.etag(Article.class)))
+                    .andReturn();
+
+            // assert
+            verify(articleRepository, never()).findAll();
+            List<Map<String, Object>> json = mapper.readValue(response.getResponse().getContentAsString(), new TypeReference<>() {});
+            assertEquals(List.of(Map.of(
+                    "id", 3,
+                    "title", "Article 3",
+                    "url", "https://example.org/3",
+                    "email", "cgaucho@ucsb.edu",
+                    "dateAdded", "2022-01-03T00:00:00")), json);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_304_for_the_summary_while_the_table_is_unchanged() throws Exception {
+            // arrange
+            String etag = tableVersions.etag(Article.class);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/articles/summary").header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified()).andReturn();
+
+            // assert
+            verify(articleRepository, never()).findSummariesBy(any());
+            assertEquals("", response.getResponse().getContentAsString());
+    }
 }
@@ -0,0 +1,88 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.ChangeLogEntry;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = ChangesController.class)
+@Import(TestConfig.class)
+public class ChangesControllerTests extends ControllerTestCase {
+
+    @MockBean
+    ChangeLog changeLog;
+
+    @MockBean
+    UserRepository userRepository;
+
+    private static ChangeLogEntry entry(long seq, String operation, String entityId) {
+        return ChangeLogEntry.builder()
+                .seq(seq)
+                .entityType("HelpRequest")
+                .entityId(entityId)
+                .operation(operation)
+                .changedAt(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+    }
+
+    @Test
+    public void logged_out_users_cannot_get_changes() throws Exception {
+        mockMvc.perform(get("/api/changes"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_full_page_of_changes_with_a_cursor_to_the_next_one() throws Exception {
+        // arrange
+        List<ChangeLogEntry> expected = List.of(entry(6, ChangeLog.SAVED, "3"), entry(7, ChangeLog.DELETED, "4"));
+        when(changeLog.changesSince(eq(5L), eq(PageRequest.of(0, 2, Sort.by("seq"))))).thenReturn(expected);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/changes?since=5&limit=1"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(changeLog, times(1)).changesSince(eq(5L), eq(PageRequest.of(0, 2, Sort.by("seq"))));
+        String expectedJson = mapper.writeValueAsString(KeysetPage.<ChangeLogEntry, Long>builder().items(expected.subList(0, 1)).nextAfter(6L).build());
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_the_last_changes_without_a_cursor() throws Exception {
+        // arrange
+        List<ChangeLogEntry> expected = List.of(entry(1, ChangeLog.SAVED, "3"));
+        when(changeLog.changesSince(eq(0L), eq(PageRequest.of(0, 101, Sort.by("seq"))))).thenReturn(expected);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/changes"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        String expectedJson = mapper.writeValueAsString(KeysetPage.<ChangeLogEntry, Long>builder().items(expected).build());
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+}
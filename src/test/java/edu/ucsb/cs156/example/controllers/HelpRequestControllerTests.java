@@ -24,13 +24,33 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import java.util.List;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import edu.ucsb.cs156.example.services.SearchIndex;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import edu.ucsb.cs156.example.services.HelpRequestStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import edu.ucsb.cs156.example.services.TableVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import edu.ucsb.cs156.example.models.HelpRequestFilter;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
+import static org.mockito.ArgumentMatchers.isNull;
 
 @WebMvcTest(controllers = HelpRequestController.class)
 @Import(TestConfig.class)
@@ -42,6 +62,21 @@ public class HelpRequestControllerTests extends ControllerTestCase{
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    NdjsonExportService ndjsonExportService;
+
+    @MockBean
+    ChangeLog changeLog;
+
+    @MockBean
+    SearchIndex searchIndex;
+
+    @MockBean
+    HelpRequestStream helpRequestStream;
+
+    @Autowired
+    TableVersions tableVersions;
+
     // Tests for GET /api/helprequest/all
 
     @Test
@@ -143,6 +178,9 @@ public class HelpRequestControllerTests extends ControllerTestCase{
 
                 // assert
                 verify(helpRequestRepository, times(1)).save(helpRequest1);
+                verify(changeLog, times(1)).saved(eq(HelpRequest.class), eq(List.of(helpRequest1.getId())));
+                verify(searchIndex, times(1)).saved(eq(HelpRequest.class), eq(List.of(helpRequest1)));
+                verify(helpRequestStream, times(1)).saved(eq(List.of(helpRequest1)));
                 String expectedJson = mapper.writeValueAsString(helpRequest1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -216,15 +254,6 @@ public class HelpRequestControllerTests extends ControllerTestCase{
                 LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-                HelpRequest helpRequestOrig = HelpRequest.builder()
-                                .requesterEmail("jonathanc@gmail.com")
-                                .teamId("team06")
-                                .tableOrBreakoutRoom("table")
-                                .requestTime(ldt1)
-                                .explanation("Error_in_HelpRequestControllTests.java")
-                                .solved(false)
-                                .build();
-
                 HelpRequest helpRequestEdited = HelpRequest.builder()
                                 .requesterEmail("bob@gmail.com")
                                 .teamId("team08")
@@ -235,8 +264,10 @@ public class HelpRequestControllerTests extends ControllerTestCase{
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(helpRequestEdited);
+                helpRequestEdited.setId(67L);
 
-                when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(helpRequestOrig));
+                when(helpRequestRepository.updateRowById(eq(67L), isNull(), eq(helpRequestEdited))).thenReturn(1);
+                when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(helpRequestEdited));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -249,9 +280,10 @@ public class HelpRequestControllerTests extends ControllerTestCase{
 
                 // assert
                 verify(helpRequestRepository, times(1)).findById(67L);
-                verify(helpRequestRepository, times(1)).save(helpRequestEdited); // should be saved with correct user
+                verify(helpRequestRepository, times(1)).updateRowById(eq(67L), isNull(), eq(helpRequestEdited));
+                verify(helpRequestStream, times(1)).saved(eq(List.of(helpRequestEdited)));
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(helpRequestEdited), responseString);
         }
 
         
@@ -298,18 +330,7 @@ public class HelpRequestControllerTests extends ControllerTestCase{
         public void admin_can_delete_a_request() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-                HelpRequest helpRequest1 = HelpRequest.builder()
-                                .requesterEmail("cgaucho@ucsb.edu")
-                                .teamId("s22-5pm-3")
-                                .tableOrBreakoutRoom("7")
-                                .requestTime(ldt1)
-                                .explanation("Need help with Swagger-ui")
-                                .solved(true)
-                                .build();
-
-                when(helpRequestRepository.findById(eq(123L))).thenReturn(Optional.of(helpRequest1));
+                when(helpRequestRepository.deleteRowById(eq(123L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -318,8 +339,10 @@ public class HelpRequestControllerTests extends ControllerTestCase{
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(123L);
-                verify(helpRequestRepository, times(1)).delete(any());
+                verify(helpRequestRepository, times(1)).deleteRowById(123L);
+                verify(changeLog, times(1)).deleted(eq(HelpRequest.class), eq(List.of(123L)));
+                verify(searchIndex, times(1)).deleted(eq(HelpRequest.class), eq(List.of(123L)));
+                verify(helpRequestStream, times(1)).deleted(eq(List.of(123L)));
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 123 deleted", json.get("message"));
@@ -331,7 +354,7 @@ public class HelpRequestControllerTests extends ControllerTestCase{
                         throws Exception {
                 // arrange
 
-                when(helpRequestRepository.findById(eq(123L))).thenReturn(Optional.empty());
+                when(helpRequestRepository.deleteRowById(eq(123L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -340,9 +363,776 @@ public class HelpRequestControllerTests extends ControllerTestCase{
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(helpRequestRepository, times(1)).findById(123L);
+                verify(helpRequestRepository, times(1)).deleteRowById(123L);
+                verify(helpRequestStream, never()).deleted(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 123 not found", json.get("message"));
         }
-       
-}
\ No newline at end of file
+
+        // Tests for GET /api/helprequest/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/helprequest/page"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_full_page_with_a_cursor_to_the_next_one() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+
+                HelpRequest second = HelpRequest.builder()
+                        .id(4L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("4")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 4")
+                        .solved(false)
+                        .build();
+
+                List<HelpRequest> expected = Arrays.asList(first, second);
+                when(helpRequestRepository.findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))))).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/page?limit=1&after=2"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.<HelpRequest, Long>builder().items(expected.subList(0, 1)).nextAfter(3L).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_the_last_page_without_a_cursor() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+
+                List<HelpRequest> expected = Arrays.asList(first);
+                when(helpRequestRepository.findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 101, Sort.by("id"))))).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/page"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 101, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.<HelpRequest, Long>builder().items(expected).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for the /api/helprequest/.../batch endpoints
+
+        @Test
+        public void logged_out_users_cannot_use_batch_endpoints() throws Exception {
+                mockMvc.perform(post("/api/helprequest/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(put("/api/helprequest/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(delete("/api/helprequest/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_use_batch_endpoints() throws Exception {
+                mockMvc.perform(post("/api/helprequest/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(put("/api/helprequest/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(delete("/api/helprequest/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_post_a_batch() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+
+                HelpRequest second = HelpRequest.builder()
+                        .id(4L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("4")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 4")
+                        .solved(false)
+                        .build();
+
+                String requestBody = mapper.writeValueAsString(List.of(first, second));
+                first.setId(0);
+                second.setId(0);
+                when(helpRequestRepository.saveAll(eq(List.of(first, second)))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/helprequest/post/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).saveAll(eq(List.of(first, second)));
+                verify(helpRequestStream, times(1)).saved(eq(List.of(first, second)));
+                String expectedJson = mapper.writeValueAsString(List.of(first, second));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_update_a_batch() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+
+                HelpRequest second = HelpRequest.builder()
+                        .id(4L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("4")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 4")
+                        .solved(false)
+                        .build();
+
+                HelpRequest editedFirst = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+                editedFirst.setExplanation("edited 3");
+
+                HelpRequest editedSecond = HelpRequest.builder()
+                        .id(4L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("4")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 4")
+                        .solved(false)
+                        .build();
+                editedSecond.setExplanation("edited 4");
+
+                // the database may return the rows in any order
+                when(helpRequestRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(second, first));
+
+                String requestBody = mapper.writeValueAsString(List.of(editedFirst, editedSecond));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/helprequest/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAllById(List.of(3L, 4L));
+                verify(helpRequestRepository, times(1)).saveAll(eq(List.of(editedFirst, editedSecond)));
+                verify(helpRequestStream, times(1)).saved(eq(List.of(editedFirst, editedSecond)));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(requestBody, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_update_a_batch_with_a_missing_row() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+
+                HelpRequest second = HelpRequest.builder()
+                        .id(4L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("4")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 4")
+                        .solved(false)
+                        .build();
+
+                when(helpRequestRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first));
+
+                String requestBody = mapper.writeValueAsString(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/helprequest/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAllById(List.of(3L, 4L));
+                verify(helpRequestRepository, never()).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("HelpRequest with id 4 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_delete_a_batch() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+
+                HelpRequest second = HelpRequest.builder()
+                        .id(4L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("4")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 4")
+                        .solved(false)
+                        .build();
+
+                when(helpRequestRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        delete("/api/helprequest/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[3,4]")
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAllById(List.of(3L, 4L));
+                verify(helpRequestRepository, times(1)).deleteAll(eq(List.of(first, second)));
+                verify(helpRequestStream, times(1)).deleted(eq(List.of(3L, 4L)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("HelpRequests with ids [3, 4] deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_batch_with_a_missing_row() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+
+                when(helpRequestRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        delete("/api/helprequest/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[3,4]")
+                                .with(csrf()))
+                        .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, never()).deleteAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("HelpRequest with id 4 not found", json.get("message"));
+        }
+
+        // Tests for GET /api/helprequest/export.ndjson
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/helprequest/export.ndjson"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/helprequest/export.ndjson"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_export_every_row_as_ndjson() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+
+                HelpRequest second = HelpRequest.builder()
+                        .id(4L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("4")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 4")
+                        .solved(false)
+                        .build();
+
+                when(helpRequestRepository.streamAll()).thenReturn(Stream.of(first, second));
+                when(ndjsonExportService.export(any(), any())).thenAnswer(invocation -> {
+                    Supplier<Stream<HelpRequest>> rows = invocation.getArgument(0);
+                    OutputStream out = invocation.getArgument(1);
+                    for (HelpRequest row : rows.get().toList()) {
+                        out.write((mapper.writeValueAsString(row) + "\n").getBytes(StandardCharsets.UTF_8));
+                    }
+                    return 2L;
+                });
+
+                // act
+                MvcResult started = mockMvc.perform(get("/api/helprequest/export.ndjson"))
+                        .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                        .andExpect(status().isOk())
+                        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON)).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).streamAll();
+                String expected = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                assertEquals(expected, response.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs with If-None-Match
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_all_with_an_etag_and_a_304_while_it_still_matches() throws Exception {
+                // arrange
+                String etag = tableVersions.etag(HelpRequest.class);
+
+                // act
+                mockMvc.perform(get("/api/helprequest/all"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, etag))
+                        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+                MvcResult response = mockMvc.perform(get("/api/helprequest/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                        .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_all_again_once_the_table_has_changed() throws Exception {
+                // arrange
+                String etag = tableVersions.etag(HelpRequest.class);
+                tableVersions.changed(HelpRequest.class);
+
+                // act
+                mockMvc.perform(get("/api/helprequest/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, tableVersions.etag(HelpRequest.class)));
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAll();
+        }
+
+        // Tests for row versions as ETags and If-Match on PUT /api/helprequest
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_304_by_id_while_the_version_still_matches() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+                first.setVersion(2);
+
+                when(helpRequestRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                mockMvc.perform(get("/api/helprequest?id=3"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, "\"2-49ccef15\""));
+                MvcResult response = mockMvc.perform(get("/api/helprequest?id=3").header(HttpHeaders.IF_NONE_MATCH, "\"2-49ccef15\""))
+                        .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(2)).findById(3L);
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_412_when_if_match_names_an_old_version() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+                first.setVersion(2);
+
+                when(helpRequestRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/helprequest?id=3")
+                                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).updateRowById(eq(3L), eq(1L), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("PreconditionFailedException", json.get("type"));
+                assertEquals("HelpRequest with id 3 has changed; its current ETag is \"2-49ccef15\"", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_412_when_if_match_is_not_a_version_tag() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+                first.setVersion(2);
+
+                when(helpRequestRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                mockMvc.perform(
+                        put("/api/helprequest?id=3")
+                                .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isPreconditionFailed());
+
+                // assert
+                verify(helpRequestRepository, times(1)).updateRowById(eq(3L), eq(ApiController.NO_VERSION), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_update_the_version_if_match_names_without_reading_it_back() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+                first.setVersion(2);
+
+                when(helpRequestRepository.updateRowById(eq(3L), eq(2L), eq(first))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/helprequest?id=3")
+                                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, never()).findById(any());
+                first.setVersion(3);
+                assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_update_any_version_with_if_match_star() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+                first.setVersion(2);
+
+                when(helpRequestRepository.updateRowById(eq(3L), isNull(), eq(first))).thenReturn(1);
+                when(helpRequestRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/helprequest?id=3")
+                                .header(HttpHeaders.IF_MATCH, "*")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findById(3L);
+                assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_409_when_a_batch_row_changes_before_the_update_commits() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+                first.setVersion(2);
+
+                when(helpRequestRepository.findAllById(eq(List.of(3L)))).thenReturn(List.of(first));
+                when(helpRequestRepository.saveAll(any())).thenThrow(new ObjectOptimisticLockingFailureException(HelpRequest.class, 3L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/helprequest/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(List.of(first)))
+                                .with(csrf()))
+                        .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_409_when_a_batch_row_was_read_at_an_older_version() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+                String staleRequestBody = mapper.writeValueAsString(List.of(first));
+                first.setVersion(2);
+
+                when(helpRequestRepository.findAllById(eq(List.of(3L)))).thenReturn(List.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/helprequest/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(staleRequestBody)
+                                .with(csrf()))
+                        .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, never()).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+
+        // Tests for GET /api/helprequest/filter
+
+        @Test
+        public void logged_out_users_cannot_filter() throws Exception {
+                mockMvc.perform(get("/api/helprequest/filter"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_the_unsolved_queue_for_a_team_and_time_window() throws Exception {
+                // arrange
+                HelpRequest first = HelpRequest.builder()
+                        .id(3L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("3")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 3")
+                        .solved(false)
+                        .build();
+
+                HelpRequestFilter filter = HelpRequestFilter.builder()
+                        .solved(false)
+                        .teamId("f23-6pm-3")
+                        .since(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .until(LocalDateTime.parse("2022-01-04T00:00:00"))
+                        .newestFirst(true)
+                        .build();
+                List<HelpRequest> expected = List.of(first);
+                when(helpRequestRepository.findFiltered(eq(filter), eq(1001))).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/filter?solved=false&teamId=f23-6pm-3"
+                                + "&since=2022-01-03T00:00:00&until=2022-01-04T00:00:00&newestFirst=true&limit=5000"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findFiltered(eq(filter), eq(1001));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.<HelpRequest, String>builder().items(expected).build());
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_every_request_oldest_first_by_default() throws Exception {
+                // arrange
+                when(helpRequestRepository.findFiltered(any(), eq(101))).thenReturn(List.of());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/filter"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findFiltered(eq(HelpRequestFilter.builder().build()), eq(101));
+                assertEquals("{\"items\":[],\"nextAfter\":null}", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_pages_through_the_filtered_requests() throws Exception {
+                // arrange
+                HelpRequest next = HelpRequest.builder()
+                        .id(4L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("4")
+                        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .explanation("help 4")
+                        .solved(false)
+                        .build();
+
+                HelpRequest later = HelpRequest.builder()
+                        .id(5L)
+                        .requesterEmail("cgaucho@ucsb.edu")
+                        .teamId("f23-6pm-3")
+                        .tableOrBreakoutRoom("5")
+                        .requestTime(LocalDateTime.parse("2022-01-04T00:00:00"))
+                        .explanation("help 5")
+                        .solved(false)
+                        .build();
+
+                HelpRequestFilter filter = HelpRequestFilter.builder()
+                        .solved(false)
+                        .afterRequestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .afterId(3L)
+                        .build();
+                when(helpRequestRepository.findFiltered(eq(filter), eq(2))).thenReturn(List.of(next, later));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/filter?solved=false&limit=1&after=2022-01-03T00:00,3"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findFiltered(eq(filter), eq(2));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.<HelpRequest, String>builder().items(List.of(next)).nextAfter("2022-01-03T00:00,4").build());
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_400_for_an_after_that_is_not_a_request_time_and_id() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/filter?after=3"))
+                        .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, never()).findFiltered(any(), anyInt());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+                assertEquals("after must be requestTime,id but was 3", json.get("message"));
+        }
+}
@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.MenuItemRating;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
@@ -25,6 +26,25 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import java.util.List;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import edu.ucsb.cs156.example.services.SearchIndex;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import edu.ucsb.cs156.example.services.TableVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import edu.ucsb.cs156.example.models.MenuItemReviewSummary;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -32,6 +52,8 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
+import static org.mockito.ArgumentMatchers.isNull;
 
 @WebMvcTest(controllers = MenuItemReviewController.class)
 @Import(TestConfig.class)
@@ -43,6 +65,21 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        ChangeLog changeLog;
+
+        @MockBean
+        SearchIndex searchIndex;
+
+        @MockBean
+        MenuItemRatingService menuItemRatingService;
+
+        @Autowired
+        TableVersions tableVersions;
+
         // Tests for GET /api/menuritemeview/all
         
         @Test
@@ -144,6 +181,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(menuItemReviewRepository, times(1)).save(menuItemReview1);
+                verify(changeLog, times(1)).saved(eq(MenuItemReview.class), eq(List.of(menuItemReview1.getId())));
+                verify(searchIndex, times(1)).saved(eq(MenuItemReview.class), eq(List.of(menuItemReview1)));
+                verify(menuItemRatingService, times(1)).reviewAdded(menuItemReview1);
                 String expectedJson = mapper.writeValueAsString(menuItemReview1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -216,17 +256,17 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_item_review() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-                MenuItemReview menuItemReview1 = MenuItemReview.builder()
-                                .itemId(67)
-                                .reviewerEmail("ward@ucsb.edu")
-                                .stars(2)
-                                .dateReviewed(ldt1)
-                                .comments("Tastes like they made the coffee with sewer water.")
+                MenuItemReview menuItemReview = MenuItemReview.builder()
+                                .id(15L)
+                                .itemId(7)
+                                .reviewerEmail("cgauch@ucsb.edu")
+                                .stars(5)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("I loved the chocolate cake, very sweet.")
                                 .build();
 
-                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(menuItemReview1));
+                when(menuItemReviewRepository.findForUpdateById(eq(15L))).thenReturn(Optional.of(menuItemReview));
+                when(menuItemReviewRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -235,8 +275,10 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(15L);
-                verify(menuItemReviewRepository, times(1)).delete(any());
+                verify(menuItemReviewRepository, times(1)).deleteRowById(15L);
+                verify(changeLog, times(1)).deleted(eq(MenuItemReview.class), eq(List.of(15L)));
+                verify(searchIndex, times(1)).deleted(eq(MenuItemReview.class), eq(List.of(15L)));
+                verify(menuItemRatingService, times(1)).reviewRemoved(menuItemReview);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
@@ -248,7 +290,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(menuItemReviewRepository.findForUpdateById(eq(15L))).thenReturn(Optional.empty());
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -257,7 +299,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(15L);
+                verify(menuItemReviewRepository, times(1)).findForUpdateById(15L);
+                verify(menuItemReviewRepository, never()).deleteRowById(any(Long.class));
+                verify(menuItemRatingService, never()).reviewRemoved(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 not found", json.get("message"));
         }
@@ -275,11 +319,12 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
                 MenuItemReview menuItemReviewOrig = MenuItemReview.builder()
-                                .itemId(13)
-                                .reviewerEmail("ward@ucsb.edu")
-                                .stars(4)
+                                .id(67L)
+                                .itemId(7)
+                                .reviewerEmail("cgauch@ucsb.edu")
+                                .stars(5)
                                 .dateReviewed(ldt1)
-                                .comments("I think that the pineapple pizza was not bad.")
+                                .comments("I loved the chocolate cake, very sweet.")
                                 .build();
 
                 MenuItemReview menuItemReviewEdited = MenuItemReview.builder()
@@ -291,8 +336,11 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(menuItemReviewEdited);
+                menuItemReviewEdited.setId(67L);
 
-                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
+                when(menuItemReviewRepository.findForUpdateById(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
+                when(menuItemReviewRepository.updateRowById(eq(67L), isNull(), eq(menuItemReviewEdited))).thenReturn(1);
+                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(menuItemReviewEdited));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -305,9 +353,11 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(menuItemReviewRepository, times(1)).findById(67L);
-                verify(menuItemReviewRepository, times(1)).save(menuItemReviewEdited); // should be saved with correct user
+                verify(menuItemReviewRepository, times(1)).updateRowById(eq(67L), isNull(), eq(menuItemReviewEdited));
+                verify(menuItemRatingService, times(1)).reviewRemoved(menuItemReviewOrig);
+                verify(menuItemRatingService, times(1)).reviewAdded(menuItemReviewEdited);
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(menuItemReviewEdited), responseString);
         }
 
         
@@ -328,7 +378,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(menuItemEditedReview);
 
-                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(menuItemReviewRepository.findForUpdateById(eq(67L))).thenReturn(Optional.empty());
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -340,12 +390,788 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(67L);
+                verify(menuItemReviewRepository, times(1)).findForUpdateById(67L);
+                verify(menuItemReviewRepository, never()).updateRowById(any(Long.class), any(), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 67 not found", json.get("message"));
 
         }
-}
 
+        // Tests for GET /api/menuitemreview/rating
+
+        @Test
+        public void logged_out_users_cannot_get_a_rating() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/rating?itemId=7"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_the_rating_of_an_item() throws Exception {
+                // arrange
+                MenuItemRating rating = MenuItemRating.builder()
+                                .itemId(7)
+                                .reviews(3)
+                                .totalStars(11)
+                                .threeStars(1)
+                                .fourStars(2)
+                                .build();
+
+                when(menuItemRatingService.ratingFor(eq(7L))).thenReturn(rating);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/rating?itemId=7"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemRatingService, times(1)).ratingFor(7L);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(3, json.get("reviews"));
+                assertEquals(11.0 / 3, json.get("averageStars"));
+                assertEquals(mapper.writeValueAsString(rating), response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/menuitemreview/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/page"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_full_page_with_a_cursor_to_the_next_one() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+
+                MenuItemReview second = MenuItemReview.builder()
+                        .id(4L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 4")
+                        .build();
+
+                List<MenuItemReview> expected = Arrays.asList(first, second);
+                when(menuItemReviewRepository.findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))))).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/page?limit=1&after=2"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.<MenuItemReview, Long>builder().items(expected.subList(0, 1)).nextAfter(3L).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_the_last_page_without_a_cursor() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+
+                List<MenuItemReview> expected = Arrays.asList(first);
+                when(menuItemReviewRepository.findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 101, Sort.by("id"))))).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/page"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 101, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.<MenuItemReview, Long>builder().items(expected).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for the /api/menuitemreview/.../batch endpoints
+
+        @Test
+        public void logged_out_users_cannot_use_batch_endpoints() throws Exception {
+                mockMvc.perform(post("/api/menuitemreview/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(put("/api/menuitemreview/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(delete("/api/menuitemreview/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_use_batch_endpoints() throws Exception {
+                mockMvc.perform(post("/api/menuitemreview/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(put("/api/menuitemreview/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(delete("/api/menuitemreview/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+        }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_post_a_batch() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+
+                MenuItemReview second = MenuItemReview.builder()
+                        .id(4L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 4")
+                        .build();
+
+                String requestBody = mapper.writeValueAsString(List.of(first, second));
+                first.setId(0);
+                second.setId(0);
+                when(menuItemReviewRepository.saveAll(eq(List.of(first, second)))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/menuitemreview/post/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).saveAll(eq(List.of(first, second)));
+                verify(menuItemRatingService, times(1)).reviewAdded(first);
+                verify(menuItemRatingService, times(1)).reviewAdded(second);
+                String expectedJson = mapper.writeValueAsString(List.of(first, second));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_update_a_batch() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+
+                MenuItemReview second = MenuItemReview.builder()
+                        .id(4L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 4")
+                        .build();
+
+                MenuItemReview editedFirst = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+                editedFirst.setComments("edited 3");
+
+                MenuItemReview editedSecond = MenuItemReview.builder()
+                        .id(4L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 4")
+                        .build();
+                editedSecond.setComments("edited 4");
+
+                // the database may return the rows in any order
+                when(menuItemReviewRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(second, first));
+
+                String requestBody = mapper.writeValueAsString(List.of(editedFirst, editedSecond));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/menuitemreview/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findAllById(List.of(3L, 4L));
+                verify(menuItemReviewRepository, times(1)).saveAll(eq(List.of(editedFirst, editedSecond)));
+                // each row is taken out of its item's rating as it was, and put back in as edited
+                verify(menuItemRatingService, times(2)).reviewRemoved(any());
+                verify(menuItemRatingService, times(2)).reviewAdded(any());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(requestBody, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_update_a_batch_with_a_missing_row() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+
+                MenuItemReview second = MenuItemReview.builder()
+                        .id(4L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 4")
+                        .build();
+
+                when(menuItemReviewRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first));
+
+                String requestBody = mapper.writeValueAsString(List.of(first, second));
 
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/menuitemreview/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findAllById(List.of(3L, 4L));
+                verify(menuItemReviewRepository, never()).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 4 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_delete_a_batch() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+
+                MenuItemReview second = MenuItemReview.builder()
+                        .id(4L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 4")
+                        .build();
+
+                when(menuItemReviewRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        delete("/api/menuitemreview/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[3,4]")
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findAllById(List.of(3L, 4L));
+                verify(menuItemReviewRepository, times(1)).deleteAll(eq(List.of(first, second)));
+                verify(menuItemRatingService, times(1)).reviewRemoved(first);
+                verify(menuItemRatingService, times(1)).reviewRemoved(second);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReviews with ids [3, 4] deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_batch_with_a_missing_row() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+
+                when(menuItemReviewRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        delete("/api/menuitemreview/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[3,4]")
+                                .with(csrf()))
+                        .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).deleteAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 4 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_400_for_a_batch_delete_that_repeats_an_id() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(
+                        delete("/api/menuitemreview/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[3,3]")
+                                .with(csrf()))
+                        .andExpect(status().isBadRequest()).andReturn();
+
+                // assert: the review is not taken off the item's rating, once or twice
+                verify(menuItemReviewRepository, never()).findAllById(any());
+                verify(menuItemRatingService, never()).reviewRemoved(any());
+                verify(menuItemReviewRepository, never()).deleteAll(any());
+                verify(changeLog, never()).deleted(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+                assertEquals("MenuItemReview with id 3 appears more than once", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_400_for_a_batch_update_that_repeats_an_id() throws Exception {
+                // arrange
+                MenuItemReview review = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+                String requestBody = mapper.writeValueAsString(List.of(review, review));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/menuitemreview/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(menuItemRatingService, never()).reviewRemoved(any());
+                verify(menuItemReviewRepository, never()).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 3 appears more than once", json.get("message"));
+        }
+
+        // Tests for GET /api/menuitemreview/export.ndjson
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/export.ndjson"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/export.ndjson"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_export_every_row_as_ndjson() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+
+                MenuItemReview second = MenuItemReview.builder()
+                        .id(4L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 4")
+                        .build();
+
+                when(menuItemReviewRepository.streamAll()).thenReturn(Stream.of(first, second));
+                when(ndjsonExportService.export(any(), any())).thenAnswer(invocation -> {
+                    Supplier<Stream<MenuItemReview>> rows = invocation.getArgument(0);
+                    OutputStream out = invocation.getArgument(1);
+                    for (MenuItemReview row : rows.get().toList()) {
+                        out.write((mapper.writeValueAsString(row) + "\n").getBytes(StandardCharsets.UTF_8));
+                    }
+                    return 2L;
+                });
+
+                // act
+                MvcResult started = mockMvc.perform(get("/api/menuitemreview/export.ndjson"))
+                        .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                        .andExpect(status().isOk())
+                        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON)).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).streamAll();
+                String expected = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                assertEquals(expected, response.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs with If-None-Match
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_all_with_an_etag_and_a_304_while_it_still_matches() throws Exception {
+                // arrange
+                String etag = tableVersions.etag(MenuItemReview.class);
+
+                // act
+                mockMvc.perform(get("/api/menuitemreview/all"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, etag))
+                        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                        .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_all_again_once_the_table_has_changed() throws Exception {
+                // arrange
+                String etag = tableVersions.etag(MenuItemReview.class);
+                tableVersions.changed(MenuItemReview.class);
+
+                // act
+                mockMvc.perform(get("/api/menuitemreview/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, tableVersions.etag(MenuItemReview.class)));
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findAll();
+        }
+
+        // Tests for row versions as ETags and If-Match on PUT /api/menuitemreview
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_304_by_id_while_the_version_still_matches() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+                first.setVersion(2);
+
+                when(menuItemReviewRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                mockMvc.perform(get("/api/menuitemreview?id=3"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, "\"2-93bebb6d\""));
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview?id=3").header(HttpHeaders.IF_NONE_MATCH, "\"2-93bebb6d\""))
+                        .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(2)).findById(3L);
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_412_when_if_match_names_an_old_version() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+                first.setVersion(2);
+
+                when(menuItemReviewRepository.findForUpdateById(eq(3L))).thenReturn(Optional.of(first));
+                when(menuItemReviewRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/menuitemreview?id=3")
+                                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).updateRowById(eq(3L), eq(1L), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("PreconditionFailedException", json.get("type"));
+                assertEquals("MenuItemReview with id 3 has changed; its current ETag is \"2-93bebb6d\"", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_412_when_if_match_is_not_a_version_tag() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+                first.setVersion(2);
+
+                when(menuItemReviewRepository.findForUpdateById(eq(3L))).thenReturn(Optional.of(first));
+                when(menuItemReviewRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                mockMvc.perform(
+                        put("/api/menuitemreview?id=3")
+                                .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isPreconditionFailed());
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).updateRowById(eq(3L), eq(ApiController.NO_VERSION), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_update_the_version_if_match_names_without_reading_it_back() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+                first.setVersion(2);
+
+                when(menuItemReviewRepository.findForUpdateById(eq(3L))).thenReturn(Optional.of(first));
+                when(menuItemReviewRepository.updateRowById(eq(3L), eq(2L), eq(first))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/menuitemreview?id=3")
+                                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).findById(any());
+                first.setVersion(3);
+                assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_update_any_version_with_if_match_star() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+                first.setVersion(2);
+
+                when(menuItemReviewRepository.findForUpdateById(eq(3L))).thenReturn(Optional.of(first));
+                when(menuItemReviewRepository.updateRowById(eq(3L), isNull(), eq(first))).thenReturn(1);
+                when(menuItemReviewRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/menuitemreview?id=3")
+                                .header(HttpHeaders.IF_MATCH, "*")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findById(3L);
+                assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_409_when_a_batch_row_changes_before_the_update_commits() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+                first.setVersion(2);
+
+                when(menuItemReviewRepository.findAllById(eq(List.of(3L)))).thenReturn(List.of(first));
+                when(menuItemReviewRepository.saveAll(any())).thenThrow(new ObjectOptimisticLockingFailureException(MenuItemReview.class, 3L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/menuitemreview/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(List.of(first)))
+                                .with(csrf()))
+                        .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_409_when_a_batch_row_was_read_at_an_older_version() throws Exception {
+                // arrange
+                MenuItemReview first = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(5)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("review 3")
+                        .build();
+                String staleRequestBody = mapper.writeValueAsString(List.of(first));
+                first.setVersion(2);
+
+                when(menuItemReviewRepository.findAllById(eq(List.of(3L)))).thenReturn(List.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/menuitemreview/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(staleRequestBody)
+                                .with(csrf()))
+                        .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        // Tests for GET /api/menuitemreview/summary
+
+        @Test
+        public void logged_out_users_cannot_get_the_summary() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/summary"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_the_summary_without_the_comments() throws Exception {
+                // arrange
+                MenuItemReview review = MenuItemReview.builder()
+                        .id(3L)
+                        .itemId(7L)
+                        .reviewerEmail("cgaucho@ucsb.edu")
+                        .stars(4)
+                        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .comments("a long review")
+                        .build();
+                MenuItemReviewSummary summary = new SpelAwareProxyProjectionFactory().createProjection(MenuItemReviewSummary.class, review);
+                when(menuItemReviewRepository.findSummariesBy(eq(Sort.by("id")))).thenReturn(List.of(summary));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/summary"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, tableVersions.etag(MenuItemReview.class)))
+                        .andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).findAll();
+                List<Map<String, Object>> json = mapper.readValue(response.getResponse().getContentAsString(), new TypeReference<>() {});
+                assertEquals(List.of(Map.of(
+                        "id", 3,
+                        "itemId", 7,
+                        "reviewerEmail", "cgaucho@ucsb.edu",
+                        "stars", 4,
+                        "dateReviewed", "2022-01-03T00:00:00")), json);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_304_for_the_summary_while_the_table_is_unchanged() throws Exception {
+                // arrange
+                String etag = tableVersions.etag(MenuItemReview.class);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/summary").header(HttpHeaders.IF_NONE_MATCH, etag))
+                        .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).findSummariesBy(any());
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+}
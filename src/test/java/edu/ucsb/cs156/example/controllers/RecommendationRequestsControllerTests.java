@@ -24,6 +24,24 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import java.util.List;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import edu.ucsb.cs156.example.services.SearchIndex;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import edu.ucsb.cs156.example.services.TableVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import edu.ucsb.cs156.example.models.RecommendationRequestSummary;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -31,6 +49,8 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
+import static org.mockito.ArgumentMatchers.isNull;
 
 @WebMvcTest(controllers = RecommendationRequestController.class)
 @Import(TestConfig.class)
@@ -42,6 +62,18 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    NdjsonExportService ndjsonExportService;
+
+    @MockBean
+    ChangeLog changeLog;
+
+    @MockBean
+    SearchIndex searchIndex;
+
+    @Autowired
+    TableVersions tableVersions;
+
     // Tests for GET /api/recommendationrequest/all
         
     @Test
@@ -144,6 +176,8 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
 
         // assert
         verify(recRequestRepository, times(1)).save(recRequest);
+        verify(changeLog, times(1)).saved(eq(RecommendationRequest.class), eq(List.of(recRequest.getId())));
+        verify(searchIndex, times(1)).saved(eq(RecommendationRequest.class), eq(List.of(recRequest)));
         String expectedJson = mapper.writeValueAsString(recRequest);
         String responseString = response.getResponse().getContentAsString();
         assertEquals(expectedJson, responseString);
@@ -156,19 +190,10 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
     public void admin_can_delete_a_recommendationrequest() throws Exception {
        
         // arrange
-        LocalDateTime ldt1 = LocalDateTime.parse("2022-07-25T07:03:23");
         LocalDateTime ldt2 = LocalDateTime.parse("2023-03-01T00:00:00");
 
-        RecommendationRequest recRequest = RecommendationRequest.builder()
-            .requesterEmail("abc@ucsb.edu")
-            .professorEmail("xyz@ucsb.edu")
-            .explanation("BS/MS Program")
-            .dateRequested(ldt1)
-            .dateNeeded(ldt2)
-            .done(true)
-            .build();
 
-        when(recRequestRepository.findById(eq(15L))).thenReturn(Optional.of(recRequest));
+        when(recRequestRepository.deleteRowById(eq(15L))).thenReturn(1);
 
         // act
         MvcResult response = mockMvc.perform(
@@ -177,8 +202,9 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
             .andExpect(status().isOk()).andReturn();
 
         // assert
-        verify(recRequestRepository, times(1)).findById(15L);
-        verify(recRequestRepository, times(1)).delete(any());
+        verify(recRequestRepository, times(1)).deleteRowById(15L);
+        verify(changeLog, times(1)).deleted(eq(RecommendationRequest.class), eq(List.of(15L)));
+        verify(searchIndex, times(1)).deleted(eq(RecommendationRequest.class), eq(List.of(15L)));
 
         Map<String, Object> json = responseToJson(response);
         assertEquals("RecommendationRequest with id 15 deleted", json.get("message"));
@@ -190,7 +216,7 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
         throws Exception {
         
         // arrange
-        when(recRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+        when(recRequestRepository.deleteRowById(eq(15L))).thenReturn(0);
 
         // act
         MvcResult response = mockMvc.perform(
@@ -199,7 +225,7 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
             .andExpect(status().isNotFound()).andReturn();
 
         // assert
-        verify(recRequestRepository, times(1)).findById(15L);
+        verify(recRequestRepository, times(1)).deleteRowById(15L);
         Map<String, Object> json = responseToJson(response);
         assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
     }
@@ -272,15 +298,6 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
         LocalDateTime ldt3 = LocalDateTime.parse("2022-05-11T10:23:45");
         LocalDateTime ldt4 = LocalDateTime.parse("2022-12-12T00:00:00");
 
-        RecommendationRequest recRequestOrig = RecommendationRequest.builder()
-            .requesterEmail("abc@ucsb.edu")
-            .professorEmail("xyz@ucsb.edu")
-            .explanation("BS/MS Program")
-            .dateRequested(ldt1)
-            .dateNeeded(ldt2)
-            .done(true)
-            .build();
-
         RecommendationRequest recRequestEdited = RecommendationRequest.builder()
             .requesterEmail("qwe@ucsb.edu")
             .professorEmail("rty@ucsb.edu")
@@ -291,8 +308,10 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
             .build();
 
         String requestBody = mapper.writeValueAsString(recRequestEdited);
+        recRequestEdited.setId(67L);
 
-        when(recRequestRepository.findById(eq(67L))).thenReturn(Optional.of(recRequestOrig));
+        when(recRequestRepository.updateRowById(eq(67L), isNull(), eq(recRequestEdited))).thenReturn(1);
+        when(recRequestRepository.findById(eq(67L))).thenReturn(Optional.of(recRequestEdited));
 
         // act
         MvcResult response = mockMvc.perform(
@@ -305,9 +324,9 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
 
         // assert
         verify(recRequestRepository, times(1)).findById(67L);
-        verify(recRequestRepository, times(1)).save(recRequestEdited); // should be saved with correct user
+        verify(recRequestRepository, times(1)).updateRowById(eq(67L), isNull(), eq(recRequestEdited));
         String responseString = response.getResponse().getContentAsString();
-        assertEquals(requestBody, responseString);
+        assertEquals(mapper.writeValueAsString(recRequestEdited), responseString);
     }
 
         
@@ -347,4 +366,711 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
         assertEquals("RecommendationRequest with id 67 not found", json.get("message"));
    
     }
+
+    // Tests for GET /api/recommendationrequests/page
+
+    @Test
+    public void logged_out_users_cannot_get_page() throws Exception {
+        mockMvc.perform(get("/api/recommendationrequests/page"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_full_page_with_a_cursor_to_the_next_one() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+
+        RecommendationRequest second = RecommendationRequest.builder()
+                .id(4L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 4")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+
+        List<RecommendationRequest> expected = Arrays.asList(first, second);
+        when(recRequestRepository.findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))))).thenReturn(expected);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequests/page?limit=1&after=2"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(recRequestRepository, times(1)).findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+        String expectedJson = mapper.writeValueAsString(KeysetPage.<RecommendationRequest, Long>builder().items(expected.subList(0, 1)).nextAfter(3L).build());
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_the_last_page_without_a_cursor() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+
+        List<RecommendationRequest> expected = Arrays.asList(first);
+        when(recRequestRepository.findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 101, Sort.by("id"))))).thenReturn(expected);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequests/page"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(recRequestRepository, times(1)).findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 101, Sort.by("id"))));
+        String expectedJson = mapper.writeValueAsString(KeysetPage.<RecommendationRequest, Long>builder().items(expected).build());
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    // Tests for the /api/recommendationrequests/.../batch endpoints
+
+    @Test
+    public void logged_out_users_cannot_use_batch_endpoints() throws Exception {
+        mockMvc.perform(post("/api/recommendationrequests/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                .andExpect(status().is(403));
+        mockMvc.perform(put("/api/recommendationrequests/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                .andExpect(status().is(403));
+        mockMvc.perform(delete("/api/recommendationrequests/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_use_batch_endpoints() throws Exception {
+        mockMvc.perform(post("/api/recommendationrequests/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                .andExpect(status().is(403));
+        mockMvc.perform(put("/api/recommendationrequests/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                .andExpect(status().is(403));
+        mockMvc.perform(delete("/api/recommendationrequests/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_post_a_batch() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+
+        RecommendationRequest second = RecommendationRequest.builder()
+                .id(4L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 4")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+
+        String requestBody = mapper.writeValueAsString(List.of(first, second));
+        first.setId(0);
+        second.setId(0);
+        when(recRequestRepository.saveAll(eq(List.of(first, second)))).thenReturn(List.of(first, second));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                post("/api/recommendationrequests/post/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(requestBody)
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(recRequestRepository, times(1)).saveAll(eq(List.of(first, second)));
+        String expectedJson = mapper.writeValueAsString(List.of(first, second));
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_update_a_batch() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+
+        RecommendationRequest second = RecommendationRequest.builder()
+                .id(4L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 4")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+
+        RecommendationRequest editedFirst = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+        editedFirst.setExplanation("edited 3");
+
+        RecommendationRequest editedSecond = RecommendationRequest.builder()
+                .id(4L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 4")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+        editedSecond.setExplanation("edited 4");
+
+        // the database may return the rows in any order
+        when(recRequestRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(second, first));
+
+        String requestBody = mapper.writeValueAsString(List.of(editedFirst, editedSecond));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/recommendationrequests/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(requestBody)
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(recRequestRepository, times(1)).findAllById(List.of(3L, 4L));
+        verify(recRequestRepository, times(1)).saveAll(eq(List.of(editedFirst, editedSecond)));
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(requestBody, responseString);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_update_a_batch_with_a_missing_row() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+
+        RecommendationRequest second = RecommendationRequest.builder()
+                .id(4L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 4")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+
+        when(recRequestRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first));
+
+        String requestBody = mapper.writeValueAsString(List.of(first, second));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/recommendationrequests/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(requestBody)
+                        .with(csrf()))
+                .andExpect(status().isNotFound()).andReturn();
+
+        // assert
+        verify(recRequestRepository, times(1)).findAllById(List.of(3L, 4L));
+        verify(recRequestRepository, never()).saveAll(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("RecommendationRequest with id 4 not found", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_delete_a_batch() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+
+        RecommendationRequest second = RecommendationRequest.builder()
+                .id(4L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 4")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+
+        when(recRequestRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first, second));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                delete("/api/recommendationrequests/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[3,4]")
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(recRequestRepository, times(1)).findAllById(List.of(3L, 4L));
+        verify(recRequestRepository, times(1)).deleteAll(eq(List.of(first, second)));
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("RecommendationRequests with ids [3, 4] deleted", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_delete_a_batch_with_a_missing_row() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+
+        when(recRequestRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                delete("/api/recommendationrequests/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[3,4]")
+                        .with(csrf()))
+                .andExpect(status().isNotFound()).andReturn();
+
+        // assert
+        verify(recRequestRepository, never()).deleteAll(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("RecommendationRequest with id 4 not found", json.get("message"));
+    }
+
+    // Tests for GET /api/recommendationrequests/export.ndjson
+
+    @Test
+    public void logged_out_users_cannot_export() throws Exception {
+        mockMvc.perform(get("/api/recommendationrequests/export.ndjson"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_export() throws Exception {
+        mockMvc.perform(get("/api/recommendationrequests/export.ndjson"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_export_every_row_as_ndjson() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+
+        RecommendationRequest second = RecommendationRequest.builder()
+                .id(4L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 4")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+
+        when(recRequestRepository.streamAll()).thenReturn(Stream.of(first, second));
+        when(ndjsonExportService.export(any(), any())).thenAnswer(invocation -> {
+            Supplier<Stream<RecommendationRequest>> rows = invocation.getArgument(0);
+            OutputStream out = invocation.getArgument(1);
+            for (RecommendationRequest row : rows.get().toList()) {
+                out.write((mapper.writeValueAsString(row) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            return 2L;
+        });
+
+        // act
+        MvcResult started = mockMvc.perform(get("/api/recommendationrequests/export.ndjson"))
+                .andExpect(request().asyncStarted()).andReturn();
+        MvcResult response = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON)).andReturn();
+
+        // assert
+        verify(recRequestRepository, times(1)).streamAll();
+        String expected = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+        assertEquals(expected, response.getResponse().getContentAsString());
+    }
+
+    // Tests for conditional GETs with If-None-Match
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_all_with_an_etag_and_a_304_while_it_still_matches() throws Exception {
+        // arrange
+        String etag = tableVersions.etag(RecommendationRequest.class);
+
+        // act
+        mockMvc.perform(get("/api/recommendationrequests/all"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequests/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified()).andReturn();
+
+        // assert
+        verify(recRequestRepository, times(1)).findAll();
+        assertEquals("", response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_all_again_once_the_table_has_changed() throws Exception {
+        // arrange
+        String etag = tableVersions.etag(RecommendationRequest.class);
+        tableVersions.changed(RecommendationRequest.class);
+
+        // act
+        mockMvc.perform(get("/api/recommendationrequests/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, tableVersions.etag(RecommendationRequest.class)));
+
+        // assert
+        verify(recRequestRepository, times(1)).findAll();
+    }
+
+    // Tests for row versions as ETags and If-Match on PUT /api/recommendationrequests
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_304_by_id_while_the_version_still_matches() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+        first.setVersion(2);
+
+        when(recRequestRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+        // act
+        mockMvc.perform(get("/api/recommendationrequests?id=3"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-2a84af9\""));
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequests?id=3").header(HttpHeaders.IF_NONE_MATCH, "\"2-2a84af9\""))
+                .andExpect(status().isNotModified()).andReturn();
+
+        // assert
+        verify(recRequestRepository, times(2)).findById(3L);
+        assertEquals("", response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_gets_412_when_if_match_names_an_old_version() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+        first.setVersion(2);
+
+        when(recRequestRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/recommendationrequests?id=3")
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(first))
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed()).andReturn();
+
+        // assert
+        verify(recRequestRepository, times(1)).updateRowById(eq(3L), eq(1L), any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("PreconditionFailedException", json.get("type"));
+        assertEquals("RecommendationRequest with id 3 has changed; its current ETag is \"2-2a84af9\"", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_gets_412_when_if_match_is_not_a_version_tag() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+        first.setVersion(2);
+
+        when(recRequestRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+        // act
+        mockMvc.perform(
+                put("/api/recommendationrequests?id=3")
+                        .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(first))
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed());
+
+        // assert
+        verify(recRequestRepository, times(1)).updateRowById(eq(3L), eq(ApiController.NO_VERSION), any());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_update_the_version_if_match_names_without_reading_it_back() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+        first.setVersion(2);
+
+        when(recRequestRepository.updateRowById(eq(3L), eq(2L), eq(first))).thenReturn(1);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/recommendationrequests?id=3")
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(first))
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(recRequestRepository, never()).findById(any());
+        first.setVersion(3);
+        assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_update_any_version_with_if_match_star() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+        first.setVersion(2);
+
+        when(recRequestRepository.updateRowById(eq(3L), isNull(), eq(first))).thenReturn(1);
+        when(recRequestRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/recommendationrequests?id=3")
+                        .header(HttpHeaders.IF_MATCH, "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(first))
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(recRequestRepository, times(1)).findById(3L);
+        assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_gets_409_when_a_batch_row_changes_before_the_update_commits() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+        first.setVersion(2);
+
+        when(recRequestRepository.findAllById(eq(List.of(3L)))).thenReturn(List.of(first));
+        when(recRequestRepository.saveAll(any())).thenThrow(new ObjectOptimisticLockingFailureException(RecommendationRequest.class, 3L));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/recommendationrequests/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(List.of(first)))
+                        .with(csrf()))
+                .andExpect(status().isConflict()).andReturn();
+
+        // assert
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_gets_409_when_a_batch_row_was_read_at_an_older_version() throws Exception {
+        // arrange
+        RecommendationRequest first = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("recommendation 3")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-03-03T00:00:00"))
+                .done(false)
+                .build();
+        String staleRequestBody = mapper.writeValueAsString(List.of(first));
+        first.setVersion(2);
+
+        when(recRequestRepository.findAllById(eq(List.of(3L)))).thenReturn(List.of(first));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/recommendationrequests/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(staleRequestBody)
+                        .with(csrf()))
+                .andExpect(status().isConflict()).andReturn();
+
+        // assert
+        verify(recRequestRepository, never()).saveAll(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+    }
+
+    // Tests for GET /api/recommendationrequests/summary
+
+    @Test
+    public void logged_out_users_cannot_get_the_summary() throws Exception {
+        mockMvc.perform(get("/api/recommendationrequests/summary"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_the_summary_without_the_explanation() throws Exception {
+        // arrange
+        RecommendationRequest recRequest = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("a long explanation")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                .done(true)
+                .build();
+        RecommendationRequestSummary summary = new SpelAwareProxyProjectionFactory().createProjection(RecommendationRequestSummary.class, recRequest);
+        when(recRequestRepository.findSummariesBy(eq(Sort.by("id")))).thenReturn(List.of(summary));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequests/summary"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, tableVersions.etag(RecommendationRequest.class)))
+                .andReturn();
+
+        // assert
+        verify(recRequestRepository, never()).findAll();
+        List<Map<String, Object>> json = mapper.readValue(response.getResponse().getContentAsString(), new TypeReference<>() {});
+        assertEquals(List.of(Map.of(
+                "id", 3,
+                "requesterEmail", "cgaucho@ucsb.edu",
+                "professorEmail", "phtcon@ucsb.edu",
+                "dateRequested", "2022-01-03T00:00:00",
+                "dateNeeded", "2022-02-03T00:00:00",
+                "done", true)), json);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_304_for_the_summary_while_the_table_is_unchanged() throws Exception {
+        // arrange
+        String etag = tableVersions.etag(RecommendationRequest.class);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequests/summary").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified()).andReturn();
+
+        // assert
+        verify(recRequestRepository, never()).findSummariesBy(any());
+        assertEquals("", response.getResponse().getContentAsString());
+    }
 }
@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.models.SearchHit;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.SearchIndex;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = SearchController.class)
+@Import(TestConfig.class)
+public class SearchControllerTests extends ControllerTestCase {
+
+    @MockBean
+    SearchIndex searchIndex;
+
+    @MockBean
+    UserRepository userRepository;
+
+    private static SearchHit hit(int rank, String type, long id, String text) {
+        return SearchHit.builder()
+                .rank(rank)
+                .type(type)
+                .id(id)
+                .score(2.5 / rank)
+                .text(text)
+                .build();
+    }
+
+    @Test
+    public void logged_out_users_cannot_search() throws Exception {
+        mockMvc.perform(get("/api/search?q=midterm"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_full_page_of_matches_with_a_cursor_to_the_next_one() throws Exception {
+        // arrange
+        List<SearchHit> expected = List.of(
+                hit(3, "HelpRequest", 7, "Need help studying for the midterm"),
+                hit(4, "Article", 2, "Midterm tips\nHow to prepare"));
+        when(searchIndex.search(eq("midterm tips"), eq(2), eq(2))).thenReturn(expected);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/search?q=midterm tips&limit=1&after=2"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(searchIndex, times(1)).search("midterm tips", 2, 2);
+        String expectedJson = mapper.writeValueAsString(KeysetPage.<SearchHit, Integer>builder().items(expected.subList(0, 1)).nextAfter(3).build());
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_the_last_matches_without_a_cursor() throws Exception {
+        // arrange
+        List<SearchHit> expected = List.of(hit(1, "MenuItemReview", 5, "Great burrito"));
+        when(searchIndex.search(eq("burrito"), eq(21), eq(0))).thenReturn(expected);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/search?q=burrito"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        String expectedJson = mapper.writeValueAsString(KeysetPage.<SearchHit, Integer>builder().items(expected).build());
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+}
@@ -24,6 +24,26 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import java.util.List;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import org.springframework.transaction.PlatformTransactionManager;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import edu.ucsb.cs156.example.models.BulkImportChunk;
+import edu.ucsb.cs156.example.models.BulkImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.TableVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.junit.jupiter.api.AfterEach;
+import edu.ucsb.cs156.example.services.ReferenceDataCache;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -31,9 +51,11 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
+import static org.mockito.ArgumentMatchers.isNull;
 
 @WebMvcTest(controllers = UCSBDatesController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, BulkImportService.class })
 public class UCSBDatesControllerTests extends ControllerTestCase {
 
         @MockBean
@@ -42,6 +64,27 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        ChangeLog changeLog;
+
+        @MockBean
+        PlatformTransactionManager transactionManager;
+
+        @Autowired
+        TableVersions tableVersions;
+
+        @Autowired
+        ReferenceDataCache referenceDataCache;
+
+        // cached rows would otherwise outlive the mocks of the test that loaded them
+        @AfterEach
+        public void clearReferenceDataCache() {
+                referenceDataCache.evict(UCSBDate.class);
+        }
+
         // Tests for GET /api/ucsbdates/all
         
         @Test
@@ -133,6 +176,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDateRepository, times(1)).save(ucsbDate1);
+                verify(changeLog, times(1)).saved(eq(UCSBDate.class), eq(List.of(ucsbDate1.getId())));
                 String expectedJson = mapper.writeValueAsString(ucsbDate1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -201,15 +245,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
 
-                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-
-                UCSBDate ucsbDate1 = UCSBDate.builder()
-                                .name("firstDayOfClasses")
-                                .quarterYYYYQ("20222")
-                                .localDateTime(ldt1)
-                                .build();
-
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbDate1));
+                when(ucsbDateRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -218,8 +254,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
-                verify(ucsbDateRepository, times(1)).delete(any());
+                verify(ucsbDateRepository, times(1)).deleteRowById(15L);
+                verify(changeLog, times(1)).deleted(eq(UCSBDate.class), eq(List.of(15L)));
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 deleted", json.get("message"));
@@ -231,7 +267,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -240,7 +276,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
+                verify(ucsbDateRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 not found", json.get("message"));
         }
@@ -255,12 +291,6 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-                UCSBDate ucsbDateOrig = UCSBDate.builder()
-                                .name("firstDayOfClasses")
-                                .quarterYYYYQ("20222")
-                                .localDateTime(ldt1)
-                                .build();
-
                 UCSBDate ucsbDateEdited = UCSBDate.builder()
                                 .name("firstDayOfFestivus")
                                 .quarterYYYYQ("20232")
@@ -268,8 +298,10 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(ucsbDateEdited);
+                ucsbDateEdited.setId(67L);
 
-                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(ucsbDateRepository.updateRowById(eq(67L), isNull(), eq(ucsbDateEdited))).thenReturn(1);
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateEdited));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -282,9 +314,9 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDateRepository, times(1)).findById(67L);
-                verify(ucsbDateRepository, times(1)).save(ucsbDateEdited); // should be saved with correct user
+                verify(ucsbDateRepository, times(1)).updateRowById(eq(67L), isNull(), eq(ucsbDateEdited));
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(ucsbDateEdited), responseString);
         }
 
         
@@ -320,4 +352,742 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for GET /api/ucsbdates/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/page"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_full_page_with_a_cursor_to_the_next_one() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+
+                UCSBDate second = UCSBDate.builder()
+                        .id(4L)
+                        .quarterYYYYQ("20222")
+                        .name("date 4")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+
+                List<UCSBDate> expected = Arrays.asList(first, second);
+                when(ucsbDateRepository.findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))))).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/page?limit=1&after=2"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.<UCSBDate, Long>builder().items(expected.subList(0, 1)).nextAfter(3L).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_the_last_page_without_a_cursor() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+
+                List<UCSBDate> expected = Arrays.asList(first);
+                when(ucsbDateRepository.findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 101, Sort.by("id"))))).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/page"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 101, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.<UCSBDate, Long>builder().items(expected).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for the /api/ucsbdates/.../batch endpoints
+
+        @Test
+        public void logged_out_users_cannot_use_batch_endpoints() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(put("/api/ucsbdates/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(delete("/api/ucsbdates/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_use_batch_endpoints() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(put("/api/ucsbdates/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(delete("/api/ucsbdates/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_post_a_batch() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+
+                UCSBDate second = UCSBDate.builder()
+                        .id(4L)
+                        .quarterYYYYQ("20222")
+                        .name("date 4")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+
+                String requestBody = mapper.writeValueAsString(List.of(first, second));
+                first.setId(0);
+                second.setId(0);
+                when(ucsbDateRepository.saveAll(eq(List.of(first, second)))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/ucsbdates/post/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).saveAll(eq(List.of(first, second)));
+                String expectedJson = mapper.writeValueAsString(List.of(first, second));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_update_a_batch() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+
+                UCSBDate second = UCSBDate.builder()
+                        .id(4L)
+                        .quarterYYYYQ("20222")
+                        .name("date 4")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+
+                UCSBDate editedFirst = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+                editedFirst.setName("edited 3");
+
+                UCSBDate editedSecond = UCSBDate.builder()
+                        .id(4L)
+                        .quarterYYYYQ("20222")
+                        .name("date 4")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+                editedSecond.setName("edited 4");
+
+                // the database may return the rows in any order
+                when(ucsbDateRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(second, first));
+
+                String requestBody = mapper.writeValueAsString(List.of(editedFirst, editedSecond));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdates/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAllById(List.of(3L, 4L));
+                verify(ucsbDateRepository, times(1)).saveAll(eq(List.of(editedFirst, editedSecond)));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(requestBody, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_update_a_batch_with_a_missing_row() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+
+                UCSBDate second = UCSBDate.builder()
+                        .id(4L)
+                        .quarterYYYYQ("20222")
+                        .name("date 4")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+
+                when(ucsbDateRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first));
+
+                String requestBody = mapper.writeValueAsString(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdates/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAllById(List.of(3L, 4L));
+                verify(ucsbDateRepository, never()).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 4 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_delete_a_batch() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+
+                UCSBDate second = UCSBDate.builder()
+                        .id(4L)
+                        .quarterYYYYQ("20222")
+                        .name("date 4")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+
+                when(ucsbDateRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        delete("/api/ucsbdates/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[3,4]")
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAllById(List.of(3L, 4L));
+                verify(ucsbDateRepository, times(1)).deleteAll(eq(List.of(first, second)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDates with ids [3, 4] deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_batch_with_a_missing_row() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+
+                when(ucsbDateRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        delete("/api/ucsbdates/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[3,4]")
+                                .with(csrf()))
+                        .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, never()).deleteAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 4 not found", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbdates/export.ndjson
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/export.ndjson"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/export.ndjson"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_export_every_row_as_ndjson() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+
+                UCSBDate second = UCSBDate.builder()
+                        .id(4L)
+                        .quarterYYYYQ("20222")
+                        .name("date 4")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+
+                when(ucsbDateRepository.streamAll()).thenReturn(Stream.of(first, second));
+                when(ndjsonExportService.export(any(), any())).thenAnswer(invocation -> {
+                    Supplier<Stream<UCSBDate>> rows = invocation.getArgument(0);
+                    OutputStream out = invocation.getArgument(1);
+                    for (UCSBDate row : rows.get().toList()) {
+                        out.write((mapper.writeValueAsString(row) + "\n").getBytes(StandardCharsets.UTF_8));
+                    }
+                    return 2L;
+                });
+
+                // act
+                MvcResult started = mockMvc.perform(get("/api/ucsbdates/export.ndjson"))
+                        .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                        .andExpect(status().isOk())
+                        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON)).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).streamAll();
+                String expected = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                assertEquals(expected, response.getResponse().getContentAsString());
+        }
+
+        // Tests for POST /api/ucsbdates/import
+
+        @Test
+        public void logged_out_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/import").contentType("text/csv").content("").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/import").contentType("text/csv").content("").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_csv_in_chunks() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .quarterYYYYQ("20224")
+                        .name("firstDayOfClasses")
+                        .localDateTime(LocalDateTime.parse("2022-09-22T00:00:00"))
+                        .build();
+
+                UCSBDate second = UCSBDate.builder()
+                        .quarterYYYYQ("20224")
+                        .name("lastDayOfClasses")
+                        .localDateTime(LocalDateTime.parse("2022-12-02T00:00:00"))
+                        .build();
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/ucsbdates/import?chunkSize=1")
+                                .contentType("text/csv")
+                                .content("quarterYYYYQ,name,localDateTime\n20224,firstDayOfClasses,2022-09-22T00:00:00\n20224,lastDayOfClasses,2022-12-02T00:00:00\n")
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).saveAll(eq(List.of(first)));
+                verify(ucsbDateRepository, times(1)).saveAll(eq(List.of(second)));
+                verify(changeLog, times(2)).saved(eq(UCSBDate.class), any());
+                BulkImportReport expected = BulkImportReport.builder()
+                        .rows(2)
+                        .imported(2)
+                        .rejected(0)
+                        .chunks(List.of(
+                                BulkImportChunk.builder().chunk(1).firstRow(1).lastRow(1).imported(1).errors(List.of()).build(),
+                                BulkImportChunk.builder().chunk(2).firstRow(2).lastRow(2).imported(1).errors(List.of()).build()))
+                        .build();
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_gets_the_rows_an_ndjson_import_rejected() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .quarterYYYYQ("20224")
+                        .name("firstDayOfClasses")
+                        .localDateTime(LocalDateTime.parse("2022-09-22T00:00:00"))
+                        .build();
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/ucsbdates/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{\"id\":7,\"quarterYYYYQ\":\"20224\",\"name\":\"firstDayOfClasses\",\"localDateTime\":\"2022-09-22T00:00:00\"}\n{\"quarterYYYYQ\":\"20224\",\"name\":\"noDate\"}\n")
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).saveAll(eq(List.of(first)));
+                BulkImportReport expected = BulkImportReport.builder()
+                        .rows(2)
+                        .imported(1)
+                        .rejected(1)
+                        .chunks(List.of(
+                                BulkImportChunk.builder().chunk(1).firstRow(1).lastRow(2).imported(1).errors(List.of("row 2: localDateTime is required")).build()))
+                        .build();
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs with If-None-Match
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_all_with_an_etag_and_a_304_while_it_still_matches() throws Exception {
+                // arrange
+                String etag = tableVersions.etag(UCSBDate.class);
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/all"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, etag))
+                        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                        .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_all_again_once_the_table_has_changed() throws Exception {
+                // arrange
+                String etag = tableVersions.etag(UCSBDate.class);
+                tableVersions.changed(UCSBDate.class);
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, tableVersions.etag(UCSBDate.class)));
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAll();
+        }
+
+        // Tests for row versions as ETags and If-Match on PUT /api/ucsbdates
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_304_by_id_while_the_version_still_matches() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+                first.setVersion(2);
+
+                when(ucsbDateRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates?id=3"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, "\"2-684b64f6\""));
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates?id=3").header(HttpHeaders.IF_NONE_MATCH, "\"2-684b64f6\""))
+                        .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                // the second request is answered from the reference data cache
+                verify(ucsbDateRepository, times(1)).findById(3L);
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_412_when_if_match_names_an_old_version() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+                first.setVersion(2);
+
+                when(ucsbDateRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdates?id=3")
+                                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).updateRowById(eq(3L), eq(1L), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("PreconditionFailedException", json.get("type"));
+                assertEquals("UCSBDate with id 3 has changed; its current ETag is \"2-684b64f6\"", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_412_when_if_match_is_not_a_version_tag() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+                first.setVersion(2);
+
+                when(ucsbDateRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                mockMvc.perform(
+                        put("/api/ucsbdates?id=3")
+                                .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isPreconditionFailed());
+
+                // assert
+                verify(ucsbDateRepository, times(1)).updateRowById(eq(3L), eq(ApiController.NO_VERSION), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_update_the_version_if_match_names_without_reading_it_back() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+                first.setVersion(2);
+
+                when(ucsbDateRepository.updateRowById(eq(3L), eq(2L), eq(first))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdates?id=3")
+                                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, never()).findById(any());
+                first.setVersion(3);
+                assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_update_any_version_with_if_match_star() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+                first.setVersion(2);
+
+                when(ucsbDateRepository.updateRowById(eq(3L), isNull(), eq(first))).thenReturn(1);
+                when(ucsbDateRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdates?id=3")
+                                .header(HttpHeaders.IF_MATCH, "*")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findById(3L);
+                assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_409_when_a_batch_row_changes_before_the_update_commits() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+                first.setVersion(2);
+
+                when(ucsbDateRepository.findAllById(eq(List.of(3L)))).thenReturn(List.of(first));
+                when(ucsbDateRepository.saveAll(any())).thenThrow(new ObjectOptimisticLockingFailureException(UCSBDate.class, 3L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdates/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(List.of(first)))
+                                .with(csrf()))
+                        .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_409_when_a_batch_row_was_read_at_an_older_version() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+                String staleRequestBody = mapper.writeValueAsString(List.of(first));
+                first.setVersion(2);
+
+                when(ucsbDateRepository.findAllById(eq(List.of(3L)))).thenReturn(List.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdates/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(staleRequestBody)
+                                .with(csrf()))
+                        .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, never()).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_all_from_the_cache_after_the_first_request() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+                when(ucsbDateRepository.findAll()).thenReturn(List.of(first));
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk());
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAll();
+                assertEquals(mapper.writeValueAsString(List.of(first)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_row_by_id_from_the_cache_after_the_first_request() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+                when(ucsbDateRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates?id=3")).andExpect(status().isOk());
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates?id=3"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findById(eq(3L));
+                assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_write_by_an_admin_evicts_the_cached_rows() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                        .id(3L)
+                        .quarterYYYYQ("20222")
+                        .name("date 3")
+                        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                        .build();
+                when(ucsbDateRepository.findAll()).thenReturn(List.of(first));
+                when(ucsbDateRepository.saveAll(any())).thenReturn(List.of());
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk());
+                mockMvc.perform(
+                        post("/api/ucsbdates/post/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content("[]")
+                                .with(csrf()))
+                        .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk());
+
+                // assert
+                verify(ucsbDateRepository, times(2)).findAll();
+        }
 }
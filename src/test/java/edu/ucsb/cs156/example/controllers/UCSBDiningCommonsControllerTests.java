@@ -22,13 +22,36 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import java.util.List;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import edu.ucsb.cs156.example.services.TableVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.junit.jupiter.api.AfterEach;
+import edu.ucsb.cs156.example.services.ReferenceDataCache;
+import edu.ucsb.cs156.example.services.DiningCommonsLocator;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import org.springframework.web.util.NestedServletException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
+import static org.mockito.ArgumentMatchers.isNull;
 
 @WebMvcTest(controllers = UCSBDiningCommonsController.class)
 @Import(TestConfig.class)
@@ -40,6 +63,27 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        ChangeLog changeLog;
+
+        @MockBean
+        DiningCommonsLocator diningCommonsLocator;
+
+        @Autowired
+        TableVersions tableVersions;
+
+        @Autowired
+        ReferenceDataCache referenceDataCache;
+
+        // cached rows would otherwise outlive the mocks of the test that loaded them
+        @AfterEach
+        public void clearReferenceDataCache() {
+                referenceDataCache.evict(UCSBDiningCommons.class);
+        }
+
         // Tests for GET /api/ucsbdiningcommons/all
 
         @Test
@@ -158,6 +202,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).save(ortega);
+                verify(changeLog, times(1)).saved(eq(UCSBDiningCommons.class), eq(List.of(ortega.getCode())));
                 String expectedJson = mapper.writeValueAsString(ortega);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -219,7 +264,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .longitude(-119.867427)
                                 .build();
 
-                when(ucsbDiningCommonsRepository.findById(eq("portola"))).thenReturn(Optional.of(portola));
+                when(ucsbDiningCommonsRepository.deleteRowById(eq("portola"))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -228,8 +273,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
-                verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRowById("portola");
+                verify(changeLog, times(1)).deleted(eq(UCSBDiningCommons.class), eq(List.of("portola")));
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -241,7 +286,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.deleteRowById(eq("munger-hall"))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -250,7 +295,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRowById("munger-hall");
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
         }
@@ -262,16 +307,6 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_commons() throws Exception {
                 // arrange
 
-                UCSBDiningCommons carrilloOrig = UCSBDiningCommons.builder()
-                                .name("Carrillo")
-                                .code("carrillo")
-                                .hasSackMeal(false)
-                                .hasTakeOutMeal(false)
-                                .hasDiningCam(true)
-                                .latitude(34.409953)
-                                .longitude(-119.85277)
-                                .build();
-
                 UCSBDiningCommons carrilloEdited = UCSBDiningCommons.builder()
                                 .name("Carrillo Dining Hall")
                                 .code("carrillo")
@@ -284,7 +319,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(carrilloEdited);
 
-                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(carrilloOrig));
+                when(ucsbDiningCommonsRepository.updateRowById(eq("carrillo"), isNull(), eq(carrilloEdited))).thenReturn(1);
+                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(carrilloEdited));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -297,7 +333,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
-                verify(ucsbDiningCommonsRepository, times(1)).save(carrilloEdited); // should be saved with updated info
+                verify(ucsbDiningCommonsRepository, times(1)).updateRowById(eq("carrillo"), isNull(), eq(carrilloEdited));
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -337,4 +373,880 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
 
         }
+
+        // Tests for GET /api/ucsbdiningcommons/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/page"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_full_page_with_a_cursor_to_the_next_one() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                UCSBDiningCommons second = UCSBDiningCommons.builder()
+                        .code("de-la-guerra")
+                        .name("de-la-guerra")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                List<UCSBDiningCommons> expected = Arrays.asList(first, second);
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThan(eq("a"), eq(PageRequest.of(0, 2, Sort.by("code"))))).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/page?limit=1&after=a"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findByCodeGreaterThan(eq("a"), eq(PageRequest.of(0, 2, Sort.by("code"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.<UCSBDiningCommons, String>builder().items(expected.subList(0, 1)).nextAfter("carrillo").build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_the_last_page_without_a_cursor() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                List<UCSBDiningCommons> expected = Arrays.asList(first);
+                when(ucsbDiningCommonsRepository.findByCodeGreaterThan(eq(""), eq(PageRequest.of(0, 101, Sort.by("code"))))).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/page"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findByCodeGreaterThan(eq(""), eq(PageRequest.of(0, 101, Sort.by("code"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.<UCSBDiningCommons, String>builder().items(expected).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for the /api/ucsbdiningcommons/.../batch endpoints
+
+        @Test
+        public void logged_out_users_cannot_use_batch_endpoints() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommons/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(put("/api/ucsbdiningcommons/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(delete("/api/ucsbdiningcommons/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_use_batch_endpoints() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommons/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(put("/api/ucsbdiningcommons/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(delete("/api/ucsbdiningcommons/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_post_a_batch() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                UCSBDiningCommons second = UCSBDiningCommons.builder()
+                        .code("de-la-guerra")
+                        .name("de-la-guerra")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                String requestBody = mapper.writeValueAsString(List.of(first, second));
+                when(ucsbDiningCommonsRepository.saveAll(eq(List.of(first, second)))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/ucsbdiningcommons/post/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).saveAll(eq(List.of(first, second)));
+                String expectedJson = mapper.writeValueAsString(List.of(first, second));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_cannot_post_a_batch_that_reuses_an_existing_code() throws Exception {
+                // arrange
+                UCSBDiningCommons existing = UCSBDiningCommons.builder()
+                        .code("ortega")
+                        .name("Ortega")
+                        .hasSackMeal(true)
+                        .hasTakeOutMeal(true)
+                        .hasDiningCam(true)
+                        .latitude(34.410987)
+                        .longitude(-119.84709)
+                        .build();
+
+                UCSBDiningCommons incoming = UCSBDiningCommons.builder()
+                        .code("ortega")
+                        .name("ortega")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(false)
+                        .latitude(0.0)
+                        .longitude(0.0)
+                        .build();
+
+                when(ucsbDiningCommonsRepository.findAllById(eq(List.of("ortega")))).thenReturn(List.of(existing));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/ucsbdiningcommons/post/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(List.of(incoming)))
+                                .with(csrf()))
+                        .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, never()).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("EntityAlreadyExistsException", json.get("type"));
+                assertEquals("UCSBDiningCommons with id ortega already exists", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_cannot_post_a_batch_that_repeats_a_code() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/ucsbdiningcommons/post/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(List.of(first, first)))
+                                .with(csrf()))
+                        .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, never()).findAllById(any());
+                verify(ucsbDiningCommonsRepository, never()).saveAll(any());
+                assertEquals("UCSBDiningCommons with id carrillo already exists", responseToJson(response).get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_update_a_batch() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                UCSBDiningCommons second = UCSBDiningCommons.builder()
+                        .code("de-la-guerra")
+                        .name("de-la-guerra")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                UCSBDiningCommons editedFirst = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+                editedFirst.setName("edited carrillo");
+
+                UCSBDiningCommons editedSecond = UCSBDiningCommons.builder()
+                        .code("de-la-guerra")
+                        .name("de-la-guerra")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+                editedSecond.setName("edited de-la-guerra");
+
+                // the database may return the rows in any order
+                when(ucsbDiningCommonsRepository.findAllById(eq(List.of("carrillo", "de-la-guerra")))).thenReturn(List.of(second, first));
+
+                String requestBody = mapper.writeValueAsString(List.of(editedFirst, editedSecond));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommons/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAllById(List.of("carrillo", "de-la-guerra"));
+                verify(ucsbDiningCommonsRepository, times(1)).saveAll(eq(List.of(editedFirst, editedSecond)));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(requestBody, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_update_a_batch_with_a_missing_row() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                UCSBDiningCommons second = UCSBDiningCommons.builder()
+                        .code("de-la-guerra")
+                        .name("de-la-guerra")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                when(ucsbDiningCommonsRepository.findAllById(eq(List.of("carrillo", "de-la-guerra")))).thenReturn(List.of(first));
+
+                String requestBody = mapper.writeValueAsString(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommons/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAllById(List.of("carrillo", "de-la-guerra"));
+                verify(ucsbDiningCommonsRepository, never()).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id de-la-guerra not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_delete_a_batch() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                UCSBDiningCommons second = UCSBDiningCommons.builder()
+                        .code("de-la-guerra")
+                        .name("de-la-guerra")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                when(ucsbDiningCommonsRepository.findAllById(eq(List.of("carrillo", "de-la-guerra")))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        delete("/api/ucsbdiningcommons/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[\"carrillo\",\"de-la-guerra\"]")
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAllById(List.of("carrillo", "de-la-guerra"));
+                verify(ucsbDiningCommonsRepository, times(1)).deleteAll(eq(List.of(first, second)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with codes [carrillo, de-la-guerra] deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_batch_with_a_missing_row() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                when(ucsbDiningCommonsRepository.findAllById(eq(List.of("carrillo", "de-la-guerra")))).thenReturn(List.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        delete("/api/ucsbdiningcommons/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[\"carrillo\",\"de-la-guerra\"]")
+                                .with(csrf()))
+                        .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, never()).deleteAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id de-la-guerra not found", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/export.ndjson
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/export.ndjson"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/export.ndjson"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_export_every_row_as_ndjson() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                UCSBDiningCommons second = UCSBDiningCommons.builder()
+                        .code("de-la-guerra")
+                        .name("de-la-guerra")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+
+                when(ucsbDiningCommonsRepository.streamAll()).thenReturn(Stream.of(first, second));
+                when(ndjsonExportService.export(any(), any())).thenAnswer(invocation -> {
+                    Supplier<Stream<UCSBDiningCommons>> rows = invocation.getArgument(0);
+                    OutputStream out = invocation.getArgument(1);
+                    for (UCSBDiningCommons row : rows.get().toList()) {
+                        out.write((mapper.writeValueAsString(row) + "\n").getBytes(StandardCharsets.UTF_8));
+                    }
+                    return 2L;
+                });
+
+                // act
+                MvcResult started = mockMvc.perform(get("/api/ucsbdiningcommons/export.ndjson"))
+                        .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                        .andExpect(status().isOk())
+                        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON)).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).streamAll();
+                String expected = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                assertEquals(expected, response.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs with If-None-Match
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_all_with_an_etag_and_a_304_while_it_still_matches() throws Exception {
+                // arrange
+                String etag = tableVersions.etag(UCSBDiningCommons.class);
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, etag))
+                        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                        .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_all_again_once_the_table_has_changed() throws Exception {
+                // arrange
+                String etag = tableVersions.etag(UCSBDiningCommons.class);
+                tableVersions.changed(UCSBDiningCommons.class);
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, tableVersions.etag(UCSBDiningCommons.class)));
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAll();
+        }
+
+        // Tests for row versions as ETags and If-Match on PUT /api/ucsbdiningcommons
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_304_by_id_while_the_version_still_matches() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+                first.setVersion(2);
+
+                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(first));
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, "\"2-5c474ab\""));
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo").header(HttpHeaders.IF_NONE_MATCH, "\"2-5c474ab\""))
+                        .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                // the second request is answered from the reference data cache
+                verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_412_when_if_match_names_an_old_version() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+                first.setVersion(2);
+
+                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommons?code=carrillo")
+                                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).updateRowById(eq("carrillo"), eq(1L), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("PreconditionFailedException", json.get("type"));
+                assertEquals("UCSBDiningCommons with id carrillo has changed; its current ETag is \"2-5c474ab\"", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_412_when_if_match_is_not_a_version_tag() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+                first.setVersion(2);
+
+                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(first));
+
+                // act
+                mockMvc.perform(
+                        put("/api/ucsbdiningcommons?code=carrillo")
+                                .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isPreconditionFailed());
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).updateRowById(eq("carrillo"), eq(ApiController.NO_VERSION), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_update_the_version_if_match_names_without_reading_it_back() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+                first.setVersion(2);
+
+                when(ucsbDiningCommonsRepository.updateRowById(eq("carrillo"), eq(2L), eq(first))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommons?code=carrillo")
+                                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, never()).findById(any());
+                first.setVersion(3);
+                assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_update_any_version_with_if_match_star() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+                first.setVersion(2);
+
+                when(ucsbDiningCommonsRepository.updateRowById(eq("carrillo"), isNull(), eq(first))).thenReturn(1);
+                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommons?code=carrillo")
+                                .header(HttpHeaders.IF_MATCH, "*")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
+                assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_409_when_a_batch_row_changes_before_the_update_commits() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+                first.setVersion(2);
+
+                when(ucsbDiningCommonsRepository.findAllById(eq(List.of("carrillo")))).thenReturn(List.of(first));
+                when(ucsbDiningCommonsRepository.saveAll(any())).thenThrow(new ObjectOptimisticLockingFailureException(UCSBDiningCommons.class, "carrillo"));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommons/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(List.of(first)))
+                                .with(csrf()))
+                        .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_409_when_a_batch_row_was_read_at_an_older_version() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+                String staleRequestBody = mapper.writeValueAsString(List.of(first));
+                first.setVersion(2);
+
+                when(ucsbDiningCommonsRepository.findAllById(eq(List.of("carrillo")))).thenReturn(List.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommons/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(staleRequestBody)
+                                .with(csrf()))
+                        .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, never()).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_all_from_the_cache_after_the_first_request() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+                when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(first));
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk());
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAll();
+                assertEquals(mapper.writeValueAsString(List.of(first)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_row_by_id_from_the_cache_after_the_first_request() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(first));
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo")).andExpect(status().isOk());
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findById(eq("carrillo"));
+                assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_write_by_an_admin_evicts_the_cached_rows() throws Exception {
+                // arrange
+                UCSBDiningCommons first = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+                when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(first));
+                when(ucsbDiningCommonsRepository.saveAll(any())).thenReturn(List.of());
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk());
+                mockMvc.perform(
+                        post("/api/ucsbdiningcommons/post/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content("[]")
+                                .with(csrf()))
+                        .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk());
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(2)).findAll();
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/nearest
+
+        @Test
+        public void logged_out_users_cannot_get_the_nearest_commons() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_the_nearest_commons_nearest_first() throws Exception {
+                // arrange
+                UCSBDiningCommons ortega = UCSBDiningCommons.builder()
+                        .code("ortega")
+                        .name("Ortega")
+                        .hasSackMeal(true)
+                        .hasTakeOutMeal(true)
+                        .hasDiningCam(true)
+                        .latitude(34.410987)
+                        .longitude(-119.84709)
+                        .build();
+                UCSBDiningCommons carrillo = UCSBDiningCommons.builder()
+                        .code("carrillo")
+                        .name("Carrillo")
+                        .hasSackMeal(false)
+                        .hasTakeOutMeal(false)
+                        .hasDiningCam(true)
+                        .latitude(34.409953)
+                        .longitude(-119.85277)
+                        .build();
+                List<NearbyDiningCommons> nearest = List.of(
+                        NearbyDiningCommons.builder().diningCommons(ortega).distanceMeters(12.5).build(),
+                        NearbyDiningCommons.builder().diningCommons(carrillo).distanceMeters(530.25).build());
+                when(diningCommonsLocator.nearest(eq(34.411), eq(-119.847), eq(3))).thenReturn(nearest);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.411&lon=-119.847"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(diningCommonsLocator, times(1)).nearest(34.411, -119.847, 3);
+                verify(ucsbDiningCommonsRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(nearest), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_400_for_a_location_off_the_map() throws Exception {
+                // arrange
+                when(diningCommonsLocator.nearest(eq(91.0), eq(0.0), eq(1)))
+                        .thenThrow(new BadRequestException("latitude must be in [-90, 90] and longitude in [-180, 180], not 91.0, 0.0"));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=91&lon=0&k=1"))
+                        .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+                assertEquals("latitude must be in [-90, 90] and longitude in [-180, 180], not 91.0, 0.0", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void an_illegal_argument_from_a_bug_is_not_reported_as_a_bad_request() throws Exception {
+                // arrange
+                when(diningCommonsLocator.nearest(eq(0.0), eq(0.0), eq(1)))
+                        .thenThrow(new IllegalArgumentException("Target object must not be null"));
+
+                // act and assert
+                NestedServletException e = assertThrows(NestedServletException.class,
+                        () -> mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=0&lon=0&k=1")));
+                assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+        }
 }
@@ -24,6 +24,27 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import java.util.List;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import edu.ucsb.cs156.example.services.AutocompleteIndex;
+import org.springframework.transaction.PlatformTransactionManager;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import edu.ucsb.cs156.example.models.BulkImportChunk;
+import edu.ucsb.cs156.example.models.BulkImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.TableVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import edu.ucsb.cs156.example.services.MenuItemLeaderboard;
+import edu.ucsb.cs156.example.models.RankedMenuItem;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -31,9 +52,11 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
+import static org.mockito.ArgumentMatchers.isNull;
 
 @WebMvcTest(controllers = UCSBDiningCommonsMenuItemController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, BulkImportService.class })
 
 public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase {
 
@@ -43,6 +66,24 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        NdjsonExportService ndjsonExportService;
+
+        @MockBean
+        ChangeLog changeLog;
+
+        @MockBean
+        AutocompleteIndex autocompleteIndex;
+
+        @MockBean
+        PlatformTransactionManager transactionManager;
+
+        @MockBean
+        MenuItemLeaderboard menuItemLeaderboard;
+
+        @Autowired
+        TableVersions tableVersions;
+
         // Tests for GET /api/ucsbdates/all
         
         @Test
@@ -129,6 +170,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
                 // assert
                 verify(menuItemRepository, times(1)).save(menuItem1);
+                verify(changeLog, times(1)).saved(eq(UCSBDiningCommonsMenuItem.class), eq(List.of(menuItem1.getId())));
                 String expectedJson = mapper.writeValueAsString(menuItem1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -195,13 +237,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
         public void admin_can_delete_a_menu_item() throws Exception {
                 // arrange
 
-                UCSBDiningCommonsMenuItem menuItem1 = UCSBDiningCommonsMenuItem.builder()
-                    .name("Tofu Banh Mi Sandwich (v)")
-                    .diningCommonsCode("ortega")
-                    .station("Entree Special")
-                    .build();
-
-                when(menuItemRepository.findById(eq(15L))).thenReturn(Optional.of(menuItem1));
+                when(menuItemRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -210,8 +246,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(menuItemRepository, times(1)).findById(15L);
-                verify(menuItemRepository, times(1)).delete(any());
+                verify(menuItemRepository, times(1)).deleteRowById(15L);
+                verify(changeLog, times(1)).deleted(eq(UCSBDiningCommonsMenuItem.class), eq(List.of(15L)));
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("menu item with id 15 deleted", json.get("message"));
@@ -223,7 +259,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                         throws Exception {
                 // arrange
 
-                when(menuItemRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(menuItemRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -232,7 +268,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemRepository, times(1)).findById(15L);
+                verify(menuItemRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 15 not found", json.get("message"));
         }
@@ -244,12 +280,6 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
         public void admin_can_edit_an_existing_ucsbdate() throws Exception {
                 // arrange
 
-                UCSBDiningCommonsMenuItem menuItem1 = UCSBDiningCommonsMenuItem.builder()
-                    .name("Tofu Banh Mi Sandwich (v)")
-                    .diningCommonsCode("ortega")
-                    .station("Entree Special")
-                    .build();
-
                 UCSBDiningCommonsMenuItem menuItem2 = UCSBDiningCommonsMenuItem.builder()
                     .name("Cream of Broccoli Soup (v)")
                     .diningCommonsCode("portola")
@@ -257,8 +287,10 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                     .build();
 
                 String requestBody = mapper.writeValueAsString(menuItem2);
+                menuItem2.setId(67L);
 
-                when(menuItemRepository.findById(eq(67L))).thenReturn(Optional.of(menuItem1));
+                when(menuItemRepository.updateRowById(eq(67L), isNull(), eq(menuItem2))).thenReturn(1);
+                when(menuItemRepository.findById(eq(67L))).thenReturn(Optional.of(menuItem2));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -271,9 +303,9 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
                 // assert
                 verify(menuItemRepository, times(1)).findById(67L);
-                verify(menuItemRepository, times(1)).save(menuItem2); // should be saved with correct user
+                verify(menuItemRepository, times(1)).updateRowById(eq(67L), isNull(), eq(menuItem2));
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(menuItem2), responseString);
         }
 
         
@@ -307,4 +339,798 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
         }
 
-}
\ No newline at end of file
+        // Tests for GET /api/ucsbdiningcommonsmenuitem/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_full_page_with_a_cursor_to_the_next_one() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+
+                UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder()
+                        .id(4L)
+                        .diningCommonsCode("ortega")
+                        .name("item 4")
+                        .station("Entrees")
+                        .build();
+
+                List<UCSBDiningCommonsMenuItem> expected = Arrays.asList(first, second);
+                when(menuItemRepository.findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))))).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page?limit=1&after=2"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemRepository, times(1)).findByIdGreaterThan(eq(2L), eq(PageRequest.of(0, 2, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.<UCSBDiningCommonsMenuItem, Long>builder().items(expected.subList(0, 1)).nextAfter(3L).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_the_last_page_without_a_cursor() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+
+                List<UCSBDiningCommonsMenuItem> expected = Arrays.asList(first);
+                when(menuItemRepository.findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 101, Sort.by("id"))))).thenReturn(expected);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemRepository, times(1)).findByIdGreaterThan(eq(0L), eq(PageRequest.of(0, 101, Sort.by("id"))));
+                String expectedJson = mapper.writeValueAsString(KeysetPage.<UCSBDiningCommonsMenuItem, Long>builder().items(expected).build());
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for the /api/ucsbdiningcommonsmenuitem/.../batch endpoints
+
+        @Test
+        public void logged_out_users_cannot_use_batch_endpoints() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(put("/api/ucsbdiningcommonsmenuitem/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(delete("/api/ucsbdiningcommonsmenuitem/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_use_batch_endpoints() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(put("/api/ucsbdiningcommonsmenuitem/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+                mockMvc.perform(delete("/api/ucsbdiningcommonsmenuitem/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_post_a_batch() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+
+                UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder()
+                        .id(4L)
+                        .diningCommonsCode("ortega")
+                        .name("item 4")
+                        .station("Entrees")
+                        .build();
+
+                String requestBody = mapper.writeValueAsString(List.of(first, second));
+                first.setId(0);
+                second.setId(0);
+                when(menuItemRepository.saveAll(eq(List.of(first, second)))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/ucsbdiningcommonsmenuitem/post/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemRepository, times(1)).saveAll(eq(List.of(first, second)));
+                String expectedJson = mapper.writeValueAsString(List.of(first, second));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_update_a_batch() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+
+                UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder()
+                        .id(4L)
+                        .diningCommonsCode("ortega")
+                        .name("item 4")
+                        .station("Entrees")
+                        .build();
+
+                UCSBDiningCommonsMenuItem editedFirst = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+                editedFirst.setName("edited 3");
+
+                UCSBDiningCommonsMenuItem editedSecond = UCSBDiningCommonsMenuItem.builder()
+                        .id(4L)
+                        .diningCommonsCode("ortega")
+                        .name("item 4")
+                        .station("Entrees")
+                        .build();
+                editedSecond.setName("edited 4");
+
+                // the database may return the rows in any order
+                when(menuItemRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(second, first));
+
+                String requestBody = mapper.writeValueAsString(List.of(editedFirst, editedSecond));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommonsmenuitem/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemRepository, times(1)).findAllById(List.of(3L, 4L));
+                verify(menuItemRepository, times(1)).saveAll(eq(List.of(editedFirst, editedSecond)));
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(requestBody, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_update_a_batch_with_a_missing_row() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+
+                UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder()
+                        .id(4L)
+                        .diningCommonsCode("ortega")
+                        .name("item 4")
+                        .station("Entrees")
+                        .build();
+
+                when(menuItemRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first));
+
+                String requestBody = mapper.writeValueAsString(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommonsmenuitem/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(requestBody)
+                                .with(csrf()))
+                        .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(menuItemRepository, times(1)).findAllById(List.of(3L, 4L));
+                verify(menuItemRepository, never()).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommonsMenuItem with id 4 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_delete_a_batch() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+
+                UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder()
+                        .id(4L)
+                        .diningCommonsCode("ortega")
+                        .name("item 4")
+                        .station("Entrees")
+                        .build();
+
+                when(menuItemRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        delete("/api/ucsbdiningcommonsmenuitem/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[3,4]")
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemRepository, times(1)).findAllById(List.of(3L, 4L));
+                verify(menuItemRepository, times(1)).deleteAll(eq(List.of(first, second)));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommonsMenuItems with ids [3, 4] deleted", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_batch_with_a_missing_row() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+
+                when(menuItemRepository.findAllById(eq(List.of(3L, 4L)))).thenReturn(List.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        delete("/api/ucsbdiningcommonsmenuitem/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[3,4]")
+                                .with(csrf()))
+                        .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(menuItemRepository, never()).deleteAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommonsMenuItem with id 4 not found", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbdiningcommonsmenuitem/export.ndjson
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/export.ndjson"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/export.ndjson"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_export_every_row_as_ndjson() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+
+                UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder()
+                        .id(4L)
+                        .diningCommonsCode("ortega")
+                        .name("item 4")
+                        .station("Entrees")
+                        .build();
+
+                when(menuItemRepository.streamAll()).thenReturn(Stream.of(first, second));
+                when(ndjsonExportService.export(any(), any())).thenAnswer(invocation -> {
+                    Supplier<Stream<UCSBDiningCommonsMenuItem>> rows = invocation.getArgument(0);
+                    OutputStream out = invocation.getArgument(1);
+                    for (UCSBDiningCommonsMenuItem row : rows.get().toList()) {
+                        out.write((mapper.writeValueAsString(row) + "\n").getBytes(StandardCharsets.UTF_8));
+                    }
+                    return 2L;
+                });
+
+                // act
+                MvcResult started = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/export.ndjson"))
+                        .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                        .andExpect(status().isOk())
+                        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON)).andReturn();
+
+                // assert
+                verify(menuItemRepository, times(1)).streamAll();
+                String expected = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+                assertEquals(expected, response.getResponse().getContentAsString());
+        }
+
+        // Tests for POST /api/ucsbdiningcommonsmenuitem/import
+
+        @Test
+        public void logged_out_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/import").contentType("text/csv").content("").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/import").contentType("text/csv").content("").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_csv_in_chunks() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .diningCommonsCode("ortega")
+                        .name("Baked Pesto Pasta with Chicken")
+                        .station("Entree Specials")
+                        .build();
+
+                UCSBDiningCommonsMenuItem second = UCSBDiningCommonsMenuItem.builder()
+                        .diningCommonsCode("ortega")
+                        .name("Tofu Banh Mi Sandwich (v)")
+                        .station("Entree Specials")
+                        .build();
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/ucsbdiningcommonsmenuitem/import?chunkSize=1")
+                                .contentType("text/csv")
+                                .content("diningCommonsCode,name,station\nortega,Baked Pesto Pasta with Chicken,Entree Specials\nortega,Tofu Banh Mi Sandwich (v),Entree Specials\n")
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemRepository, times(1)).saveAll(eq(List.of(first)));
+                verify(menuItemRepository, times(1)).saveAll(eq(List.of(second)));
+                verify(changeLog, times(2)).saved(eq(UCSBDiningCommonsMenuItem.class), any());
+                BulkImportReport expected = BulkImportReport.builder()
+                        .rows(2)
+                        .imported(2)
+                        .rejected(0)
+                        .chunks(List.of(
+                                BulkImportChunk.builder().chunk(1).firstRow(1).lastRow(1).imported(1).errors(List.of()).build(),
+                                BulkImportChunk.builder().chunk(2).firstRow(2).lastRow(2).imported(1).errors(List.of()).build()))
+                        .build();
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_gets_the_rows_an_ndjson_import_rejected() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .diningCommonsCode("ortega")
+                        .name("Baked Pesto Pasta with Chicken")
+                        .station("Entree Specials")
+                        .build();
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/ucsbdiningcommonsmenuitem/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{\"id\":7,\"diningCommonsCode\":\"ortega\",\"name\":\"Baked Pesto Pasta with Chicken\",\"station\":\"Entree Specials\"}\n{\"diningCommonsCode\":\"ortega\",\"name\":\"No Station\"}\n")
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemRepository, times(1)).saveAll(eq(List.of(first)));
+                BulkImportReport expected = BulkImportReport.builder()
+                        .rows(2)
+                        .imported(1)
+                        .rejected(1)
+                        .chunks(List.of(
+                                BulkImportChunk.builder().chunk(1).firstRow(1).lastRow(2).imported(1).errors(List.of("row 2: station is required")).build()))
+                        .build();
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        // Tests for conditional GETs with If-None-Match
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_all_with_an_etag_and_a_304_while_it_still_matches() throws Exception {
+                // arrange
+                String etag = tableVersions.etag(UCSBDiningCommonsMenuItem.class);
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, etag))
+                        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                        .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(menuItemRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_all_again_once_the_table_has_changed() throws Exception {
+                // arrange
+                String etag = tableVersions.etag(UCSBDiningCommonsMenuItem.class);
+                tableVersions.changed(UCSBDiningCommonsMenuItem.class);
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, tableVersions.etag(UCSBDiningCommonsMenuItem.class)));
+
+                // assert
+                verify(menuItemRepository, times(1)).findAll();
+        }
+
+        // Tests for row versions as ETags and If-Match on PUT /api/ucsbdiningcommonsmenuitem
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_304_by_id_while_the_version_still_matches() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+                first.setVersion(2);
+
+                when(menuItemRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem?id=3"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, "\"2-cb8a0390\""));
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem?id=3").header(HttpHeaders.IF_NONE_MATCH, "\"2-cb8a0390\""))
+                        .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(menuItemRepository, times(2)).findById(3L);
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_412_when_if_match_names_an_old_version() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+                first.setVersion(2);
+
+                when(menuItemRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommonsmenuitem?id=3")
+                                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(menuItemRepository, times(1)).updateRowById(eq(3L), eq(1L), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("PreconditionFailedException", json.get("type"));
+                assertEquals("UCSBDiningCommonsMenuItem with id 3 has changed; its current ETag is \"2-cb8a0390\"", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_412_when_if_match_is_not_a_version_tag() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+                first.setVersion(2);
+
+                when(menuItemRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                mockMvc.perform(
+                        put("/api/ucsbdiningcommonsmenuitem?id=3")
+                                .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isPreconditionFailed());
+
+                // assert
+                verify(menuItemRepository, times(1)).updateRowById(eq(3L), eq(ApiController.NO_VERSION), any());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_update_the_version_if_match_names_without_reading_it_back() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+                first.setVersion(2);
+
+                when(menuItemRepository.updateRowById(eq(3L), eq(2L), eq(first))).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommonsmenuitem?id=3")
+                                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemRepository, never()).findById(any());
+                first.setVersion(3);
+                assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_update_any_version_with_if_match_star() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+                first.setVersion(2);
+
+                when(menuItemRepository.updateRowById(eq(3L), isNull(), eq(first))).thenReturn(1);
+                when(menuItemRepository.findById(eq(3L))).thenReturn(Optional.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommonsmenuitem?id=3")
+                                .header(HttpHeaders.IF_MATCH, "*")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(first))
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemRepository, times(1)).findById(3L);
+                assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_409_when_a_batch_row_changes_before_the_update_commits() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+                first.setVersion(2);
+
+                when(menuItemRepository.findAllById(eq(List.of(3L)))).thenReturn(List.of(first));
+                when(menuItemRepository.saveAll(any())).thenThrow(new ObjectOptimisticLockingFailureException(UCSBDiningCommonsMenuItem.class, 3L));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommonsmenuitem/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(List.of(first)))
+                                .with(csrf()))
+                        .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_409_when_a_batch_row_was_read_at_an_older_version() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem first = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .diningCommonsCode("ortega")
+                        .name("item 3")
+                        .station("Entrees")
+                        .build();
+                String staleRequestBody = mapper.writeValueAsString(List.of(first));
+                first.setVersion(2);
+
+                when(menuItemRepository.findAllById(eq(List.of(3L)))).thenReturn(List.of(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommonsmenuitem/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(staleRequestBody)
+                                .with(csrf()))
+                        .andExpect(status().isConflict()).andReturn();
+
+                // assert
+                verify(menuItemRepository, never()).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+        }
+
+        // Tests for GET /api/ucsbdiningcommonsmenuitem/leaderboard
+
+        @Test
+        public void logged_out_users_cannot_get_the_leaderboard() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/leaderboard"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_the_top_items_of_every_commons() throws Exception {
+                // arrange
+                RankedMenuItem tofu = RankedMenuItem.builder()
+                        .diningCommonsCode("ortega")
+                        .itemId(3L)
+                        .name("Tofu")
+                        .station("Entrees")
+                        .reviews(2)
+                        .averageStars(4.5)
+                        .build();
+                Map<String, List<RankedMenuItem>> top = Map.of("ortega", List.of(tofu));
+
+                when(menuItemLeaderboard.snapshot()).thenReturn(new MenuItemLeaderboard.Snapshot("\"MenuItemLeaderboard-x-1\"", top));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/leaderboard"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string(HttpHeaders.ETAG, "\"MenuItemLeaderboard-x-1\""))
+                        .andReturn();
+
+                // assert
+                verify(menuItemLeaderboard, times(1)).snapshot();
+                assertEquals(mapper.writeValueAsString(top), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_the_top_n_items_of_one_commons() throws Exception {
+                // arrange
+                RankedMenuItem tofu = RankedMenuItem.builder()
+                        .diningCommonsCode("ortega")
+                        .itemId(3L)
+                        .name("Tofu")
+                        .station("Entrees")
+                        .reviews(2)
+                        .averageStars(4.5)
+                        .build();
+                RankedMenuItem rice = RankedMenuItem.builder()
+                        .diningCommonsCode("carrillo")
+                        .itemId(4L)
+                        .name("Rice")
+                        .station("Sides")
+                        .reviews(1)
+                        .averageStars(3)
+                        .build();
+
+                when(menuItemLeaderboard.snapshot()).thenReturn(new MenuItemLeaderboard.Snapshot("\"MenuItemLeaderboard-x-1\"",
+                        Map.of("ortega", List.of(tofu), "carrillo", List.of(rice))));
+
+                // act
+                MvcResult ortega = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/leaderboard?n=3&diningCommonsCode=ortega"))
+                        .andExpect(status().isOk()).andReturn();
+                MvcResult portola = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/leaderboard?n=3&diningCommonsCode=portola"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(Map.of("ortega", List.of(tofu))), ortega.getResponse().getContentAsString());
+                assertEquals("{\"portola\":[]}", portola.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_304_while_the_leaderboard_is_unchanged() throws Exception {
+                // arrange
+                when(menuItemLeaderboard.snapshot()).thenReturn(new MenuItemLeaderboard.Snapshot("\"MenuItemLeaderboard-x-1\"", Map.of()));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/leaderboard")
+                                .header(HttpHeaders.IF_NONE_MATCH, "\"MenuItemLeaderboard-x-1\""))
+                        .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(menuItemLeaderboard, times(1)).snapshot();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/ucsbdiningcommonsmenuitem/autocomplete
+
+        @Test
+        public void logged_out_users_cannot_autocomplete() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/autocomplete?prefix=pesto"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_the_menu_items_matching_a_prefix() throws Exception {
+                // arrange
+                UCSBDiningCommonsMenuItem pasta = UCSBDiningCommonsMenuItem.builder()
+                        .id(3L)
+                        .name("Baked Pesto Pasta with Chicken")
+                        .diningCommonsCode("ortega")
+                        .station("Entree Specials")
+                        .build();
+                when(autocompleteIndex.menuItems(eq("pesto"), eq(10))).thenReturn(List.of(pasta));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/autocomplete?prefix=pesto"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(autocompleteIndex, times(1)).menuItems("pesto", 10);
+                assertEquals(mapper.writeValueAsString(List.of(pasta)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_ask_for_fewer_menu_items() throws Exception {
+                // arrange
+                when(autocompleteIndex.menuItems(eq("pe"), eq(3))).thenReturn(List.of());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/autocomplete?prefix=pe&limit=3"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(autocompleteIndex, times(1)).menuItems("pe", 3);
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+}
@@ -22,16 +22,40 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import java.util.List;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import edu.ucsb.cs156.example.services.ChangeLog;
+import edu.ucsb.cs156.example.services.AutocompleteIndex;
+import org.springframework.transaction.PlatformTransactionManager;
+import edu.ucsb.cs156.example.services.NdjsonExportService;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import edu.ucsb.cs156.example.models.BulkImportChunk;
+import edu.ucsb.cs156.example.models.BulkImportReport;
+import edu.ucsb.cs156.example.services.BulkImportService;
+import edu.ucsb.cs156.example.services.TableVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.junit.jupiter.api.AfterEach;
+import edu.ucsb.cs156.example.services.ReferenceDataCache;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
+import static org.mockito.ArgumentMatchers.isNull;
 
 @WebMvcTest(controllers = UCSBOrganizationController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, BulkImportService.class })
 public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
     @MockBean
@@ -39,6 +63,30 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
     @MockBean
     UserRepository userRepository;
+
+    @MockBean
+    NdjsonExportService ndjsonExportService;
+
+    @MockBean
+    ChangeLog changeLog;
+
+    @MockBean
+    AutocompleteIndex autocompleteIndex;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    TableVersions tableVersions;
+
+    @Autowired
+    ReferenceDataCache referenceDataCache;
+
+    // cached rows would otherwise outlive the mocks of the test that loaded them
+    @AfterEach
+    public void clearReferenceDataCache() {
+        referenceDataCache.evict(UCSBOrganization.class);
+    }
     
     // Tests for GET /api/ucsbdiningcommons/all
 
@@ -153,6 +201,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbOrganizationRepository, times(1)).save(OSLI);
+                verify(changeLog, times(1)).saved(eq(UCSBOrganization.class), eq(List.of(OSLI.getOrgCode())));
                 String expectedJson = mapper.writeValueAsString(OSLI);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -201,7 +250,6 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_date() throws Exception {
                 // arrange
 
-
                 UCSBOrganization ZPR = UCSBOrganization.builder()
                                 .orgCode("ZPR")
                                 .orgTranslationShort("ZETA PHI RHO")
@@ -210,7 +258,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .build();
 
 
-                when(ucsbOrganizationRepository.findById(eq("ZPR"))).thenReturn(Optional.of(ZPR));
+                when(ucsbOrganizationRepository.deleteRowById(eq("ZPR"))).thenReturn(1);
 
 
                 // act
@@ -221,8 +269,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
 
                 // assert
-                verify(ucsbOrganizationRepository, times(1)).findById("ZPR");
-                verify(ucsbOrganizationRepository, times(1)).delete(any());
+                verify(ucsbOrganizationRepository, times(1)).deleteRowById("ZPR");
+                verify(changeLog, times(1)).deleted(eq(UCSBOrganization.class), eq(List.of("ZPR")));
 
 
                 Map<String, Object> json = responseToJson(response);
@@ -237,7 +285,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 // arrange
 
 
-                when(ucsbOrganizationRepository.findById(eq("SKY"))).thenReturn(Optional.empty());
+                when(ucsbOrganizationRepository.deleteRowById(eq("SKY"))).thenReturn(0);
 
 
                 // act
@@ -248,7 +296,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
 
                 // assert
-                verify(ucsbOrganizationRepository, times(1)).findById("SKY");
+                verify(ucsbOrganizationRepository, times(1)).deleteRowById("SKY");
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBOrganization with id SKY not found", json.get("message"));
         }
@@ -260,13 +308,6 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_organization() throws Exception {
                 // arrange
 
-                UCSBOrganization ZPRbefore = UCSBOrganization.builder()
-                                .orgCode("ZPR")
-                                .orgTranslationShort("ZETA PHI RHO")
-                                .orgTranslation("ZETA PHI RHO")
-                                .inactive(false)
-                                .build();
-
                 UCSBOrganization ZPRafter = UCSBOrganization.builder()
                                 .orgCode("ZPR Org")
                                 .orgTranslationShort("ZETA PHI RHO ORG")
@@ -275,8 +316,11 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .build();
 
                 String requestBody = mapper.writeValueAsString(ZPRafter);
+                // the code in the URL wins, so a PUT cannot rename an organization
+                ZPRafter.setOrgCode("ZPR");
 
-                when(ucsbOrganizationRepository.findById(eq("ZPR"))).thenReturn(Optional.of(ZPRbefore));
+                when(ucsbOrganizationRepository.updateRowById(eq("ZPR"), isNull(), eq(ZPRafter))).thenReturn(1);
+                when(ucsbOrganizationRepository.findById(eq("ZPR"))).thenReturn(Optional.of(ZPRafter));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -289,9 +333,9 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbOrganizationRepository, times(1)).findById("ZPR");
-                verify(ucsbOrganizationRepository, times(1)).save(ZPRafter); // should be saved with updated info
+                verify(ucsbOrganizationRepository, times(1)).updateRowById(eq("ZPR"), isNull(), eq(ZPRafter));
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(ZPRafter), responseString);
         }
 
  
@@ -327,4 +371,1010 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
         }
 
+    // Tests for GET /api/ucsborganization/page
+
+    @Test
+    public void logged_out_users_cannot_get_page() throws Exception {
+        mockMvc.perform(get("/api/ucsborganization/page"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_full_page_with_a_cursor_to_the_next_one() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+
+        UCSBOrganization second = UCSBOrganization.builder()
+                .orgCode("OSLI")
+                .orgTranslationShort("OSLI")
+                .orgTranslation("OSLI")
+                .inactive(false)
+                .build();
+
+        List<UCSBOrganization> expected = Arrays.asList(first, second);
+        when(ucsbOrganizationRepository.findByOrgCodeGreaterThan(eq("a"), eq(PageRequest.of(0, 2, Sort.by("orgCode"))))).thenReturn(expected);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/ucsborganization/page?limit=1&after=a"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).findByOrgCodeGreaterThan(eq("a"), eq(PageRequest.of(0, 2, Sort.by("orgCode"))));
+        String expectedJson = mapper.writeValueAsString(KeysetPage.<UCSBOrganization, String>builder().items(expected.subList(0, 1)).nextAfter("KRC").build());
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_the_last_page_without_a_cursor() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+
+        List<UCSBOrganization> expected = Arrays.asList(first);
+        when(ucsbOrganizationRepository.findByOrgCodeGreaterThan(eq(""), eq(PageRequest.of(0, 101, Sort.by("orgCode"))))).thenReturn(expected);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/ucsborganization/page"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).findByOrgCodeGreaterThan(eq(""), eq(PageRequest.of(0, 101, Sort.by("orgCode"))));
+        String expectedJson = mapper.writeValueAsString(KeysetPage.<UCSBOrganization, String>builder().items(expected).build());
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    // Tests for the /api/ucsborganization/.../batch endpoints
+
+    @Test
+    public void logged_out_users_cannot_use_batch_endpoints() throws Exception {
+        mockMvc.perform(post("/api/ucsborganization/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                .andExpect(status().is(403));
+        mockMvc.perform(put("/api/ucsborganization/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                .andExpect(status().is(403));
+        mockMvc.perform(delete("/api/ucsborganization/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_use_batch_endpoints() throws Exception {
+        mockMvc.perform(post("/api/ucsborganization/post/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                .andExpect(status().is(403));
+        mockMvc.perform(put("/api/ucsborganization/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                .andExpect(status().is(403));
+        mockMvc.perform(delete("/api/ucsborganization/batch").contentType(MediaType.APPLICATION_JSON).content("[]").with(csrf()))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_post_a_batch() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+
+        UCSBOrganization second = UCSBOrganization.builder()
+                .orgCode("OSLI")
+                .orgTranslationShort("OSLI")
+                .orgTranslation("OSLI")
+                .inactive(false)
+                .build();
+
+        String requestBody = mapper.writeValueAsString(List.of(first, second));
+        when(ucsbOrganizationRepository.saveAll(eq(List.of(first, second)))).thenReturn(List.of(first, second));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                post("/api/ucsborganization/post/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(requestBody)
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).saveAll(eq(List.of(first, second)));
+        String expectedJson = mapper.writeValueAsString(List.of(first, second));
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_cannot_post_a_batch_that_reuses_an_existing_org_code() throws Exception {
+        // arrange
+        UCSBOrganization existing = UCSBOrganization.builder()
+                .orgCode("OSLI")
+                .orgTranslationShort("OSLI")
+                .orgTranslation("OSLI")
+                .inactive(false)
+                .build();
+
+        UCSBOrganization incoming = UCSBOrganization.builder()
+                .orgCode("OSLI")
+                .orgTranslationShort("STUDENT LIFE")
+                .orgTranslation("OFFICE OF STUDENT LIFE")
+                .inactive(true)
+                .build();
+
+        UCSBOrganization other = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+
+        when(ucsbOrganizationRepository.findAllById(eq(List.of("KRC", "OSLI")))).thenReturn(List.of(existing));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                post("/api/ucsborganization/post/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(List.of(other, incoming)))
+                        .with(csrf()))
+                .andExpect(status().isConflict()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, never()).saveAll(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("EntityAlreadyExistsException", json.get("type"));
+        assertEquals("UCSBOrganization with id OSLI already exists", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_cannot_post_a_batch_that_repeats_an_org_code() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+
+        // act
+        MvcResult response = mockMvc.perform(
+                post("/api/ucsborganization/post/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(List.of(first, first)))
+                        .with(csrf()))
+                .andExpect(status().isConflict()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, never()).findAllById(any());
+        verify(ucsbOrganizationRepository, never()).saveAll(any());
+        assertEquals("UCSBOrganization with id KRC already exists", responseToJson(response).get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_update_a_batch() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+
+        UCSBOrganization second = UCSBOrganization.builder()
+                .orgCode("OSLI")
+                .orgTranslationShort("OSLI")
+                .orgTranslation("OSLI")
+                .inactive(false)
+                .build();
+
+        UCSBOrganization editedFirst = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+        editedFirst.setOrgTranslation("edited KRC");
+
+        UCSBOrganization editedSecond = UCSBOrganization.builder()
+                .orgCode("OSLI")
+                .orgTranslationShort("OSLI")
+                .orgTranslation("OSLI")
+                .inactive(false)
+                .build();
+        editedSecond.setOrgTranslation("edited OSLI");
+
+        // the database may return the rows in any order
+        when(ucsbOrganizationRepository.findAllById(eq(List.of("KRC", "OSLI")))).thenReturn(List.of(second, first));
+
+        String requestBody = mapper.writeValueAsString(List.of(editedFirst, editedSecond));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsborganization/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(requestBody)
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).findAllById(List.of("KRC", "OSLI"));
+        verify(ucsbOrganizationRepository, times(1)).saveAll(eq(List.of(editedFirst, editedSecond)));
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(requestBody, responseString);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_update_a_batch_with_a_missing_row() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+
+        UCSBOrganization second = UCSBOrganization.builder()
+                .orgCode("OSLI")
+                .orgTranslationShort("OSLI")
+                .orgTranslation("OSLI")
+                .inactive(false)
+                .build();
+
+        when(ucsbOrganizationRepository.findAllById(eq(List.of("KRC", "OSLI")))).thenReturn(List.of(first));
+
+        String requestBody = mapper.writeValueAsString(List.of(first, second));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsborganization/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(requestBody)
+                        .with(csrf()))
+                .andExpect(status().isNotFound()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).findAllById(List.of("KRC", "OSLI"));
+        verify(ucsbOrganizationRepository, never()).saveAll(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("UCSBOrganization with id OSLI not found", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_delete_a_batch() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+
+        UCSBOrganization second = UCSBOrganization.builder()
+                .orgCode("OSLI")
+                .orgTranslationShort("OSLI")
+                .orgTranslation("OSLI")
+                .inactive(false)
+                .build();
+
+        when(ucsbOrganizationRepository.findAllById(eq(List.of("KRC", "OSLI")))).thenReturn(List.of(first, second));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                delete("/api/ucsborganization/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"KRC\",\"OSLI\"]")
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).findAllById(List.of("KRC", "OSLI"));
+        verify(ucsbOrganizationRepository, times(1)).deleteAll(eq(List.of(first, second)));
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("UCSBOrganizations with orgCodes [KRC, OSLI] deleted", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_delete_a_batch_with_a_missing_row() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+
+        when(ucsbOrganizationRepository.findAllById(eq(List.of("KRC", "OSLI")))).thenReturn(List.of(first));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                delete("/api/ucsborganization/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"KRC\",\"OSLI\"]")
+                        .with(csrf()))
+                .andExpect(status().isNotFound()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, never()).deleteAll(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("UCSBOrganization with id OSLI not found", json.get("message"));
+    }
+
+    // Tests for GET /api/ucsborganization/export.ndjson
+
+    @Test
+    public void logged_out_users_cannot_export() throws Exception {
+        mockMvc.perform(get("/api/ucsborganization/export.ndjson"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_export() throws Exception {
+        mockMvc.perform(get("/api/ucsborganization/export.ndjson"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_export_every_row_as_ndjson() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+
+        UCSBOrganization second = UCSBOrganization.builder()
+                .orgCode("OSLI")
+                .orgTranslationShort("OSLI")
+                .orgTranslation("OSLI")
+                .inactive(false)
+                .build();
+
+        when(ucsbOrganizationRepository.streamAll()).thenReturn(Stream.of(first, second));
+        when(ndjsonExportService.export(any(), any())).thenAnswer(invocation -> {
+            Supplier<Stream<UCSBOrganization>> rows = invocation.getArgument(0);
+            OutputStream out = invocation.getArgument(1);
+            for (UCSBOrganization row : rows.get().toList()) {
+                out.write((mapper.writeValueAsString(row) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            return 2L;
+        });
+
+        // act
+        MvcResult started = mockMvc.perform(get("/api/ucsborganization/export.ndjson"))
+                .andExpect(request().asyncStarted()).andReturn();
+        MvcResult response = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON)).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).streamAll();
+        String expected = mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n";
+        assertEquals(expected, response.getResponse().getContentAsString());
+    }
+
+    // Tests for POST /api/ucsborganization/import
+
+    @Test
+    public void logged_out_users_cannot_import() throws Exception {
+        mockMvc.perform(post("/api/ucsborganization/import").contentType("text/csv").content("").with(csrf()))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_import() throws Exception {
+        mockMvc.perform(post("/api/ucsborganization/import").contentType("text/csv").content("").with(csrf()))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_import_csv_in_chunks() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("ZPR")
+                .orgTranslationShort("ZETA PHI RHO")
+                .orgTranslation("ZETA PHI RHO")
+                .inactive(false)
+                .build();
+
+        UCSBOrganization second = UCSBOrganization.builder()
+                .orgCode("SKY")
+                .orgTranslationShort("SKYDIVING CLUB")
+                .orgTranslation("SKYDIVING CLUB AT UCSB")
+                .inactive(true)
+                .build();
+
+        // act
+        MvcResult response = mockMvc.perform(
+                post("/api/ucsborganization/import?chunkSize=1")
+                        .contentType("text/csv")
+                        .content("orgCode,orgTranslationShort,orgTranslation,inactive\nZPR,ZETA PHI RHO,ZETA PHI RHO,false\nSKY,SKYDIVING CLUB,SKYDIVING CLUB AT UCSB,true\n")
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).saveAll(eq(List.of(first)));
+        verify(ucsbOrganizationRepository, times(1)).saveAll(eq(List.of(second)));
+        verify(changeLog, times(2)).saved(eq(UCSBOrganization.class), any());
+        BulkImportReport expected = BulkImportReport.builder()
+                .rows(2)
+                .imported(2)
+                .rejected(0)
+                .chunks(List.of(
+                        BulkImportChunk.builder().chunk(1).firstRow(1).lastRow(1).imported(1).errors(List.of()).build(),
+                        BulkImportChunk.builder().chunk(2).firstRow(2).lastRow(2).imported(1).errors(List.of()).build()))
+                .build();
+        assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_import_reports_organizations_that_already_exist_instead_of_overwriting_them() throws Exception {
+        // arrange
+        UCSBOrganization existing = UCSBOrganization.builder()
+                .orgCode("ZPR")
+                .orgTranslationShort("ZETA PHI RHO")
+                .orgTranslation("ZETA PHI RHO")
+                .inactive(false)
+                .version(3)
+                .build();
+
+        UCSBOrganization sky = UCSBOrganization.builder()
+                .orgCode("SKY")
+                .orgTranslationShort("SKYDIVING CLUB")
+                .orgTranslation("SKYDIVING CLUB AT UCSB")
+                .inactive(true)
+                .build();
+
+        when(ucsbOrganizationRepository.findAllById(eq(List.of("ZPR", "SKY", "SKY")))).thenReturn(List.of(existing));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                post("/api/ucsborganization/import")
+                        .contentType("text/csv")
+                        .content("orgCode,orgTranslationShort,orgTranslation,inactive\nZPR,ZETA PHI RHO 2,ZETA PHI RHO 2,false\nSKY,SKYDIVING CLUB,SKYDIVING CLUB AT UCSB,true\nSKY,SKYDIVING CLUB,SKYDIVING CLUB AT UCSB,true\n")
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).saveAll(eq(List.of(sky)));
+        BulkImportReport expected = BulkImportReport.builder()
+                .rows(3)
+                .imported(1)
+                .rejected(2)
+                .chunks(List.of(
+                        BulkImportChunk.builder().chunk(1).firstRow(1).lastRow(3).imported(1).errors(List.of(
+                                "row 1: UCSBOrganization with id ZPR already exists",
+                                "row 3: UCSBOrganization with id SKY appears more than once")).build()))
+                .build();
+        assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_gets_the_rows_an_ndjson_import_rejected() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("ZPR")
+                .orgTranslationShort("ZETA PHI RHO")
+                .orgTranslation("ZETA PHI RHO")
+                .inactive(false)
+                .build();
+
+        // act
+        MvcResult response = mockMvc.perform(
+                post("/api/ucsborganization/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"orgCode\":\"ZPR\",\"orgTranslationShort\":\"ZETA PHI RHO\",\"orgTranslation\":\"ZETA PHI RHO\",\"inactive\":false}\n{\"orgCode\":\"OSLI\"}\n")
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).saveAll(eq(List.of(first)));
+        BulkImportReport expected = BulkImportReport.builder()
+                .rows(2)
+                .imported(1)
+                .rejected(1)
+                .chunks(List.of(
+                        BulkImportChunk.builder().chunk(1).firstRow(1).lastRow(2).imported(1).errors(List.of("row 2: orgTranslationShort is required")).build()))
+                .build();
+        assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+    }
+
+    // Tests for conditional GETs with If-None-Match
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_all_with_an_etag_and_a_304_while_it_still_matches() throws Exception {
+        // arrange
+        String etag = tableVersions.etag(UCSBOrganization.class);
+
+        // act
+        mockMvc.perform(get("/api/ucsborganization/all"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"));
+        MvcResult response = mockMvc.perform(get("/api/ucsborganization/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).findAll();
+        assertEquals("", response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_all_again_once_the_table_has_changed() throws Exception {
+        // arrange
+        String etag = tableVersions.etag(UCSBOrganization.class);
+        tableVersions.changed(UCSBOrganization.class);
+
+        // act
+        mockMvc.perform(get("/api/ucsborganization/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, tableVersions.etag(UCSBOrganization.class)));
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).findAll();
+    }
+
+    // Tests for row versions as ETags and If-Match on PUT /api/ucsborganization
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_304_by_id_while_the_version_still_matches() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+        first.setVersion(2);
+
+        when(ucsbOrganizationRepository.findById(eq("KRC"))).thenReturn(Optional.of(first));
+
+        // act
+        mockMvc.perform(get("/api/ucsborganization?orgCode=KRC"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-80755cce\""));
+        MvcResult response = mockMvc.perform(get("/api/ucsborganization?orgCode=KRC").header(HttpHeaders.IF_NONE_MATCH, "\"2-80755cce\""))
+                .andExpect(status().isNotModified()).andReturn();
+
+        // assert
+        // the second request is answered from the reference data cache
+        verify(ucsbOrganizationRepository, times(1)).findById("KRC");
+        assertEquals("", response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_gets_412_when_if_match_names_an_old_version() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+        first.setVersion(2);
+
+        when(ucsbOrganizationRepository.findById(eq("KRC"))).thenReturn(Optional.of(first));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsborganization?orgCode=KRC")
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(first))
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).updateRowById(eq("KRC"), eq(1L), any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("PreconditionFailedException", json.get("type"));
+        assertEquals("UCSBOrganization with id KRC has changed; its current ETag is \"2-80755cce\"", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_gets_412_when_if_match_is_not_a_version_tag() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+        first.setVersion(2);
+
+        when(ucsbOrganizationRepository.findById(eq("KRC"))).thenReturn(Optional.of(first));
+
+        // act
+        mockMvc.perform(
+                put("/api/ucsborganization?orgCode=KRC")
+                        .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(first))
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed());
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).updateRowById(eq("KRC"), eq(ApiController.NO_VERSION), any());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_update_the_version_if_match_names_without_reading_it_back() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+        first.setVersion(2);
+
+        when(ucsbOrganizationRepository.updateRowById(eq("KRC"), eq(2L), eq(first))).thenReturn(1);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsborganization?orgCode=KRC")
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(first))
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, never()).findById(any());
+        first.setVersion(3);
+        assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+        assertEquals("\"3-" + Integer.toHexString(first.hashCode()) + "\"", response.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void an_organization_created_again_at_the_same_version_gets_a_new_etag() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+        first.setVersion(2);
+        UCSBOrganization again = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KOREAN RADIO CL")
+                .orgTranslation("KOREAN RADIO CLUB")
+                .inactive(false)
+                .build();
+        again.setVersion(2);
+
+        when(ucsbOrganizationRepository.findById(eq("KRC"))).thenReturn(Optional.of(first), Optional.of(again));
+
+        // act
+        String etag = mockMvc.perform(get("/api/ucsborganization?orgCode=KRC"))
+                .andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        referenceDataCache.evict(UCSBOrganization.class);
+        MvcResult response = mockMvc.perform(get("/api/ucsborganization?orgCode=KRC").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        assertNotEquals(etag, response.getResponse().getHeader(HttpHeaders.ETAG));
+        assertEquals(mapper.writeValueAsString(again), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_gets_412_when_if_match_names_an_organization_since_created_again() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+        first.setVersion(2);
+        UCSBOrganization again = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KOREAN RADIO CL")
+                .orgTranslation("KOREAN RADIO CLUB")
+                .inactive(false)
+                .build();
+        again.setVersion(2);
+        String etag = "\"2-" + Integer.toHexString(first.hashCode()) + "\"";
+
+        when(ucsbOrganizationRepository.findById(eq("KRC"))).thenReturn(Optional.of(again));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsborganization?orgCode=KRC")
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(first))
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, never()).updateRowById(any(), any(), any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("UCSBOrganization with id KRC has changed; its current ETag is \"2-%s\"".formatted(Integer.toHexString(again.hashCode())),
+                json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_update_with_the_etag_the_organization_still_has() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+        first.setVersion(2);
+        String etag = "\"2-" + Integer.toHexString(first.hashCode()) + "\"";
+        UCSBOrganization edited = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KOREAN RADIO CL")
+                .orgTranslation("KOREAN RADIO CLUB")
+                .inactive(false)
+                .build();
+        edited.setVersion(2);
+
+        when(ucsbOrganizationRepository.findById(eq("KRC"))).thenReturn(Optional.of(first));
+        when(ucsbOrganizationRepository.updateRowById(eq("KRC"), eq(2L), eq(edited))).thenReturn(1);
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsborganization?orgCode=KRC")
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(edited))
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).updateRowById(eq("KRC"), eq(2L), any());
+        edited.setVersion(3);
+        assertEquals(mapper.writeValueAsString(edited), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_update_any_version_with_if_match_star() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+        first.setVersion(2);
+
+        when(ucsbOrganizationRepository.updateRowById(eq("KRC"), isNull(), eq(first))).thenReturn(1);
+        when(ucsbOrganizationRepository.findById(eq("KRC"))).thenReturn(Optional.of(first));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsborganization?orgCode=KRC")
+                        .header(HttpHeaders.IF_MATCH, "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(first))
+                        .with(csrf()))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).findById("KRC");
+        assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_gets_409_when_a_batch_row_changes_before_the_update_commits() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+        first.setVersion(2);
+
+        when(ucsbOrganizationRepository.findAllById(eq(List.of("KRC")))).thenReturn(List.of(first));
+        when(ucsbOrganizationRepository.saveAll(any())).thenThrow(new ObjectOptimisticLockingFailureException(UCSBOrganization.class, "KRC"));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsborganization/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(List.of(first)))
+                        .with(csrf()))
+                .andExpect(status().isConflict()).andReturn();
+
+        // assert
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_gets_409_when_a_batch_row_was_read_at_an_older_version() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+        String staleRequestBody = mapper.writeValueAsString(List.of(first));
+        first.setVersion(2);
+
+        when(ucsbOrganizationRepository.findAllById(eq(List.of("KRC")))).thenReturn(List.of(first));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/ucsborganization/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(staleRequestBody)
+                        .with(csrf()))
+                .andExpect(status().isConflict()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, never()).saveAll(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("ObjectOptimisticLockingFailureException", json.get("type"));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_all_from_the_cache_after_the_first_request() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+        when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(first));
+
+        // act
+        mockMvc.perform(get("/api/ucsborganization/all")).andExpect(status().isOk());
+        MvcResult response = mockMvc.perform(get("/api/ucsborganization/all"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).findAll();
+        assertEquals(mapper.writeValueAsString(List.of(first)), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_row_by_id_from_the_cache_after_the_first_request() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+        when(ucsbOrganizationRepository.findById(eq("KRC"))).thenReturn(Optional.of(first));
+
+        // act
+        mockMvc.perform(get("/api/ucsborganization?orgCode=KRC")).andExpect(status().isOk());
+        MvcResult response = mockMvc.perform(get("/api/ucsborganization?orgCode=KRC"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).findById(eq("KRC"));
+        assertEquals(mapper.writeValueAsString(first), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void a_write_by_an_admin_evicts_the_cached_rows() throws Exception {
+        // arrange
+        UCSBOrganization first = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KRC")
+                .orgTranslation("KRC")
+                .inactive(false)
+                .build();
+        when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(first));
+        when(ucsbOrganizationRepository.saveAll(any())).thenReturn(List.of());
+
+        // act
+        mockMvc.perform(get("/api/ucsborganization/all")).andExpect(status().isOk());
+        mockMvc.perform(
+                post("/api/ucsborganization/post/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content("[]")
+                        .with(csrf()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/ucsborganization/all")).andExpect(status().isOk());
+
+        // assert
+        verify(ucsbOrganizationRepository, times(2)).findAll();
+    }
+
+    // Tests for GET /api/ucsborganization/autocomplete
+
+    @Test
+    public void logged_out_users_cannot_autocomplete() throws Exception {
+        mockMvc.perform(get("/api/ucsborganization/autocomplete?prefix=kor"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_the_organizations_matching_a_prefix() throws Exception {
+        // arrange
+        UCSBOrganization krc = UCSBOrganization.builder()
+                .orgCode("KRC")
+                .orgTranslationShort("KOREAN RADIO CL")
+                .orgTranslation("KOREAN RADIO CLUB")
+                .inactive(false)
+                .build();
+        when(autocompleteIndex.organizations(eq("kor"), eq(10))).thenReturn(List.of(krc));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/ucsborganization/autocomplete?prefix=kor"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(autocompleteIndex, times(1)).organizations("kor", 10);
+        assertEquals(mapper.writeValueAsString(List.of(krc)), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_ask_for_fewer_organizations() throws Exception {
+        // arrange
+        when(autocompleteIndex.organizations(eq("ko"), eq(3))).thenReturn(List.of());
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/ucsborganization/autocomplete?prefix=ko&limit=3"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(autocompleteIndex, times(1)).organizations("ko", 3);
+        assertEquals("[]", response.getResponse().getContentAsString());
+    }
 }
@@ -0,0 +1,126 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.HelpRequestFilter;
+
+@DataJpaTest
+class HelpRequestFilterRepositoryTests {
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @BeforeEach
+  void setUp() {
+    helpRequestRepository.saveAll(List.of(
+        request("a", "f23-6pm-3", "2022-01-03T10:00:00", false),
+        request("b", "f23-6pm-4", "2022-01-03T11:00:00", false),
+        request("c", "f23-6pm-3", "2022-01-03T12:00:00", true),
+        request("d", "f23-6pm-3", "2022-01-04T09:00:00", false),
+        request("e", "f23-6pm-4", "2022-01-04T09:00:00", false)));
+  }
+
+  private static HelpRequest request(String explanation, String teamId, String requestTime, boolean solved) {
+    return HelpRequest.builder()
+        .requesterEmail("cgaucho@ucsb.edu")
+        .teamId(teamId)
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse(requestTime))
+        .explanation(explanation)
+        .solved(solved)
+        .build();
+  }
+
+  private List<String> explanations(HelpRequestFilter filter, int limit) {
+    return helpRequestRepository.findFiltered(filter, limit).stream()
+        .map(HelpRequest::getExplanation)
+        .toList();
+  }
+
+  @Test
+  void no_filter_lists_every_request_oldest_first() {
+    assertEquals(List.of("a", "b", "c", "d", "e"), explanations(HelpRequestFilter.builder().build(), 10));
+  }
+
+  @Test
+  void unsolved_queue_is_oldest_first_and_stops_at_the_limit() {
+    HelpRequestFilter queue = HelpRequestFilter.builder().solved(false).build();
+
+    assertEquals(List.of("a", "b"), explanations(queue, 2));
+  }
+
+  @Test
+  void team_and_time_window_include_since_and_exclude_until() {
+    HelpRequestFilter filter = HelpRequestFilter.builder()
+        .teamId("f23-6pm-3")
+        .since(LocalDateTime.parse("2022-01-03T10:00:00"))
+        .until(LocalDateTime.parse("2022-01-04T09:00:00"))
+        .build();
+
+    assertEquals(List.of("a", "c"), explanations(filter, 10));
+  }
+
+  @Test
+  void newest_first_reverses_the_order() {
+    HelpRequestFilter filter = HelpRequestFilter.builder()
+        .solved(false)
+        .teamId("f23-6pm-3")
+        .newestFirst(true)
+        .build();
+
+    assertEquals(List.of("d", "a"), explanations(filter, 10));
+  }
+
+  @Test
+  void a_cursor_resumes_after_its_request_time_and_id() {
+    HelpRequestFilter firstPage = HelpRequestFilter.builder().solved(false).build();
+    HelpRequest last = helpRequestRepository.findFiltered(firstPage, 3).get(2);
+
+    HelpRequestFilter nextPage = HelpRequestFilter.builder()
+        .solved(false)
+        .afterRequestTime(last.getRequestTime())
+        .afterId(last.getId())
+        .build();
+
+    assertEquals("d", last.getExplanation());
+    assertEquals(List.of("e"), explanations(nextPage, 3));
+  }
+
+  @Test
+  void a_newest_first_cursor_resumes_before_its_request_time_and_id() {
+    HelpRequestFilter firstPage = HelpRequestFilter.builder().newestFirst(true).build();
+    HelpRequest last = helpRequestRepository.findFiltered(firstPage, 1).get(0);
+
+    HelpRequestFilter nextPage = HelpRequestFilter.builder()
+        .newestFirst(true)
+        .afterRequestTime(last.getRequestTime())
+        .afterId(last.getId())
+        .build();
+
+    assertEquals("e", last.getExplanation());
+    assertEquals(List.of("d", "c", "b", "a"), explanations(nextPage, 10));
+  }
+
+  @Test
+  void requests_without_a_request_time_are_left_out_so_every_cursor_has_one() {
+    HelpRequest undated = request("undated", "f23-6pm-3", "2022-01-03T10:00:00", false);
+    undated.setRequestTime(null);
+    helpRequestRepository.save(undated);
+
+    List<HelpRequest> oldest = helpRequestRepository.findFiltered(HelpRequestFilter.builder().build(), 1);
+    List<HelpRequest> newest = helpRequestRepository.findFiltered(HelpRequestFilter.builder().newestFirst(true).build(), 1);
+
+    assertEquals("a", oldest.get(0).getExplanation());
+    assertEquals("e", newest.get(0).getExplanation());
+    assertEquals(List.of("a", "b", "c", "d", "e"), explanations(HelpRequestFilter.builder().build(), 10));
+  }
+}
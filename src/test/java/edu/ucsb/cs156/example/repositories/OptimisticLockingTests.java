@@ -0,0 +1,107 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+
+// Each save commits on its own, as it does behind the controllers, so the
+// copies read here are detached just like rows a client read earlier.
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OptimisticLockingTests {
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @AfterEach
+  void tearDown() {
+    ucsbOrganizationRepository.deleteAll();
+  }
+
+  private UCSBOrganization organization() {
+    return ucsbOrganizationRepository.save(UCSBOrganization.builder()
+        .orgCode("KRC")
+        .orgTranslationShort("KOREAN RADIO CL")
+        .orgTranslation("KOREAN RADIO CLUB")
+        .inactive(false)
+        .build());
+  }
+
+  @Test
+  void each_update_bumps_the_version() {
+    UCSBOrganization saved = organization();
+    assertEquals(0, saved.getVersion());
+
+    saved.setInactive(true);
+    saved = ucsbOrganizationRepository.save(saved);
+
+    assertEquals(1, saved.getVersion());
+    assertEquals(1, ucsbOrganizationRepository.findById("KRC").get().getVersion());
+  }
+
+  @Test
+  void saving_a_copy_read_before_someone_else_updated_the_row_fails() {
+    organization();
+    UCSBOrganization mine = ucsbOrganizationRepository.findById("KRC").get();
+    UCSBOrganization theirs = ucsbOrganizationRepository.findById("KRC").get();
+
+    theirs.setOrgTranslationShort("KRC");
+    ucsbOrganizationRepository.save(theirs);
+    mine.setInactive(true);
+
+    assertThrows(ObjectOptimisticLockingFailureException.class, () -> ucsbOrganizationRepository.save(mine));
+    UCSBOrganization current = ucsbOrganizationRepository.findById("KRC").get();
+    assertEquals("KRC", current.getOrgTranslationShort());
+    assertEquals(false, current.getInactive());
+  }
+
+  @Test
+  void updateRowById_writes_the_row_and_bumps_the_version_in_one_statement() {
+    organization();
+    UCSBOrganization incoming = UCSBOrganization.builder()
+        .orgTranslationShort("KRC")
+        .orgTranslation("KOREAN RADIO")
+        .inactive(true)
+        .build();
+
+    assertEquals(1, ucsbOrganizationRepository.updateRowById("KRC", null, incoming));
+    assertEquals(1, ucsbOrganizationRepository.updateRowById("KRC", 1L, incoming));
+
+    UCSBOrganization current = ucsbOrganizationRepository.findById("KRC").get();
+    assertEquals(2, current.getVersion());
+    assertEquals("KOREAN RADIO", current.getOrgTranslation());
+    assertEquals(true, current.getInactive());
+  }
+
+  @Test
+  void updateRowById_changes_nothing_when_the_version_has_moved_on_or_the_row_is_gone() {
+    organization();
+    UCSBOrganization incoming = UCSBOrganization.builder()
+        .orgTranslationShort("KRC")
+        .orgTranslation("KOREAN RADIO")
+        .build();
+
+    assertEquals(0, ucsbOrganizationRepository.updateRowById("KRC", 3L, incoming));
+    assertEquals(0, ucsbOrganizationRepository.updateRowById("OSLI", null, incoming));
+    assertEquals("KOREAN RADIO CLUB", ucsbOrganizationRepository.findById("KRC").get().getOrgTranslation());
+  }
+
+  @Test
+  void deleteRowById_returns_the_number_of_rows_deleted() {
+    organization();
+
+    assertEquals(1, ucsbOrganizationRepository.deleteRowById("KRC"));
+    assertEquals(0, ucsbOrganizationRepository.deleteRowById("KRC"));
+    assertEquals(false, ucsbOrganizationRepository.existsById("KRC"));
+  }
+}
@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+// Runs the lookups behind the derived queries through H2's EXPLAIN
+// and checks that each one is answered from an index, not a table scan.
+
+@DataJpaTest
+class RepositoryIndexTests {
+
+  @Autowired
+  EntityManager entityManager;
+
+  private String plan(String sql) {
+    return entityManager.createNativeQuery("EXPLAIN " + sql).getSingleResult().toString().toLowerCase();
+  }
+
+  private void assertUsesIndex(String index, String sql) {
+    String plan = plan(sql);
+    assertTrue(plan.contains(index), "expected %s to use %s but plan was: %s".formatted(sql, index, plan));
+  }
+
+  @Test
+  void findByEmail_uses_index() {
+    assertUsesIndex("users_email_idx",
+        "SELECT * FROM users WHERE email = 'cgaucho@ucsb.edu'");
+  }
+
+  @Test
+  void findAllByQuarterYYYYQ_uses_index() {
+    assertUsesIndex("ucsbdates_quarteryyyyq_idx",
+        "SELECT * FROM ucsbdates WHERE quarteryyyyq = '20224'");
+  }
+
+  @Test
+  void findAllByDiningCommonsCode_uses_index() {
+    assertUsesIndex("ucsbdiningcommonsmenuitem_dining_commons_code_idx",
+        "SELECT * FROM ucsbdiningcommonsmenuitem WHERE dining_commons_code = 'ortega'");
+  }
+
+  @Test
+  void findAllByItemId_uses_index() {
+    assertUsesIndex("menuitemreview_item_id_idx",
+        "SELECT * FROM menuitemreview WHERE item_id = 7");
+  }
+
+  @Test
+  void helprequest_findAllByRequesterEmail_uses_index() {
+    assertUsesIndex("helprequest_requester_email_idx",
+        "SELECT * FROM helprequest WHERE requester_email = 'cgaucho@ucsb.edu'");
+  }
+
+  @Test
+  void helprequest_unsolved_queue_uses_index() {
+    assertUsesIndex("helprequest_solved_request_time_idx",
+        "SELECT * FROM helprequest WHERE solved = FALSE"
+            + " AND request_time >= TIMESTAMP '2022-01-03 00:00:00' ORDER BY request_time, id");
+  }
+
+  @Test
+  void helprequest_team_filter_uses_index() {
+    assertUsesIndex("helprequest_team_id_solved_request_time_idx",
+        "SELECT * FROM helprequest WHERE team_id = 's22-5pm-3'"
+            + " AND request_time < TIMESTAMP '2022-01-04 00:00:00'");
+  }
+
+  @Test
+  void recommendationrequests_findAllByRequesterEmail_uses_index() {
+    assertUsesIndex("recommendationrequests_requester_email_idx",
+        "SELECT * FROM recommendationrequests WHERE requester_email = 'cgaucho@ucsb.edu'");
+  }
+}
@@ -0,0 +1,139 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.util.Streamable;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.entities.User;
+
+// Counts the SQL statements Hibernate actually sends. Each repository call
+// runs in its own transaction and session, as it does behind the
+// controllers, so only the second-level and query caches can save a trip.
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTests {
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  UserRepository userRepository;
+
+  Statistics statistics;
+
+  @BeforeEach
+  void setUp() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    entityManagerFactory.getCache().evictAll();
+  }
+
+  @AfterEach
+  void tearDown() {
+    ucsbDiningCommonsRepository.deleteAll();
+    ucsbOrganizationRepository.deleteAll();
+    ucsbDiningCommonsMenuItemRepository.deleteAll();
+    ucsbDateRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  private long statementsRunBy(Supplier<?> work) {
+    statistics.clear();
+    work.get();
+    return statistics.getPrepareStatementCount();
+  }
+
+  private void assertOnlyTheFirstReadQueries(Supplier<?> read) {
+    entityManagerFactory.getCache().evictAll();
+    assertEquals(1, statementsRunBy(read));
+    assertEquals(0, statementsRunBy(read));
+  }
+
+  private static UCSBDate date(String name) {
+    return UCSBDate.builder()
+        .quarterYYYYQ("20224")
+        .name(name)
+        .localDateTime(LocalDateTime.parse("2022-09-22T00:00:00"))
+        .build();
+  }
+
+  private static UCSBDiningCommonsMenuItem menuItem(String name) {
+    return UCSBDiningCommonsMenuItem.builder()
+        .diningCommonsCode("ortega")
+        .name(name)
+        .station("Entrees")
+        .build();
+  }
+
+  @Test
+  void reference_rows_and_users_are_read_by_id_from_the_database_once() {
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").name("Ortega").build());
+    ucsbOrganizationRepository.save(UCSBOrganization.builder().orgCode("KRC").orgTranslationShort("KRC").build());
+    long menuItemId = ucsbDiningCommonsMenuItemRepository.save(menuItem("Tofu")).getId();
+    long dateId = ucsbDateRepository.save(date("first")).getId();
+    long userId = userRepository.save(User.builder().email("cgaucho@ucsb.edu").build()).getId();
+
+    assertOnlyTheFirstReadQueries(() -> ucsbDiningCommonsRepository.findById("ortega").get());
+    assertOnlyTheFirstReadQueries(() -> ucsbOrganizationRepository.findById("KRC").get());
+    assertOnlyTheFirstReadQueries(() -> ucsbDiningCommonsMenuItemRepository.findById(menuItemId).get());
+    assertOnlyTheFirstReadQueries(() -> ucsbDateRepository.findById(dateId).get());
+    assertOnlyTheFirstReadQueries(() -> userRepository.findById(userId).get());
+  }
+
+  @Test
+  void cached_finders_run_their_query_once_until_the_table_is_written() {
+    ucsbDateRepository.saveAll(List.of(date("first"), date("second")));
+    ucsbDiningCommonsMenuItemRepository.saveAll(List.of(menuItem("Tofu"), menuItem("Rice")));
+
+    assertOnlyTheFirstReadQueries(() -> ucsbDateRepository.findAllByQuarterYYYYQ("20224"));
+    assertOnlyTheFirstReadQueries(() -> ucsbDiningCommonsMenuItemRepository.findAllByDiningCommonsCode("ortega"));
+
+    ucsbDateRepository.save(date("third"));
+    assertEquals(1, statementsRunBy(() -> ucsbDateRepository.findAllByQuarterYYYYQ("20224")));
+    assertEquals(3, Streamable.of(ucsbDateRepository.findAllByQuarterYYYYQ("20224")).toList().size());
+    assertEquals(0, statementsRunBy(() -> ucsbDiningCommonsMenuItemRepository.findAllByDiningCommonsCode("ortega")));
+  }
+
+  @Test
+  void a_single_statement_update_evicts_the_cached_row() {
+    ucsbOrganizationRepository.save(UCSBOrganization.builder().orgCode("KRC").orgTranslationShort("KRC").build());
+    assertOnlyTheFirstReadQueries(() -> ucsbOrganizationRepository.findById("KRC").get());
+
+    ucsbOrganizationRepository.updateRowById("KRC", null,
+        UCSBOrganization.builder().orgTranslationShort("KOREAN RADIO CL").build());
+
+    assertEquals(1, statementsRunBy(() -> ucsbOrganizationRepository.findById("KRC").get()));
+    assertEquals("KOREAN RADIO CL", ucsbOrganizationRepository.findById("KRC").get().getOrgTranslationShort());
+  }
+}
@@ -0,0 +1,128 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.models.ArticleSummary;
+import edu.ucsb.cs156.example.models.MenuItemReviewSummary;
+import edu.ucsb.cs156.example.models.RecommendationRequestSummary;
+
+// Records the SQL Hibernate sends, to check the summaries select only
+// their own columns rather than whole rows.
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+    + "edu.ucsb.cs156.example.repositories.SummaryProjectionTests$RecordingInspector")
+class SummaryProjectionTests {
+
+  public static class RecordingInspector implements StatementInspector {
+    static final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+      statements.add(sql.toLowerCase());
+      return sql;
+    }
+  }
+
+  @Autowired
+  ArticleRepository articleRepository;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @BeforeEach
+  void setUp() {
+    RecordingInspector.statements.clear();
+  }
+
+  private static String onlySelect() {
+    List<String> selects = RecordingInspector.statements.stream().filter(sql -> sql.startsWith("select")).toList();
+    assertEquals(1, selects.size(), selects.toString());
+    return selects.get(0);
+  }
+
+  @Test
+  void article_summaries_leave_out_the_explanation() {
+    Article second = articleRepository.save(Article.builder()
+        .title("second").url("https://example.org/2").explanation("long explanation").email("b@ucsb.edu")
+        .dateAdded(LocalDateTime.parse("2022-01-04T00:00:00")).build());
+    Article first = articleRepository.save(Article.builder()
+        .title("first").url("https://example.org/1").explanation("long explanation").email("a@ucsb.edu")
+        .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00")).build());
+    RecordingInspector.statements.clear();
+
+    List<ArticleSummary> summaries = articleRepository.findSummariesBy(Sort.by(Sort.Direction.DESC, "id"));
+
+    String sql = onlySelect();
+    assertTrue(sql.contains("title"), sql);
+    assertFalse(sql.contains("explanation"), sql);
+    assertEquals(List.of(first.getId(), second.getId()), summaries.stream().map(ArticleSummary::getId).toList());
+    ArticleSummary summary = summaries.get(1);
+    assertEquals("second", summary.getTitle());
+    assertEquals("https://example.org/2", summary.getUrl());
+    assertEquals("b@ucsb.edu", summary.getEmail());
+    assertEquals(LocalDateTime.parse("2022-01-04T00:00:00"), summary.getDateAdded());
+  }
+
+  @Test
+  void menu_item_review_summaries_leave_out_the_comments() {
+    MenuItemReview review = menuItemReviewRepository.save(MenuItemReview.builder()
+        .itemId(7).reviewerEmail("cgaucho@ucsb.edu").stars(4)
+        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00")).comments("long comments").build());
+    RecordingInspector.statements.clear();
+
+    List<MenuItemReviewSummary> summaries = menuItemReviewRepository.findSummariesBy(Sort.by("id"));
+
+    String sql = onlySelect();
+    assertTrue(sql.contains("stars"), sql);
+    assertFalse(sql.contains("comments"), sql);
+    assertEquals(1, summaries.size());
+    MenuItemReviewSummary summary = summaries.get(0);
+    assertEquals(review.getId(), summary.getId());
+    assertEquals(7, summary.getItemId());
+    assertEquals("cgaucho@ucsb.edu", summary.getReviewerEmail());
+    assertEquals(4, summary.getStars());
+    assertEquals(LocalDateTime.parse("2022-01-03T00:00:00"), summary.getDateReviewed());
+  }
+
+  @Test
+  void recommendation_request_summaries_leave_out_the_explanation() {
+    RecommendationRequest request = recommendationRequestRepository.save(RecommendationRequest.builder()
+        .requesterEmail("cgaucho@ucsb.edu").professorEmail("phtcon@ucsb.edu").explanation("long explanation")
+        .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00")).done(true).build());
+    RecordingInspector.statements.clear();
+
+    List<RecommendationRequestSummary> summaries = recommendationRequestRepository.findSummariesBy(Sort.by("id"));
+
+    String sql = onlySelect();
+    assertTrue(sql.contains("professor_email"), sql);
+    assertFalse(sql.contains("explanation"), sql);
+    assertEquals(1, summaries.size());
+    RecommendationRequestSummary summary = summaries.get(0);
+    assertEquals(request.getId(), summary.getId());
+    assertEquals("cgaucho@ucsb.edu", summary.getRequesterEmail());
+    assertEquals("phtcon@ucsb.edu", summary.getProfessorEmail());
+    assertEquals(LocalDateTime.parse("2022-01-03T00:00:00"), summary.getDateRequested());
+    assertEquals(LocalDateTime.parse("2022-02-03T00:00:00"), summary.getDateNeeded());
+    assertEquals(true, summary.getDone());
+  }
+}
@@ -0,0 +1,75 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+class AdminStatusServiceTests {
+
+  private final UserRepository userRepository = mock(UserRepository.class);
+
+  private AdminStatusService adminStatusService;
+
+  @BeforeEach
+  void setUp() {
+    adminStatusService = new AdminStatusService();
+    adminStatusService.userRepository = userRepository;
+    ReflectionTestUtils.setField(adminStatusService, "configuredAdminEmails", List.of("phtcon@ucsb.edu"));
+    ReflectionTestUtils.setField(adminStatusService, "cacheMaximumSize", 100L);
+    ReflectionTestUtils.setField(adminStatusService, "cacheTtlSeconds", 300L);
+    adminStatusService.build();
+  }
+
+  @Test
+  void configured_admins_are_admins_without_a_lookup() {
+    assertTrue(adminStatusService.isConfiguredAdmin("phtcon@ucsb.edu"));
+    assertTrue(adminStatusService.isAdmin("phtcon@ucsb.edu"));
+    verify(userRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  void other_users_are_looked_up_once_until_evicted() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu"))
+        .thenReturn(Optional.of(User.builder().email("cgaucho@ucsb.edu").admin(false).build()))
+        .thenReturn(Optional.of(User.builder().email("cgaucho@ucsb.edu").admin(true).build()));
+
+    assertFalse(adminStatusService.isConfiguredAdmin("cgaucho@ucsb.edu"));
+    assertFalse(adminStatusService.isAdmin("cgaucho@ucsb.edu"));
+    assertFalse(adminStatusService.isAdmin("cgaucho@ucsb.edu"));
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+
+    adminStatusService.evict("cgaucho@ucsb.edu");
+
+    assertTrue(adminStatusService.isAdmin("cgaucho@ucsb.edu"));
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void a_login_without_an_email_is_not_an_admin() {
+    assertFalse(adminStatusService.isConfiguredAdmin(null));
+    assertFalse(adminStatusService.isAdmin(null));
+    verify(userRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  void unknown_users_are_not_admins() {
+    when(userRepository.findByEmail("ldelplaya@ucsb.edu")).thenReturn(Optional.empty());
+
+    assertFalse(adminStatusService.isAdmin("ldelplaya@ucsb.edu"));
+  }
+}
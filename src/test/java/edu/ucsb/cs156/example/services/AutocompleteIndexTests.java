@@ -0,0 +1,131 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+
+// writes commit on their own so TableVersions moves, as it does behind the controllers
+@DataJpaTest
+@Import({ AutocompleteIndex.class, TableVersions.class, ReferenceDataCache.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AutocompleteIndexTests {
+
+  @Autowired
+  AutocompleteIndex autocompleteIndex;
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @AfterEach
+  void tearDown() {
+    ucsbOrganizationRepository.deleteAll();
+    ucsbDiningCommonsMenuItemRepository.deleteAll();
+  }
+
+  private UCSBOrganization organization(String orgCode, String orgTranslationShort) {
+    return ucsbOrganizationRepository.save(UCSBOrganization.builder()
+        .orgCode(orgCode)
+        .orgTranslationShort(orgTranslationShort)
+        .orgTranslation(orgTranslationShort)
+        .build());
+  }
+
+  private UCSBDiningCommonsMenuItem menuItem(String name) {
+    return ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItem.builder()
+        .diningCommonsCode("ortega")
+        .name(name)
+        .station("Entrees")
+        .build());
+  }
+
+  private static List<String> codes(List<UCSBOrganization> organizations) {
+    return organizations.stream().map(UCSBOrganization::getOrgCode).toList();
+  }
+
+  private static List<String> names(List<UCSBDiningCommonsMenuItem> items) {
+    return items.stream().map(UCSBDiningCommonsMenuItem::getName).toList();
+  }
+
+  @Test
+  void organizations_match_on_any_word_of_their_code_or_short_name_ignoring_case() {
+    organization("KRC", "KOREAN RADIO CL");
+    organization("ZPR", "ZETA PHI RHO");
+    organization("OSLI", "STUDENT LIFE");
+    organization("SKY", "SKYDIVING CLUB");
+    organization("NONE", null);
+
+    assertEquals(List.of("KRC"), codes(autocompleteIndex.organizations("kor", 10)));
+    assertEquals(List.of("KRC"), codes(autocompleteIndex.organizations("  Radio c", 10)));
+    assertEquals(List.of("SKY", "OSLI"), codes(autocompleteIndex.organizations("s", 10)));
+    assertEquals(List.of("SKY"), codes(autocompleteIndex.organizations("sky", 10)));
+    assertEquals(List.of("NONE"), codes(autocompleteIndex.organizations("non", 10)));
+    assertEquals(List.of(), autocompleteIndex.organizations("zz", 10));
+  }
+
+  @Test
+  void menu_items_match_on_any_word_of_their_name_each_listed_once() {
+    menuItem("Baked Pesto Pasta with Chicken");
+    menuItem("Pasta-Pasta Primavera");
+    menuItem("Carne Asada Tacos");
+    menuItem(null);
+
+    assertEquals(List.of("Pasta-Pasta Primavera", "Baked Pesto Pasta with Chicken"),
+        names(autocompleteIndex.menuItems("PAST", 10)));
+    assertEquals(List.of("Carne Asada Tacos"), names(autocompleteIndex.menuItems("taco", 10)));
+    assertEquals(List.of(), autocompleteIndex.menuItems("asta", 10));
+  }
+
+  @Test
+  void at_most_limit_rows_come_back_clamped_to_one_to_max_results() {
+    for (int i = 0; i < AutocompleteIndex.MAX_RESULTS + 5; i++) {
+      menuItem("Soup %03d".formatted(i));
+    }
+
+    assertEquals(List.of("Soup 000", "Soup 001"), names(autocompleteIndex.menuItems("soup", 2)));
+    assertEquals(List.of("Soup 000"), names(autocompleteIndex.menuItems("soup", 0)));
+    assertEquals(AutocompleteIndex.MAX_RESULTS, autocompleteIndex.menuItems("", 1000).size());
+  }
+
+  @Test
+  void writes_to_the_table_show_up_on_the_next_lookup() {
+    assertEquals(List.of(), autocompleteIndex.organizations("k", 10));
+
+    UCSBOrganization krc = organization("KRC", "KOREAN RADIO CL");
+    assertEquals(List.of("KRC"), codes(autocompleteIndex.organizations("k", 10)));
+
+    krc.setOrgTranslationShort("RADIO CLUB");
+    ucsbOrganizationRepository.save(krc);
+    assertEquals(List.of(), autocompleteIndex.organizations("kor", 10));
+    assertEquals(List.of("KRC"), codes(autocompleteIndex.organizations("club", 10)));
+
+    ucsbOrganizationRepository.deleteById("KRC");
+    assertEquals(List.of(), autocompleteIndex.organizations("k", 10));
+  }
+
+  @Test
+  void a_caller_that_lost_the_race_to_rebuild_keeps_the_winners_keys() {
+    autocompleteIndex.menuItems("a", 1);
+    Object menuItems = ReflectionTestUtils.getField(autocompleteIndex, "menuItems");
+    Object built = ReflectionTestUtils.getField(menuItems, "sorted");
+
+    assertSame(built, ReflectionTestUtils.invokeMethod(menuItems, "rebuild", (Object) null));
+  }
+}
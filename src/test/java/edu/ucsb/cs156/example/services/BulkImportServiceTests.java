@@ -0,0 +1,240 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.BulkImportChunk;
+import edu.ucsb.cs156.example.models.BulkImportReport;
+
+class BulkImportServiceTests {
+
+  private static final String NDJSON = "application/x-ndjson";
+  private static final String CSV = "text/csv";
+
+  private BulkImportService bulkImportService;
+
+  private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+  // a copy of every chunk passed to save
+  private final List<List<UCSBDate>> saved = new ArrayList<>();
+  private final Function<List<UCSBDate>, Iterable<UCSBDate>> save = chunk -> {
+    saved.add(new ArrayList<>(chunk));
+    return chunk;
+  };
+
+  private final Consumer<UCSBDate> requireName = date -> BulkImportService.requireText(date.getName(), "name");
+
+  @BeforeEach
+  void setUp() {
+    bulkImportService = new BulkImportService();
+    bulkImportService.objectMapper = new ObjectMapper()
+        .findAndRegisterModules()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    bulkImportService.transactionManager = transactionManager;
+  }
+
+  private static InputStream input(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static UCSBDate date(String name) {
+    return UCSBDate.builder()
+        .quarterYYYYQ("20224")
+        .name(name)
+        .localDateTime(LocalDateTime.parse("2022-09-22T00:00:00"))
+        .build();
+  }
+
+  private static BulkImportChunk chunk(int chunk, long firstRow, long lastRow, int imported, String... errors) {
+    return BulkImportChunk.builder()
+        .chunk(chunk)
+        .firstRow(firstRow)
+        .lastRow(lastRow)
+        .imported(imported)
+        .errors(List.of(errors))
+        .build();
+  }
+
+  @Test
+  void csv_rows_are_saved_chunk_by_chunk() throws Exception {
+    String csv = """
+        quarterYYYYQ,name,localDateTime,ignoredColumn
+        20224,a,2022-09-22T00:00:00,x
+        20224,b,2022-09-22T00:00:00,x
+        20224,c,2022-09-22T00:00:00,x
+        20224,d,2022-09-22T00:00:00,x
+        20224,e,2022-09-22T00:00:00,x
+        """;
+
+    BulkImportReport report = bulkImportService.importRows(input(csv), CSV, UCSBDate.class, 2, requireName, save);
+
+    assertEquals(List.of(List.of(date("a"), date("b")), List.of(date("c"), date("d")), List.of(date("e"))), saved);
+    BulkImportReport expected = BulkImportReport.builder()
+        .rows(5)
+        .imported(5)
+        .rejected(0)
+        .chunks(List.of(chunk(1, 1, 2, 2), chunk(2, 3, 4, 2), chunk(3, 5, 5, 1)))
+        .build();
+    assertEquals(expected, report);
+    verify(transactionManager, times(3)).commit(any());
+  }
+
+  @Test
+  void ndjson_rows_that_do_not_map_or_fail_prepare_are_reported_and_skipped() throws Exception {
+    String ndjson = """
+        {"quarterYYYYQ":"20224","name":"a","localDateTime":"2022-09-22T00:00:00"}
+        {"quarterYYYYQ":"20224","name":"b","localDateTime":"not a date"}
+        {"quarterYYYYQ":"20224","name":" ","localDateTime":"2022-09-22T00:00:00"}
+        {"quarterYYYYQ":"20224","name":"d","localDateTime":"2022-09-22T00:00:00"}
+        """;
+
+    BulkImportReport report = bulkImportService.importRows(input(ndjson), NDJSON + ";charset=UTF-8", UCSBDate.class,
+        10, requireName, save);
+
+    assertEquals(List.of(List.of(date("a"), date("d"))), saved);
+    assertEquals(4, report.getRows());
+    assertEquals(2, report.getImported());
+    assertEquals(2, report.getRejected());
+    List<String> errors = report.getChunks().get(0).getErrors();
+    assertEquals(2, errors.size());
+    assertTrue(errors.get(0).startsWith("row 2: Cannot deserialize value of type `java.time.LocalDateTime`"));
+    assertEquals("row 3: name is required", errors.get(1));
+  }
+
+  @Test
+  void malformed_input_stops_the_import_after_saving_what_was_read() throws Exception {
+    String ndjson = """
+        {"quarterYYYYQ":"20224","name":"a","localDateTime":"2022-09-22T00:00:00"}
+        {"quarterYYYYQ":"20224","name":"b","localDateTime":"2022-09-22T00:00:00"}
+        {"quarterYYYYQ":"20224", oops
+        {"quarterYYYYQ":"20224","name":"d","localDateTime":"2022-09-22T00:00:00"}
+        """;
+
+    BulkImportReport report = bulkImportService.importRows(input(ndjson), NDJSON, UCSBDate.class, 2, requireName, save);
+
+    assertEquals(List.of(List.of(date("a"), date("b"))), saved);
+    assertEquals(3, report.getRows());
+    assertEquals(2, report.getImported());
+    assertEquals(2, report.getChunks().size());
+    assertEquals(chunk(1, 1, 2, 2), report.getChunks().get(0));
+    BulkImportChunk stopped = report.getChunks().get(1);
+    assertEquals(0, stopped.getImported());
+    assertTrue(stopped.getErrors().get(0).startsWith("row 3: unreadable input, import stopped: "));
+  }
+
+  @Test
+  void a_chunk_the_database_refuses_is_reported_and_the_import_continues() throws Exception {
+    String ndjson = """
+        {"quarterYYYYQ":"20224","name":"a","localDateTime":"2022-09-22T00:00:00"}
+        {"quarterYYYYQ":"20224","name":"b","localDateTime":"2022-09-22T00:00:00"}
+        """;
+    Function<List<UCSBDate>, Iterable<UCSBDate>> refuseFirst = chunk -> {
+      if (chunk.get(0).getName().equals("a")) {
+        throw new DataIntegrityViolationException("duplicate key");
+      }
+      return save.apply(chunk);
+    };
+
+    BulkImportReport report = bulkImportService.importRows(input(ndjson), NDJSON, UCSBDate.class, 1, requireName,
+        refuseFirst);
+
+    assertEquals(List.of(List.of(date("b"))), saved);
+    BulkImportReport expected = BulkImportReport.builder()
+        .rows(2)
+        .imported(1)
+        .rejected(1)
+        .chunks(List.of(chunk(1, 1, 1, 0, "rows 1-1: not saved: duplicate key"), chunk(2, 2, 2, 1)))
+        .build();
+    assertEquals(expected, report);
+    verify(transactionManager, times(1)).rollback(any());
+    verify(transactionManager, times(1)).commit(any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void importNewRows_reports_rows_whose_key_is_taken_or_repeated() throws Exception {
+    String csv = """
+        quarterYYYYQ,name,localDateTime
+        20224,a,2022-09-22T00:00:00
+        20224,b,2022-09-22T00:00:00
+        20224,a,2022-09-22T00:00:00
+        20224,c,2022-09-22T00:00:00
+        20224,b,2022-09-22T00:00:00
+        """;
+    CrudRepository<UCSBDate, String> byName = mock(CrudRepository.class);
+    when(byName.findAllById(List.of("a", "b", "a"))).thenReturn(List.of(date("b")));
+    // the first chunk's "a" has been saved by the time the second chunk is checked
+    when(byName.findAllById(List.of("c", "b"))).thenReturn(List.of(date("b")));
+
+    BulkImportReport report = bulkImportService.importNewRows(input(csv), CSV, UCSBDate.class, 3, requireName,
+        UCSBDate::getName, byName, save);
+
+    assertEquals(List.of(List.of(date("a")), List.of(date("c"))), saved);
+    BulkImportReport expected = BulkImportReport.builder()
+        .rows(5)
+        .imported(2)
+        .rejected(3)
+        .chunks(List.of(
+            chunk(1, 1, 3, 1, "row 2: UCSBDate with id b already exists",
+                "row 3: UCSBDate with id a appears more than once"),
+            chunk(2, 4, 5, 1, "row 5: UCSBDate with id b already exists")))
+        .build();
+    assertEquals(expected, report);
+  }
+
+  @Test
+  void empty_input_imports_nothing() throws Exception {
+    BulkImportReport report = bulkImportService.importRows(input(""), NDJSON, UCSBDate.class, 0, requireName, save);
+
+    assertEquals(List.of(), saved);
+    assertEquals(BulkImportReport.builder().rows(0).imported(0).rejected(0).chunks(List.of()).build(), report);
+  }
+
+  @Test
+  void chunk_size_is_clamped_to_at_most_MAX_CHUNK_SIZE() throws Exception {
+    StringBuilder ndjson = new StringBuilder();
+    for (int i = 0; i < BulkImportService.MAX_CHUNK_SIZE + 1; i++) {
+      ndjson.append("{\"quarterYYYYQ\":\"20224\",\"name\":\"a\",\"localDateTime\":\"2022-09-22T00:00:00\"}\n");
+    }
+
+    BulkImportReport report = bulkImportService.importRows(input(ndjson.toString()), NDJSON, UCSBDate.class,
+        Integer.MAX_VALUE, requireName, save);
+
+    assertEquals(2, saved.size());
+    assertEquals(BulkImportService.MAX_CHUNK_SIZE, saved.get(0).size());
+    assertEquals(2, report.getChunks().size());
+  }
+
+  @Test
+  void requireValue_rejects_null() {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> BulkImportService.requireValue(null, "localDateTime"));
+    assertEquals("localDateTime is required", e.getMessage());
+    BulkImportService.requireValue(LocalDateTime.now(), "localDateTime");
+  }
+}
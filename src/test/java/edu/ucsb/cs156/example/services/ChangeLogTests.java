@@ -0,0 +1,107 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.ChangeLogEntry;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.ChangeLogEntryRepository;
+
+// entries only become visible once their transaction commits, so these tests commit their own
+@DataJpaTest
+@Import(ChangeLog.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChangeLogTests {
+
+  @Autowired
+  ChangeLog changeLog;
+
+  @Autowired
+  ChangeLogEntryRepository changeLogEntryRepository;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  TransactionTemplate transaction;
+
+  TransactionTemplate newTransaction;
+
+  @BeforeEach
+  void setUp() {
+    transaction = new TransactionTemplate(transactionManager);
+    newTransaction = new TransactionTemplate(transactionManager);
+    newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  @AfterEach
+  void tearDown() {
+    changeLogEntryRepository.deleteAll();
+  }
+
+  private List<String> changes() {
+    return changeLog.changesSince(0, PageRequest.of(0, 100, Sort.by("seq"))).stream()
+        .map(entry -> "%s %s %s".formatted(entry.getOperation(), entry.getEntityType(), entry.getEntityId()))
+        .toList();
+  }
+
+  @Test
+  void changes_are_listed_in_the_order_they_were_recorded() {
+    transaction.executeWithoutResult(status -> {
+      changeLog.saved(HelpRequest.class, List.of(3L, 4L));
+      changeLog.deleted(UCSBOrganization.class, List.of("KRC"));
+    });
+
+    assertEquals(List.of("saved HelpRequest 3", "saved HelpRequest 4", "deleted UCSBOrganization KRC"), changes());
+    List<ChangeLogEntry> entries = changeLog.changesSince(0, PageRequest.of(0, 100, Sort.by("seq")));
+    assertTrue(entries.get(0).getSeq() < entries.get(1).getSeq());
+    assertEquals(List.of(entries.get(2)),
+        changeLog.changesSince(entries.get(1).getSeq(), PageRequest.of(0, 100, Sort.by("seq"))));
+  }
+
+  @Test
+  void changes_must_be_recorded_in_the_transaction_that_made_them() {
+    assertThrows(IllegalTransactionStateException.class, () -> changeLog.saved(HelpRequest.class, List.of(3L)));
+  }
+
+  @Test
+  void a_later_change_is_hidden_until_every_earlier_one_has_committed() {
+    transaction.executeWithoutResult(status -> {
+      changeLog.saved(HelpRequest.class, List.of(3L));
+      newTransaction.executeWithoutResult(inner -> changeLog.saved(HelpRequest.class, List.of(4L)));
+
+      assertEquals(List.of(), changes());
+    });
+
+    assertEquals(List.of("saved HelpRequest 3", "saved HelpRequest 4"), changes());
+  }
+
+  @Test
+  void a_rolled_back_change_leaves_no_entry_and_hides_nothing() {
+    transaction.executeWithoutResult(status -> {
+      changeLog.saved(HelpRequest.class, List.of(3L));
+      status.setRollbackOnly();
+    });
+    transaction.executeWithoutResult(status -> changeLog.deleted(HelpRequest.class, List.of(4L)));
+
+    assertEquals(List.of("deleted HelpRequest 4"), changes());
+  }
+}
@@ -0,0 +1,124 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+class CurrentUserServiceImplTests {
+
+  private final UserRepository userRepository = mock(UserRepository.class);
+
+  private final AdminStatusService adminStatusService = mock(AdminStatusService.class);
+
+  private CurrentUserServiceImpl currentUserService;
+
+  @BeforeEach
+  void setUp() {
+    currentUserService = new CurrentUserServiceImpl();
+    ReflectionTestUtils.setField(currentUserService, "userRepository", userRepository);
+    currentUserService.adminStatusService = adminStatusService;
+    ReflectionTestUtils.setField(currentUserService, "cacheMaximumSize", 100L);
+    ReflectionTestUtils.setField(currentUserService, "cacheTtlSeconds", 300L);
+    currentUserService.buildUserCache();
+  }
+
+  private static OAuth2AuthenticationToken login(String email) {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("sub", "115856948234298493496");
+    attributes.put("email", email);
+    attributes.put("email_verified", true);
+    List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+    return new OAuth2AuthenticationToken(new DefaultOAuth2User(authorities, attributes, "sub"), authorities, "google");
+  }
+
+  private User resolve(String email) {
+    return currentUserService.getOAuth2AuthenticatedUser(null, login(email));
+  }
+
+  private static User user(String email, boolean admin) {
+    return User.builder().id(1L).email(email).admin(admin).build();
+  }
+
+  @Test
+  void a_cache_miss_reads_the_user_and_later_logins_hit_the_cache() {
+    User cgaucho = user("cgaucho@ucsb.edu", false);
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(cgaucho));
+
+    assertSame(cgaucho, resolve("cgaucho@ucsb.edu"));
+    assertSame(cgaucho, resolve("cgaucho@ucsb.edu"));
+
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+    verify(userRepository, never()).save(any());
+  }
+
+  @Test
+  void a_first_login_saves_the_user_once() {
+    when(userRepository.findByEmail("ldelplaya@ucsb.edu")).thenReturn(Optional.empty());
+
+    User created = resolve("ldelplaya@ucsb.edu");
+    assertSame(created, resolve("ldelplaya@ucsb.edu"));
+
+    assertEquals("ldelplaya@ucsb.edu", created.getEmail());
+    verify(userRepository, times(1)).save(created);
+  }
+
+  @Test
+  void an_evicted_user_is_read_again_at_the_next_login() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu"))
+        .thenReturn(Optional.of(user("cgaucho@ucsb.edu", false)))
+        .thenReturn(Optional.of(user("cgaucho@ucsb.edu", true)));
+    resolve("cgaucho@ucsb.edu");
+
+    currentUserService.evictUser("cgaucho@ucsb.edu");
+
+    assertTrue(resolve("cgaucho@ucsb.edu").getAdmin());
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+    verify(adminStatusService, times(1)).evict("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void promoting_a_configured_admin_evicts_their_cached_admin_status() {
+    User phtcon = user("phtcon@ucsb.edu", false);
+    when(userRepository.findByEmail("phtcon@ucsb.edu")).thenReturn(Optional.of(phtcon));
+    when(adminStatusService.isConfiguredAdmin("phtcon@ucsb.edu")).thenReturn(true);
+
+    assertTrue(resolve("phtcon@ucsb.edu").getAdmin());
+    assertTrue(resolve("phtcon@ucsb.edu").getAdmin());
+
+    verify(userRepository, times(1)).save(phtcon);
+    verify(adminStatusService, times(1)).evict("phtcon@ucsb.edu");
+  }
+
+  @Test
+  void a_login_without_an_email_is_read_every_time_and_never_cached() {
+    when(userRepository.findByEmail(null)).thenReturn(Optional.of(user(null, false)));
+
+    resolve(null);
+    resolve(null);
+
+    verify(userRepository, times(2)).findByEmail(null);
+    verify(adminStatusService, never()).evict(any());
+  }
+}
@@ -0,0 +1,167 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.NearbyDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+// writes commit on their own so TableVersions moves, as it does behind the controllers
+@DataJpaTest
+@Import({ DiningCommonsLocator.class, TableVersions.class, ReferenceDataCache.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DiningCommonsLocatorTests {
+
+  @Autowired
+  DiningCommonsLocator diningCommonsLocator;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @AfterEach
+  void tearDown() {
+    ucsbDiningCommonsRepository.deleteAll();
+  }
+
+  private static UCSBDiningCommons commons(String code, Double latitude, Double longitude) {
+    return UCSBDiningCommons.builder()
+        .code(code)
+        .name(code)
+        .latitude(latitude)
+        .longitude(longitude)
+        .build();
+  }
+
+  private static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLon = Math.toRadians(lon2 - lon1);
+    double h = Math.pow(Math.sin(dLat / 2), 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+    return 2 * DiningCommonsLocator.EARTH_RADIUS_METERS * Math.asin(Math.sqrt(h));
+  }
+
+  private static List<String> codes(List<NearbyDiningCommons> nearby) {
+    return nearby.stream().map(n -> n.getDiningCommons().getCode()).toList();
+  }
+
+  @Test
+  void returns_the_k_nearest_commons_nearest_first_with_their_distance() {
+    ucsbDiningCommonsRepository.saveAll(List.of(
+        commons("ortega", 34.410987, -119.84709),
+        commons("de-la-guerra", 34.409811, -119.845026),
+        commons("carrillo", 34.409953, -119.85277),
+        commons("portola", 34.417723, -119.867427),
+        commons("nowhere", null, -119.85),
+        commons("nowhere-either", 34.41, null)));
+
+    List<NearbyDiningCommons> nearest = diningCommonsLocator.nearest(34.4105, -119.8465, 2);
+
+    assertEquals(List.of("ortega", "de-la-guerra"), codes(nearest));
+    assertEquals(haversineMeters(34.4105, -119.8465, 34.410987, -119.84709),
+        nearest.get(0).getDistanceMeters(), 0.01);
+    assertEquals(haversineMeters(34.4105, -119.8465, 34.409811, -119.845026),
+        nearest.get(1).getDistanceMeters(), 0.01);
+    assertEquals(List.of("ortega"), codes(diningCommonsLocator.nearest(34.4105, -119.8465, 0)));
+    assertEquals(List.of("ortega", "de-la-guerra", "carrillo", "portola"),
+        codes(diningCommonsLocator.nearest(34.4105, -119.8465, 1000)));
+  }
+
+  @Test
+  void finds_the_same_commons_as_checking_every_one_anywhere_on_earth() {
+    Random random = new Random(156);
+    List<UCSBDiningCommons> all = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      all.add(commons("c%03d".formatted(i), random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+    }
+    ucsbDiningCommonsRepository.saveAll(all);
+
+    for (int i = 0; i < 100; i++) {
+      double latitude = random.nextDouble() * 180 - 90;
+      double longitude = random.nextDouble() * 360 - 180;
+      List<String> expected = all.stream()
+          .sorted(Comparator.comparingDouble((UCSBDiningCommons c) -> haversineMeters(latitude, longitude,
+              c.getLatitude(), c.getLongitude())))
+          .limit(5)
+          .map(UCSBDiningCommons::getCode)
+          .toList();
+
+      assertEquals(expected, codes(diningCommonsLocator.nearest(latitude, longitude, 5)));
+    }
+  }
+
+  @Test
+  void the_date_line_and_the_poles_are_no_barrier() {
+    ucsbDiningCommonsRepository.saveAll(List.of(
+        commons("fiji", -17.7, 179.9),
+        commons("samoa", -13.8, -171.8),
+        commons("south-pole", -90.0, 0.0),
+        commons("north-pole", 90.0, 0.0)));
+
+    assertEquals(List.of("fiji", "samoa"), codes(diningCommonsLocator.nearest(-16.0, -179.9, 2)));
+    assertEquals(List.of("north-pole"), codes(diningCommonsLocator.nearest(89.9, 135.0, 1)));
+    assertEquals(haversineMeters(-89.0, -120.0, -90.0, 0.0),
+        diningCommonsLocator.nearest(-89.0, -120.0, 1).get(0).getDistanceMeters(), 0.01);
+  }
+
+  @Test
+  void commons_just_as_far_away_are_listed_by_code() {
+    ucsbDiningCommonsRepository.saveAll(List.of(
+        commons("ortega-takeout", 34.410987, -119.84709),
+        commons("ortega", 34.410987, -119.84709),
+        commons("ortega-cafe", 34.410987, -119.84709)));
+
+    assertEquals(List.of("ortega", "ortega-cafe"), codes(diningCommonsLocator.nearest(34.4, -119.8, 2)));
+  }
+
+  @Test
+  void writes_to_the_table_show_up_on_the_next_lookup() {
+    assertEquals(List.of(), diningCommonsLocator.nearest(34.41, -119.85, 3));
+
+    UCSBDiningCommons ortega = ucsbDiningCommonsRepository.save(commons("ortega", 34.410987, -119.84709));
+    ucsbDiningCommonsRepository.save(commons("carrillo", 34.409953, -119.85277));
+    assertEquals(List.of("ortega", "carrillo"), codes(diningCommonsLocator.nearest(34.411, -119.847, 3)));
+
+    ortega.setLatitude(35.0);
+    ucsbDiningCommonsRepository.save(ortega);
+    assertEquals(List.of("carrillo", "ortega"), codes(diningCommonsLocator.nearest(34.411, -119.847, 3)));
+
+    ucsbDiningCommonsRepository.deleteById("carrillo");
+    assertEquals(List.of("ortega"), codes(diningCommonsLocator.nearest(34.411, -119.847, 3)));
+  }
+
+  @Test
+  void locations_off_the_map_are_rejected() {
+    assertThrows(BadRequestException.class, () -> diningCommonsLocator.nearest(-90.5, 0, 1));
+    assertThrows(BadRequestException.class, () -> diningCommonsLocator.nearest(90.5, 0, 1));
+    assertThrows(BadRequestException.class, () -> diningCommonsLocator.nearest(Double.NaN, 0, 1));
+    assertThrows(BadRequestException.class, () -> diningCommonsLocator.nearest(0, -180.5, 1));
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> diningCommonsLocator.nearest(0, 180.5, 1));
+    assertEquals("latitude must be in [-90, 90] and longitude in [-180, 180], not 0.0, 180.5", e.getMessage());
+  }
+
+  @Test
+  void a_caller_that_lost_the_race_to_rebuild_keeps_the_winners_tree() {
+    diningCommonsLocator.nearest(34.41, -119.85, 1);
+    Object built = ReflectionTestUtils.getField(diningCommonsLocator, "index");
+
+    assertSame(built, ReflectionTestUtils.invokeMethod(diningCommonsLocator, "rebuild", (Object) null));
+  }
+}
@@ -0,0 +1,247 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.controllers.HelpRequestController;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+@WebMvcTest(controllers = HelpRequestController.class)
+@Import(HelpRequestStream.class)
+class HelpRequestStreamTests extends ControllerTestCase {
+
+  @MockBean
+  HelpRequestRepository helpRequestRepository;
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  NdjsonExportService ndjsonExportService;
+
+  @MockBean
+  ChangeLog changeLog;
+
+  @MockBean
+  SearchIndex searchIndex;
+
+  @Autowired
+  HelpRequestStream helpRequestStream;
+
+  // deliver events on the test's thread, so each test can read them back at once
+  @BeforeEach
+  void sendOnTheCallingThread() {
+    helpRequestStream.taskExecutor = new SyncTaskExecutor();
+  }
+
+  private static HelpRequest helpRequest(long id, boolean solved) {
+    return HelpRequest.builder()
+        .id(id)
+        .requesterEmail("cgaucho@ucsb.edu")
+        .teamId("f23-6pm-3")
+        .tableOrBreakoutRoom("3")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("help " + id)
+        .solved(solved)
+        .build();
+  }
+
+  private String event(String name, Object data) throws Exception {
+    return "event:%s\ndata:%s\n\n".formatted(name, mapper.writeValueAsString(data));
+  }
+
+  private MvcResult subscribe() throws Exception {
+    return mockMvc.perform(get("/api/helprequest/stream"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+  }
+
+  private static AsyncListener asyncListener(MvcResult result) {
+    return ((MockAsyncContext) result.getRequest().getAsyncContext()).getListeners().get(0);
+  }
+
+  @Test
+  void logged_out_users_cannot_subscribe() throws Exception {
+    mockMvc.perform(get("/api/helprequest/stream"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  void subscribers_get_a_snapshot_then_each_change() throws Exception {
+    List<HelpRequest> snapshot = List.of(helpRequest(3L, false));
+    when(helpRequestRepository.findAll()).thenReturn(snapshot);
+
+    MvcResult result = subscribe();
+    helpRequestStream.saved(List.of(helpRequest(3L, true)));
+    helpRequestStream.deleted(List.of(3L));
+
+    assertEquals(event("snapshot", snapshot)
+        + event("saved", List.of(helpRequest(3L, true)))
+        + event("deleted", List.of(3L)), result.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  void changes_made_in_a_transaction_are_sent_only_once_it_commits() throws Exception {
+    when(helpRequestRepository.findAll()).thenReturn(List.of());
+    MvcResult result = subscribe();
+    String snapshot = result.getResponse().getContentAsString();
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      helpRequestStream.deleted(List.of(4L));
+      assertEquals(snapshot, result.getResponse().getContentAsString());
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertEquals(snapshot + event("deleted", List.of(4L)), result.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  void subscribers_that_have_completed_are_dropped_at_the_next_change() throws Exception {
+    when(helpRequestRepository.findAll()).thenReturn(List.of());
+    int before = helpRequestStream.subscriberCount();
+
+    helpRequestStream.subscribe().complete();
+    assertEquals(before + 1, helpRequestStream.subscriberCount());
+    helpRequestStream.deleted(List.of(4L));
+
+    assertTrue(helpRequestStream.subscriberCount() <= before);
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  void a_change_made_while_the_snapshot_is_read_is_sent_after_it() throws Exception {
+    List<HelpRequest> snapshot = List.of(helpRequest(3L, false));
+    when(helpRequestRepository.findAll()).thenAnswer(invocation -> {
+      helpRequestStream.saved(List.of(helpRequest(3L, true)));
+      return snapshot;
+    });
+
+    MvcResult result = subscribe();
+
+    assertEquals(event("snapshot", snapshot)
+        + event("saved", List.of(helpRequest(3L, true))), result.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  void changes_are_sent_by_the_executor_not_the_thread_that_made_them() throws Exception {
+    List<Runnable> tasks = new ArrayList<>();
+    TaskExecutor taskExecutor = helpRequestStream.taskExecutor;
+    helpRequestStream.taskExecutor = tasks::add;
+    try {
+      when(helpRequestRepository.findAll()).thenReturn(List.of());
+      MvcResult result = subscribe();
+      helpRequestStream.saved(List.of(helpRequest(3L, false)));
+      helpRequestStream.deleted(List.of(3L));
+
+      // one drain per subscriber, however many events are waiting for it
+      assertEquals("", result.getResponse().getContentAsString());
+      assertEquals(helpRequestStream.subscriberCount(), tasks.size());
+
+      tasks.forEach(Runnable::run);
+      assertEquals(event("snapshot", List.of())
+          + event("saved", List.of(helpRequest(3L, false)))
+          + event("deleted", List.of(3L)), result.getResponse().getContentAsString());
+    } finally {
+      helpRequestStream.taskExecutor = taskExecutor;
+    }
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  void subscribers_are_dropped_when_their_request_completes_times_out_or_fails() throws Exception {
+    when(helpRequestRepository.findAll()).thenReturn(List.of());
+    int before = helpRequestStream.subscriberCount();
+
+    MvcResult completed = subscribe();
+    MvcResult timedOut = subscribe();
+    MvcResult failed = subscribe();
+    assertEquals(before + 3, helpRequestStream.subscriberCount());
+
+    asyncListener(completed).onComplete(new AsyncEvent(completed.getRequest().getAsyncContext()));
+    asyncListener(timedOut).onTimeout(new AsyncEvent(timedOut.getRequest().getAsyncContext()));
+    asyncListener(failed).onError(new AsyncEvent(failed.getRequest().getAsyncContext(), new IOException("reset")));
+
+    assertEquals(before, helpRequestStream.subscriberCount());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  void a_subscriber_that_falls_too_far_behind_is_disconnected() throws Exception {
+    List<Runnable> tasks = new ArrayList<>();
+    helpRequestStream.taskExecutor = tasks::add;
+    ReflectionTestUtils.setField(helpRequestStream, "maxPendingEvents", 2);
+    try {
+      when(helpRequestRepository.findAll()).thenReturn(List.of());
+      int before = helpRequestStream.subscriberCount();
+      MvcResult result = subscribe();
+      int subscribed = helpRequestStream.subscriberCount();
+
+      // the snapshot and the first change fill the queue; the second change overflows it
+      helpRequestStream.deleted(List.of(3L));
+      assertEquals(subscribed, helpRequestStream.subscriberCount());
+      helpRequestStream.deleted(List.of(4L));
+
+      assertEquals(before, helpRequestStream.subscriberCount());
+      assertTrue(result.getAsyncResult() instanceof IllegalStateException);
+      tasks.forEach(Runnable::run);
+      assertEquals("", result.getResponse().getContentAsString());
+    } finally {
+      ReflectionTestUtils.setField(helpRequestStream, "maxPendingEvents", 256);
+    }
+  }
+
+  @Test
+  void events_are_sent_on_the_streams_own_threads() throws Exception {
+    HelpRequestStream stream = new HelpRequestStream();
+    ReflectionTestUtils.setField(stream, "threads", 1);
+    stream.startPool();
+    try {
+      CompletableFuture<String> thread = new CompletableFuture<>();
+      stream.taskExecutor.execute(() -> thread.complete(Thread.currentThread().getName()));
+
+      assertTrue(thread.get(10, TimeUnit.SECONDS).startsWith("help-request-stream-"));
+    } finally {
+      stream.stopPool();
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.RankedMenuItem;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+
+// Ratings are written straight to their table here, so the tests say
+// themselves when reviews have changed.
+
+@DataJpaTest(properties = "app.leaderboard.refreshSeconds=0")
+@Import({ MenuItemLeaderboard.class, TableVersions.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MenuItemLeaderboardTests {
+
+  @Autowired
+  MenuItemLeaderboard menuItemLeaderboard;
+
+  @Autowired
+  TableVersions tableVersions;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  MenuItemRatingRepository menuItemRatingRepository;
+
+  @AfterEach
+  void tearDown() {
+    ucsbDiningCommonsMenuItemRepository.deleteAll();
+    menuItemRatingRepository.deleteAll();
+    tableVersions.changed(MenuItemReview.class);
+  }
+
+  private RankedMenuItem rated(String diningCommonsCode, String name, long reviews, long totalStars) {
+    UCSBDiningCommonsMenuItem item = ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItem.builder()
+        .diningCommonsCode(diningCommonsCode)
+        .name(name)
+        .station("Entrees")
+        .build());
+    if (reviews > 0) {
+      menuItemRatingRepository.save(MenuItemRating.builder()
+          .itemId(item.getId())
+          .reviews(reviews)
+          .totalStars(totalStars)
+          .build());
+    }
+    return RankedMenuItem.builder()
+        .diningCommonsCode(diningCommonsCode)
+        .itemId(item.getId())
+        .name(name)
+        .station("Entrees")
+        .reviews(reviews)
+        .averageStars(reviews == 0 ? 0 : (double) totalStars / reviews)
+        .build();
+  }
+
+  @Test
+  void items_are_ranked_by_average_then_by_number_of_reviews() {
+    RankedMenuItem good = rated("ortega", "Tofu", 2, 8);
+    RankedMenuItem best = rated("ortega", "Pie", 1, 5);
+    RankedMenuItem goodAndPopular = rated("ortega", "Rice", 4, 16);
+    RankedMenuItem onlyOne = rated("carrillo", "Soup", 1, 2);
+    rated("ortega", "Unreviewed", 0, 0);
+    rated(null, "Not served", 1, 5);
+
+    assertEquals(Map.of(
+        "ortega", List.of(best, goodAndPopular, good),
+        "carrillo", List.of(onlyOne)), menuItemLeaderboard.snapshot().top(10));
+    assertEquals(Map.of(
+        "ortega", List.of(best),
+        "carrillo", List.of(onlyOne)), menuItemLeaderboard.snapshot().top(0));
+  }
+
+  @Test
+  void the_ranking_is_rebuilt_only_after_reviews_or_menu_items_change() {
+    rated("ortega", "Tofu", 1, 4);
+    RankedMenuItem pie = rated("ortega", "Pie", 0, 0);
+    String etag = menuItemLeaderboard.snapshot().etag();
+
+    menuItemRatingRepository.save(MenuItemRating.builder().itemId(pie.getItemId()).reviews(1).totalStars(5).build());
+    assertEquals(etag, menuItemLeaderboard.snapshot().etag());
+    assertEquals(1, menuItemLeaderboard.snapshot().top(10).get("ortega").size());
+
+    tableVersions.changed(MenuItemReview.class);
+    assertNotEquals(etag, menuItemLeaderboard.snapshot().etag());
+    assertEquals("Pie", menuItemLeaderboard.snapshot().top(10).get("ortega").get(0).getName());
+  }
+
+  @Test
+  void a_ranking_younger_than_refreshSeconds_is_served_even_after_a_change() {
+    rated("ortega", "Tofu", 1, 4);
+    String etag = menuItemLeaderboard.snapshot().etag();
+    ReflectionTestUtils.setField(menuItemLeaderboard, "refreshSeconds", 3600);
+    try {
+      rated("ortega", "Pie", 1, 5);
+      tableVersions.changed(MenuItemReview.class);
+
+      assertEquals(etag, menuItemLeaderboard.snapshot().etag());
+      assertEquals(1, menuItemLeaderboard.snapshot().top(100).get("ortega").size());
+    } finally {
+      ReflectionTestUtils.setField(menuItemLeaderboard, "refreshSeconds", 0);
+    }
+  }
+
+  @Test
+  void a_caller_that_lost_the_race_to_rebuild_keeps_the_winners_ranking() {
+    rated("ortega", "Tofu", 1, 4);
+    String etag = menuItemLeaderboard.snapshot().etag();
+    Object current = ReflectionTestUtils.getField(menuItemLeaderboard, "ranking");
+    tableVersions.changed(MenuItemReview.class);
+
+    // as if this caller saw no ranking before another one built the current one
+    Object rebuilt = ReflectionTestUtils.invokeMethod(menuItemLeaderboard, "rebuild", (Object) null);
+
+    assertSame(current, rebuilt);
+    assertEquals(etag, ((MenuItemLeaderboard.Snapshot) ReflectionTestUtils.invokeMethod(rebuilt, "snapshot")).etag());
+  }
+
+  @Test
+  void a_snapshot_keeps_its_etag_and_rows_after_a_rebuild() {
+    rated("ortega", "Tofu", 1, 4);
+    MenuItemLeaderboard.Snapshot before = menuItemLeaderboard.snapshot();
+
+    rated("ortega", "Pie", 1, 5);
+    tableVersions.changed(MenuItemReview.class);
+    MenuItemLeaderboard.Snapshot after = menuItemLeaderboard.snapshot();
+
+    assertNotEquals(before.etag(), after.etag());
+    assertEquals(List.of("Tofu"), before.top(10).get("ortega").stream().map(RankedMenuItem::getName).toList());
+    assertEquals(List.of("Pie", "Tofu"), after.top(10).get("ortega").stream().map(RankedMenuItem::getName).toList());
+  }
+}
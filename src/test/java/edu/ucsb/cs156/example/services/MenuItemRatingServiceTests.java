@@ -0,0 +1,174 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+
+@DataJpaTest
+@Import(MenuItemRatingService.class)
+class MenuItemRatingServiceTests {
+
+  @Autowired
+  MenuItemRatingService menuItemRatingService;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  MenuItemRatingRepository menuItemRatingRepository;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  EntityManager entityManager;
+
+  // a first review commits the item's empty rating row on its own,
+  // so it outlives the test's rollback
+  @AfterTransaction
+  void deleteRatings() {
+    menuItemRatingRepository.deleteAll();
+  }
+
+  private static MenuItemReview review(long itemId, int stars) {
+    return MenuItemReview.builder()
+        .itemId(itemId)
+        .reviewerEmail("cgaucho@ucsb.edu")
+        .stars(stars)
+        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .comments("%d stars".formatted(stars))
+        .build();
+  }
+
+  @Test
+  void an_item_without_reviews_has_an_all_zero_rating() {
+    assertEquals(MenuItemRating.builder().itemId(7).build(), menuItemRatingService.ratingFor(7));
+    assertEquals(0, menuItemRatingService.ratingFor(7).getAverageStars());
+  }
+
+  @Test
+  void reviews_added_and_removed_are_counted_in_the_totals_and_histogram() {
+    for (int stars = 0; stars <= 5; stars++) {
+      menuItemRatingService.reviewAdded(review(7, stars));
+    }
+    menuItemRatingService.reviewAdded(review(7, 5));
+    menuItemRatingService.reviewAdded(review(8, 1));
+    menuItemRatingService.reviewRemoved(review(7, 0));
+
+    assertEquals(MenuItemRating.builder()
+        .itemId(7)
+        .reviews(6)
+        .totalStars(20)
+        .zeroStars(0)
+        .oneStar(1)
+        .twoStars(1)
+        .threeStars(1)
+        .fourStars(1)
+        .fiveStars(2)
+        .build(), menuItemRatingService.ratingFor(7));
+    assertEquals(20.0 / 6, menuItemRatingService.ratingFor(7).getAverageStars());
+    assertEquals(1, menuItemRatingService.ratingFor(8).getOneStar());
+  }
+
+  @Test
+  void stars_outside_zero_to_five_count_towards_the_average_only() {
+    menuItemRatingService.reviewAdded(review(7, 4));
+    menuItemRatingService.reviewAdded(review(7, 10));
+
+    MenuItemRating rating = menuItemRatingService.ratingFor(7);
+    assertEquals(2, rating.getReviews());
+    assertEquals(7, rating.getAverageStars());
+    assertEquals(1, rating.getFourStars());
+  }
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  void a_review_cannot_be_counted_outside_the_transaction_that_wrote_it() {
+    assertThrows(IllegalTransactionStateException.class, () -> menuItemRatingService.reviewAdded(review(7, 5)));
+    assertThrows(IllegalTransactionStateException.class, () -> menuItemRatingService.reviewRemoved(review(7, 5)));
+  }
+
+  @Test
+  void a_review_locked_before_an_update_is_read_back_as_updated() {
+    long id = menuItemReviewRepository.save(review(7, 2)).getId();
+    MenuItemReview before = menuItemReviewRepository.findForUpdateById(id).get();
+
+    assertEquals(1, menuItemReviewRepository.updateRowById(id, null, review(9, 4)));
+
+    assertEquals(2, before.getStars());
+    MenuItemReview after = menuItemReviewRepository.findById(id).get();
+    assertEquals(9, after.getItemId());
+    assertEquals(4, after.getStars());
+  }
+
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  void concurrent_first_reviews_of_an_item_are_both_counted() throws Exception {
+    // each review waits until both have looked for the item's row and found none
+    CyclicBarrier bothLooked = new CyclicBarrier(2);
+    MenuItemRatingRepository racing = mock(MenuItemRatingRepository.class, delegatesTo(menuItemRatingRepository));
+    doAnswer(invocation -> {
+      Optional<MenuItemRating> found = menuItemRatingRepository.findForUpdateByItemId(invocation.getArgument(0));
+      if (found.isEmpty()) {
+        bothLooked.await(10, TimeUnit.SECONDS);
+      }
+      return found;
+    }).when(racing).findForUpdateByItemId(anyLong());
+
+    MenuItemRatingService service = new MenuItemRatingService();
+    service.menuItemRatingRepository = racing;
+    service.transactionManager = transactionManager;
+    service.entityManager = entityManager;
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+    ExecutorService reviewers = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<?>> reviews = List.of(
+          reviewers.submit(() -> transaction.executeWithoutResult(status -> service.reviewAdded(review(7, 4)))),
+          reviewers.submit(() -> transaction.executeWithoutResult(status -> service.reviewAdded(review(7, 1)))));
+      for (Future<?> review : reviews) {
+        review.get(30, TimeUnit.SECONDS);
+      }
+
+      MenuItemRating rating = menuItemRatingService.ratingFor(7);
+      assertEquals(2, rating.getReviews());
+      assertEquals(5, rating.getTotalStars());
+      assertEquals(1, rating.getFourStars());
+      assertEquals(1, rating.getOneStar());
+    } finally {
+      reviewers.shutdownNow();
+      deleteRatings();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+@DataJpaTest
+@Import({ NdjsonExportService.class, JacksonAutoConfiguration.class })
+class NdjsonExportServiceTests {
+
+  @Autowired
+  NdjsonExportService ndjsonExportService;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Autowired
+  ObjectMapper mapper;
+
+  @Test
+  void export_writes_one_line_per_row_in_key_order_and_detaches_them() throws Exception {
+    // more than FLUSH_EVERY rows, so the output is flushed part way through
+    List<UCSBDate> dates = new ArrayList<>();
+    for (int i = 0; i < NdjsonExportService.FLUSH_EVERY + 1; i++) {
+      dates.add(UCSBDate.builder()
+          .quarterYYYYQ("20224")
+          .name("date " + i)
+          .localDateTime(LocalDateTime.parse("2022-09-22T00:00:00"))
+          .build());
+    }
+    ucsbDateRepository.saveAll(dates);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long count = ndjsonExportService.export(ucsbDateRepository::streamAll, out);
+
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+    assertEquals(dates.size(), count);
+    assertEquals(dates.size(), lines.length);
+    assertEquals(mapper.writeValueAsString(dates.get(0)), lines[0]);
+    assertEquals(mapper.writeValueAsString(dates.get(dates.size() - 1)), lines[lines.length - 1]);
+    assertFalse(entityManager.contains(dates.get(0)));
+  }
+
+  @Test
+  void export_of_an_empty_table_writes_nothing() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertEquals(0, ndjsonExportService.export(ucsbDateRepository::streamAll, out));
+    assertEquals(0, out.size());
+  }
+}
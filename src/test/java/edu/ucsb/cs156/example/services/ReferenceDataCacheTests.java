@@ -0,0 +1,101 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.models.ReferenceCacheStats;
+
+@ExtendWith(SpringExtension.class)
+@Import({ ReferenceDataCache.class, ReferenceDataCacheEndpoint.class, TableVersions.class })
+class ReferenceDataCacheTests {
+
+  @Autowired
+  ReferenceDataCache referenceDataCache;
+
+  @Autowired
+  ReferenceDataCacheEndpoint referenceDataCacheEndpoint;
+
+  @Autowired
+  TableVersions tableVersions;
+
+  private static UCSBOrganization organization(String orgCode) {
+    return UCSBOrganization.builder()
+        .orgCode(orgCode)
+        .orgTranslationShort(orgCode)
+        .orgTranslation(orgCode)
+        .inactive(false)
+        .build();
+  }
+
+  @Test
+  void findAll_reads_the_table_once_until_it_is_evicted_or_written() {
+    AtomicInteger loads = new AtomicInteger();
+    // a Set rather than a List, to show any Iterable is copied
+    Iterable<UCSBOrganization> rows = Set.of(organization("KRC"));
+
+    List<UCSBOrganization> first = referenceDataCache.findAll(UCSBOrganization.class, () -> {
+      loads.incrementAndGet();
+      return rows;
+    });
+    List<UCSBOrganization> second = referenceDataCache.findAll(UCSBOrganization.class, () -> {
+      loads.incrementAndGet();
+      return rows;
+    });
+    assertEquals(List.of(organization("KRC")), first);
+    assertSame(first, second);
+    assertEquals(1, loads.get());
+
+    referenceDataCache.evict(UCSBOrganization.class);
+    referenceDataCache.findAll(UCSBOrganization.class, () -> {
+      loads.incrementAndGet();
+      return rows;
+    });
+    tableVersions.changed(UCSBOrganization.class);
+    referenceDataCache.findAll(UCSBOrganization.class, () -> {
+      loads.incrementAndGet();
+      return rows;
+    });
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  void findById_caches_rows_that_exist_and_counts_hits_and_misses() {
+    AtomicInteger loads = new AtomicInteger();
+    UCSBDiningCommons ortega = UCSBDiningCommons.builder().code("ortega").name("Ortega").build();
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(Optional.of(ortega), referenceDataCache.findById(UCSBDiningCommons.class, "ortega", code -> {
+        loads.incrementAndGet();
+        return Optional.of(ortega);
+      }));
+      assertEquals(Optional.empty(), referenceDataCache.findById(UCSBDiningCommons.class, "nowhere", code -> {
+        loads.incrementAndGet();
+        return Optional.empty();
+      }));
+    }
+
+    assertEquals(4, loads.get());
+    Map<String, ReferenceCacheStats> stats = referenceDataCacheEndpoint.referenceData();
+    assertEquals(ReferenceCacheStats.builder()
+        .hits(2)
+        .misses(4)
+        .hitRate(2.0 / 6)
+        .evictions(0)
+        .size(1)
+        .build(), stats.get("UCSBDiningCommons"));
+  }
+}
@@ -0,0 +1,194 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.SearchHit;
+import edu.ucsb.cs156.example.repositories.ArticleRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+
+// Each test gets its own index, read from the tables on its first search.
+// Writes commit on their own, as they do behind the controllers.
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SearchIndexTests {
+
+  @Autowired
+  ArticleRepository articleRepository;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  SearchIndex searchIndex;
+
+  @BeforeEach
+  void setUp() {
+    searchIndex = new SearchIndex();
+    searchIndex.articleRepository = articleRepository;
+    searchIndex.menuItemReviewRepository = menuItemReviewRepository;
+    searchIndex.helpRequestRepository = helpRequestRepository;
+    searchIndex.recommendationRequestRepository = recommendationRequestRepository;
+  }
+
+  @AfterEach
+  void tearDown() {
+    articleRepository.deleteAll();
+    menuItemReviewRepository.deleteAll();
+    helpRequestRepository.deleteAll();
+    recommendationRequestRepository.deleteAll();
+  }
+
+  private Article article(String title, String explanation) {
+    return articleRepository.save(Article.builder().title(title).explanation(explanation).build());
+  }
+
+  private HelpRequest helpRequest(String explanation) {
+    return helpRequestRepository.save(HelpRequest.builder().explanation(explanation).build());
+  }
+
+  private static List<String> found(List<SearchHit> hits) {
+    return hits.stream().map(hit -> "%d %s %d".formatted(hit.getRank(), hit.getType(), hit.getId())).toList();
+  }
+
+  private static String found(int rank, Object row) {
+    long id = (long) ReflectionTestUtils.getField(row, "id");
+    return "%d %s %d".formatted(rank, row.getClass().getSimpleName(), id);
+  }
+
+  @Test
+  void every_searchable_field_is_searched_and_closer_matches_rank_first() {
+    Article article = article("Midterm tips", "How to study");
+    MenuItemReview review = menuItemReviewRepository.save(MenuItemReview.builder()
+        .comments("The burrito before my midterm was great")
+        .build());
+    menuItemReviewRepository.save(MenuItemReview.builder().stars(5).build());
+    HelpRequest help = helpRequest("Stuck on the midterm, midterm practice");
+    recommendationRequestRepository.save(RecommendationRequest.builder()
+        .explanation("Letter for grad school")
+        .build());
+    // not yet built, so this is left to the first search to read from the table
+    searchIndex.saved(HelpRequest.class, List.of(help));
+
+    List<SearchHit> hits = searchIndex.search("MIDTERM!", 10, 0);
+
+    assertEquals(List.of(found(1, help), found(2, article), found(3, review)), found(hits));
+    assertEquals("Midterm tips\nHow to study", hits.get(1).getText());
+    assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+    assertTrue(hits.get(1).getScore() > hits.get(2).getScore());
+    assertEquals(List.of("1 RecommendationRequest %d".formatted(
+        recommendationRequestRepository.findAll().iterator().next().getId())),
+        found(searchIndex.search("grad", 10, 0)));
+  }
+
+  @Test
+  void rarer_words_count_for_more_and_ties_go_by_type_then_id() {
+    HelpRequest python = helpRequest("lab python");
+    Article java = article("  ", "lab java");
+    HelpRequest rust = helpRequest("lab rust");
+    HelpRequest go = helpRequest("lab go");
+
+    assertEquals(List.of(found(1, python), found(2, java), found(3, rust), found(4, go)),
+        found(searchIndex.search("lab python lab", 10, 0)));
+  }
+
+  @Test
+  void pages_continue_after_the_rank_passed_in() {
+    HelpRequest first = helpRequest("quiz quiz quiz");
+    HelpRequest second = helpRequest("quiz quiz");
+    HelpRequest third = helpRequest("quiz");
+
+    assertEquals(List.of(found(1, first), found(2, second)), found(searchIndex.search("quiz", 2, 0)));
+    assertEquals(List.of(found(3, third)), found(searchIndex.search("quiz", 2, 2)));
+    assertEquals(List.of(found(1, first)), found(searchIndex.search("quiz", 1, -5)));
+    assertEquals(List.of(), searchIndex.search("quiz", 2, Integer.MAX_VALUE));
+  }
+
+  @Test
+  void a_query_without_words_matches_nothing() {
+    helpRequest("anything");
+
+    assertEquals(List.of(), searchIndex.search("  ", 10, 0));
+    assertEquals(List.of(), searchIndex.search("?!", 10, 0));
+    assertEquals(List.of(), searchIndex.search("nothing", 10, 0));
+  }
+
+  @Test
+  void writes_after_the_first_search_show_up_once_they_commit() {
+    HelpRequest other = helpRequest("common ground");
+    searchIndex.search("common", 10, 0);
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+    Article article = transaction.execute(status -> {
+      Article saved = article("alpha", "common words");
+      searchIndex.saved(Article.class, List.of(saved));
+      assertEquals(List.of(), searchIndex.search("alpha", 10, 0));
+      return saved;
+    });
+    assertEquals(List.of(found(1, article)), found(searchIndex.search("alpha", 10, 0)));
+
+    transaction.executeWithoutResult(status -> {
+      searchIndex.saved(Article.class, List.of(article(null, "beta")));
+      status.setRollbackOnly();
+    });
+    assertEquals(List.of(), searchIndex.search("beta", 10, 0));
+
+    article.setTitle("gamma");
+    searchIndex.saved(Article.class, List.of(article));
+    assertEquals(List.of(), searchIndex.search("alpha", 10, 0));
+    assertEquals(List.of(found(1, article)), found(searchIndex.search("gamma", 10, 0)));
+
+    searchIndex.deleted(Article.class, List.of(article.getId()));
+    searchIndex.deleted(Article.class, List.of(article.getId()));
+    assertEquals(List.of(), searchIndex.search("gamma", 10, 0));
+    assertEquals(List.of(found(1, other)), found(searchIndex.search("common", 10, 0)));
+  }
+
+  @Test
+  void only_searchable_types_can_be_indexed() {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> searchIndex.saved(UCSBDate.class, List.of()));
+    assertEquals("UCSBDate is not searchable", e.getMessage());
+    assertThrows(IllegalArgumentException.class, () -> searchIndex.deleted(UCSBDate.class, List.of(1L)));
+  }
+
+  @Test
+  void a_caller_that_lost_the_race_to_build_keeps_the_winners_index() {
+    searchIndex.search("anything", 10, 0);
+    helpRequest("anything");
+
+    ReflectionTestUtils.invokeMethod(searchIndex, "build");
+
+    assertEquals(List.of(), searchIndex.search("anything", 10, 0));
+  }
+}
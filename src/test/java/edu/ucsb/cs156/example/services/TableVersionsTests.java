@@ -0,0 +1,118 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+// versions only move on commit, so these tests commit their own transactions
+@DataJpaTest
+@Import(TableVersions.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TableVersionsTests {
+
+  @Autowired
+  TableVersions tableVersions;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  TransactionTemplate transaction;
+
+  @BeforeEach
+  void setUp() {
+    transaction = new TransactionTemplate(transactionManager);
+  }
+
+  @AfterEach
+  void tearDown() {
+    ucsbDateRepository.deleteAll();
+  }
+
+  private static UCSBDate date(String name) {
+    return UCSBDate.builder()
+        .quarterYYYYQ("20224")
+        .name(name)
+        .localDateTime(LocalDateTime.parse("2022-09-22T00:00:00"))
+        .build();
+  }
+
+  @Test
+  void etag_is_quoted_names_the_table_and_changes_with_its_version() {
+    String before = tableVersions.etag(UCSBOrganization.class);
+
+    tableVersions.changed(UCSBOrganization.class);
+
+    String after = tableVersions.etag(UCSBOrganization.class);
+    assertTrue(before.matches("\"UCSBOrganization-[0-9a-z]+-\\d+\""), before);
+    assertNotEquals(before, after);
+    assertEquals(before.substring(0, before.lastIndexOf('-')), after.substring(0, after.lastIndexOf('-')));
+  }
+
+  @Test
+  void a_committed_transaction_bumps_each_table_it_wrote_once_after_commit() {
+    long before = tableVersions.version(UCSBDate.class);
+    long others = tableVersions.version(UCSBOrganization.class);
+
+    transaction.executeWithoutResult(status -> {
+      ucsbDateRepository.saveAll(List.of(date("first"), date("second"), date("third")));
+      entityManager.flush();
+      assertEquals(before, tableVersions.version(UCSBDate.class));
+    });
+
+    assertEquals(before + 1, tableVersions.version(UCSBDate.class));
+    assertEquals(others, tableVersions.version(UCSBOrganization.class));
+  }
+
+  @Test
+  void updates_and_deletes_bump_the_version() {
+    UCSBDate saved = ucsbDateRepository.save(date("first"));
+    long afterInsert = tableVersions.version(UCSBDate.class);
+
+    saved.setName("renamed");
+    saved = ucsbDateRepository.save(saved);
+    long afterUpdate = tableVersions.version(UCSBDate.class);
+    ucsbDateRepository.delete(saved);
+
+    assertEquals(afterInsert + 1, afterUpdate);
+    assertEquals(afterUpdate + 1, tableVersions.version(UCSBDate.class));
+  }
+
+  @Test
+  void a_rolled_back_transaction_leaves_the_version_alone() {
+    long before = tableVersions.version(UCSBDate.class);
+
+    transaction.executeWithoutResult(status -> {
+      ucsbDateRepository.save(date("first"));
+      entityManager.flush();
+      status.setRollbackOnly();
+    });
+
+    assertEquals(before, tableVersions.version(UCSBDate.class));
+  }
+}
@@ -4,8 +4,11 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 
 
+import edu.ucsb.cs156.example.services.AdminStatusService;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.ReferenceDataCache;
+import edu.ucsb.cs156.example.services.TableVersions;
 
 @TestConfiguration
 public class TestConfig {
@@ -20,4 +23,19 @@ public class TestConfig {
         return new GrantedAuthoritiesService();
     }
 
+    @Bean
+    public TableVersions tableVersions() {
+        return new TableVersions();
+    }
+
+    @Bean
+    public ReferenceDataCache referenceDataCache() {
+        return new ReferenceDataCache();
+    }
+
+    @Bean
+    public AdminStatusService adminStatusService() {
+        return new AdminStatusService();
+    }
+
 }